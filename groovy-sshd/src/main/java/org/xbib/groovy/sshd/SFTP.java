@@ -2,6 +2,7 @@ package org.xbib.groovy.sshd;
 
 import groovy.lang.Closure;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -28,7 +29,7 @@ import java.util.EnumSet;
 import java.util.Map;
 import java.util.Set;
 
-public class SFTP {
+public class SFTP implements Closeable {
 
     private static final int READ_BUFFER_SIZE = 128 * 1024;
 
@@ -44,9 +45,15 @@ public class SFTP {
 
     private final Map<String, ?> env;
 
-    private SFTP(String url, Map<String, ?> env) {
+    private final SFTPContextPool pool;
+
+    private final boolean ownsPool;
+
+    private SFTP(String url, Map<String, ?> env, SFTPContextPool pool, boolean ownsPool) {
         this.url = url;
         this.env = env;
+        this.pool = pool;
+        this.ownsPool = ownsPool;
     }
 
     public static SFTP newInstance() {
@@ -61,8 +68,44 @@ public class SFTP {
         return newInstance(url, Collections.emptyMap());
     }
 
+    /**
+     * Create a new SFTP instance. If the environment contains {@code pooled} set to {@code true},
+     * the instance keeps its connections in a {@link SFTPContextPool} configured by the {@code pool.*}
+     * settings, and the instance must be closed to release them.
+     *
+     * @param url the URL
+     * @param env the environment
+     * @return the SFTP instance
+     */
     public static SFTP newInstance(String url, Map<String, ?> env) {
-        return new SFTP(url, env);
+        if ("true".equals(String.valueOf(env.get("pooled")))) {
+            return new SFTP(url, env, SFTPContextPool.fromEnv(env), true);
+        }
+        return new SFTP(url, env, null, false);
+    }
+
+    /**
+     * Create a new SFTP instance that borrows its connections from a shared pool.
+     * The pool is not closed when this instance is closed.
+     *
+     * @param url the URL
+     * @param env the environment
+     * @param pool the pool
+     * @return the SFTP instance
+     */
+    public static SFTP newInstance(String url, Map<String, ?> env, SFTPContextPool pool) {
+        return new SFTP(url, env, pool, false);
+    }
+
+    public SFTPContextPool getPool() {
+        return pool;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (ownsPool) {
+            pool.close();
+        }
     }
 
     public Boolean exists(String path) throws Exception {
@@ -371,18 +414,23 @@ public class SFTP {
     }
 
     private <T> T performWithContext(WithContext<T> action) throws Exception {
-        SFTPContext ctx = null;
-        try {
-            if (url != null) {
-                ctx = new SFTPContext(URI.create(url), env);
+        if (url == null) {
+            return null;
+        }
+        if (pool != null) {
+            URI uri = URI.create(url);
+            SFTPContext ctx = pool.borrow(uri, env);
+            try {
                 return action.perform(ctx);
-            } else {
-                return null;
+            } finally {
+                pool.release(uri, env, ctx);
             }
+        }
+        SFTPContext ctx = new SFTPContext(URI.create(url), env);
+        try {
+            return action.perform(ctx);
         } finally {
-            if (ctx != null) {
-                ctx.close();
-            }
+            ctx.close();
         }
     }
 }
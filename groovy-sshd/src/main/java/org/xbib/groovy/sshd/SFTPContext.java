@@ -1,6 +1,7 @@
 package org.xbib.groovy.sshd;
 
 import org.apache.sshd.client.ClientBuilder;
+import org.apache.sshd.client.SftpClient;
 import org.apache.sshd.client.SshClient;
 import org.apache.sshd.fs.SftpFileSystem;
 import org.apache.sshd.fs.SftpFileSystemProvider;
@@ -19,6 +20,10 @@ class SFTPContext {
 
     final SftpFileSystem fileSystem;
 
+    private final long createdAt;
+
+    private volatile long lastUsedAt;
+
     SFTPContext(URI uri, Map<String, ?> env) throws IOException {
         this.sshClient = ClientBuilder.builder().build();
         Object object = env.get("workers");
@@ -33,6 +38,48 @@ class SFTPContext {
         sshClient.start();
         this.provider = new SftpFileSystemProvider(sshClient);
         this.fileSystem = provider.newFileSystem(uri, env);
+        this.createdAt = System.currentTimeMillis();
+        this.lastUsedAt = createdAt;
+    }
+
+    SFTPContext(SshClient sshClient, SftpFileSystemProvider provider, SftpFileSystem fileSystem) {
+        this.sshClient = sshClient;
+        this.provider = provider;
+        this.fileSystem = fileSystem;
+        this.createdAt = System.currentTimeMillis();
+        this.lastUsedAt = createdAt;
+    }
+
+    long getCreatedAt() {
+        return createdAt;
+    }
+
+    long getLastUsedAt() {
+        return lastUsedAt;
+    }
+
+    void touch() {
+        lastUsedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Checks if the underlying session is still usable.
+     *
+     * @param roundTrip if {@code true}, also send a request to the server and wait for the reply
+     * @return {@code true} if the context can be used for further operations
+     */
+    boolean isValid(boolean roundTrip) {
+        if (!sshClient.isOpen() || !fileSystem.isOpen()) {
+            return false;
+        }
+        if (roundTrip) {
+            try (SftpClient client = fileSystem.getClient()) {
+                client.canonicalPath(".");
+            } catch (IOException e) {
+                return false;
+            }
+        }
+        return true;
     }
 
     void close() throws IOException {
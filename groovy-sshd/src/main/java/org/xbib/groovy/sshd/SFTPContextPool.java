@@ -0,0 +1,332 @@
+package org.xbib.groovy.sshd;
+
+import org.apache.sshd.common.util.threads.ThreadUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A bounded pool of authenticated {@link SFTPContext}s, keyed by URI and environment, so that
+ * a context is only handed out to callers that would have connected and authenticated the same way.
+ * Idle contexts are evicted after the idle timeout, and every context is closed once it
+ * reaches its maximum lifetime. A context is checked for health before it is handed out.
+ */
+public class SFTPContextPool implements Closeable {
+
+    public static final int DEFAULT_MAX_SIZE = 8;
+
+    public static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(1L);
+
+    public static final Duration DEFAULT_MAX_LIFETIME = Duration.ofMinutes(30L);
+
+    public static final Duration DEFAULT_BORROW_TIMEOUT = Duration.ofSeconds(30L);
+
+    private final int maxSize;
+
+    private final long idleTimeout;
+
+    private final long maxLifetime;
+
+    private final long borrowTimeout;
+
+    private final boolean testOnBorrow;
+
+    private final Semaphore permits;
+
+    private final Map<String, Deque<SFTPContext>> idle;
+
+    private final ScheduledExecutorService evictor;
+
+    private int activeCount;
+
+    private boolean closed;
+
+    public SFTPContextPool() {
+        this(DEFAULT_MAX_SIZE, DEFAULT_IDLE_TIMEOUT, DEFAULT_MAX_LIFETIME, DEFAULT_BORROW_TIMEOUT, false);
+    }
+
+    public SFTPContextPool(int maxSize, Duration idleTimeout, Duration maxLifetime,
+                           Duration borrowTimeout, boolean testOnBorrow) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("pool size must be positive: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.idleTimeout = Objects.requireNonNull(idleTimeout, "no idle timeout").toMillis();
+        this.maxLifetime = Objects.requireNonNull(maxLifetime, "no max lifetime").toMillis();
+        this.borrowTimeout = Objects.requireNonNull(borrowTimeout, "no borrow timeout").toMillis();
+        this.testOnBorrow = testOnBorrow;
+        this.permits = new Semaphore(maxSize, true);
+        this.idle = new HashMap<>();
+        this.evictor = ThreadUtils.newSingleThreadScheduledExecutor("sftp-pool-evictor");
+        long period = Math.max(1000L, Math.min(this.idleTimeout, this.maxLifetime) / 2L);
+        evictor.scheduleWithFixedDelay(this::evict, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a pool from the {@code pool.*} settings in the environment: {@code pool.maxSize},
+     * {@code pool.idleTimeout}, {@code pool.maxLifetime} and {@code pool.borrowTimeout}
+     * (all in milliseconds) and {@code pool.testOnBorrow}.
+     *
+     * @param env the environment
+     * @return a new pool
+     */
+    public static SFTPContextPool fromEnv(Map<String, ?> env) {
+        return new SFTPContextPool(getInt(env, "pool.maxSize", DEFAULT_MAX_SIZE),
+                getDuration(env, "pool.idleTimeout", DEFAULT_IDLE_TIMEOUT),
+                getDuration(env, "pool.maxLifetime", DEFAULT_MAX_LIFETIME),
+                getDuration(env, "pool.borrowTimeout", DEFAULT_BORROW_TIMEOUT),
+                "true".equals(String.valueOf(env.get("pool.testOnBorrow"))));
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public synchronized int getIdleCount() {
+        int count = 0;
+        for (Deque<SFTPContext> deque : idle.values()) {
+            count += deque.size();
+        }
+        return count;
+    }
+
+    public synchronized int getActiveCount() {
+        return activeCount;
+    }
+
+    SFTPContext borrow(URI uri, Map<String, ?> env) throws Exception {
+        String key = key(uri, env);
+        while (true) {
+            SFTPContext ctx = pollIdle(key);
+            if (ctx == null) {
+                break;
+            }
+            if (isUsable(ctx, System.currentTimeMillis()) && ctx.isValid(testOnBorrow)) {
+                return ctx;
+            }
+            synchronized (this) {
+                activeCount--;
+            }
+            destroy(ctx);
+        }
+        if (!permits.tryAcquire()) {
+            // make room by dropping an idle context of another key
+            SFTPContext eldest = pollEldestIdle();
+            if (eldest != null) {
+                destroy(eldest);
+            }
+            if (!permits.tryAcquire(borrowTimeout, TimeUnit.MILLISECONDS)) {
+                throw new TimeoutException("no SFTP context available for " + uri + " within " + borrowTimeout + " ms");
+            }
+        }
+        try {
+            SFTPContext ctx = createContext(uri, env);
+            synchronized (this) {
+                if (closed) {
+                    ctx.close();
+                    throw new IOException("pool is closed");
+                }
+                activeCount++;
+            }
+            return ctx;
+        } catch (Exception e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    void release(URI uri, Map<String, ?> env, SFTPContext ctx) throws IOException {
+        ctx.touch();
+        synchronized (this) {
+            activeCount--;
+            if (!closed && isUsable(ctx, ctx.getLastUsedAt()) && ctx.isValid(false)) {
+                idle.computeIfAbsent(key(uri, env), k -> new ArrayDeque<>()).addFirst(ctx);
+                return;
+            }
+        }
+        destroy(ctx);
+    }
+
+    SFTPContext createContext(URI uri, Map<String, ?> env) throws IOException {
+        return new SFTPContext(uri, env);
+    }
+
+    /**
+     * Close all contexts that have been idle for too long or that exceeded their lifetime.
+     */
+    public void evict() {
+        long now = System.currentTimeMillis();
+        List<SFTPContext> expired = new ArrayList<>();
+        synchronized (this) {
+            for (Iterator<Deque<SFTPContext>> it = idle.values().iterator(); it.hasNext();) {
+                Deque<SFTPContext> deque = it.next();
+                deque.removeIf(ctx -> {
+                    boolean evict = now - ctx.getLastUsedAt() >= idleTimeout || !isUsable(ctx, now);
+                    if (evict) {
+                        expired.add(ctx);
+                    }
+                    return evict;
+                });
+                if (deque.isEmpty()) {
+                    it.remove();
+                }
+            }
+        }
+        for (SFTPContext ctx : expired) {
+            destroyQuietly(ctx);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        List<SFTPContext> contexts = new ArrayList<>();
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            idle.values().forEach(contexts::addAll);
+            idle.clear();
+        }
+        evictor.shutdownNow();
+        IOException exception = null;
+        for (SFTPContext ctx : contexts) {
+            try {
+                destroy(ctx);
+            } catch (IOException e) {
+                if (exception == null) {
+                    exception = e;
+                } else {
+                    exception.addSuppressed(e);
+                }
+            }
+        }
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    private synchronized SFTPContext pollIdle(String key) throws IOException {
+        if (closed) {
+            throw new IOException("pool is closed");
+        }
+        Deque<SFTPContext> deque = idle.get(key);
+        SFTPContext ctx = deque != null ? deque.pollFirst() : null;
+        if (ctx != null) {
+            activeCount++;
+        }
+        return ctx;
+    }
+
+    private synchronized SFTPContext pollEldestIdle() {
+        Deque<SFTPContext> eldest = null;
+        for (Deque<SFTPContext> deque : idle.values()) {
+            if (!deque.isEmpty() && (eldest == null
+                    || deque.peekLast().getLastUsedAt() < eldest.peekLast().getLastUsedAt())) {
+                eldest = deque;
+            }
+        }
+        return eldest != null ? eldest.pollLast() : null;
+    }
+
+    private boolean isUsable(SFTPContext ctx, long now) {
+        return now - ctx.getCreatedAt() < maxLifetime;
+    }
+
+    private void destroy(SFTPContext ctx) throws IOException {
+        try {
+            ctx.close();
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void destroyQuietly(SFTPContext ctx) {
+        try {
+            destroy(ctx);
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+
+    /**
+     * The key is a digest of the URI (including any user info) and of all the environment settings,
+     * since any of them may change how a context connects or authenticates, so that no password is
+     * kept in clear by the pool. Values are compared by their string form, except for {@code char[]}
+     * passwords, which are compared by content.
+     */
+    private static String key(URI uri, Map<String, ?> env) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        update(digest, uri.toString().toCharArray());
+        for (String setting : new TreeSet<>(env.keySet())) {
+            Object value = env.get(setting);
+            update(digest, setting.toCharArray());
+            update(digest, value instanceof char[] ? (char[]) value
+                    : value != null ? value.toString().toCharArray() : null);
+        }
+        return Base64.getEncoder().encodeToString(digest.digest());
+    }
+
+    private static void update(MessageDigest digest, char[] value) {
+        if (value == null) {
+            digest.update((byte) 0);
+            return;
+        }
+        ByteBuffer bytes = StandardCharsets.UTF_8.encode(CharBuffer.wrap(value));
+        digest.update((byte) 1);
+        digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.remaining()).flip());
+        digest.update(bytes);
+        if (bytes.hasArray()) {
+            Arrays.fill(bytes.array(), (byte) 0);
+        }
+    }
+
+    private static int getInt(Map<String, ?> env, String key, int defaultValue) {
+        Object object = env.get(key);
+        if (object instanceof Number) {
+            return ((Number) object).intValue();
+        } else if (object instanceof String) {
+            return Integer.parseInt((String) object);
+        }
+        return defaultValue;
+    }
+
+    private static Duration getDuration(Map<String, ?> env, String key, Duration defaultValue) {
+        Object object = env.get(key);
+        if (object instanceof Duration) {
+            return (Duration) object;
+        } else if (object instanceof Number) {
+            return Duration.ofMillis(((Number) object).longValue());
+        } else if (object instanceof String) {
+            return Duration.ofMillis(Long.parseLong((String) object));
+        }
+        return defaultValue;
+    }
+}
@@ -0,0 +1,156 @@
+package org.xbib.groovy.sshd
+
+import org.apache.sshd.client.SshClient
+import org.apache.sshd.fs.SftpFileSystem
+import org.apache.sshd.fs.SftpFileSystemProvider
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.Test
+
+import java.time.Duration
+import java.util.concurrent.TimeoutException
+
+import static org.junit.jupiter.api.Assertions.assertEquals
+import static org.junit.jupiter.api.Assertions.assertFalse
+import static org.junit.jupiter.api.Assertions.assertNotSame
+import static org.junit.jupiter.api.Assertions.assertSame
+import static org.junit.jupiter.api.Assertions.assertThrows
+import static org.junit.jupiter.api.Assertions.assertTrue
+
+/**
+ * Runs the pool on contexts that do not connect anywhere.
+ */
+class SFTPContextPoolTest {
+
+    static final URI LOCALHOST = URI.create('sftp://localhost:2222')
+
+    TestPool pool = new TestPool(2, Duration.ofMillis(100L))
+
+    @AfterEach
+    void tearDown() {
+        pool.close()
+    }
+
+    @Test
+    void testReuse() {
+        Map<String, ?> env = [username: 'demo', password: 'demo'.toCharArray()]
+        SFTPContext ctx = pool.borrow(LOCALHOST, env)
+        assertEquals(1, pool.activeCount)
+        pool.release(LOCALHOST, env, ctx)
+        assertEquals(0, pool.activeCount)
+        assertEquals(1, pool.idleCount)
+
+        // equal settings in another map, in another order
+        Map<String, ?> same = [password: 'demo'.toCharArray(), username: 'demo']
+        assertSame(ctx, pool.borrow(LOCALHOST, same))
+        pool.release(LOCALHOST, same, ctx)
+        assertEquals(1, pool.created.size())
+    }
+
+    @Test
+    void testKeyedByAllSettings() {
+        Map<String, ?> env = [username: 'demo', password: 'demo'.toCharArray()]
+        SFTPContext ctx = pool.borrow(LOCALHOST, env)
+        pool.release(LOCALHOST, env, ctx)
+
+        List<Map<String, ?>> others = [
+                [username: 'demo', password: 'other'.toCharArray()],
+                [username: 'demo', password: 'demo'.toCharArray(), workers: 4],
+                [username: 'demo', password: 'demo'.toCharArray(), knownHosts: '/tmp/known_hosts'],
+                [username: 'demo']
+        ]
+        for (Map<String, ?> other : others) {
+            SFTPContext otherCtx = pool.borrow(LOCALHOST, other)
+            assertNotSame(ctx, otherCtx, other.keySet().toString())
+            pool.release(LOCALHOST, other, otherCtx)
+        }
+        assertNotSame(ctx, pool.borrow(URI.create('sftp://other@localhost:2222'), env))
+    }
+
+    @Test
+    void testInvalidContextDiscarded() {
+        Map<String, ?> env = [username: 'demo']
+        TestContext ctx = (TestContext) pool.borrow(LOCALHOST, env)
+        ctx.valid = false
+        pool.release(LOCALHOST, env, ctx)
+        assertTrue(ctx.closed)
+        assertEquals(0, pool.idleCount)
+
+        TestContext next = (TestContext) pool.borrow(LOCALHOST, env)
+        assertNotSame(ctx, next)
+        pool.release(LOCALHOST, env, next)
+        next.valid = false
+        assertNotSame(next, pool.borrow(LOCALHOST, env))
+        assertTrue(next.closed)
+    }
+
+    @Test
+    void testBoundedSize() {
+        Map<String, ?> env = [username: 'demo']
+        SFTPContext first = pool.borrow(LOCALHOST, env)
+        SFTPContext second = pool.borrow(LOCALHOST, env)
+        assertThrows(TimeoutException) { pool.borrow(LOCALHOST, env) }
+
+        // an idle context of another key makes room
+        pool.release(LOCALHOST, env, first)
+        TestContext third = (TestContext) pool.borrow(LOCALHOST, [username: 'other'])
+        assertTrue(((TestContext) first).closed)
+        assertEquals(2, pool.activeCount)
+        pool.release(LOCALHOST, env, second)
+        pool.release(LOCALHOST, [username: 'other'], third)
+        assertFalse(third.closed)
+    }
+
+    @Test
+    void testCloseDestroysIdle() {
+        Map<String, ?> env = [username: 'demo']
+        TestContext ctx = (TestContext) pool.borrow(LOCALHOST, env)
+        pool.release(LOCALHOST, env, ctx)
+        pool.close()
+        assertTrue(ctx.closed)
+        assertThrows(IOException) { pool.borrow(LOCALHOST, env) }
+    }
+
+    @Test
+    void testPoolFromEnv() {
+        SFTP sftp = SFTP.newInstance('sftp://localhost:2222',
+                [pooled: true, 'pool.maxSize': 3, 'pool.borrowTimeout': '1000'])
+        SFTPContextPool ownPool = sftp.pool
+        assertEquals(3, ownPool.maxSize)
+        sftp.close()
+        assertThrows(IOException) { ownPool.borrow(LOCALHOST, [:]) }
+    }
+
+    static class TestPool extends SFTPContextPool {
+
+        List<TestContext> created = []
+
+        TestPool(int maxSize, Duration borrowTimeout) {
+            super(maxSize, DEFAULT_IDLE_TIMEOUT, DEFAULT_MAX_LIFETIME, borrowTimeout, false)
+        }
+
+        SFTPContext createContext(URI uri, Map<String, ?> env) {
+            TestContext ctx = new TestContext()
+            created.add(ctx)
+            ctx
+        }
+    }
+
+    static class TestContext extends SFTPContext {
+
+        boolean valid = true
+
+        boolean closed
+
+        TestContext() {
+            super((SshClient) null, (SftpFileSystemProvider) null, (SftpFileSystem) null)
+        }
+
+        boolean isValid(boolean roundTrip) {
+            valid && !closed
+        }
+
+        void close() {
+            closed = true
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.sshd.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.sshd.common.util.buffer.Buffer;
+import org.apache.sshd.common.util.buffer.ByteArrayBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Writes and reads back the typical contents of SSH messages with a re-used {@link ByteArrayBuffer}
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BufferBenchmark {
+    private Buffer buffer;
+    private byte[] data;
+
+    public BufferBenchmark() {
+        super();
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        buffer = new ByteArrayBuffer(ByteArrayBuffer.DEFAULT_SIZE);
+        data = new byte[1024];
+    }
+
+    @Benchmark
+    public void putAndGetNumbers(Blackhole blackhole) {
+        buffer.clear();
+        for (int i = 0; i < 16; i++) {
+            buffer.putByte((byte) i);
+            buffer.putInt(i);
+            buffer.putLong(i);
+            buffer.putBoolean((i & 1) != 0);
+        }
+        for (int i = 0; i < 16; i++) {
+            blackhole.consume(buffer.getByte());
+            blackhole.consume(buffer.getInt());
+            blackhole.consume(buffer.getLong());
+            blackhole.consume(buffer.getBoolean());
+        }
+    }
+
+    @Benchmark
+    public void putAndGetStrings(Blackhole blackhole) {
+        buffer.clear();
+        buffer.putString("session");
+        buffer.putString("/home/benchmark/some/directory/some-file-name.txt");
+        buffer.putString("hmac-sha2-256-etm@openssh.com");
+        blackhole.consume(buffer.getString());
+        blackhole.consume(buffer.getString());
+        blackhole.consume(buffer.getString());
+    }
+
+    @Benchmark
+    public void putAndGetBytes(Blackhole blackhole) {
+        buffer.clear();
+        buffer.putBytes(data);
+        blackhole.consume(buffer.getBytes());
+    }
+
+    @Benchmark
+    public void putAndGetBytesInPlace(Blackhole blackhole) {
+        buffer.clear();
+        buffer.putBytes(data);
+        int len = buffer.getInt();
+        buffer.getRawBytes(data, 0, len);
+        blackhole.consume(data);
+    }
+}
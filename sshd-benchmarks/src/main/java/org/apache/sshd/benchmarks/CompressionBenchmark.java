@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.sshd.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.sshd.common.compression.Compression;
+import org.apache.sshd.common.compression.CompressionZlib;
+import org.apache.sshd.common.util.buffer.Buffer;
+import org.apache.sshd.common.util.buffer.ByteArrayBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compresses - and un-compresses - packet payloads with {@link CompressionZlib}, using the same flushing as the
+ * transport does, for text-like (compressible) and random (incompressible) data.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CompressionBenchmark {
+    @Param({ "text", "random" })
+    public String data;
+
+    @Param({ "256", "4096", "32768" })
+    public int payloadSize;
+
+    // separate streams, so that each benchmark keeps its deflater and inflater in sync
+    private CompressionZlib compression;
+    private CompressionZlib roundTripCompression;
+    private byte[] payload;
+    private Buffer packet;
+    private Buffer uncompressed;
+
+    public CompressionBenchmark() {
+        super();
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        compression = new CompressionZlib();
+        compression.init(Compression.Type.Deflater, -1);
+        roundTripCompression = new CompressionZlib();
+        roundTripCompression.init(Compression.Type.Deflater, -1);
+
+        payload = new byte[payloadSize];
+        if ("random".equals(data)) {
+            new Random(payloadSize).nextBytes(payload);
+        } else {
+            byte[] line = "drwxr-xr-x  2 benchmark users  4096 Jan  1 00:00 some-directory-name\n"
+                    .getBytes(StandardCharsets.US_ASCII);
+            for (int i = 0; i < payload.length; i++) {
+                payload[i] = line[i % line.length];
+            }
+        }
+
+        packet = new ByteArrayBuffer(payloadSize + Long.SIZE);
+        uncompressed = new ByteArrayBuffer(payloadSize + Long.SIZE);
+    }
+
+    @Benchmark
+    public Buffer compress(ByteCounter counter) throws Exception {
+        return compress(compression, counter);
+    }
+
+    @Benchmark
+    public Buffer compressAndUncompress(ByteCounter counter) throws Exception {
+        Buffer compressed = compress(roundTripCompression, counter);
+        uncompressed.clear();
+        roundTripCompression.uncompress(compressed, uncompressed);
+        return uncompressed;
+    }
+
+    private Buffer compress(Compression zlib, ByteCounter counter) throws Exception {
+        packet.clear();
+        packet.putRawBytes(payload);
+        zlib.compress(packet);
+        counter.bytes += payload.length;
+        return packet;
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.sshd.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.security.PublicKey;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xbib.io.sshd.eddsa.EdDSAEngine;
+import org.xbib.io.sshd.eddsa.EdDSAPrivateKey;
+import org.xbib.io.sshd.eddsa.EdDSAPublicKey;
+import org.xbib.io.sshd.eddsa.spec.EdDSANamedCurveTable;
+import org.xbib.io.sshd.eddsa.spec.EdDSAParameterSpec;
+import org.xbib.io.sshd.eddsa.spec.EdDSAPrivateKeySpec;
+import org.xbib.io.sshd.eddsa.spec.EdDSAPublicKeyCache;
+import org.xbib.io.sshd.eddsa.spec.EdDSAPublicKeySpec;
+
+/**
+ * Signs and verifies with the {@link EdDSAEngine} - one signature at a time or as a batch of signatures by a few
+ * keys - and decodes public keys with and without the {@link EdDSAPublicKeyCache}.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class Ed25519Benchmark {
+    public static final int BATCH_SIZE = 32;
+
+    private static final int KEYS = 4;
+
+    /**
+     * Whether the decoded public keys are cached - only affects the decoding and batch verification benchmarks
+     */
+    @Param({ "true", "false" })
+    public boolean cached;
+
+    private EdDSAParameterSpec spec;
+    private EdDSAEngine signer;
+    private EdDSAEngine verifier;
+    private byte[] message;
+    private byte[] signature;
+    private byte[] encodedKey;
+    private PublicKey[] batchKeys;
+    private byte[][] batchData;
+    private byte[][] batchSignatures;
+
+    public Ed25519Benchmark() {
+        super();
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        EdDSAPublicKeyCache.getDefault().setMaxSize(cached ? EdDSAPublicKeyCache.DEFAULT_MAX_SIZE : 0);
+        EdDSAPublicKeyCache.getDefault().clear();
+
+        spec = EdDSANamedCurveTable.getByName("Ed25519");
+        EdDSAPrivateKey[] privateKeys = new EdDSAPrivateKey[KEYS];
+        EdDSAPublicKey[] publicKeys = new EdDSAPublicKey[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            byte[] seed = new byte[32];
+            seed[0] = (byte) (i + 1);
+            EdDSAPrivateKeySpec privateSpec = new EdDSAPrivateKeySpec(seed, spec);
+            privateKeys[i] = new EdDSAPrivateKey(privateSpec);
+            publicKeys[i] = new EdDSAPublicKey(new EdDSAPublicKeySpec(privateSpec.getA(), spec));
+        }
+
+        // a typical SSH user authentication signature input
+        message = new byte[148];
+        byte[] text = "ssh-connection publickey ssh-ed25519".getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(text, 0, message, message.length - text.length, text.length);
+
+        signer = new EdDSAEngine();
+        signer.initSign(privateKeys[0]);
+        signature = signer.signOneShot(message);
+        verifier = new EdDSAEngine();
+        verifier.initVerify(publicKeys[0]);
+        encodedKey = publicKeys[0].getAbyte();
+
+        batchKeys = new PublicKey[BATCH_SIZE];
+        batchData = new byte[BATCH_SIZE][];
+        batchSignatures = new byte[BATCH_SIZE][];
+        EdDSAEngine engine = new EdDSAEngine();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            int k = i % KEYS;
+            batchData[i] = message.clone();
+            batchData[i][0] = (byte) i;
+            engine.initSign(privateKeys[k]);
+            batchSignatures[i] = engine.signOneShot(batchData[i]);
+            // distinct key instances, as if decoded from each message
+            batchKeys[i] = new EdDSAPublicKey(new EdDSAPublicKeySpec(publicKeys[k].getAbyte(), spec));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        EdDSAPublicKeyCache.getDefault().setMaxSize(EdDSAPublicKeyCache.DEFAULT_MAX_SIZE);
+    }
+
+    @Benchmark
+    public byte[] sign() throws Exception {
+        return signer.signOneShot(message);
+    }
+
+    @Benchmark
+    public boolean verify() throws Exception {
+        return verifier.verifyOneShot(message, signature);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public boolean[] verifyBatch() throws Exception {
+        return verifier.verifyBatch(batchKeys, batchData, batchSignatures);
+    }
+
+    @Benchmark
+    public EdDSAPublicKeySpec decodePublicKey() {
+        return new EdDSAPublicKeySpec(encodedKey, spec);
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.sshd.benchmarks;
+
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.sshd.client.config.hosts.KnownHostDigest;
+import org.apache.sshd.client.config.hosts.KnownHostEntry;
+import org.apache.sshd.client.config.hosts.KnownHostHashValue;
+import org.apache.sshd.client.keyverifier.KnownHostsIndex;
+import org.apache.sshd.client.keyverifier.KnownHostsServerKeyVerifier.HostEntryPair;
+import org.apache.sshd.common.SshConstants;
+import org.apache.sshd.common.config.keys.PublicKeyEntryResolver;
+import org.apache.sshd.common.util.net.SshdSocketAddress;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Looks up the entry of a host in a large {@code known_hosts} file - with the {@link KnownHostsIndex} and with a
+ * linear scan of the entries, for plain and for hashed host names.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class KnownHostsBenchmark {
+    private static final String KEY = "ssh-ed25519 AAAAC3NzaC1lZDI1NTE5AAAAIGJpvkcN2ndKAF/vNZWcTtHrpg0NWyjTI8bM9PKGIhhZ";
+
+    @Param({ "100", "10000" })
+    public int entries;
+
+    @Param({ "false", "true" })
+    public boolean hashed;
+
+    private List<HostEntryPair> pairs;
+    private KnownHostsIndex index;
+    private String host;
+    private int port;
+    private List<SshdSocketAddress> candidates;
+
+    public KnownHostsBenchmark() {
+        super();
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        pairs = new ArrayList<>(entries);
+        PublicKey key = null;
+        for (int i = 0; i < entries; i++) {
+            String name = "host-" + i + ".example.com";
+            String pattern;
+            if (hashed) {
+                byte[] salt = new byte[20];
+                salt[0] = (byte) i;
+                salt[1] = (byte) (i >> 8);
+                byte[] digest = KnownHostHashValue.calculateHashValue(
+                        name, SshConstants.DEFAULT_PORT, KnownHostDigest.SHA1, salt);
+                pattern = KnownHostHashValue.append(new StringBuilder(), KnownHostDigest.SHA1, salt, digest).toString();
+            } else {
+                pattern = name + "," + "10.0." + (i >> 8 & 0xFF) + "." + (i & 0xFF);
+            }
+            KnownHostEntry entry = KnownHostEntry.parseKnownHostEntry(pattern + " " + KEY);
+            if (key == null) {
+                key = entry.getKeyEntry().resolvePublicKey(null, PublicKeyEntryResolver.FAILING);
+            }
+            pairs.add(new HostEntryPair(entry, key));
+        }
+        index = new KnownHostsIndex(pairs);
+
+        // the worst case of a linear scan
+        host = "host-" + (entries - 1) + ".example.com";
+        port = SshConstants.DEFAULT_PORT;
+        candidates = Collections.singletonList(new SshdSocketAddress(host, port));
+    }
+
+    @Benchmark
+    public HostEntryPair indexLookup() {
+        return index.findMatch(candidates);
+    }
+
+    @Benchmark
+    public HostEntryPair linearScan() {
+        for (HostEntryPair pair : pairs) {
+            if (pair.getHostEntry().isHostMatch(host, port)) {
+                return pair;
+            }
+        }
+        return null;
+    }
+}
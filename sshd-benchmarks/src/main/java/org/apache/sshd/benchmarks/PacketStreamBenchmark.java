@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.sshd.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.sshd.benchmarks.loopback.InMemoryIoSession;
+import org.apache.sshd.benchmarks.loopback.LoopbackConnection;
+import org.apache.sshd.benchmarks.loopback.LoopbackSession;
+import org.apache.sshd.client.SshClient;
+import org.apache.sshd.common.SshConstants;
+import org.apache.sshd.common.util.buffer.Buffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Writes a batch of packets of mixed sizes - from window adjustments to full data packets - and delivers the
+ * whole stream to the peer in reads of a given size, so that the decoder sees packets split across reads as well
+ * as many packets per read.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PacketStreamBenchmark {
+    public static final int BATCH_SIZE = 64;
+
+    private static final int[] PAYLOAD_SIZES = { 4, 32, 1024, 16, 32768, 256, 8, 4096 };
+
+    @Param({ "aes128-ctr:hmac-sha2-256-etm@openssh.com", "aes128-gcm@openssh.com", "chacha20-poly1305@openssh.com" })
+    public String suite;
+
+    /**
+     * The size of each read delivered to the decoder - zero for the whole batch at once
+     */
+    @Param({ "0", "1460", "65536" })
+    public int readSize;
+
+    private SshClient client;
+    private LoopbackConnection connection;
+    private byte[] payload;
+
+    public PacketStreamBenchmark() {
+        super();
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        String[] names = suite.split(":");
+        client = LoopbackConnection.setUpClient();
+        connection = new LoopbackConnection(client, names[0], (names.length > 1) ? names[1] : null, "none");
+        connection.getServerSession().setPacketHandler((session, buffer) -> buffer.rpos(buffer.wpos()));
+        connection.getClientIoSession().setDeferred(true);
+        payload = new byte[32768];
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        connection.close();
+        client.stop();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void writeAndDecode(ByteCounter counter) throws Exception {
+        LoopbackSession session = connection.getClientSession();
+        InMemoryIoSession ioSession = connection.getClientIoSession();
+        long written = ioSession.getWrittenBytes();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            int size = PAYLOAD_SIZES[i % PAYLOAD_SIZES.length];
+            Buffer buffer = session.createBuffer(SshConstants.SSH_MSG_CHANNEL_DATA, size + Integer.BYTES * 2);
+            buffer.putInt(0L);
+            buffer.putBytes(payload, 0, size);
+            session.writePacket(buffer);
+        }
+        ioSession.flush(readSize);
+        counter.bytes += ioSession.getWrittenBytes() - written;
+    }
+}
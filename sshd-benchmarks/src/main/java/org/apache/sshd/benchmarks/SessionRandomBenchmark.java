@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.sshd.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.sshd.benchmarks.loopback.LoopbackConnection;
+import org.apache.sshd.benchmarks.loopback.LoopbackSession;
+import org.apache.sshd.client.SshClient;
+import org.apache.sshd.common.SshConstants;
+import org.apache.sshd.common.random.ChaCha20RandomFactory;
+import org.apache.sshd.common.util.buffer.Buffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encodes small packets - whose cost is dominated by the random padding - on several sessions concurrently, with
+ * the default (shared) random generator and with a {@link ChaCha20RandomFactory per-session} one.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Threads(4)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SessionRandomBenchmark {
+    @Param({ "default", ChaCha20RandomFactory.NAME })
+    public String random;
+
+    private SshClient client;
+
+    public SessionRandomBenchmark() {
+        super();
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SshClient c = SshClient.setUpDefaultClient();
+        if (ChaCha20RandomFactory.NAME.equals(random)) {
+            c.setRandomFactory(ChaCha20RandomFactory.INSTANCE);
+        }
+        client = LoopbackConnection.setUpClient(c);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.stop();
+    }
+
+    @Benchmark
+    public void encode(SessionState state) throws Exception {
+        LoopbackSession session = state.session;
+        Buffer buffer = session.createBuffer(SshConstants.SSH_MSG_CHANNEL_WINDOW_ADJUST, Integer.BYTES * 2);
+        buffer.putInt(0L);
+        buffer.putInt(32768L);
+        session.writePacket(buffer);
+    }
+
+    /**
+     * A session of each benchmark thread
+     */
+    @State(Scope.Thread)
+    public static class SessionState {
+        private LoopbackSession session;
+
+        public SessionState() {
+            super();
+        }
+
+        @Setup(Level.Trial)
+        public void setUp(SessionRandomBenchmark benchmark) throws Exception {
+            session = LoopbackConnection.openUnconnected(benchmark.client, "aes128-ctr", "hmac-sha2-256", "none");
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            session.close(true);
+        }
+    }
+}
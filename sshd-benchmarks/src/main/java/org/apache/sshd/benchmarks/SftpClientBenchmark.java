@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.sshd.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.sshd.benchmarks.loopback.LoopbackConnection;
+import org.apache.sshd.client.RawSftpClient;
+import org.apache.sshd.client.SftpClient;
+import org.apache.sshd.client.SshClient;
+import org.apache.sshd.common.SftpConstants;
+import org.apache.sshd.common.util.buffer.Buffer;
+import org.apache.sshd.common.util.buffer.BufferPool;
+import org.apache.sshd.common.util.buffer.ByteArrayBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Matches the SFTP responses to their requests in {@code DefaultSftpClient} - one request at a time, and with
+ * many outstanding requests whose responses are claimed in the reverse order.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SftpClientBenchmark {
+    public static final int PIPELINE_DEPTH = 64;
+
+    private static final String PATH = "/home/benchmark/file.bin";
+
+    private SshClient client;
+    private LoopbackConnection connection;
+    private SftpClient sftp;
+    private RawSftpClient rawSftp;
+    private BufferPool bufferPool;
+    private int[] ids;
+
+    public SftpClientBenchmark() {
+        super();
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        client = LoopbackConnection.setUpClient();
+        connection = new LoopbackConnection(client, "aes128-gcm@openssh.com", null, "none");
+        sftp = connection.openSftpClient(1024L * 1024L);
+        rawSftp = (RawSftpClient) sftp;
+        bufferPool = client.getBufferPool();
+        ids = new int[PIPELINE_DEPTH];
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        sftp.close();
+        connection.close();
+        client.stop();
+    }
+
+    @Benchmark
+    public SftpClient.Attributes stat() throws Exception {
+        return sftp.stat(PATH);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PIPELINE_DEPTH)
+    public void pipelinedStat(Blackhole blackhole) throws Exception {
+        for (int i = 0; i < PIPELINE_DEPTH; i++) {
+            Buffer request = new ByteArrayBuffer(PATH.length() + Long.SIZE, false);
+            request.putString(PATH);
+            ids[i] = rawSftp.send(SftpConstants.SSH_FXP_STAT, request);
+        }
+        for (int i = PIPELINE_DEPTH - 1; i >= 0; i--) {
+            Buffer response = rawSftp.receive(ids[i]);
+            blackhole.consume(response.available());
+            bufferPool.release(response);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.sshd.benchmarks;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.sshd.benchmarks.loopback.LoopbackConnection;
+import org.apache.sshd.client.SftpClient;
+import org.apache.sshd.client.SshClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Transfers whole files with the {@code SftpInputStreamAsync} and {@code SftpOutputStreamAsync} streams of
+ * {@link SftpClient#read(String)} and {@link SftpClient#write(String)}, including the opening and closing of the
+ * remote file.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SftpStreamBenchmark {
+    @Param({ "aes128-ctr:hmac-sha2-256-etm@openssh.com", "aes128-gcm@openssh.com", "chacha20-poly1305@openssh.com" })
+    public String suite;
+
+    @Param({ "65536", "4194304" })
+    public int fileSize;
+
+    private SshClient client;
+    private LoopbackConnection connection;
+    private SftpClient sftp;
+    private byte[] data;
+
+    public SftpStreamBenchmark() {
+        super();
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        String[] names = suite.split(":");
+        client = LoopbackConnection.setUpClient();
+        connection = new LoopbackConnection(client, names[0], (names.length > 1) ? names[1] : null, "none");
+        sftp = connection.openSftpClient(fileSize);
+        data = new byte[32 * 1024];
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        sftp.close();
+        connection.close();
+        client.stop();
+    }
+
+    @Benchmark
+    public long read(ByteCounter counter) throws Exception {
+        long total = 0L;
+        try (InputStream input = sftp.read("/home/benchmark/download.bin")) {
+            for (int len = input.read(data); len >= 0; len = input.read(data)) {
+                total += len;
+            }
+        }
+        if (total != fileSize) {
+            throw new IllegalStateException("Read " + total + " bytes instead of " + fileSize);
+        }
+        counter.bytes += total;
+        return total;
+    }
+
+    @Benchmark
+    public void write(ByteCounter counter) throws Exception {
+        try (OutputStream output = sftp.write("/home/benchmark/upload.bin")) {
+            for (int remaining = fileSize; remaining > 0; remaining -= data.length) {
+                output.write(data, 0, Math.min(data.length, remaining));
+            }
+        }
+        counter.bytes += fileSize;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.sshd.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.sshd.benchmarks.loopback.LoopbackConnection;
+import org.apache.sshd.benchmarks.loopback.LoopbackSession;
+import org.apache.sshd.client.SshClient;
+import org.apache.sshd.common.SshConstants;
+import org.apache.sshd.common.util.buffer.Buffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encodes {@code SSH_MSG_CHANNEL_DATA} packets with {@code AbstractSession#writePacket} and - for the
+ * {@link #roundTrip(ByteCounter)} benchmark - decodes them on the peer session, for the various
+ * cipher / MAC / compression combinations.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TransportCodecBenchmark {
+    /**
+     * The cipher - optionally followed by {@code ':'} and the MAC name for the non-AEAD ones
+     */
+    @Param({
+            "aes128-ctr:hmac-sha2-256",
+            "aes128-ctr:hmac-sha2-256-etm@openssh.com",
+            "aes256-ctr:hmac-sha2-512-etm@openssh.com",
+            "aes128-cbc:hmac-sha1",
+            "aes128-gcm@openssh.com",
+            "chacha20-poly1305@openssh.com" })
+    public String suite;
+
+    @Param({ "none", "zlib" })
+    public String compression;
+
+    @Param({ "64", "1024", "16384" })
+    public int payloadSize;
+
+    private SshClient client;
+    private LoopbackConnection connection;
+    private LoopbackSession unconnected;
+    private byte[] payload;
+
+    public TransportCodecBenchmark() {
+        super();
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        String[] names = suite.split(":");
+        String mac = (names.length > 1) ? names[1] : null;
+        client = LoopbackConnection.setUpClient();
+        connection = new LoopbackConnection(client, names[0], mac, compression);
+        connection.getServerSession().setPacketHandler((session, buffer) -> buffer.rpos(buffer.wpos()));
+        unconnected = LoopbackConnection.openUnconnected(client, names[0], mac, compression);
+
+        // half random and half repetitive, so that compression has something to do but does not win outright
+        payload = new byte[payloadSize];
+        new Random(payloadSize).nextBytes(payload);
+        for (int i = 0; i < payload.length; i += 2) {
+            payload[i] = (byte) ('a' + (i % 26));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        unconnected.close(true);
+        connection.close();
+        client.stop();
+    }
+
+    @Benchmark
+    public void encode(ByteCounter counter) throws Exception {
+        writeData(unconnected, counter);
+    }
+
+    @Benchmark
+    public void roundTrip(ByteCounter counter) throws Exception {
+        writeData(connection.getClientSession(), counter);
+    }
+
+    private void writeData(LoopbackSession session, ByteCounter counter) throws Exception {
+        Buffer buffer = session.createBuffer(SshConstants.SSH_MSG_CHANNEL_DATA, payload.length + Integer.BYTES * 2);
+        buffer.putInt(0L);
+        buffer.putBytes(payload);
+        session.writePacket(buffer);
+        counter.bytes += payload.length;
+    }
+}
@@ -0,0 +1,286 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.sshd.benchmarks.loopback;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.sshd.common.io.AbstractIoWriteFuture;
+import org.apache.sshd.common.io.IoHandler;
+import org.apache.sshd.common.io.IoService;
+import org.apache.sshd.common.io.IoSession;
+import org.apache.sshd.common.io.IoWriteFuture;
+import org.apache.sshd.common.util.GenericUtils;
+import org.apache.sshd.common.util.Readable;
+import org.apache.sshd.common.util.buffer.Buffer;
+import org.apache.sshd.common.util.buffer.ByteArrayBuffer;
+import org.apache.sshd.common.util.closeable.AbstractCloseable;
+
+/**
+ * One end of an in-memory connection. The data written to a session is handed to the {@link IoHandler} of its peer
+ * on the writing thread, so a whole request/response exchange runs on the caller's thread without any socket,
+ * selector or thread hand-off. If {@link #setDeferred(boolean) deferred}, the written data is accumulated until it
+ * is {@link #flush(int) flushed} - e.g., to deliver many packets with a single read. A session without a peer simply
+ * discards what is written to it. The sessions are not thread-safe - each connection is driven by a single thread.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class InMemoryIoSession extends AbstractCloseable implements IoSession {
+    public static final SocketAddress CLIENT_ADDRESS = new InetSocketAddress("127.0.0.1", 50022);
+    public static final SocketAddress SERVER_ADDRESS = new InetSocketAddress("127.0.0.1", 22);
+
+    private static final AtomicLong SESSION_ID_GENERATOR = new AtomicLong(1000L);
+
+    private final long id = SESSION_ID_GENERATOR.incrementAndGet();
+    private final IoHandler ioHandler;
+    private final SocketAddress localAddress;
+    private final SocketAddress remoteAddress;
+    private final Map<Object, Object> attributes = new HashMap<>();
+    private final IoWriteFuture written;
+    private final Buffer pending = new ByteArrayBuffer();
+    private final Buffer inbound = new ByteArrayBuffer();
+    private InMemoryIoSession peer;
+    private boolean deferred;
+    private boolean receiving;
+    private long writtenBytes;
+
+    public InMemoryIoSession(IoHandler handler, SocketAddress localAddress, SocketAddress remoteAddress) {
+        this.ioHandler = Objects.requireNonNull(handler, "No IoHandler");
+        this.localAddress = localAddress;
+        this.remoteAddress = remoteAddress;
+        this.written = new WrittenFuture(this);
+    }
+
+    /**
+     * @param  handler The {@link IoHandler} of both ends
+     * @return         A pair of connected sessions - the first one is the &quot;client&quot; end
+     */
+    public static InMemoryIoSession[] pair(IoHandler handler) {
+        InMemoryIoSession c = new InMemoryIoSession(handler, CLIENT_ADDRESS, SERVER_ADDRESS);
+        InMemoryIoSession s = new InMemoryIoSession(handler, SERVER_ADDRESS, CLIENT_ADDRESS);
+        c.peer = s;
+        s.peer = c;
+        return new InMemoryIoSession[] { c, s };
+    }
+
+    public InMemoryIoSession getPeer() {
+        return peer;
+    }
+
+    public IoHandler getIoHandler() {
+        return ioHandler;
+    }
+
+    public boolean isDeferred() {
+        return deferred;
+    }
+
+    /**
+     * @param deferred Whether to accumulate the written data until {@link #flush(int)} is called
+     */
+    public void setDeferred(boolean deferred) {
+        this.deferred = deferred;
+    }
+
+    /**
+     * @return The total number of bytes written to this session
+     */
+    public long getWrittenBytes() {
+        return writtenBytes;
+    }
+
+    @Override
+    public long getId() {
+        return id;
+    }
+
+    @Override
+    public SocketAddress getAcceptanceAddress() {
+        return null;
+    }
+
+    @Override
+    public SocketAddress getLocalAddress() {
+        return localAddress;
+    }
+
+    @Override
+    public SocketAddress getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    @Override
+    public Object getAttribute(Object key) {
+        synchronized (attributes) {
+            return attributes.get(key);
+        }
+    }
+
+    @Override
+    public Object setAttribute(Object key, Object value) {
+        synchronized (attributes) {
+            return attributes.put(key, value);
+        }
+    }
+
+    @Override
+    public Object setAttributeIfAbsent(Object key, Object value) {
+        synchronized (attributes) {
+            return attributes.putIfAbsent(key, value);
+        }
+    }
+
+    @Override
+    public Object removeAttribute(Object key) {
+        synchronized (attributes) {
+            return attributes.remove(key);
+        }
+    }
+
+    @Override
+    public IoWriteFuture writeBuffer(Buffer buffer) throws IOException {
+        if (isClosing()) {
+            throw new IOException("Session is closing: " + this);
+        }
+
+        writtenBytes += buffer.available();
+        if (peer == null) {
+            buffer.rpos(buffer.wpos());
+        } else if (deferred) {
+            pending.putBuffer(buffer);
+        } else {
+            peer.messageReceived(buffer);
+        }
+        return written;
+    }
+
+    /**
+     * Delivers the deferred data to the peer
+     *
+     * @param readSize The maximum size of each delivered chunk - if non-positive then all the data is delivered at once
+     */
+    public void flush(int readSize) {
+        if (peer == null) {
+            pending.clear();
+            return;
+        }
+
+        if (readSize <= 0) {
+            readSize = pending.available();
+        }
+
+        byte[] data = pending.array();
+        for (int pos = pending.rpos(), end = pending.wpos(); pos < end; pos += readSize) {
+            peer.messageReceived(new ByteArrayBuffer(data, pos, Math.min(readSize, end - pos), true));
+        }
+        pending.clear();
+    }
+
+    /**
+     * Hands the received data to the {@link IoHandler}. A reply may be written back to this session while its
+     * handler is still processing the message - the data received meanwhile is queued and delivered once the
+     * handler returns, just as a socket read would, instead of re-entering the decoder.
+     *
+     * @param message The received data
+     */
+    protected void messageReceived(Readable message) {
+        if (receiving) {
+            inbound.putBuffer(message);
+            return;
+        }
+
+        receiving = true;
+        try {
+            handleMessage(message);
+            while (inbound.available() > 0) {
+                byte[] data = inbound.getCompactData();
+                inbound.clear();
+                handleMessage(new ByteArrayBuffer(data));
+            }
+        } finally {
+            receiving = false;
+        }
+    }
+
+    protected void handleMessage(Readable message) {
+        try {
+            ioHandler.messageReceived(this, message);
+        } catch (Throwable exc) {
+            Throwable t = GenericUtils.peelException(exc);
+            try {
+                ioHandler.exceptionCaught(this, t);
+            } catch (Throwable e) {
+                debug("messageReceived({}) exception handler threw {}, closing the session: {}",
+                        this, e.getClass().getSimpleName(), e.getMessage(), e);
+            }
+            close(true);
+        }
+    }
+
+    @Override
+    public IoService getService() {
+        return null;
+    }
+
+    @Override
+    public void shutdownOutputStream() throws IOException {
+        // nothing to shut down
+    }
+
+    @Override
+    protected void doCloseImmediately() {
+        super.doCloseImmediately();
+
+        try {
+            ioHandler.sessionClosed(this);
+        } catch (Throwable e) {
+            debug("doCloseImmediately({}) {} while calling IoHandler#sessionClosed: {}",
+                    this, e.getClass().getSimpleName(), e.getMessage(), e);
+        }
+
+        synchronized (attributes) {
+            attributes.clear();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName()
+               + "[id=" + getId()
+               + ", local=" + getLocalAddress()
+               + ", remote=" + getRemoteAddress()
+               + "]";
+    }
+
+    /**
+     * The (shared) future of all the writes - which complete once the data has been handed to the peer
+     */
+    protected static class WrittenFuture extends AbstractIoWriteFuture {
+        public WrittenFuture(Object id) {
+            super(id, null);
+            setValue(Boolean.TRUE);
+        }
+    }
+}
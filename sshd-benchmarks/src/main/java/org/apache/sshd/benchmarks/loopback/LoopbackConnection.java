@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.sshd.benchmarks.loopback;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import org.apache.sshd.client.SftpClient;
+import org.apache.sshd.client.SshClient;
+import org.apache.sshd.client.impl.DefaultSftpClientFactory;
+import org.apache.sshd.common.CoreModuleProperties;
+import org.apache.sshd.common.io.IoSession;
+
+/**
+ * A client session connected in memory to a {@link LoopbackSession} playing the server role
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class LoopbackConnection implements Closeable {
+    public static final String USERNAME = "benchmark";
+
+    private final LoopbackSession clientSession;
+    private final LoopbackSession serverSession;
+
+    /**
+     * @param  client      The client - see {@link #setUpClient()}
+     * @param  cipher      The cipher name
+     * @param  mac         The MAC name - ignored for AEAD ciphers
+     * @param  compression The compression name
+     * @throws Exception   If failed to create the sessions
+     */
+    public LoopbackConnection(SshClient client, String cipher, String mac, String compression) throws Exception {
+        InMemoryIoSession[] ends = InMemoryIoSession.pair(LoopbackSession.IO_HANDLER);
+        clientSession = createSession(client, ends[0], cipher, mac, compression, true);
+        serverSession = createSession(client, ends[1], cipher, mac, compression, false);
+    }
+
+    /**
+     * @return A started client that creates the sessions without sending anything
+     */
+    public static SshClient setUpClient() {
+        return setUpClient(SshClient.setUpDefaultClient());
+    }
+
+    /**
+     * @param  client The client to set up - e.g., with a non-default random factory
+     * @return        The started client, set up to create the sessions without sending anything
+     */
+    public static SshClient setUpClient(SshClient client) {
+        CoreModuleProperties.SEND_IMMEDIATE_IDENTIFICATION.set(client, false);
+        client.start();
+        return client;
+    }
+
+    /**
+     * @param  client      The client - see {@link #setUpClient()}
+     * @param  cipher      The cipher name
+     * @param  mac         The MAC name - ignored for AEAD ciphers
+     * @param  compression The compression name
+     * @return             A client session whose written packets are encoded and discarded
+     * @throws Exception   If failed to create the session
+     */
+    public static LoopbackSession openUnconnected(SshClient client, String cipher, String mac, String compression)
+            throws Exception {
+        IoSession ioSession = new InMemoryIoSession(
+                LoopbackSession.IO_HANDLER, InMemoryIoSession.CLIENT_ADDRESS, InMemoryIoSession.SERVER_ADDRESS);
+        return createSession(client, ioSession, cipher, mac, compression, true);
+    }
+
+    protected static LoopbackSession createSession(
+            SshClient client, IoSession ioSession, String cipher, String mac, String compression, boolean clientSide)
+            throws Exception {
+        LoopbackSession session = new LoopbackSession(client, ioSession);
+        session.setUsername(USERNAME);
+        session.establish(cipher, mac, compression, clientSide);
+        return session;
+    }
+
+    /**
+     * Serves SFTP from the server session and opens an SFTP client on the client one
+     *
+     * @param  fileSize    The size of the (virtual) files served for reading
+     * @return             The SFTP client
+     * @throws IOException If failed to open the SFTP channel
+     * @see                SftpLoopbackServer
+     */
+    public SftpClient openSftpClient(long fileSize) throws IOException {
+        serverSession.setPacketHandler(new SftpLoopbackServer(fileSize));
+        clientSession.authenticate();
+        return DefaultSftpClientFactory.INSTANCE.createSftpClient(clientSession);
+    }
+
+    public LoopbackSession getClientSession() {
+        return clientSession;
+    }
+
+    public LoopbackSession getServerSession() {
+        return serverSession;
+    }
+
+    public InMemoryIoSession getClientIoSession() {
+        return (InMemoryIoSession) clientSession.getIoSession();
+    }
+
+    public InMemoryIoSession getServerIoSession() {
+        return (InMemoryIoSession) serverSession.getIoSession();
+    }
+
+    @Override
+    public void close() throws IOException {
+        clientSession.close(true);
+        serverSession.close(true);
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.sshd.benchmarks.loopback;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+
+import org.apache.sshd.client.ClientFactoryManager;
+import org.apache.sshd.client.session.ClientSessionImpl;
+import org.apache.sshd.common.cipher.BuiltinCiphers;
+import org.apache.sshd.common.cipher.Cipher;
+import org.apache.sshd.common.compression.BuiltinCompressions;
+import org.apache.sshd.common.compression.Compression;
+import org.apache.sshd.common.io.IoHandler;
+import org.apache.sshd.common.io.IoSession;
+import org.apache.sshd.common.kex.KexState;
+import org.apache.sshd.common.mac.BuiltinMacs;
+import org.apache.sshd.common.mac.Mac;
+import org.apache.sshd.common.session.helpers.AbstractSession;
+import org.apache.sshd.common.session.helpers.AbstractSessionIoHandler;
+import org.apache.sshd.common.util.GenericUtils;
+import org.apache.sshd.common.util.ValidateUtils;
+import org.apache.sshd.common.util.buffer.Buffer;
+
+/**
+ * A client session whose keys are installed directly instead of being exchanged, so that the transport (and
+ * whatever runs on top of it) can be driven without a server. The two ends of a loopback connection are both
+ * instances of this class - the &quot;server&quot; end uses the mirrored keys and hands the packets it receives to
+ * a {@link PacketHandler} instead of processing them as a client would.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class LoopbackSession extends ClientSessionImpl {
+    /**
+     * Hands the received data to the session attached to the {@link IoSession} - the sessions are created explicitly
+     */
+    public static final IoHandler IO_HANDLER = new AbstractSessionIoHandler() {
+        @Override
+        protected AbstractSession createSession(IoSession ioSession) throws Exception {
+            throw new UnsupportedOperationException("Loopback sessions are created explicitly: " + ioSession);
+        }
+    };
+
+    public static final String IDENTIFICATION = "SSH-2.0-SSHD-LOOPBACK";
+
+    private volatile PacketHandler packetHandler;
+
+    public LoopbackSession(ClientFactoryManager client, IoSession ioSession) throws Exception {
+        super(client, ioSession);
+    }
+
+    public PacketHandler getPacketHandler() {
+        return packetHandler;
+    }
+
+    /**
+     * @param packetHandler The handler of the decoded packets - if {@code null} then they are processed as usual
+     */
+    public void setPacketHandler(PacketHandler packetHandler) {
+        this.packetHandler = packetHandler;
+    }
+
+    /**
+     * Installs the keys that a key exchange would have produced and marks the key exchange as done
+     *
+     * @param  cipher      The cipher name - e.g., {@code aes128-ctr}
+     * @param  mac         The MAC name - ignored for AEAD ciphers
+     * @param  compression The compression name - e.g., {@code none} or {@code zlib}
+     * @param  clientSide  Whether this is the client end - the other end must use the mirrored keys
+     * @throws Exception   If failed to initialize the algorithms
+     */
+    public void establish(String cipher, String mac, String compression, boolean clientSide) throws Exception {
+        clientVersion = IDENTIFICATION;
+        serverVersion = IDENTIFICATION;
+        sessionId = derive("session-id", 32);
+
+        Cipher c2s = createCipher(cipher, "c2s", clientSide ? Cipher.Mode.Encrypt : Cipher.Mode.Decrypt);
+        Cipher s2c = createCipher(cipher, "s2c", clientSide ? Cipher.Mode.Decrypt : Cipher.Mode.Encrypt);
+        Mac c2sMac = (c2s.getAuthenticationTagSize() == 0) ? createMac(mac, "c2s") : null;
+        Mac s2cMac = (s2c.getAuthenticationTagSize() == 0) ? createMac(mac, "s2c") : null;
+
+        outCipher = clientSide ? c2s : s2c;
+        outMac = clientSide ? c2sMac : s2cMac;
+        outCompression = createCompression(compression, Compression.Type.Deflater);
+        inCipher = clientSide ? s2c : c2s;
+        inMac = clientSide ? s2cMac : c2sMac;
+        inCompression = createCompression(compression, Compression.Type.Inflater);
+
+        outCipherSize = outCipher.getCipherBlockSize();
+        outMacSize = (outMac != null) ? outMac.getBlockSize() : 0;
+        inCipherSize = inCipher.getCipherBlockSize();
+        inMacSize = (inMac != null) ? inMac.getBlockSize() : 0;
+        inMacResult = new byte[inMacSize];
+
+        // a benchmark must not be interrupted by a key re-exchange
+        maxRekeyBytes = 0L;
+        maxRekyPackets = 0L;
+        maxRekeyInterval = Duration.ZERO;
+        maxRekeyBlocks.set(0L);
+
+        kexState.set(KexState.DONE);
+    }
+
+    /**
+     * Marks the session as authenticated and starts the connection service
+     *
+     * @throws IOException If failed to start the service
+     */
+    public void authenticate() throws IOException {
+        setAuthenticated();
+        switchToNextService();
+    }
+
+    @Override
+    protected void handleMessage(Buffer buffer) throws Exception {
+        PacketHandler handler = packetHandler;
+        if (handler == null) {
+            super.handleMessage(buffer);
+        } else {
+            handler.handlePacket(this, buffer);
+        }
+    }
+
+    protected Cipher createCipher(String name, String direction, Cipher.Mode mode) throws Exception {
+        Cipher cipher = ValidateUtils.checkNotNull(
+                BuiltinCiphers.resolveFactory(name), "Unknown cipher: %s", name).create();
+        cipher.init(mode, derive("key-" + direction, cipher.getKdfSize()),
+                derive("iv-" + direction, cipher.getIVSize()));
+        return cipher;
+    }
+
+    protected Mac createMac(String name, String direction) throws Exception {
+        ValidateUtils.checkTrue(GenericUtils.isNotEmpty(name), "No MAC for a non-AEAD cipher");
+        Mac mac = ValidateUtils.checkNotNull(BuiltinMacs.resolveFactory(name), "Unknown MAC: %s", name).create();
+        mac.init(derive("mac-" + direction, mac.getBlockSize()));
+        return mac;
+    }
+
+    protected Compression createCompression(String name, Compression.Type type) {
+        Compression compression = ValidateUtils.checkNotNull(
+                BuiltinCompressions.resolveFactory(name), "Unknown compression: %s", name).create();
+        compression.init(type, -1);
+        return compression;
+    }
+
+    /**
+     * @param  label The key material label
+     * @param  size  The required size
+     * @return       Deterministic key material - the same for both ends
+     */
+    protected static byte[] derive(String label, int size) throws Exception {
+        byte[] key = new byte[size];
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        byte[] seed = label.getBytes(StandardCharsets.UTF_8);
+        for (int pos = 0, counter = 0; pos < size; counter++) {
+            digest.update(seed);
+            digest.update((byte) counter);
+            byte[] block = digest.digest();
+            int len = Math.min(block.length, size - pos);
+            System.arraycopy(block, 0, key, pos, len);
+            pos += len;
+        }
+        return key;
+    }
+
+    /**
+     * Handles the packets received by a loopback session
+     */
+    @FunctionalInterface
+    public interface PacketHandler {
+        /**
+         * @param  session   The receiving session
+         * @param  buffer    The decoded packet - starting at the command byte
+         * @throws Exception If failed to handle the packet
+         */
+        void handlePacket(LoopbackSession session, Buffer buffer) throws Exception;
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.sshd.benchmarks.loopback;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.sshd.common.SftpConstants;
+import org.apache.sshd.common.SshConstants;
+import org.apache.sshd.common.util.buffer.Buffer;
+import org.apache.sshd.common.util.buffer.ByteArrayBuffer;
+
+/**
+ * Plays the server role of SFTP channels on the server end of a {@link LoopbackConnection}. It answers the channel
+ * messages itself and serves every path as a virtual file of a fixed size whose contents are a repeating pattern -
+ * writes are acknowledged and discarded. Only the requests used by the benchmarks are supported (version 3 of the
+ * protocol): {@code OPEN, CLOSE, READ, WRITE, STAT, LSTAT} and {@code FSTAT}.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class SftpLoopbackServer implements LoopbackSession.PacketHandler {
+    public static final int WINDOW_SIZE = 2 * 1024 * 1024;
+    public static final int MAX_PACKET_SIZE = 32 * 1024;
+
+    private static final byte[] CONTENTS = new byte[64 * 1024];
+
+    static {
+        for (int i = 0; i < CONTENTS.length; i++) {
+            CONTENTS[i] = (byte) (i * 31 + (i >>> 8));
+        }
+    }
+
+    private final long fileSize;
+    private final Map<Integer, ChannelState> channels = new ConcurrentHashMap<>();
+    private final AtomicInteger channelIds = new AtomicInteger();
+
+    /**
+     * @param fileSize The size of the served virtual files
+     */
+    public SftpLoopbackServer(long fileSize) {
+        this.fileSize = fileSize;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    @Override
+    public void handlePacket(LoopbackSession session, Buffer buffer) throws Exception {
+        int cmd = buffer.getUByte();
+        switch (cmd) {
+            case SshConstants.SSH_MSG_CHANNEL_OPEN:
+                handleChannelOpen(session, buffer);
+                break;
+            case SshConstants.SSH_MSG_CHANNEL_REQUEST:
+                handleChannelRequest(session, buffer);
+                break;
+            case SshConstants.SSH_MSG_CHANNEL_DATA:
+                handleChannelData(session, buffer);
+                break;
+            case SshConstants.SSH_MSG_CHANNEL_CLOSE:
+                handleChannelClose(session, buffer);
+                break;
+            default:
+                // window adjustments, EOF, SSH_MSG_IGNORE - nothing to do
+                break;
+        }
+    }
+
+    protected void handleChannelOpen(LoopbackSession session, Buffer buffer) throws IOException {
+        buffer.getString(); // type
+        ChannelState channel = new ChannelState(buffer.getInt(), channelIds.incrementAndGet());
+        buffer.getUInt(); // the client window is not enforced
+        channel.maxPacketSize = (int) Math.min(buffer.getUInt(), Integer.MAX_VALUE);
+        channels.put(channel.localId, channel);
+
+        Buffer reply = session.createBuffer(SshConstants.SSH_MSG_CHANNEL_OPEN_CONFIRMATION, Long.SIZE);
+        reply.putInt(channel.clientId);
+        reply.putInt(channel.localId);
+        reply.putInt(WINDOW_SIZE);
+        reply.putInt(MAX_PACKET_SIZE);
+        session.writePacket(reply);
+    }
+
+    protected void handleChannelRequest(LoopbackSession session, Buffer buffer) throws IOException {
+        ChannelState channel = channels.get(buffer.getInt());
+        buffer.getString(); // type
+        if (buffer.getBoolean() && (channel != null)) {
+            Buffer reply = session.createBuffer(SshConstants.SSH_MSG_CHANNEL_SUCCESS, Integer.BYTES);
+            reply.putInt(channel.clientId);
+            session.writePacket(reply);
+        }
+    }
+
+    protected void handleChannelClose(LoopbackSession session, Buffer buffer) throws IOException {
+        ChannelState channel = channels.remove(buffer.getInt());
+        if (channel != null) {
+            Buffer reply = session.createBuffer(SshConstants.SSH_MSG_CHANNEL_CLOSE, Integer.BYTES);
+            reply.putInt(channel.clientId);
+            session.writePacket(reply);
+        }
+    }
+
+    protected void handleChannelData(LoopbackSession session, Buffer buffer) throws IOException {
+        ChannelState channel = channels.get(buffer.getInt());
+        if (channel == null) {
+            return;
+        }
+
+        int len = buffer.getInt();
+        Buffer input = channel.input;
+        input.putRawBytes(buffer.array(), buffer.rpos(), len);
+
+        channel.consumed += len;
+        if (channel.consumed >= (WINDOW_SIZE / 2)) {
+            Buffer adjust = session.createBuffer(SshConstants.SSH_MSG_CHANNEL_WINDOW_ADJUST, Long.SIZE);
+            adjust.putInt(channel.clientId);
+            adjust.putInt(channel.consumed);
+            session.writePacket(adjust);
+            channel.consumed = 0;
+        }
+
+        // replies are delivered synchronously - the client may send more data while one is being sent
+        if (channel.processing) {
+            return;
+        }
+
+        channel.processing = true;
+        try {
+            processRequests(session, channel);
+        } finally {
+            channel.processing = false;
+        }
+    }
+
+    protected void processRequests(LoopbackSession session, ChannelState channel) throws IOException {
+        Buffer input = channel.input;
+        while (input.available() > Integer.BYTES) {
+            int rpos = input.rpos();
+            int length = input.getInt();
+            if (input.available() < length) {
+                input.rpos(rpos);
+                break;
+            }
+
+            int end = input.rpos() + length;
+            handleSftpRequest(session, channel, input);
+            input.rpos(end);
+        }
+        input.compact();
+    }
+
+    protected void handleSftpRequest(LoopbackSession session, ChannelState channel, Buffer request) throws IOException {
+        int type = request.getUByte();
+        int id = request.getInt();
+        Buffer reply = channel.startReply();
+        switch (type) {
+            case SftpConstants.SSH_FXP_INIT:
+                reply.putByte((byte) SftpConstants.SSH_FXP_VERSION);
+                reply.putInt(SftpConstants.SFTP_V3);
+                break;
+            case SftpConstants.SSH_FXP_OPEN:
+                reply.putByte((byte) SftpConstants.SSH_FXP_HANDLE);
+                reply.putInt(id);
+                reply.putString(Integer.toHexString(id));
+                break;
+            case SftpConstants.SSH_FXP_READ: {
+                request.getBytes(); // handle
+                long offset = request.getLong();
+                int len = request.getInt();
+                if (offset >= fileSize) {
+                    putStatus(reply, id, SftpConstants.SSH_FX_EOF);
+                } else {
+                    len = (int) Math.min(len, fileSize - offset);
+                    reply.putByte((byte) SftpConstants.SSH_FXP_DATA);
+                    reply.putInt(id);
+                    reply.putInt(len);
+                    for (int pos = (int) (offset % CONTENTS.length), n; len > 0; len -= n, pos = 0) {
+                        n = Math.min(len, CONTENTS.length - pos);
+                        reply.putRawBytes(CONTENTS, pos, n);
+                    }
+                }
+                break;
+            }
+            case SftpConstants.SSH_FXP_STAT:
+            case SftpConstants.SSH_FXP_LSTAT:
+            case SftpConstants.SSH_FXP_FSTAT:
+                reply.putByte((byte) SftpConstants.SSH_FXP_ATTRS);
+                reply.putInt(id);
+                reply.putInt(SftpConstants.SSH_FILEXFER_ATTR_SIZE);
+                reply.putLong(fileSize);
+                break;
+            case SftpConstants.SSH_FXP_WRITE:
+            case SftpConstants.SSH_FXP_CLOSE:
+                putStatus(reply, id, SftpConstants.SSH_FX_OK);
+                break;
+            default:
+                putStatus(reply, id, SftpConstants.SSH_FX_OP_UNSUPPORTED);
+                break;
+        }
+
+        sendReply(session, channel, reply);
+    }
+
+    protected void putStatus(Buffer reply, int id, int status) {
+        reply.putByte((byte) SftpConstants.SSH_FXP_STATUS);
+        reply.putInt(id);
+        reply.putInt(status);
+        reply.putString("");
+        reply.putString("");
+    }
+
+    /**
+     * Sends the reply as channel data - split according to the client's maximum packet size
+     *
+     * @param  session     The server session
+     * @param  channel     The channel state
+     * @param  reply       The reply - starting at its (reserved) length field
+     * @throws IOException If failed to send the reply
+     */
+    protected void sendReply(LoopbackSession session, ChannelState channel, Buffer reply) throws IOException {
+        int rpos = reply.rpos();
+        int wpos = reply.wpos();
+        reply.wpos(rpos);
+        reply.putInt(wpos - rpos - Integer.BYTES);
+        reply.wpos(wpos);
+
+        byte[] data = reply.array();
+        for (int pos = rpos, len; pos < wpos; pos += len) {
+            len = Math.min(wpos - pos, channel.maxPacketSize);
+            Buffer packet = session.createBuffer(SshConstants.SSH_MSG_CHANNEL_DATA, len + Long.SIZE);
+            packet.putInt(channel.clientId);
+            packet.putInt(len);
+            packet.putRawBytes(data, pos, len);
+            session.writePacket(packet);
+        }
+    }
+
+    protected static class ChannelState {
+        protected final int clientId;
+        protected final int localId;
+        protected final Buffer input = new ByteArrayBuffer(MAX_PACKET_SIZE * 2);
+        protected final Buffer reply = new ByteArrayBuffer(MAX_PACKET_SIZE * 2);
+        protected int maxPacketSize;
+        protected int consumed;
+        protected boolean processing;
+
+        protected ChannelState(int clientId, int localId) {
+            this.clientId = clientId;
+            this.localId = localId;
+        }
+
+        protected Buffer startReply() {
+            reply.clear();
+            reply.putInt(0); // length - filled in once the reply is complete
+            return reply;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.client;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.sshd.client.SftpClient.Attributes;
+import org.apache.sshd.client.SftpClient.CloseableHandle;
+import org.apache.sshd.client.SftpClient.CopyMode;
+import org.apache.sshd.client.SftpClient.DirEntry;
+import org.apache.sshd.client.SftpClient.Handle;
+import org.apache.sshd.client.SftpClient.OpenMode;
+import org.apache.sshd.common.util.GenericUtils;
+
+/**
+ * A non-blocking view of an {@link SftpClient} - each operation sends its request and returns immediately with a
+ * {@link CompletableFuture} for the response, so that many requests can be in flight over the same channel without a
+ * thread per outstanding call. The semantics of each operation and its result are the same as those of the
+ * corresponding {@link SftpClient} method. <B>Note:</B> the futures are completed by the thread that handles the
+ * incoming data of the channel, so dependent actions that may block should use one of the {@code ...Async}
+ * variants of {@link CompletableFuture}.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public interface AsyncSftpClient {
+
+    /**
+     * @return The {@link SftpClient} whose channel is used to send the requests
+     */
+    SftpClient getClient();
+
+    default CompletableFuture<CloseableHandle> open(String path) {
+        return open(path, Collections.emptySet());
+    }
+
+    default CompletableFuture<CloseableHandle> open(String path, OpenMode... options) {
+        return open(path, GenericUtils.of(options));
+    }
+
+    /**
+     * @param  path    The remote path
+     * @param  options The desired mode - if none specified then {@link OpenMode#Read} is assumed
+     * @return         The file's {@link CloseableHandle}
+     * @see            SftpClient#open(String, Collection)
+     */
+    CompletableFuture<CloseableHandle> open(String path, Collection<OpenMode> options);
+
+    CompletableFuture<Void> close(Handle handle);
+
+    CompletableFuture<Void> remove(String path);
+
+    default CompletableFuture<Void> rename(String oldPath, String newPath) {
+        return rename(oldPath, newPath, Collections.emptySet());
+    }
+
+    CompletableFuture<Void> rename(String oldPath, String newPath, Collection<CopyMode> options);
+
+    default CompletableFuture<Integer> read(Handle handle, long fileOffset, byte[] dst) {
+        return read(handle, fileOffset, dst, 0, dst.length);
+    }
+
+    /**
+     * @param  handle     The file {@link Handle} to read from
+     * @param  fileOffset The file offset to read from
+     * @param  dst        The destination buffer - must not be touched until the future is completed
+     * @param  dstOffset  Offset in destination buffer to place the read data
+     * @param  len        Available destination buffer size to read
+     * @return            Number of read bytes - {@code -1} if EOF reached
+     * @see               SftpClient#read(Handle, long, byte[], int, int)
+     */
+    CompletableFuture<Integer> read(Handle handle, long fileOffset, byte[] dst, int dstOffset, int len);
+
+    default CompletableFuture<Void> write(Handle handle, long fileOffset, byte[] src) {
+        return write(handle, fileOffset, src, 0, src.length);
+    }
+
+    /**
+     * Write data to (open) file handle - data larger than the configured write chunk size is sent as several
+     * concurrent requests, and the returned future completes once all of them have been acknowledged
+     *
+     * @param  handle     The file {@link Handle}
+     * @param  fileOffset Zero-based offset to write in file
+     * @param  src        Data buffer - copied before this method returns
+     * @param  srcOffset  Offset of valid data in buffer
+     * @param  len        Number of bytes to write
+     * @return            A future completed when the data has been written
+     * @see               SftpClient#write(Handle, long, byte[], int, int)
+     */
+    CompletableFuture<Void> write(Handle handle, long fileOffset, byte[] src, int srcOffset, int len);
+
+    CompletableFuture<Void> mkdir(String path);
+
+    CompletableFuture<Void> rmdir(String path);
+
+    CompletableFuture<CloseableHandle> openDir(String path);
+
+    /**
+     * @param  handle Directory {@link Handle} to read from
+     * @return        A {@link List} of entries - {@code null} to indicate no more entries
+     * @see           SftpClient#readDir(Handle)
+     */
+    CompletableFuture<List<DirEntry>> readDir(Handle handle);
+
+    CompletableFuture<String> canonicalPath(String path);
+
+    CompletableFuture<Attributes> stat(String path);
+
+    CompletableFuture<Attributes> lstat(String path);
+
+    CompletableFuture<Attributes> stat(Handle handle);
+
+    CompletableFuture<Void> setStat(String path, Attributes attributes);
+
+    CompletableFuture<Void> setStat(Handle handle, Attributes attributes);
+
+    CompletableFuture<String> readLink(String path);
+
+    default CompletableFuture<Void> symLink(String linkPath, String targetPath) {
+        return link(linkPath, targetPath, true);
+    }
+
+    CompletableFuture<Void> link(String linkPath, String targetPath, boolean symbolic);
+
+    CompletableFuture<Void> lock(Handle handle, long offset, long length, int mask);
+
+    CompletableFuture<Void> unlock(Handle handle, long offset, long length);
+}
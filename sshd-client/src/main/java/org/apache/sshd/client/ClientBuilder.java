@@ -26,6 +26,8 @@ import java.util.function.Function;
 import org.apache.sshd.client.config.hosts.DefaultConfigFileHostEntryResolver;
 import org.apache.sshd.client.config.hosts.HostConfigEntryResolver;
 import org.apache.sshd.client.config.keys.ClientIdentityLoader;
+import org.apache.sshd.client.forward.DefaultForwarderFactory;
+import org.apache.sshd.client.forward.ForwardedTcpipChannel;
 import org.apache.sshd.client.global.OpenSshHostKeysHandler;
 import org.apache.sshd.client.kex.DHGClient;
 import org.apache.sshd.client.kex.DHGEXClient;
@@ -62,7 +64,7 @@ public class ClientBuilder extends BaseBuilder<SshClient, ClientBuilder> {
             = Collections.unmodifiableList(Collections.singletonList(BuiltinCompressions.none));
 
     public static final List<ChannelFactory> DEFAULT_CHANNEL_FACTORIES
-            = Collections.unmodifiableList(Collections.emptyList());
+            = Collections.unmodifiableList(Collections.singletonList(ForwardedTcpipChannel.ForwardedTcpipFactory.INSTANCE));
     public static final List<RequestHandler<ConnectionService>> DEFAULT_GLOBAL_REQUEST_HANDLERS
             = Collections.unmodifiableList(Collections.singletonList(OpenSshHostKeysHandler.INSTANCE));
 
@@ -121,6 +123,10 @@ public class ClientBuilder extends BaseBuilder<SshClient, ClientBuilder> {
             channelFactories = DEFAULT_CHANNEL_FACTORIES;
         }
 
+        if (forwarderFactory == null) {
+            forwarderFactory = DefaultForwarderFactory.INSTANCE;
+        }
+
         if (globalRequestHandlers == null) {
             globalRequestHandlers = DEFAULT_GLOBAL_REQUEST_HANDLERS;
         }
@@ -27,6 +27,11 @@ import org.apache.sshd.common.util.closeable.AutoCloseableDelegateInvocationHand
  * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
  */
 public interface FullAccessSftpClient extends SftpClient, RawSftpClient {
+    /**
+     * @return An {@link AsyncSftpClient} view that sends its requests over the channel of this client
+     */
+    AsyncSftpClient async();
+
     static SftpClient singleSessionInstance(SftpClient client) {
         if (client instanceof FullAccessSftpClient) {
             return AutoCloseableDelegateInvocationHandler.wrapDelegateCloseable(
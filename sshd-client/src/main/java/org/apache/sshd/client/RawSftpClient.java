@@ -21,6 +21,7 @@ package org.apache.sshd.client;
 
 import java.io.IOException;
 import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.sshd.common.util.buffer.Buffer;
 
@@ -58,4 +59,31 @@ public interface RawSftpClient {
      * @throws IOException If connection closed or interrupted
      */
     Buffer receive(int id, Duration timeout) throws IOException;
+
+    /**
+     * @param  id The expected request id
+     * @return    A {@link CompletableFuture} that is completed with the received response {@link Buffer} containing the
+     *            request id, or exceptionally if the connection is closed before the response arrives
+     */
+    CompletableFuture<Buffer> receiveAsync(int id);
+
+    /**
+     * Sends the command without waiting for its response.
+     *
+     * @param  cmd    Command to send - <B>Note:</B> only lower 8-bits are used
+     * @param  buffer The {@link Buffer} containing the command data
+     * @return        A {@link CompletableFuture} for the response {@link Buffer} - completed exceptionally if failed to
+     *                send the command
+     * @see           #send(int, Buffer)
+     * @see           #receiveAsync(int)
+     */
+    default CompletableFuture<Buffer> sendAsync(int cmd, Buffer buffer) {
+        try {
+            return receiveAsync(send(cmd, buffer));
+        } catch (IOException | RuntimeException e) {
+            CompletableFuture<Buffer> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+    }
 }
@@ -22,6 +22,7 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.channels.Channel;
 import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
@@ -688,6 +689,42 @@ public interface SftpClient extends SubsystemClient {
     int read(Handle handle, long fileOffset, byte[] dst, int dstOffset, int len, AtomicReference<Boolean> eofSignalled)
             throws IOException;
 
+    default int read(Handle handle, long fileOffset, ByteBuffer dst) throws IOException {
+        return read(handle, fileOffset, dst, null);
+    }
+
+    /**
+     * Reads data from the open (file) handle into the remaining space of the buffer, whose position is advanced by the
+     * number of read bytes. Implementations may copy the received data directly into the buffer - which is why it is
+     * the preferred way to fill direct buffers.
+     *
+     * @param  handle       The file {@link Handle} to read from
+     * @param  fileOffset   The file offset to read from
+     * @param  dst          The destination buffer
+     * @param  eofSignalled If not {@code null} then upon return holds a value indicating whether EOF was reached due to
+     *                      the read. If {@code null} indicator value then this indication is not available
+     * @return              Number of read bytes - {@code -1} if EOF reached
+     * @throws IOException  If failed to read the data
+     */
+    default int read(Handle handle, long fileOffset, ByteBuffer dst, AtomicReference<Boolean> eofSignalled)
+            throws IOException {
+        int len = dst.remaining();
+        if (dst.hasArray()) {
+            int read = read(handle, fileOffset, dst.array(), dst.arrayOffset() + dst.position(), len, eofSignalled);
+            if (read > 0) {
+                dst.position(dst.position() + read);
+            }
+            return read;
+        }
+
+        byte[] data = new byte[len];
+        int read = read(handle, fileOffset, data, 0, len, eofSignalled);
+        if (read > 0) {
+            dst.put(data, 0, read);
+        }
+        return read;
+    }
+
     default void write(Handle handle, long fileOffset, byte[] src) throws IOException {
         write(handle, fileOffset, src, 0, src.length);
     }
@@ -51,8 +51,10 @@ import org.apache.sshd.client.auth.password.PasswordIdentityProvider;
 import org.apache.sshd.client.auth.password.UserAuthPasswordFactory;
 import org.apache.sshd.client.auth.pubkey.PublicKeyAuthenticationReporter;
 import org.apache.sshd.client.auth.pubkey.UserAuthPublicKeyFactory;
+import org.apache.sshd.client.channel.DirectTcpipIoSession;
 import org.apache.sshd.client.config.hosts.HostConfigEntry;
 import org.apache.sshd.client.config.hosts.HostConfigEntryResolver;
+import org.apache.sshd.client.config.keys.CachingClientIdentityLoader;
 import org.apache.sshd.client.config.keys.ClientIdentity;
 import org.apache.sshd.client.config.keys.ClientIdentityLoader;
 import org.apache.sshd.client.config.keys.DefaultClientIdentitiesWatcher;
@@ -66,7 +68,6 @@ import org.apache.sshd.client.session.ClientProxyConnector;
 import org.apache.sshd.client.session.ClientSession;
 import org.apache.sshd.client.session.ClientUserAuthServiceFactory;
 import org.apache.sshd.client.session.SessionFactory;
-import org.apache.sshd.client.session.forward.ExplicitPortForwardingTracker;
 import org.apache.sshd.client.simple.AbstractSimpleClientSessionCreator;
 import org.apache.sshd.client.simple.SimpleClient;
 import org.apache.sshd.common.AttributeRepository;
@@ -552,11 +553,9 @@ public class SshClient extends AbstractFactoryManager implements ClientFactoryMa
                                 try {
                                     SshdSocketAddress address
                                             = new SshdSocketAddress(hostConfig.getHostName(), hostConfig.getPort());
-                                    ExplicitPortForwardingTracker tracker = proxySession
-                                            .createLocalPortForwardingTracker(SshdSocketAddress.LOCALHOST_ADDRESS, address);
-                                    SshdSocketAddress bound = tracker.getBoundAddress();
-                                    ConnectFuture f4 = doConnect(hostConfig.getUsername(), bound.toInetSocketAddress(),
-                                            context, localAddress, keys, !hostConfig.isIdentitiesOnly());
+                                    IoConnectFuture tunnel = connectThrough(proxySession, address, context);
+                                    ConnectFuture f4 = doConnect(hostConfig.getUsername(), address, tunnel,
+                                            keys, !hostConfig.isIdentitiesOnly());
                                     f4.addListener(f5 -> {
                                         if (f5.isConnected()) {
                                             ClientSession clientSession = f5.getClientSession();
@@ -603,14 +602,45 @@ public class SshClient extends AbstractFactoryManager implements ClientFactoryMa
                     "SshClient not started. Please call start() method before connecting to a server");
         }
 
+        IoConnectFuture connectingFuture = connector.connect(targetAddress, context, localAddress);
+        return doConnect(username, targetAddress, connectingFuture, identities, useDefaultIdentities);
+    }
+
+    protected ConnectFuture doConnect(
+            String username, SocketAddress targetAddress, IoConnectFuture connectingFuture,
+            KeyIdentityProvider identities, boolean useDefaultIdentities) {
         ConnectFuture connectFuture = new DefaultConnectFuture(username + "@" + targetAddress, null);
         SshFutureListener<IoConnectFuture> listener = createConnectCompletionListener(
                 connectFuture, username, targetAddress, identities, useDefaultIdentities);
-        IoConnectFuture connectingFuture = connector.connect(targetAddress, context, localAddress);
         connectingFuture.addListener(listener);
         return connectFuture;
     }
 
+    /**
+     * Establishes the transport of a session to a host reached through a {@code ProxyJump} host: a
+     * {@code direct-tcpip} channel of the (authenticated) jump host session that carries the session packets - see
+     * {@link DirectTcpipIoSession}. Since the inner session of a multi-hop chain may itself be a jump host session,
+     * every hop costs one copy of the data and no sockets besides the one to the first jump host.
+     *
+     * @param  proxySession The jump host session
+     * @param  address      The target address
+     * @param  context      An optional &quot;context&quot; to be attached to the session
+     * @return              The {@link IoConnectFuture} of the transport
+     * @throws IOException  If failed to request the channel
+     */
+    protected IoConnectFuture connectThrough(
+            ClientSession proxySession, SshdSocketAddress address, AttributeRepository context)
+            throws IOException {
+        if (connector == null) {
+            throw new IllegalStateException(
+                    "SshClient not started. Please call start() method before connecting to a server");
+        }
+
+        DirectTcpipIoSession ioSession = new DirectTcpipIoSession(
+                proxySession, null, address, connector, getSessionFactory());
+        return ioSession.connect(context);
+    }
+
     protected List<HostConfigEntry> parseProxyJumps(String proxyJump, AttributeRepository context) throws IOException {
         List<HostConfigEntry> jumps = new ArrayList<>();
         for (String jump : GenericUtils.split(proxyJump, ',')) {
@@ -657,12 +687,18 @@ public class SshClient extends AbstractFactoryManager implements ClientFactoryMa
     protected KeyIdentityProvider preloadClientIdentities(
             Collection<? extends NamedResource> locations)
             throws IOException {
-        return GenericUtils.isEmpty(locations)
-                ? KeyIdentityProvider.EMPTY_KEYS_PROVIDER
-                : ClientIdentityLoader.asKeyIdentityProvider(
-                        Objects.requireNonNull(getClientIdentityLoader(), "No ClientIdentityLoader"),
-                        locations, getFilePasswordProvider(),
-                        CoreModuleProperties.IGNORE_INVALID_IDENTITIES.getRequired(this));
+        if (GenericUtils.isEmpty(locations)) {
+            return KeyIdentityProvider.EMPTY_KEYS_PROVIDER;
+        }
+
+        ClientIdentityLoader loader = Objects.requireNonNull(getClientIdentityLoader(), "No ClientIdentityLoader");
+        if (CoreModuleProperties.CACHE_CLIENT_IDENTITIES.getRequired(this)) {
+            loader = new CachingClientIdentityLoader(loader);
+        }
+
+        return ClientIdentityLoader.asKeyIdentityProvider(
+                loader, locations, getFilePasswordProvider(),
+                CoreModuleProperties.IGNORE_INVALID_IDENTITIES.getRequired(this));
     }
 
     protected SshFutureListener<IoConnectFuture> createConnectCompletionListener(
@@ -0,0 +1,303 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.client.channel;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.sshd.client.session.ClientSession;
+import org.apache.sshd.common.AttributeRepository;
+import org.apache.sshd.common.SshConstants;
+import org.apache.sshd.common.channel.ChannelAsyncInputStream;
+import org.apache.sshd.common.channel.ChannelAsyncOutputStream;
+import org.apache.sshd.common.channel.StreamingChannel;
+import org.apache.sshd.common.channel.Window;
+import org.apache.sshd.common.future.CloseFuture;
+import org.apache.sshd.common.io.IoConnectFuture;
+import org.apache.sshd.common.io.IoHandler;
+import org.apache.sshd.common.io.IoService;
+import org.apache.sshd.common.io.IoSession;
+import org.apache.sshd.common.io.IoWriteFuture;
+import org.apache.sshd.common.io.nio2.Nio2Connector.DefaultIoConnectFuture;
+import org.apache.sshd.common.session.ConnectionService;
+import org.apache.sshd.common.util.GenericUtils;
+import org.apache.sshd.common.util.ValidateUtils;
+import org.apache.sshd.common.util.buffer.Buffer;
+import org.apache.sshd.common.util.buffer.ByteArrayBuffer;
+import org.apache.sshd.common.util.closeable.AbstractCloseable;
+import org.apache.sshd.common.util.net.SshdSocketAddress;
+
+/**
+ * An {@link IoSession} whose transport is a {@code direct-tcpip} channel of another (already authenticated) session
+ * instead of a socket - e.g., to connect through a {@code ProxyJump} host. The packets written to this session are
+ * sent as channel data and the channel data is handed to the {@link IoHandler} as it arrives, so each hop costs a
+ * single copy of the data and no (loopback) sockets are involved.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class DirectTcpipIoSession extends AbstractCloseable implements IoSession {
+    private static final AtomicLong SESSION_ID_GENERATOR = new AtomicLong(100L);
+
+    private final long id = SESSION_ID_GENERATOR.incrementAndGet();
+    private final ClientSession proxySession;
+    private final IoService service;
+    private final IoHandler ioHandler;
+    private final TransportChannel channel;
+    private final Map<Object, Object> attributes = new HashMap<>();
+
+    /**
+     * @param proxySession The session through which to connect
+     * @param local        The originator address reported to the proxy - may be {@code null}
+     * @param remote       The target address
+     * @param service      The {@link IoService} reported as having created this session
+     * @param handler      The {@link IoHandler} to which the session events and the received data are reported
+     */
+    public DirectTcpipIoSession(ClientSession proxySession, SshdSocketAddress local, SshdSocketAddress remote,
+                                IoService service, IoHandler handler) {
+        this.proxySession = Objects.requireNonNull(proxySession, "No proxy session");
+        this.service = service;
+        this.ioHandler = Objects.requireNonNull(handler, "No IoHandler");
+        this.channel = createTransportChannel(local, Objects.requireNonNull(remote, "No target address"));
+    }
+
+    protected TransportChannel createTransportChannel(SshdSocketAddress local, SshdSocketAddress remote) {
+        return new TransportChannel(local, remote);
+    }
+
+    public ClientSession getProxySession() {
+        return proxySession;
+    }
+
+    public ChannelDirectTcpip getChannel() {
+        return channel;
+    }
+
+    public IoHandler getIoHandler() {
+        return ioHandler;
+    }
+
+    /**
+     * Opens the channel on the proxy session and - once open - signals the creation of this session to the handler
+     *
+     * @param  context     An optional &quot;context&quot; to be attached to the session
+     * @return             The {@link IoConnectFuture} that is completed once the session has been created
+     * @throws IOException If failed to send the channel open request
+     */
+    public IoConnectFuture connect(AttributeRepository context) throws IOException {
+        IoConnectFuture future = new DefaultIoConnectFuture(channel.getRemoteSocketAddress(), null);
+        if (context != null) {
+            setAttribute(AttributeRepository.class, context);
+        }
+
+        ConnectionService connections = Objects.requireNonNull(
+                proxySession.getService(ConnectionService.class), "No connection service");
+        connections.registerChannel(channel);
+        channel.addCloseFutureListener(f -> close(true));
+        channel.open().addListener(f -> {
+            Throwable t = f.getException();
+            if (t != null) {
+                debug("connect({}) failed ({}) to open channel: {}",
+                        this, t.getClass().getSimpleName(), t.getMessage(), t);
+                future.setException(t);
+                close(true);
+                return;
+            }
+
+            try {
+                ioHandler.sessionCreated(this);
+                future.setSession(this);
+            } catch (Throwable exc) {
+                Throwable e = GenericUtils.peelException(exc);
+                debug("connect({}) failed ({}) to start session: {}",
+                        this, e.getClass().getSimpleName(), e.getMessage(), e);
+                future.setException(e);
+                close(true);
+            }
+        });
+        return future;
+    }
+
+    @Override
+    public long getId() {
+        return id;
+    }
+
+    @Override
+    public SocketAddress getAcceptanceAddress() {
+        return null;
+    }
+
+    @Override
+    public SocketAddress getLocalAddress() {
+        return channel.getLocalSocketAddress();
+    }
+
+    @Override
+    public SocketAddress getRemoteAddress() {
+        return channel.getRemoteSocketAddress();
+    }
+
+    @Override
+    public Object getAttribute(Object key) {
+        synchronized (attributes) {
+            return attributes.get(key);
+        }
+    }
+
+    @Override
+    public Object setAttribute(Object key, Object value) {
+        synchronized (attributes) {
+            return attributes.put(key, value);
+        }
+    }
+
+    @Override
+    public Object setAttributeIfAbsent(Object key, Object value) {
+        synchronized (attributes) {
+            return attributes.putIfAbsent(key, value);
+        }
+    }
+
+    @Override
+    public Object removeAttribute(Object key) {
+        synchronized (attributes) {
+            return attributes.remove(key);
+        }
+    }
+
+    @Override
+    public IoWriteFuture writeBuffer(Buffer buffer) throws IOException {
+        if (isClosing()) {
+            throw new IOException("Session is closing: " + this);
+        }
+        return channel.getAsyncIn().writeBuffer(buffer);
+    }
+
+    @Override
+    public IoService getService() {
+        return service;
+    }
+
+    @Override
+    public void shutdownOutputStream() throws IOException {
+        if (channel.isOpen()) {
+            if (log.isDebugEnabled()) {
+                log.debug("shutdownOutputStream({})", this);
+            }
+            // the EOF must follow the data that is still queued
+            channel.getAsyncIn().close(false).addListener(f -> channel.signalEof());
+        }
+    }
+
+    protected void messageReceived(byte[] data, int off, int len) {
+        try {
+            ioHandler.messageReceived(this, new ByteArrayBuffer(data, off, len, true));
+        } catch (Throwable exc) {
+            Throwable t = GenericUtils.peelException(exc);
+            try {
+                ioHandler.exceptionCaught(this, t);
+            } catch (Throwable e) {
+                debug("messageReceived({}) exception handler threw {}, closing the session: {}",
+                        this, e.getClass().getSimpleName(), e.getMessage(), e);
+            }
+            close(true);
+        }
+    }
+
+    @Override
+    protected CloseFuture doCloseGracefully() {
+        return channel.close(false);
+    }
+
+    @Override
+    protected void doCloseImmediately() {
+        channel.close(true);
+        super.doCloseImmediately();
+
+        try {
+            ioHandler.sessionClosed(this);
+        } catch (Throwable e) {
+            debug("doCloseImmediately({}) {} while calling IoHandler#sessionClosed: {}",
+                    this, e.getClass().getSimpleName(), e.getMessage(), e);
+        }
+
+        synchronized (attributes) {
+            attributes.clear();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName()
+               + "[id=" + getId()
+               + ", proxy=" + proxySession
+               + ", remote=" + getRemoteAddress()
+               + "]";
+    }
+
+    /**
+     * The {@code direct-tcpip} channel that carries the session data - the received data is handed directly to the
+     * session handler instead of being piped to a stream.
+     *
+     * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+     */
+    protected class TransportChannel extends ChannelDirectTcpip {
+        public TransportChannel(SshdSocketAddress local, SshdSocketAddress remote) {
+            super(local, remote);
+            setStreaming(StreamingChannel.Streaming.Async);
+        }
+
+        @Override
+        protected void doOpen() throws IOException {
+            // several packets may be written at once - e.g., during key exchange
+            asyncIn = new ChannelAsyncOutputStream(this, SshConstants.SSH_MSG_CHANNEL_DATA, true);
+            asyncOut = new ChannelAsyncInputStream(this);
+        }
+
+        @Override
+        protected void doWriteData(byte[] data, int off, long len) throws IOException {
+            ValidateUtils.checkTrue(len <= Integer.MAX_VALUE,
+                    "Data length exceeds int boundaries: %d", len);
+            messageReceived(data, off, (int) len);
+
+            Window wLocal = getLocalWindow();
+            wLocal.consumeAndCheck(len);
+        }
+
+        @Override
+        public void handleEof() throws IOException {
+            super.handleEof();
+            // nothing more will arrive - let the session finish writing what it has
+            DirectTcpipIoSession.this.close(false);
+        }
+
+        protected void signalEof() {
+            try {
+                sendEof();
+            } catch (IOException e) {
+                debug("signalEof({}) failed ({}) to send EOF: {}",
+                        this, e.getClass().getSimpleName(), e.getMessage(), e);
+            }
+        }
+    }
+}
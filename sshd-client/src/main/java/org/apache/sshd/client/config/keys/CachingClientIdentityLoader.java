@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.sshd.client.config.keys;
+
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.util.Objects;
+
+import org.apache.sshd.common.NamedResource;
+import org.apache.sshd.common.config.keys.FilePasswordProvider;
+import org.apache.sshd.common.session.SessionContext;
+import org.apache.sshd.common.util.GenericUtils;
+
+/**
+ * A {@link ClientIdentityLoader} that consults a {@link ClientIdentityCache} for locations that are file paths before
+ * delegating to the actual loader.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class CachingClientIdentityLoader implements ClientIdentityLoader {
+    private final ClientIdentityLoader delegate;
+    private final ClientIdentityCache cache;
+
+    public CachingClientIdentityLoader(ClientIdentityLoader delegate) {
+        this(delegate, ClientIdentityCache.getDefault());
+    }
+
+    public CachingClientIdentityLoader(ClientIdentityLoader delegate, ClientIdentityCache cache) {
+        this.delegate = Objects.requireNonNull(delegate, "No delegate loader");
+        this.cache = Objects.requireNonNull(cache, "No identity cache");
+    }
+
+    public ClientIdentityLoader getDelegate() {
+        return delegate;
+    }
+
+    public ClientIdentityCache getCache() {
+        return cache;
+    }
+
+    @Override
+    public boolean isValidLocation(NamedResource location) throws IOException {
+        return delegate.isValidLocation(location);
+    }
+
+    @Override
+    public Iterable<KeyPair> loadClientIdentities(
+            SessionContext session, NamedResource location, FilePasswordProvider provider)
+            throws IOException, GeneralSecurityException {
+        Path path = toPath(location);
+        if (path == null) {
+            return delegate.loadClientIdentities(session, location, provider);
+        }
+
+        return cache.loadClientIdentities(path, session, delegate, location, provider);
+    }
+
+    /**
+     * @param  location The identity location
+     * @return          The absolute and normalized {@link Path} of the location - {@code null} if it does not denote
+     *                  a file path, in which case the location is not cached
+     */
+    protected Path toPath(NamedResource location) {
+        String name = (location == null) ? null : location.getName();
+        if (GenericUtils.isEmpty(name)) {
+            return null;
+        }
+
+        try {
+            return Paths.get(name).toAbsolutePath().normalize();
+        } catch (InvalidPathException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + delegate + "]";
+    }
+}
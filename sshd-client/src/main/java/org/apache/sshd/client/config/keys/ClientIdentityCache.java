@@ -0,0 +1,349 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.sshd.client.config.keys;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.PrivateKey;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.security.auth.DestroyFailedException;
+
+import org.apache.sshd.common.NamedResource;
+import org.apache.sshd.common.config.keys.FilePasswordProvider;
+import org.apache.sshd.common.session.SessionContext;
+import org.apache.sshd.common.util.ValidateUtils;
+import org.apache.sshd.common.util.io.ModifiableFileWatcher;
+import org.apache.sshd.common.util.logging.AbstractLoggingBean;
+
+/**
+ * A JVM-wide cache of the key pairs loaded from identity files. Loading an encrypted key (e.g., one using the
+ * {@code bcrypt} KDF of the OpenSSH format) is deliberately expensive, and without a cache it is repeated for every
+ * connection. The entries are keyed by the file path, the {@link ClientIdentityLoader} and the
+ * {@link FilePasswordProvider} - so that keys decrypted on behalf of one client are not handed out to another one that
+ * uses a different (or no) password provider - and are re-loaded if the file size, last-modified time or
+ * {@link java.nio.file.attribute.BasicFileAttributes#fileKey() file key} change - see
+ * {@link ModifiableFileWatcher#checkReloadRequired()}. Concurrent loads of the same file wait for the first one, so
+ * that each key is decrypted only once even if many sessions are being established at the same time.
+ * <P>
+ * The cache holds at most a given number of entries - evicting the least recently used ones - and evicts the entries
+ * that have not been used for a given time. The idle entries are looked for whenever the cache is used, so they may
+ * stay in memory for longer if the cache is not used at all.
+ * </P>
+ * <P>
+ * <B>Note:</B> the decrypted keys are kept in memory until the entry is evicted, and subsequent loads do not consult
+ * the {@link FilePasswordProvider} again. If {@link #isDestroyOnEviction() requested}, the private keys of evicted
+ * entries are {@link javax.security.auth.Destroyable#destroy() destroyed} - on a best-effort basis since not all key
+ * implementations support it.
+ * </P>
+ *
+ * @see    CachingClientIdentityLoader
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class ClientIdentityCache extends AbstractLoggingBean {
+    /**
+     * Default max. number of cached entries
+     */
+    public static final int DEFAULT_MAX_SIZE = 64;
+
+    /**
+     * Default time after which an unused entry is evicted
+     */
+    public static final Duration DEFAULT_MAX_IDLE = Duration.ofMinutes(30L);
+
+    private static final ClientIdentityCache DEFAULT = new ClientIdentityCache();
+
+    private final int maxSize;
+    private final long maxIdle;
+    // access ordered - i.e., the least recently used entry first
+    private final Map<EntryKey, CachedIdentities> entries;
+    private volatile boolean destroyOnEviction;
+
+    public ClientIdentityCache() {
+        this(DEFAULT_MAX_SIZE, DEFAULT_MAX_IDLE);
+    }
+
+    /**
+     * @param maxSize Max. number of cached entries
+     * @param maxIdle The time after which an unused entry is evicted
+     */
+    public ClientIdentityCache(int maxSize, Duration maxIdle) {
+        ValidateUtils.checkTrue(maxSize > 0, "Invalid max. size: %d", maxSize);
+        ValidateUtils.checkTrue((maxIdle != null) && (!maxIdle.isNegative()) && (!maxIdle.isZero()),
+                "Invalid max. idle time: %s", maxIdle);
+        this.maxSize = maxSize;
+        this.maxIdle = maxIdle.toNanos();
+        this.entries = new LinkedHashMap<>(Math.min(maxSize, 1024), 0.75f, true);
+    }
+
+    /**
+     * @return The JVM-wide cache instance
+     */
+    public static ClientIdentityCache getDefault() {
+        return DEFAULT;
+    }
+
+    public boolean isDestroyOnEviction() {
+        return destroyOnEviction;
+    }
+
+    /**
+     * @param destroyOnEviction Whether to destroy the private keys of evicted entries. <B>Note:</B> sessions that are
+     *                          still authenticating with such keys will fail to sign with them.
+     */
+    public void setDestroyOnEviction(boolean destroyOnEviction) {
+        this.destroyOnEviction = destroyOnEviction;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public Duration getMaxIdle() {
+        return Duration.ofNanos(maxIdle);
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * @param  path                     The (absolute and normalized) identity file path
+     * @param  session                  The {@link SessionContext} for invoking this load command - may be {@code null}
+     * @param  loader                   The {@link ClientIdentityLoader} to use if the file needs to be (re-)loaded
+     * @param  location                 The location to pass to the loader
+     * @param  provider                 The {@link FilePasswordProvider} to pass to the loader
+     * @return                          The cached or (re-)loaded key pairs - {@code null} if none
+     * @throws IOException              If failed to access the file
+     * @throws GeneralSecurityException If failed to convert the contents into a valid identity
+     */
+    public Iterable<KeyPair> loadClientIdentities(
+            Path path, SessionContext session, ClientIdentityLoader loader, NamedResource location,
+            FilePasswordProvider provider)
+            throws IOException, GeneralSecurityException {
+        EntryKey key = new EntryKey(path, loader, provider);
+        List<CachedIdentities> removed = new ArrayList<>();
+        CachedIdentities entry;
+        synchronized (entries) {
+            long now = nanoTime();
+            // the map is access ordered, so the idle entries come first
+            for (Iterator<CachedIdentities> it = entries.values().iterator(); it.hasNext();) {
+                CachedIdentities e = it.next();
+                if ((now - e.lastUsed) < maxIdle) {
+                    break;
+                }
+                it.remove();
+                removed.add(e);
+            }
+
+            entry = entries.get(key);
+            if (entry == null) {
+                entry = new CachedIdentities(key.path);
+                entries.put(key, entry);
+                for (Iterator<CachedIdentities> it = entries.values().iterator(); entries.size() > maxSize;) {
+                    removed.add(it.next());
+                    it.remove();
+                }
+            }
+            entry.lastUsed = now;
+        }
+
+        // outside the lock since an entry that is being loaded must be waited for
+        discard(removed);
+        return entry.load(session, loader, location, provider);
+    }
+
+    /**
+     * @param path The identity file path whose cached key pairs should be evicted - whatever loader and password
+     *             provider they were loaded with
+     */
+    public void invalidate(Path path) {
+        List<CachedIdentities> removed = new ArrayList<>();
+        synchronized (entries) {
+            for (Iterator<Map.Entry<EntryKey, CachedIdentities>> it = entries.entrySet().iterator(); it.hasNext();) {
+                Map.Entry<EntryKey, CachedIdentities> e = it.next();
+                if (Objects.equals(path, e.getKey().path)) {
+                    it.remove();
+                    removed.add(e.getValue());
+                }
+            }
+        }
+        discard(removed);
+    }
+
+    public void clear() {
+        List<CachedIdentities> removed;
+        synchronized (entries) {
+            removed = new ArrayList<>(entries.values());
+            entries.clear();
+        }
+        discard(removed);
+    }
+
+    protected void discard(Collection<CachedIdentities> removed) {
+        for (CachedIdentities entry : removed) {
+            entry.discard();
+        }
+    }
+
+    /**
+     * @return The current time (nanos.) by which the idle entries are evicted
+     * @see    System#nanoTime()
+     */
+    protected long nanoTime() {
+        return System.nanoTime();
+    }
+
+    protected void evicted(Path path, Iterable<KeyPair> identities) {
+        if (log.isDebugEnabled()) {
+            log.debug("evicted({}) destroy={}", path, destroyOnEviction);
+        }
+
+        if (!destroyOnEviction) {
+            return;
+        }
+
+        for (KeyPair kp : identities) {
+            PrivateKey key = (kp == null) ? null : kp.getPrivate();
+            if ((key == null) || key.isDestroyed()) {
+                continue;
+            }
+
+            try {
+                key.destroy();
+            } catch (DestroyFailedException e) {
+                if (log.isTraceEnabled()) {
+                    log.trace("evicted({}) cannot destroy {} key: {}", path, key.getAlgorithm(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * The loader and password provider are compared by identity - a client re-uses the same instances for all its
+     * sessions
+     */
+    protected static final class EntryKey {
+        private final Path path;
+        private final ClientIdentityLoader loader;
+        private final FilePasswordProvider provider;
+
+        protected EntryKey(Path path, ClientIdentityLoader loader, FilePasswordProvider provider) {
+            this.path = Objects.requireNonNull(path, "No path");
+            this.loader = Objects.requireNonNull(loader, "No loader");
+            this.provider = provider;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * path.hashCode() + System.identityHashCode(loader)) + System.identityHashCode(provider);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof EntryKey)) {
+                return false;
+            }
+
+            EntryKey other = (EntryKey) obj;
+            return path.equals(other.path) && (loader == other.loader) && (provider == other.provider);
+        }
+    }
+
+    protected class CachedIdentities extends ModifiableFileWatcher {
+        private Iterable<KeyPair> identities;
+        private boolean discarded;
+        // guarded by the cache entries
+        private long lastUsed;
+
+        public CachedIdentities(Path path) {
+            super(path);
+        }
+
+        public synchronized Iterable<KeyPair> load(
+                SessionContext session, ClientIdentityLoader idLoader, NamedResource location,
+                FilePasswordProvider provider)
+                throws IOException, GeneralSecurityException {
+            if (discarded) {
+                // evicted since it was looked up - nothing would ever destroy the keys kept here
+                return idLoader.loadClientIdentities(session, location, provider);
+            }
+
+            if ((identities != null) && (!checkReloadRequired())) {
+                return identities;
+            }
+
+            evict();
+            // refresh the attributes first so that a change during the load is detected by the next one
+            updateReloadAttributes();
+
+            Iterable<KeyPair> ids = idLoader.loadClientIdentities(session, location, provider);
+            if (ids == null) {
+                return null;
+            }
+
+            // the loader may return a lazy iterable - keep the decrypted keys themselves
+            List<KeyPair> keys = new ArrayList<>();
+            for (KeyPair kp : ids) {
+                keys.add(kp);
+            }
+
+            identities = Collections.unmodifiableList(keys);
+            return identities;
+        }
+
+        /**
+         * Invoked once the entry has been removed from the cache - waits for a load in progress
+         */
+        protected synchronized void discard() {
+            discarded = true;
+            evict();
+        }
+
+        protected synchronized void evict() {
+            Iterable<KeyPair> previous = identities;
+            identities = null;
+            resetReloadAttributes();
+            if (previous != null) {
+                evicted(getPath(), previous);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return Objects.toString(getPath()) + "[" + ((identities == null) ? "empty" : "cached") + "]";
+        }
+    }
+}
@@ -25,6 +25,7 @@ import java.time.Duration;
 import java.util.Collection;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.sshd.common.SshException;
 import org.apache.sshd.common.util.GenericUtils;
@@ -105,6 +106,11 @@ public abstract class AbstractSftpClientExtension extends AbstractLoggingBean im
         return raw.receive(id, timeout);
     }
 
+    @Override
+    public CompletableFuture<Buffer> receiveAsync(int id) {
+        return raw.receiveAsync(id);
+    }
+
     @Override
     public final boolean isSupported() {
         return supported;
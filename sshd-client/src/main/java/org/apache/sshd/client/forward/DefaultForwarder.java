@@ -0,0 +1,705 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.client.forward;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.time.Duration;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+import org.apache.sshd.common.Closeable;
+import org.apache.sshd.common.CoreModuleProperties;
+import org.apache.sshd.common.FactoryManager;
+import org.apache.sshd.common.SshConstants;
+import org.apache.sshd.common.SshException;
+import org.apache.sshd.common.forward.Forwarder;
+import org.apache.sshd.common.forward.LocalForwardingEntry;
+import org.apache.sshd.common.forward.PortForwardingEventListener;
+import org.apache.sshd.common.forward.PortForwardingEventListenerManager;
+import org.apache.sshd.common.future.OpenFuture;
+import org.apache.sshd.common.io.IoAcceptor;
+import org.apache.sshd.common.io.IoConnectFuture;
+import org.apache.sshd.common.io.IoConnector;
+import org.apache.sshd.common.io.IoHandler;
+import org.apache.sshd.common.io.IoServiceFactory;
+import org.apache.sshd.common.io.IoSession;
+import org.apache.sshd.common.session.ConnectionService;
+import org.apache.sshd.common.session.Session;
+import org.apache.sshd.common.util.EventListenerUtils;
+import org.apache.sshd.common.util.Readable;
+import org.apache.sshd.common.util.buffer.Buffer;
+import org.apache.sshd.common.util.closeable.AbstractInnerCloseable;
+import org.apache.sshd.common.util.net.SshdSocketAddress;
+
+/**
+ * The built-in NIO2 based {@link Forwarder} of a client session:
+ * <UL>
+ * <LI>Local and dynamic (SOCKS5) port forwards accept connections on a shared {@link IoAcceptor} - each accepted
+ * connection is forwarded through a {@code direct-tcpip} channel.</LI>
+ * <LI>For remote port forwards the server opens a {@code forwarded-tcpip} channel per connection, which is connected to
+ * the local target through a shared {@link IoConnector}.</LI>
+ * </UL>
+ * The data is moved between the sockets and the channels by {@link TcpipBridge}s using pooled buffers, and each
+ * started forward keeps {@link ForwardingTunnel counters} of its connections and traffic.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class DefaultForwarder extends AbstractInnerCloseable implements Forwarder {
+    public static final String TCPIP_FORWARD_REQUEST = "tcpip-forward";
+    public static final String CANCEL_TCPIP_FORWARD_REQUEST = "cancel-" + TCPIP_FORWARD_REQUEST;
+
+    private final ConnectionService service;
+    private final Session sessionInstance;
+    private final IoHandler socketHandler = new SocketHandler();
+    // the local and dynamic forwards - key = the actually bound address
+    private final Map<SocketAddress, ForwardingTunnel> boundTunnels = new ConcurrentHashMap<>();
+    // the remote forwards - key = the port bound by the server
+    private final Map<Integer, ForwardingTunnel> remoteTunnels = new ConcurrentHashMap<>();
+    private final Collection<PortForwardingEventListener> listeners = new CopyOnWriteArraySet<>();
+    private final PortForwardingEventListener listenerProxy;
+    private final Collection<PortForwardingEventListenerManager> managersHolder = new CopyOnWriteArraySet<>();
+    private IoAcceptor acceptor;
+    private IoConnector connector;
+
+    public DefaultForwarder(ConnectionService service) {
+        this.service = Objects.requireNonNull(service, "No connection service");
+        this.sessionInstance = Objects.requireNonNull(service.getSession(), "No session");
+        this.listenerProxy = EventListenerUtils.proxyWrapper(PortForwardingEventListener.class, listeners);
+    }
+
+    public ConnectionService getConnectionService() {
+        return service;
+    }
+
+    public Session getSession() {
+        return sessionInstance;
+    }
+
+    @Override
+    public void addPortForwardingEventListener(PortForwardingEventListener listener) {
+        listeners.add(PortForwardingEventListener.validateListener(listener));
+    }
+
+    @Override
+    public void removePortForwardingEventListener(PortForwardingEventListener listener) {
+        if (listener == null) {
+            return;
+        }
+
+        listeners.remove(PortForwardingEventListener.validateListener(listener));
+    }
+
+    @Override
+    public PortForwardingEventListener getPortForwardingEventListenerProxy() {
+        return listenerProxy;
+    }
+
+    @Override
+    public Collection<PortForwardingEventListenerManager> getRegisteredManagers() {
+        return managersHolder.isEmpty() ? Collections.emptyList() : new ArrayList<>(managersHolder);
+    }
+
+    @Override
+    public boolean addPortForwardingEventListenerManager(PortForwardingEventListenerManager manager) {
+        return managersHolder.add(Objects.requireNonNull(manager, "No manager"));
+    }
+
+    @Override
+    public boolean removePortForwardingEventListenerManager(PortForwardingEventListenerManager manager) {
+        return (manager != null) && managersHolder.remove(manager);
+    }
+
+    /**
+     * @return The counters of all the started forwards
+     */
+    public List<ForwardingTunnelStatistics> getTunnelStatistics() {
+        List<ForwardingTunnelStatistics> stats = new ArrayList<>(boundTunnels.size() + remoteTunnels.size());
+        boundTunnels.values().forEach(t -> stats.add(t.getStatistics()));
+        remoteTunnels.values().forEach(t -> stats.add(t.getStatistics()));
+        return stats;
+    }
+
+    /**
+     * @param  address The requested or bound address of a local or dynamic forward
+     * @return         The matching forward - {@code null} if none
+     */
+    public ForwardingTunnel getLocalTunnel(SshdSocketAddress address) {
+        for (ForwardingTunnel tunnel : boundTunnels.values()) {
+            if (tunnel.isAddressedBy(address)) {
+                return tunnel;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param  port The port bound by the server
+     * @return      The matching remote forward - {@code null} if none
+     */
+    public ForwardingTunnel getRemoteTunnel(int port) {
+        return remoteTunnels.get(port);
+    }
+
+    @Override
+    public synchronized SshdSocketAddress startLocalPortForwarding(SshdSocketAddress local, SshdSocketAddress remote)
+            throws IOException {
+        Objects.requireNonNull(local, "Local address is null");
+        Objects.requireNonNull(remote, "Remote address is null");
+        checkOpen();
+
+        signalEstablishingExplicitTunnel(local, remote, true);
+        SshdSocketAddress bound;
+        try {
+            bound = bind(ForwardingTunnel.Type.Local, local, remote);
+        } catch (IOException | RuntimeException e) {
+            signalEstablishedExplicitTunnel(local, remote, true, null, e);
+            throw e;
+        }
+
+        signalEstablishedExplicitTunnel(local, remote, true, bound, null);
+        return bound;
+    }
+
+    @Override
+    public synchronized void stopLocalPortForwarding(SshdSocketAddress local) throws IOException {
+        ForwardingTunnel tunnel = unbind(ForwardingTunnel.Type.Local, local);
+        if (tunnel == null) {
+            if (log.isDebugEnabled()) {
+                log.debug("stopLocalPortForwarding({}) no binding found", local);
+            }
+            return;
+        }
+
+        SshdSocketAddress remote = tunnel.getTargetAddress();
+        signalTearingDownExplicitTunnel(local, true, remote);
+        signalTornDownExplicitTunnel(local, true, remote, null);
+    }
+
+    @Override
+    public synchronized SshdSocketAddress startDynamicPortForwarding(SshdSocketAddress local) throws IOException {
+        Objects.requireNonNull(local, "Local address is null");
+        checkOpen();
+
+        signalEstablishingDynamicTunnel(local);
+        SshdSocketAddress bound;
+        try {
+            bound = bind(ForwardingTunnel.Type.Dynamic, local, null);
+        } catch (IOException | RuntimeException e) {
+            signalEstablishedDynamicTunnel(local, null, e);
+            throw e;
+        }
+
+        signalEstablishedDynamicTunnel(local, bound, null);
+        return bound;
+    }
+
+    @Override
+    public synchronized void stopDynamicPortForwarding(SshdSocketAddress local) throws IOException {
+        ForwardingTunnel tunnel = unbind(ForwardingTunnel.Type.Dynamic, local);
+        if (tunnel == null) {
+            if (log.isDebugEnabled()) {
+                log.debug("stopDynamicPortForwarding({}) no binding found", local);
+            }
+            return;
+        }
+
+        signalTearingDownDynamicTunnel(local);
+        signalTornDownDynamicTunnel(local, null);
+    }
+
+    @Override
+    public synchronized SshdSocketAddress startRemotePortForwarding(SshdSocketAddress remote, SshdSocketAddress local)
+            throws IOException {
+        Objects.requireNonNull(local, "Local address is null");
+        Objects.requireNonNull(remote, "Remote address is null");
+        checkOpen();
+
+        Session session = getSession();
+        String remoteHost = remote.getHostName();
+        int remotePort = remote.getPort();
+        Buffer buffer = session.createBuffer(SshConstants.SSH_MSG_GLOBAL_REQUEST, remoteHost.length() + Long.SIZE);
+        buffer.putString(TCPIP_FORWARD_REQUEST);
+        buffer.putBoolean(true); // want reply
+        buffer.putString(remoteHost);
+        buffer.putInt(remotePort);
+
+        signalEstablishingExplicitTunnel(local, remote, false);
+        SshdSocketAddress bound;
+        try {
+            Duration timeout = CoreModuleProperties.FORWARD_REQUEST_TIMEOUT.getRequired(session);
+            Buffer result = session.request(TCPIP_FORWARD_REQUEST, buffer, timeout);
+            if (result == null) {
+                throw new SshException("Tcpip forwarding request denied by server");
+            }
+
+            // the reply carries the port only if the server allocated it
+            int port = (remotePort == 0) ? result.getInt() : remotePort;
+            bound = new SshdSocketAddress(remoteHost, port);
+            remoteTunnels.put(port, new ForwardingTunnel(ForwardingTunnel.Type.Remote, remote, bound, local));
+        } catch (IOException | RuntimeException e) {
+            signalEstablishedExplicitTunnel(local, remote, false, null, e);
+            throw e;
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("startRemotePortForwarding({}) {} => {}", session, bound, local);
+        }
+        signalEstablishedExplicitTunnel(local, remote, false, bound, null);
+        return bound;
+    }
+
+    @Override
+    public synchronized void stopRemotePortForwarding(SshdSocketAddress remote) throws IOException {
+        ForwardingTunnel tunnel = remoteTunnels.remove(remote.getPort());
+        if (tunnel == null) {
+            if (log.isDebugEnabled()) {
+                log.debug("stopRemotePortForwarding({}) no binding found", remote);
+            }
+            return;
+        }
+
+        SshdSocketAddress local = tunnel.getTargetAddress();
+        signalTearingDownExplicitTunnel(local, false, remote);
+        Session session = getSession();
+        String remoteHost = remote.getHostName();
+        Buffer buffer = session.createBuffer(SshConstants.SSH_MSG_GLOBAL_REQUEST, remoteHost.length() + Long.SIZE);
+        buffer.putString(CANCEL_TCPIP_FORWARD_REQUEST);
+        buffer.putBoolean(false); // want reply
+        buffer.putString(remoteHost);
+        buffer.putInt(remote.getPort());
+        try {
+            session.writePacket(buffer);
+        } catch (IOException | RuntimeException e) {
+            signalTornDownExplicitTunnel(local, false, remote, e);
+            throw e;
+        }
+
+        signalTornDownExplicitTunnel(local, false, remote, null);
+    }
+
+    @Override
+    public SshdSocketAddress getForwardedPort(int remotePort) {
+        ForwardingTunnel tunnel = remoteTunnels.get(remotePort);
+        return (tunnel == null) ? null : tunnel.getTargetAddress();
+    }
+
+    @Override
+    public SshdSocketAddress localPortForwardingRequested(SshdSocketAddress local) throws IOException {
+        // the client does not serve "tcpip-forward" requests
+        if (log.isDebugEnabled()) {
+            log.debug("localPortForwardingRequested({}) rejected for {}", getSession(), local);
+        }
+        return null;
+    }
+
+    @Override
+    public void localPortForwardingCancelled(SshdSocketAddress local) throws IOException {
+        if (log.isDebugEnabled()) {
+            log.debug("localPortForwardingCancelled({}) ignored for {}", getSession(), local);
+        }
+    }
+
+    @Override
+    public List<SshdSocketAddress> getStartedLocalPortForwards() {
+        List<SshdSocketAddress> result = new ArrayList<>();
+        for (ForwardingTunnel tunnel : boundTunnels.values()) {
+            if (tunnel.getType() == ForwardingTunnel.Type.Local) {
+                result.add(tunnel.getLocalAddress());
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<SshdSocketAddress> getBoundLocalPortForwards(int port) {
+        List<SshdSocketAddress> result = new ArrayList<>();
+        for (ForwardingTunnel tunnel : boundTunnels.values()) {
+            SshdSocketAddress bound = tunnel.getBoundAddress();
+            if ((tunnel.getType() == ForwardingTunnel.Type.Local) && (bound.getPort() == port)) {
+                result.add(bound);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Map.Entry<SshdSocketAddress, SshdSocketAddress>> getLocalForwardsBindings() {
+        List<Map.Entry<SshdSocketAddress, SshdSocketAddress>> result = new ArrayList<>();
+        for (ForwardingTunnel tunnel : boundTunnels.values()) {
+            if (tunnel.getType() == ForwardingTunnel.Type.Local) {
+                result.add(new SimpleImmutableEntry<>(tunnel.getBoundAddress(), tunnel.getTargetAddress()));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public NavigableSet<Integer> getStartedRemotePortForwards() {
+        return new TreeSet<>(remoteTunnels.keySet());
+    }
+
+    @Override
+    public SshdSocketAddress getBoundRemotePortForward(int port) {
+        return getForwardedPort(port);
+    }
+
+    @Override
+    public List<Map.Entry<Integer, SshdSocketAddress>> getRemoteForwardsBindings() {
+        List<Map.Entry<Integer, SshdSocketAddress>> result = new ArrayList<>();
+        remoteTunnels.forEach((port, tunnel) -> result.add(new SimpleImmutableEntry<>(port, tunnel.getTargetAddress())));
+        return result;
+    }
+
+    /**
+     * Registers and opens the {@code direct-tcpip} channel of an accepted connection
+     *
+     * @param  channel     The channel
+     * @return             The channel's {@link OpenFuture}
+     * @throws IOException If failed to send the open request
+     */
+    public OpenFuture openChannel(TcpipClientChannel channel) throws IOException {
+        service.registerChannel(channel);
+        return channel.open();
+    }
+
+    /**
+     * Connects a {@code forwarded-tcpip} channel to the local target of its remote forward
+     *
+     * @param channel The channel being opened
+     * @param port    The server port the connection was accepted on
+     */
+    protected void connectForwarded(ForwardedTcpipChannel channel, int port) {
+        ForwardingTunnel tunnel = remoteTunnels.get(port);
+        if (tunnel == null) {
+            channel.openFailed(SshConstants.SSH_OPEN_ADMINISTRATIVELY_PROHIBITED,
+                    "No remote port forward for port " + port, null);
+            return;
+        }
+
+        SshdSocketAddress target = tunnel.getTargetAddress();
+        IoConnectFuture future;
+        try {
+            future = getConnector().connect(target.toInetSocketAddress(), null, null);
+        } catch (RuntimeException e) {
+            tunnel.connectionFailed();
+            channel.openFailed(SshConstants.SSH_OPEN_CONNECT_FAILED, e.getMessage(), e);
+            return;
+        }
+
+        // invoked before the connection is read from
+        future.addListener(f -> {
+            IoSession ioSession = f.getSession();
+            if (ioSession == null) {
+                Throwable t = f.getException();
+                debug("connectForwarded({}) failed ({}) to connect to {}: {}",
+                        channel, (t == null) ? null : t.getClass().getSimpleName(), target,
+                        (t == null) ? "canceled" : t.getMessage(), t);
+                tunnel.connectionFailed();
+                channel.openFailed(SshConstants.SSH_OPEN_CONNECT_FAILED,
+                        "Failed to connect to " + target, t);
+                return;
+            }
+
+            try {
+                channel.connected(ioSession, tunnel);
+            } catch (RuntimeException e) {
+                debug("connectForwarded({}) failed ({}) to forward {}: {}",
+                        channel, e.getClass().getSimpleName(), ioSession, e.getMessage(), e);
+                ioSession.close(true);
+                channel.openFailed(SshConstants.SSH_OPEN_CONNECT_FAILED, e.getMessage(), e);
+            }
+        });
+    }
+
+    protected SshdSocketAddress bind(ForwardingTunnel.Type type, SshdSocketAddress local, SshdSocketAddress target)
+            throws IOException {
+        IoAcceptor a = getAcceptor();
+        Set<SocketAddress> before = new HashSet<>(a.getBoundAddresses());
+        a.bind(local.toInetSocketAddress());
+
+        Set<SocketAddress> after = new HashSet<>(a.getBoundAddresses());
+        after.removeAll(before);
+        if (after.size() != 1) {
+            a.unbind(after);
+            throw new IOException("Error binding to " + local + ": " + after.size() + " addresses bound");
+        }
+
+        SocketAddress address = after.iterator().next();
+        SshdSocketAddress bound = LocalForwardingEntry.resolveCombinedBoundAddress(
+                local, new SshdSocketAddress((InetSocketAddress) address));
+        ForwardingTunnel tunnel = new ForwardingTunnel(type, local, bound, target);
+        boundTunnels.put(address, tunnel);
+        if (log.isDebugEnabled()) {
+            log.debug("bind({}) started {}", getSession(), tunnel);
+        }
+        return bound;
+    }
+
+    protected ForwardingTunnel unbind(ForwardingTunnel.Type type, SshdSocketAddress local) {
+        for (Map.Entry<SocketAddress, ForwardingTunnel> entry : boundTunnels.entrySet()) {
+            ForwardingTunnel tunnel = entry.getValue();
+            if ((tunnel.getType() != type) || (!tunnel.isAddressedBy(local))) {
+                continue;
+            }
+
+            SocketAddress address = entry.getKey();
+            boundTunnels.remove(address);
+            IoAcceptor a;
+            synchronized (this) {
+                a = acceptor;
+            }
+            if (a != null) {
+                a.unbind(address);
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("unbind({}) stopped {}", getSession(), tunnel);
+            }
+            return tunnel;
+        }
+        return null;
+    }
+
+    protected synchronized IoAcceptor getAcceptor() {
+        if (acceptor == null) {
+            acceptor = getIoServiceFactory().createAcceptor(socketHandler);
+        }
+        return acceptor;
+    }
+
+    protected synchronized IoConnector getConnector() {
+        if (connector == null) {
+            connector = getIoServiceFactory().createConnector(socketHandler);
+        }
+        return connector;
+    }
+
+    protected IoServiceFactory getIoServiceFactory() {
+        FactoryManager manager = Objects.requireNonNull(getSession().getFactoryManager(), "No factory manager");
+        return Objects.requireNonNull(manager.getIoServiceFactory(), "No I/O service factory");
+    }
+
+    protected void checkOpen() {
+        if (isClosing()) {
+            throw new IllegalStateException("Forwarder closed: " + this);
+        }
+    }
+
+    /**
+     * Invoked when a local or dynamic forward accepted a connection
+     *
+     * @param  ioSession The accepted connection
+     * @throws Exception If failed to start forwarding it
+     */
+    protected void connectionAccepted(IoSession ioSession) throws Exception {
+        SocketAddress address = ioSession.getAcceptanceAddress();
+        ForwardingTunnel tunnel = (address == null) ? null : boundTunnels.get(address);
+        if (tunnel == null) {
+            if (log.isDebugEnabled()) {
+                log.debug("connectionAccepted({}) no forward bound to {}", ioSession, address);
+            }
+            ioSession.close(true);
+            return;
+        }
+
+        if (tunnel.getType() == ForwardingTunnel.Type.Dynamic) {
+            ioSession.setAttribute(SocksProxy.class, new SocksProxy(this, ioSession, tunnel));
+            return;
+        }
+
+        TcpipClientChannel channel = new TcpipClientChannel(ioSession, tunnel.getTargetAddress(), tunnel);
+        // nothing to forward the data to until the channel is open
+        ioSession.suspendRead();
+        OpenFuture openFuture = openChannel(channel);
+        TcpipBridge bridge = channel.getBridge();
+        ioSession.setAttribute(TcpipBridge.class, bridge);
+        openFuture.addListener(f -> {
+            Throwable t = f.getException();
+            if (t == null) {
+                bridge.opened();
+                ioSession.resumeRead();
+            } else {
+                debug("connectionAccepted({}) failed ({}) to open channel to {}: {}",
+                        ioSession, t.getClass().getSimpleName(), tunnel.getTargetAddress(), t.getMessage(), t);
+                tunnel.connectionFailed();
+                ioSession.close(true);
+            }
+        });
+    }
+
+    @Override
+    protected synchronized Closeable getInnerCloseable() {
+        return builder()
+                .run(toString(), () -> {
+                    boundTunnels.clear();
+                    remoteTunnels.clear();
+                })
+                .parallel(acceptor, connector)
+                .build();
+    }
+
+    protected void signalEstablishingExplicitTunnel(
+            SshdSocketAddress local, SshdSocketAddress remote, boolean localForwarding)
+            throws IOException {
+        Session session = getSession();
+        listenerProxy.establishingExplicitTunnel(session, local, remote, localForwarding);
+        for (PortForwardingEventListenerManager m : managersHolder) {
+            m.getPortForwardingEventListenerProxy().establishingExplicitTunnel(session, local, remote, localForwarding);
+        }
+    }
+
+    protected void signalEstablishedExplicitTunnel(
+            SshdSocketAddress local, SshdSocketAddress remote, boolean localForwarding,
+            SshdSocketAddress boundAddress, Throwable reason)
+            throws IOException {
+        Session session = getSession();
+        listenerProxy.establishedExplicitTunnel(session, local, remote, localForwarding, boundAddress, reason);
+        for (PortForwardingEventListenerManager m : managersHolder) {
+            m.getPortForwardingEventListenerProxy()
+                    .establishedExplicitTunnel(session, local, remote, localForwarding, boundAddress, reason);
+        }
+    }
+
+    protected void signalTearingDownExplicitTunnel(
+            SshdSocketAddress address, boolean localForwarding, SshdSocketAddress remoteAddress)
+            throws IOException {
+        Session session = getSession();
+        listenerProxy.tearingDownExplicitTunnel(session, address, localForwarding, remoteAddress);
+        for (PortForwardingEventListenerManager m : managersHolder) {
+            m.getPortForwardingEventListenerProxy()
+                    .tearingDownExplicitTunnel(session, address, localForwarding, remoteAddress);
+        }
+    }
+
+    protected void signalTornDownExplicitTunnel(
+            SshdSocketAddress address, boolean localForwarding, SshdSocketAddress remoteAddress, Throwable reason)
+            throws IOException {
+        Session session = getSession();
+        listenerProxy.tornDownExplicitTunnel(session, address, localForwarding, remoteAddress, reason);
+        for (PortForwardingEventListenerManager m : managersHolder) {
+            m.getPortForwardingEventListenerProxy()
+                    .tornDownExplicitTunnel(session, address, localForwarding, remoteAddress, reason);
+        }
+    }
+
+    protected void signalEstablishingDynamicTunnel(SshdSocketAddress local) throws IOException {
+        Session session = getSession();
+        listenerProxy.establishingDynamicTunnel(session, local);
+        for (PortForwardingEventListenerManager m : managersHolder) {
+            m.getPortForwardingEventListenerProxy().establishingDynamicTunnel(session, local);
+        }
+    }
+
+    protected void signalEstablishedDynamicTunnel(
+            SshdSocketAddress local, SshdSocketAddress boundAddress, Throwable reason)
+            throws IOException {
+        Session session = getSession();
+        listenerProxy.establishedDynamicTunnel(session, local, boundAddress, reason);
+        for (PortForwardingEventListenerManager m : managersHolder) {
+            m.getPortForwardingEventListenerProxy().establishedDynamicTunnel(session, local, boundAddress, reason);
+        }
+    }
+
+    protected void signalTearingDownDynamicTunnel(SshdSocketAddress address) throws IOException {
+        Session session = getSession();
+        listenerProxy.tearingDownDynamicTunnel(session, address);
+        for (PortForwardingEventListenerManager m : managersHolder) {
+            m.getPortForwardingEventListenerProxy().tearingDownDynamicTunnel(session, address);
+        }
+    }
+
+    protected void signalTornDownDynamicTunnel(SshdSocketAddress address, Throwable reason) throws IOException {
+        Session session = getSession();
+        listenerProxy.tornDownDynamicTunnel(session, address, reason);
+        for (PortForwardingEventListenerManager m : managersHolder) {
+            m.getPortForwardingEventListenerProxy().tornDownDynamicTunnel(session, address, reason);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + getSession() + "]";
+    }
+
+    /**
+     * Dispatches the events of the forwarded connections - both accepted and connected ones
+     *
+     * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+     */
+    protected class SocketHandler implements IoHandler {
+        protected SocketHandler() {
+            super();
+        }
+
+        @Override
+        public void sessionCreated(IoSession ioSession) throws Exception {
+            // connected sessions are attached to their channel by the connect listener
+            if (ioSession.getAcceptanceAddress() != null) {
+                connectionAccepted(ioSession);
+            }
+        }
+
+        @Override
+        public void sessionClosed(IoSession ioSession) throws Exception {
+            TcpipBridge bridge = (TcpipBridge) ioSession.getAttribute(TcpipBridge.class);
+            if (bridge != null) {
+                bridge.socketClosed();
+                return;
+            }
+
+            SocksProxy proxy = (SocksProxy) ioSession.getAttribute(SocksProxy.class);
+            if (proxy != null) {
+                proxy.socketClosed();
+            }
+        }
+
+        @Override
+        public void exceptionCaught(IoSession ioSession, Throwable cause) throws Exception {
+            debug("exceptionCaught({}) {}: {}", ioSession, cause.getClass().getSimpleName(), cause.getMessage(), cause);
+            ioSession.close(true);
+        }
+
+        @Override
+        public void messageReceived(IoSession ioSession, Readable message) throws Exception {
+            TcpipBridge bridge = (TcpipBridge) ioSession.getAttribute(TcpipBridge.class);
+            if (bridge != null) {
+                bridge.socketDataReceived(message);
+                return;
+            }
+
+            SocksProxy proxy = (SocksProxy) ioSession.getAttribute(SocksProxy.class);
+            if (proxy == null) {
+                throw new IllegalStateException("No forwarding for " + ioSession);
+            }
+            proxy.messageReceived(message);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.client.forward;
+
+import org.apache.sshd.common.forward.Forwarder;
+import org.apache.sshd.common.forward.ForwarderFactory;
+import org.apache.sshd.common.session.ConnectionService;
+
+/**
+ * Creates a {@link DefaultForwarder} per session
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class DefaultForwarderFactory implements ForwarderFactory {
+    public static final DefaultForwarderFactory INSTANCE = new DefaultForwarderFactory();
+
+    public DefaultForwarderFactory() {
+        super();
+    }
+
+    @Override
+    public Forwarder create(ConnectionService service) {
+        return new DefaultForwarder(service);
+    }
+}
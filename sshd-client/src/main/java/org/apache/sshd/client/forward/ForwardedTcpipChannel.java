@@ -0,0 +1,213 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.client.forward;
+
+import java.io.IOException;
+import java.util.Objects;
+
+import org.apache.sshd.client.future.DefaultOpenFuture;
+import org.apache.sshd.common.Closeable;
+import org.apache.sshd.common.FactoryManager;
+import org.apache.sshd.common.SshConstants;
+import org.apache.sshd.common.channel.AbstractChannel;
+import org.apache.sshd.common.channel.Channel;
+import org.apache.sshd.common.channel.ChannelAsyncOutputStream;
+import org.apache.sshd.common.channel.ChannelFactory;
+import org.apache.sshd.common.channel.exception.SshChannelOpenException;
+import org.apache.sshd.common.forward.Forwarder;
+import org.apache.sshd.common.forward.TcpForwardingFilter;
+import org.apache.sshd.common.future.OpenFuture;
+import org.apache.sshd.common.io.IoSession;
+import org.apache.sshd.common.session.Session;
+import org.apache.sshd.common.util.buffer.Buffer;
+import org.apache.sshd.common.util.net.SshdSocketAddress;
+
+/**
+ * A {@code forwarded-tcpip} channel opened by the server for a connection accepted on a remote port forward - the
+ * connection is forwarded to the local address the port was forwarded to by the {@link DefaultForwarder}
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class ForwardedTcpipChannel extends AbstractChannel {
+    private OpenFuture openFuture;
+    private SshdSocketAddress connectedAddress;
+    private SshdSocketAddress originatorAddress;
+    private volatile ChannelAsyncOutputStream asyncIn;
+    private volatile TcpipBridge bridge;
+
+    public ForwardedTcpipChannel() {
+        super(true);
+    }
+
+    public String getChannelType() {
+        return TcpForwardingFilter.Type.Forwarded.getName();
+    }
+
+    /**
+     * @return The server address the connection was accepted on - {@code null} if not open yet
+     */
+    public SshdSocketAddress getConnectedAddress() {
+        return connectedAddress;
+    }
+
+    /**
+     * @return The address of the peer that connected to the server - {@code null} if not open yet
+     */
+    public SshdSocketAddress getOriginatorAddress() {
+        return originatorAddress;
+    }
+
+    public TcpipBridge getBridge() {
+        return bridge;
+    }
+
+    @Override
+    public synchronized OpenFuture open(int recipient, long rwSize, long packetSize, Buffer buffer) {
+        setRecipient(recipient);
+
+        Session session = getSession();
+        FactoryManager manager = Objects.requireNonNull(session.getFactoryManager(), "No factory manager");
+        getRemoteWindow().init(rwSize, packetSize, manager);
+
+        connectedAddress = new SshdSocketAddress(buffer.getString(), buffer.getInt());
+        originatorAddress = new SshdSocketAddress(buffer.getString(), buffer.getInt());
+        openFuture = new DefaultOpenFuture(connectedAddress, futureLock);
+        if (log.isDebugEnabled()) {
+            log.debug("open({}) connected={}, originator={}", this, connectedAddress, originatorAddress);
+        }
+
+        Forwarder forwarder = service.getForwarder();
+        if (!(forwarder instanceof DefaultForwarder)) {
+            openFailed(SshConstants.SSH_OPEN_ADMINISTRATIVELY_PROHIBITED, "Unsupported forwarder: " + forwarder, null);
+        } else {
+            ((DefaultForwarder) forwarder).connectForwarded(this, connectedAddress.getPort());
+        }
+        return openFuture;
+    }
+
+    /**
+     * Invoked by the forwarder once the connection to the local target has been established
+     *
+     * @param ioSession The connection
+     * @param tunnel    The remote port forward
+     */
+    protected void connected(IoSession ioSession, ForwardingTunnel tunnel) {
+        TcpipBridge b = new TcpipBridge(this, ioSession, tunnel);
+        ChannelAsyncOutputStream output = new ChannelAsyncOutputStream(this, SshConstants.SSH_MSG_CHANNEL_DATA, true);
+        b.setOutput(output);
+        asyncIn = output;
+        bridge = b;
+        ioSession.setAttribute(TcpipBridge.class, b);
+
+        signalChannelOpenSuccess();
+        b.opened();
+        openFuture.setOpened();
+    }
+
+    /**
+     * Invoked by the forwarder if the channel cannot be opened
+     *
+     * @param reasonCode The {@code SSH_OPEN_XXX} reason code
+     * @param message    The failure message
+     * @param cause      The failure cause - may be {@code null}
+     */
+    protected void openFailed(int reasonCode, String message, Throwable cause) {
+        SshChannelOpenException e = new SshChannelOpenException(getId(), reasonCode, message, cause);
+        signalChannelOpenFailure(e);
+        openFuture.setException(e);
+        close(true);
+    }
+
+    @Override
+    public void handleOpenSuccess(int recipient, long rwSize, long packetSize, Buffer buffer) throws IOException {
+        throw new UnsupportedOperationException("handleOpenSuccess(" + recipient + ") N/A");
+    }
+
+    @Override
+    public void handleOpenFailure(Buffer buffer) throws IOException {
+        throw new UnsupportedOperationException("handleOpenFailure() N/A");
+    }
+
+    @Override
+    protected Closeable getInnerCloseable() {
+        return builder()
+                .close(asyncIn)
+                .close(super.getInnerCloseable())
+                .build();
+    }
+
+    @Override
+    protected void doWriteData(byte[] data, int off, long len) throws IOException {
+        TcpipBridge b = bridge;
+        if ((b == null) || isClosing()) {
+            if (log.isDebugEnabled()) {
+                log.debug("doWriteData({}) ignored (len={}) channel state={}", this, len, state);
+            }
+            return;
+        }
+
+        b.channelDataReceived(data, off, len);
+    }
+
+    @Override
+    protected void doWriteExtendedData(byte[] data, int off, long len) throws IOException {
+        throw new UnsupportedOperationException(getChannelType() + " channel does not support extended data");
+    }
+
+    @Override
+    public void handleEof() throws IOException {
+        super.handleEof();
+        TcpipBridge b = bridge;
+        if (b != null) {
+            b.channelEofReceived();
+        }
+    }
+
+    @Override
+    public void handleWindowAdjust(Buffer buffer) throws IOException {
+        super.handleWindowAdjust(buffer);
+        ChannelAsyncOutputStream output = asyncIn;
+        if (output != null) {
+            output.onWindowExpanded();
+        }
+    }
+
+    /**
+     * Creates the channels for the server's {@code forwarded-tcpip} channel open requests
+     *
+     * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+     */
+    public static class ForwardedTcpipFactory implements ChannelFactory {
+        public static final ForwardedTcpipFactory INSTANCE = new ForwardedTcpipFactory();
+
+        public ForwardedTcpipFactory() {
+            super();
+        }
+
+        @Override
+        public String getName() {
+            return TcpForwardingFilter.Type.Forwarded.getName();
+        }
+
+        @Override
+        public Channel createChannel(Session session) throws IOException {
+            return new ForwardedTcpipChannel();
+        }
+    }
+}
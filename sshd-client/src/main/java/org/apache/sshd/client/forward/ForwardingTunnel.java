@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.client.forward;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.sshd.common.util.net.SshdSocketAddress;
+
+/**
+ * A started port forward of a {@link DefaultForwarder} along with its connection and traffic counters. The counters
+ * are updated by the connections concurrently without any locking.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class ForwardingTunnel {
+    public enum Type {
+        /** Local port forwarded through a {@code direct-tcpip} channel */
+        Local,
+        /** Server port forwarded to a local address through {@code forwarded-tcpip} channels */
+        Remote,
+        /** Local SOCKS proxy port */
+        Dynamic
+    }
+
+    private final Type type;
+    private final SshdSocketAddress localAddress;
+    private final SshdSocketAddress boundAddress;
+    private final SshdSocketAddress targetAddress;
+    private final AtomicInteger activeConnections = new AtomicInteger();
+    private final LongAdder totalConnections = new LongAdder();
+    private final LongAdder failedConnections = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+
+    /**
+     * @param type          The forward type
+     * @param localAddress  The requested address - for a remote forward the one requested from the server
+     * @param boundAddress  The actually bound address
+     * @param targetAddress The address the connections are forwarded to - {@code null} for a dynamic forward
+     */
+    public ForwardingTunnel(Type type, SshdSocketAddress localAddress, SshdSocketAddress boundAddress,
+                            SshdSocketAddress targetAddress) {
+        this.type = Objects.requireNonNull(type, "No type");
+        this.localAddress = Objects.requireNonNull(localAddress, "No local address");
+        this.boundAddress = Objects.requireNonNull(boundAddress, "No bound address");
+        this.targetAddress = targetAddress;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public SshdSocketAddress getLocalAddress() {
+        return localAddress;
+    }
+
+    public SshdSocketAddress getBoundAddress() {
+        return boundAddress;
+    }
+
+    public SshdSocketAddress getTargetAddress() {
+        return targetAddress;
+    }
+
+    public int getActiveConnections() {
+        return activeConnections.get();
+    }
+
+    /**
+     * @param  address The address used to start or stop the forward
+     * @return         {@code true} if it is either the requested or the bound address of this tunnel
+     */
+    public boolean isAddressedBy(SshdSocketAddress address) {
+        return localAddress.equals(address) || boundAddress.equals(address);
+    }
+
+    public void connectionOpened() {
+        activeConnections.incrementAndGet();
+        totalConnections.increment();
+    }
+
+    public void connectionClosed() {
+        activeConnections.decrementAndGet();
+    }
+
+    public void connectionFailed() {
+        failedConnections.increment();
+    }
+
+    public void sent(long len) {
+        bytesSent.add(len);
+    }
+
+    public void received(long len) {
+        bytesReceived.add(len);
+    }
+
+    public ForwardingTunnelStatistics getStatistics() {
+        return new ForwardingTunnelStatistics(type, boundAddress, targetAddress,
+                activeConnections.get(), totalConnections.sum(), failedConnections.sum(),
+                bytesSent.sum(), bytesReceived.sum());
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName()
+               + "[type=" + type
+               + ", local=" + localAddress
+               + ", bound=" + boundAddress
+               + ", target=" + targetAddress
+               + "]";
+    }
+}
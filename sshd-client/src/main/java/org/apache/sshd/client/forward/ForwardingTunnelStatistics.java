@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.client.forward;
+
+import org.apache.sshd.client.forward.ForwardingTunnel.Type;
+import org.apache.sshd.common.util.net.SshdSocketAddress;
+
+/**
+ * A snapshot of the counters of a {@link ForwardingTunnel}
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class ForwardingTunnelStatistics {
+    private final Type type;
+    private final SshdSocketAddress boundAddress;
+    private final SshdSocketAddress targetAddress;
+    private final int activeConnections;
+    private final long totalConnections;
+    private final long failedConnections;
+    private final long bytesSent;
+    private final long bytesReceived;
+
+    public ForwardingTunnelStatistics(Type type, SshdSocketAddress boundAddress, SshdSocketAddress targetAddress,
+                                      int activeConnections, long totalConnections, long failedConnections,
+                                      long bytesSent, long bytesReceived) {
+        this.type = type;
+        this.boundAddress = boundAddress;
+        this.targetAddress = targetAddress;
+        this.activeConnections = activeConnections;
+        this.totalConnections = totalConnections;
+        this.failedConnections = failedConnections;
+        this.bytesSent = bytesSent;
+        this.bytesReceived = bytesReceived;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return The address connections are accepted on - for a remote forward the address bound by the server
+     */
+    public SshdSocketAddress getBoundAddress() {
+        return boundAddress;
+    }
+
+    /**
+     * @return The address the connections are forwarded to - {@code null} for a dynamic forward
+     */
+    public SshdSocketAddress getTargetAddress() {
+        return targetAddress;
+    }
+
+    /**
+     * @return Number of currently forwarded connections
+     */
+    public int getActiveConnections() {
+        return activeConnections;
+    }
+
+    /**
+     * @return Number of connections forwarded since the tunnel was started - including the active ones
+     */
+    public long getTotalConnections() {
+        return totalConnections;
+    }
+
+    /**
+     * @return Number of connections that could not be forwarded - e.g., because the channel could not be opened
+     */
+    public long getFailedConnections() {
+        return failedConnections;
+    }
+
+    /**
+     * @return Number of bytes read from the accepting side and forwarded to the target side
+     */
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    /**
+     * @return Number of bytes received from the target side and written to the accepting side
+     */
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName()
+               + "[type=" + type
+               + ", bound=" + boundAddress
+               + ", target=" + targetAddress
+               + ", active=" + activeConnections
+               + ", total=" + totalConnections
+               + ", failed=" + failedConnections
+               + ", sent=" + bytesSent
+               + ", received=" + bytesReceived
+               + "]";
+    }
+}
@@ -0,0 +1,301 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.client.forward;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+import org.apache.sshd.common.SshConstants;
+import org.apache.sshd.common.channel.exception.SshChannelOpenException;
+import org.apache.sshd.common.future.OpenFuture;
+import org.apache.sshd.common.io.IoSession;
+import org.apache.sshd.common.util.Readable;
+import org.apache.sshd.common.util.buffer.Buffer;
+import org.apache.sshd.common.util.buffer.ByteArrayBuffer;
+import org.apache.sshd.common.util.logging.AbstractLoggingBean;
+import org.apache.sshd.common.util.net.SshdSocketAddress;
+
+/**
+ * The SOCKS5 (<A HREF="https://tools.ietf.org/html/rfc1928">RFC 1928</A>) handshake of a connection accepted by a
+ * dynamic port forward. Only the {@code CONNECT} command without authentication is supported - once the target is
+ * known a {@code direct-tcpip} channel is opened to it and the connection is forwarded like a local port forward one.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class SocksProxy extends AbstractLoggingBean {
+    public static final int SOCKS_VERSION = 5;
+
+    public static final int METHOD_NO_AUTHENTICATION = 0x00;
+    public static final int METHOD_NO_ACCEPTABLE = 0xFF;
+
+    public static final int CMD_CONNECT = 0x01;
+
+    public static final int ATYP_IPV4 = 0x01;
+    public static final int ATYP_DOMAIN_NAME = 0x03;
+    public static final int ATYP_IPV6 = 0x04;
+
+    public static final int REP_SUCCEEDED = 0x00;
+    public static final int REP_GENERAL_FAILURE = 0x01;
+    public static final int REP_NOT_ALLOWED = 0x02;
+    public static final int REP_HOST_UNREACHABLE = 0x04;
+    public static final int REP_CONNECTION_REFUSED = 0x05;
+    public static final int REP_COMMAND_NOT_SUPPORTED = 0x07;
+    public static final int REP_ADDRESS_TYPE_NOT_SUPPORTED = 0x08;
+
+    private final DefaultForwarder forwarder;
+    private final IoSession ioSession;
+    private final ForwardingTunnel tunnel;
+    private final Buffer pending = new ByteArrayBuffer(Byte.MAX_VALUE, false);
+    private boolean greeted;
+    private TcpipClientChannel channel;
+
+    public SocksProxy(DefaultForwarder forwarder, IoSession ioSession, ForwardingTunnel tunnel) {
+        this.forwarder = Objects.requireNonNull(forwarder, "No forwarder");
+        this.ioSession = Objects.requireNonNull(ioSession, "No socket session");
+        this.tunnel = Objects.requireNonNull(tunnel, "No tunnel");
+    }
+
+    public IoSession getIoSession() {
+        return ioSession;
+    }
+
+    /**
+     * @return The channel opened for the requested target - {@code null} if not requested yet
+     */
+    public synchronized TcpipClientChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * @param  data        Data read from the socket
+     * @throws IOException If failed to handle it
+     */
+    public synchronized void messageReceived(Readable data) throws IOException {
+        pending.putBuffer(data);
+        if (channel != null) {
+            // the handshake is over - keep the data until the channel is open
+            return;
+        }
+
+        if ((!greeted) && (!handleGreeting())) {
+            return;
+        }
+
+        if (greeted) {
+            handleRequest();
+        }
+    }
+
+    /**
+     * @return             {@code true} if the greeting has been handled
+     * @throws IOException If failed to reply
+     */
+    protected boolean handleGreeting() throws IOException {
+        int available = pending.available();
+        if (available < 2) {
+            return false;
+        }
+
+        int rpos = pending.rpos();
+        int version = pending.rawByte(rpos) & 0xFF;
+        if (version != SOCKS_VERSION) {
+            if (log.isDebugEnabled()) {
+                log.debug("handleGreeting({}) unsupported SOCKS version: {}", this, version);
+            }
+            ioSession.close(true);
+            return false;
+        }
+
+        int numMethods = pending.rawByte(rpos + 1) & 0xFF;
+        if (available < (2 + numMethods)) {
+            return false;
+        }
+
+        boolean acceptable = false;
+        for (int index = 0; index < numMethods; index++) {
+            if ((pending.rawByte(rpos + 2 + index) & 0xFF) == METHOD_NO_AUTHENTICATION) {
+                acceptable = true;
+                break;
+            }
+        }
+        pending.rpos(rpos + 2 + numMethods);
+        pending.compact();
+
+        Buffer reply = new ByteArrayBuffer(2, false);
+        reply.putByte((byte) SOCKS_VERSION);
+        reply.putByte((byte) (acceptable ? METHOD_NO_AUTHENTICATION : METHOD_NO_ACCEPTABLE));
+        if (!acceptable) {
+            if (log.isDebugEnabled()) {
+                log.debug("handleGreeting({}) no acceptable authentication method", this);
+            }
+            ioSession.writeBuffer(reply).addListener(f -> ioSession.close(false));
+            return false;
+        }
+
+        ioSession.writeBuffer(reply);
+        greeted = true;
+        return true;
+    }
+
+    protected void handleRequest() throws IOException {
+        int available = pending.available();
+        if (available < 5) {
+            return;
+        }
+
+        int rpos = pending.rpos();
+        int version = pending.rawByte(rpos) & 0xFF;
+        int cmd = pending.rawByte(rpos + 1) & 0xFF;
+        int addressType = pending.rawByte(rpos + 3) & 0xFF;
+        if (version != SOCKS_VERSION) {
+            ioSession.close(true);
+            return;
+        }
+
+        int addressLength;
+        int addressOffset = rpos + 4;
+        switch (addressType) {
+            case ATYP_IPV4:
+                addressLength = 4;
+                break;
+            case ATYP_IPV6:
+                addressLength = 16;
+                break;
+            case ATYP_DOMAIN_NAME:
+                addressLength = pending.rawByte(addressOffset) & 0xFF;
+                addressOffset++;
+                break;
+            default:
+                reply(REP_ADDRESS_TYPE_NOT_SUPPORTED, true);
+                return;
+        }
+
+        int requestLength = addressOffset - rpos + addressLength + 2;
+        if (available < requestLength) {
+            return;
+        }
+
+        byte[] address = new byte[addressLength];
+        System.arraycopy(pending.array(), addressOffset, address, 0, addressLength);
+        int port = ((pending.rawByte(addressOffset + addressLength) & 0xFF) << 8)
+                   | (pending.rawByte(addressOffset + addressLength + 1) & 0xFF);
+        pending.rpos(rpos + requestLength);
+        pending.compact();
+
+        if (cmd != CMD_CONNECT) {
+            if (log.isDebugEnabled()) {
+                log.debug("handleRequest({}) unsupported command: {}", this, cmd);
+            }
+            reply(REP_COMMAND_NOT_SUPPORTED, true);
+            return;
+        }
+
+        String host = (addressType == ATYP_DOMAIN_NAME)
+                ? new String(address, StandardCharsets.US_ASCII)
+                : InetAddress.getByAddress(address).getHostAddress();
+        SshdSocketAddress target = new SshdSocketAddress(host, port);
+        if (log.isDebugEnabled()) {
+            log.debug("handleRequest({}) connect to {}", this, target);
+        }
+
+        channel = new TcpipClientChannel(ioSession, target, tunnel);
+        // nothing more to read until the channel is open
+        ioSession.suspendRead();
+        OpenFuture openFuture = forwarder.openChannel(channel);
+        openFuture.addListener(f -> onChannelOpened(f));
+    }
+
+    protected synchronized void onChannelOpened(OpenFuture future) {
+        Throwable t = future.getException();
+        if (t != null) {
+            debug("onChannelOpened({}) failed ({}) to open channel: {}",
+                    this, t.getClass().getSimpleName(), t.getMessage(), t);
+            tunnel.connectionFailed();
+            int reasonCode = (t instanceof SshChannelOpenException)
+                    ? ((SshChannelOpenException) t).getReasonCode()
+                    : 0;
+            try {
+                reply(toReplyCode(reasonCode), true);
+            } catch (IOException e) {
+                ioSession.close(true);
+            }
+            return;
+        }
+
+        try {
+            reply(REP_SUCCEEDED, false);
+
+            TcpipBridge bridge = channel.getBridge();
+            ioSession.setAttribute(TcpipBridge.class, bridge);
+            bridge.opened();
+            if (pending.available() > 0) {
+                bridge.socketDataReceived(pending);
+            }
+            ioSession.resumeRead();
+        } catch (IOException | RuntimeException e) {
+            debug("onChannelOpened({}) failed ({}) to start forwarding: {}",
+                    this, e.getClass().getSimpleName(), e.getMessage(), e);
+            ioSession.close(true);
+        }
+    }
+
+    protected int toReplyCode(int openFailureReason) {
+        switch (openFailureReason) {
+            case SshConstants.SSH_OPEN_ADMINISTRATIVELY_PROHIBITED:
+                return REP_NOT_ALLOWED;
+            case SshConstants.SSH_OPEN_CONNECT_FAILED:
+                return REP_CONNECTION_REFUSED;
+            case SshConstants.SSH_OPEN_UNKNOWN_CHANNEL_TYPE:
+                return REP_COMMAND_NOT_SUPPORTED;
+            default:
+                return REP_GENERAL_FAILURE;
+        }
+    }
+
+    protected void reply(int code, boolean closeAfterReply) throws IOException {
+        // VER, REP, RSV, ATYP=IPv4, BND.ADDR=0.0.0.0, BND.PORT=0
+        Buffer reply = new ByteArrayBuffer(10, false);
+        reply.putByte((byte) SOCKS_VERSION);
+        reply.putByte((byte) code);
+        reply.putByte((byte) 0);
+        reply.putByte((byte) ATYP_IPV4);
+        reply.putRawBytes(new byte[6]);
+        if (closeAfterReply) {
+            ioSession.writeBuffer(reply).addListener(f -> ioSession.close(false));
+        } else {
+            ioSession.writeBuffer(reply);
+        }
+    }
+
+    /**
+     * Invoked when the socket has been closed before the channel was open
+     */
+    public synchronized void socketClosed() {
+        if (channel != null) {
+            channel.close(true);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + ioSession + "]";
+    }
+}
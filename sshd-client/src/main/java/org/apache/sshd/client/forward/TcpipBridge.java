@@ -0,0 +1,243 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.client.forward;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.sshd.common.CoreModuleProperties;
+import org.apache.sshd.common.FactoryManager;
+import org.apache.sshd.common.channel.Channel;
+import org.apache.sshd.common.channel.ChannelAsyncOutputStream;
+import org.apache.sshd.common.io.IoSession;
+import org.apache.sshd.common.io.IoWriteFuture;
+import org.apache.sshd.common.session.Session;
+import org.apache.sshd.common.util.Readable;
+import org.apache.sshd.common.util.ValidateUtils;
+import org.apache.sshd.common.util.buffer.Buffer;
+import org.apache.sshd.common.util.buffer.BufferPool;
+import org.apache.sshd.common.util.logging.AbstractLoggingBean;
+
+/**
+ * Moves the data of a forwarded connection between its socket and its channel:
+ * <UL>
+ * <LI>Data read from the socket is copied into a pooled buffer and queued in the channel's output stream, which sends
+ * it as the remote window permits. Once too much data is waiting for the window the socket is no longer read until
+ * the queue drains.</LI>
+ * <LI>Data received on the channel is written to the socket from a pooled buffer, and only consumed from the local
+ * window once written - so a slow socket throttles the peer instead of being buffered in memory.</LI>
+ * </UL>
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class TcpipBridge extends AbstractLoggingBean {
+    private final Channel channel;
+    private final IoSession ioSession;
+    private final ForwardingTunnel tunnel;
+    private final BufferPool bufferPool;
+    private final long highThreshold;
+    private final long lowThreshold;
+    private final AtomicBoolean suspended = new AtomicBoolean();
+    private final AtomicBoolean opened = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile ChannelAsyncOutputStream output;
+
+    public TcpipBridge(Channel channel, IoSession ioSession, ForwardingTunnel tunnel) {
+        this.channel = Objects.requireNonNull(channel, "No channel");
+        this.ioSession = Objects.requireNonNull(ioSession, "No socket session");
+        this.tunnel = Objects.requireNonNull(tunnel, "No tunnel");
+
+        Session session = Objects.requireNonNull(channel.getSession(), "No session");
+        FactoryManager manager = Objects.requireNonNull(session.getFactoryManager(), "No factory manager");
+        this.bufferPool = manager.getBufferPool();
+        this.highThreshold = CoreModuleProperties.TCPIP_FORWARDER_QUEUED_BYTES_THRESHOLD_HIGH.getRequired(channel);
+        this.lowThreshold = CoreModuleProperties.TCPIP_FORWARDER_QUEUED_BYTES_THRESHOLD_LOW.get(channel)
+                .orElse(highThreshold / 2L);
+        ValidateUtils.checkTrue(highThreshold > 0L, "Invalid high threshold: %d", highThreshold);
+        ValidateUtils.checkTrue(lowThreshold <= highThreshold,
+                "Low threshold (%d) above high threshold", lowThreshold);
+    }
+
+    public Channel getChannel() {
+        return channel;
+    }
+
+    public IoSession getIoSession() {
+        return ioSession;
+    }
+
+    public ForwardingTunnel getTunnel() {
+        return tunnel;
+    }
+
+    /**
+     * @param output The (queued) stream that sends the channel data - set once the channel is open
+     */
+    public void setOutput(ChannelAsyncOutputStream output) {
+        ValidateUtils.checkTrue(output.isQueued(), "Channel output not queued: %s", output);
+        this.output = output;
+    }
+
+    /**
+     * Invoked once the channel is open and the connection is forwarded
+     */
+    public void opened() {
+        if (!opened.getAndSet(true)) {
+            tunnel.connectionOpened();
+            channel.addCloseFutureListener(f -> channelClosed());
+        }
+    }
+
+    /**
+     * @param  data        Data read from the socket
+     * @throws IOException If failed to queue the data
+     */
+    public void socketDataReceived(Readable data) throws IOException {
+        int len = data.available();
+        if (len <= 0) {
+            return;
+        }
+
+        ChannelAsyncOutputStream out = output;
+        if (out == null) {
+            throw new IllegalStateException("Channel not open: " + channel);
+        }
+
+        // the socket read buffer is re-used once we return
+        Buffer buffer = bufferPool.acquire(len);
+        data.getRawBytes(buffer.array(), buffer.wpos(), len);
+        buffer.wpos(buffer.wpos() + len);
+
+        IoWriteFuture future;
+        try {
+            future = out.writeBuffer(buffer);
+        } catch (IOException | RuntimeException e) {
+            bufferPool.release(buffer);
+            throw e;
+        }
+
+        if ((out.getQueuedBytes() >= highThreshold) && suspended.compareAndSet(false, true)) {
+            ioSession.suspendRead();
+            if (log.isDebugEnabled()) {
+                log.debug("socketDataReceived({}) suspended reading - queued={}", this, out.getQueuedBytes());
+            }
+            // the queue may have drained meanwhile
+            resumeIfDrained(out);
+        }
+
+        future.addListener(f -> {
+            bufferPool.release(buffer);
+            if (f.isWritten()) {
+                tunnel.sent(len);
+                resumeIfDrained(out);
+            } else {
+                Throwable t = f.getException();
+                debug("socketDataReceived({}) failed ({}) to forward {} bytes: {}",
+                        this, (t == null) ? null : t.getClass().getSimpleName(), len,
+                        (t == null) ? null : t.getMessage(), t);
+                ioSession.close(true);
+            }
+        });
+    }
+
+    protected void resumeIfDrained(ChannelAsyncOutputStream out) {
+        if (suspended.get() && (out.getQueuedBytes() <= lowThreshold) && suspended.compareAndSet(true, false)) {
+            if (log.isDebugEnabled()) {
+                log.debug("resumeIfDrained({}) resume reading - queued={}", this, out.getQueuedBytes());
+            }
+            ioSession.resumeRead();
+        }
+    }
+
+    /**
+     * @param  data        The received channel data
+     * @param  off         Offset of the data
+     * @param  len         Length of the data
+     * @throws IOException If failed to write the data to the socket
+     */
+    public void channelDataReceived(byte[] data, int off, long len) throws IOException {
+        ValidateUtils.checkTrue(len <= Integer.MAX_VALUE, "Data length exceeds int boundaries: %d", len);
+        int length = (int) len;
+        Buffer buffer = bufferPool.acquire(length);
+        buffer.putRawBytes(data, off, length);
+
+        IoWriteFuture future;
+        try {
+            future = ioSession.writeBuffer(buffer);
+        } catch (IOException | RuntimeException e) {
+            bufferPool.release(buffer);
+            throw e;
+        }
+
+        future.addListener(f -> {
+            bufferPool.release(buffer);
+            if (!f.isWritten()) {
+                Throwable t = f.getException();
+                debug("channelDataReceived({}) failed ({}) to write {} bytes: {}",
+                        this, (t == null) ? null : t.getClass().getSimpleName(), length,
+                        (t == null) ? null : t.getMessage(), t);
+                channel.close(false);
+                return;
+            }
+
+            tunnel.received(length);
+            try {
+                // only let the peer send more once the socket took the data
+                channel.getLocalWindow().consumeAndCheck(length);
+            } catch (IOException e) {
+                debug("channelDataReceived({}) failed ({}) to adjust window: {}",
+                        this, e.getClass().getSimpleName(), e.getMessage(), e);
+                channel.close(false);
+            }
+        });
+    }
+
+    /**
+     * Invoked when the peer signals that it will send no more data
+     */
+    public void channelEofReceived() {
+        // let the socket write what it has before closing
+        ioSession.close(false);
+    }
+
+    /**
+     * Invoked when the socket has been closed
+     */
+    public void socketClosed() {
+        connectionClosed();
+        channel.close(false);
+    }
+
+    protected void channelClosed() {
+        connectionClosed();
+        ioSession.close(false);
+    }
+
+    protected void connectionClosed() {
+        if (opened.get() && (!closed.getAndSet(true))) {
+            tunnel.connectionClosed();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + ioSession + " <=> " + channel + "]";
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.client.forward;
+
+import java.io.IOException;
+import java.util.Objects;
+
+import org.apache.sshd.client.channel.ChannelDirectTcpip;
+import org.apache.sshd.common.SshConstants;
+import org.apache.sshd.common.channel.ChannelAsyncInputStream;
+import org.apache.sshd.common.channel.ChannelAsyncOutputStream;
+import org.apache.sshd.common.io.IoSession;
+import org.apache.sshd.common.util.net.SshdSocketAddress;
+
+/**
+ * The {@code direct-tcpip} channel of a connection accepted by a local or dynamic port forward of a
+ * {@link DefaultForwarder}
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class TcpipClientChannel extends ChannelDirectTcpip {
+    private final IoSession ioSession;
+    private final ForwardingTunnel tunnel;
+    private TcpipBridge bridge;
+
+    /**
+     * @param ioSession The accepted connection
+     * @param remote    The address to connect to on the server side
+     * @param tunnel    The port forward that accepted the connection
+     */
+    public TcpipClientChannel(IoSession ioSession, SshdSocketAddress remote, ForwardingTunnel tunnel) {
+        // report the connecting peer as originator - avoids resolving the local host name
+        super(SshdSocketAddress.toSshdSocketAddress(ioSession.getRemoteAddress()), remote);
+        this.ioSession = ioSession;
+        this.tunnel = Objects.requireNonNull(tunnel, "No tunnel");
+        setStreaming(Streaming.Async);
+    }
+
+    public IoSession getIoSession() {
+        return ioSession;
+    }
+
+    public ForwardingTunnel getTunnel() {
+        return tunnel;
+    }
+
+    /**
+     * @return The bridge between the connection and the channel - created once the channel is registered
+     */
+    public synchronized TcpipBridge getBridge() {
+        if (bridge == null) {
+            bridge = new TcpipBridge(this, ioSession, tunnel);
+        }
+        return bridge;
+    }
+
+    @Override
+    protected void doOpen() throws IOException {
+        ChannelAsyncOutputStream output = new ChannelAsyncOutputStream(this, SshConstants.SSH_MSG_CHANNEL_DATA, true);
+        asyncIn = output;
+        asyncOut = new ChannelAsyncInputStream(this);
+        getBridge().setOutput(output);
+    }
+
+    @Override
+    protected void doWriteData(byte[] data, int off, long len) throws IOException {
+        if (isClosing()) {
+            if (log.isDebugEnabled()) {
+                log.debug("doWriteData({}) ignored (len={}) channel state={}", this, len, state);
+            }
+            return;
+        }
+
+        getBridge().channelDataReceived(data, off, len);
+    }
+
+    @Override
+    public void handleEof() throws IOException {
+        super.handleEof();
+        getBridge().channelEofReceived();
+    }
+}
@@ -21,6 +21,8 @@ package org.apache.sshd.client.impl;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.file.attribute.FileTime;
@@ -31,19 +33,25 @@ import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.sshd.client.channel.ClientChannel;
+import org.apache.sshd.client.session.ClientSession;
 import org.apache.sshd.client.subsystem.AbstractSubsystemClient;
+import org.apache.sshd.common.FactoryManager;
 import org.apache.sshd.common.SshConstants;
 import org.apache.sshd.common.SshException;
 import org.apache.sshd.common.channel.Channel;
 import org.apache.sshd.common.util.GenericUtils;
 import org.apache.sshd.common.util.ValidateUtils;
 import org.apache.sshd.common.util.buffer.Buffer;
+import org.apache.sshd.common.util.buffer.BufferPool;
 import org.apache.sshd.common.util.buffer.ByteArrayBuffer;
 import org.apache.sshd.common.SftpModuleProperties;
+import org.apache.sshd.client.AsyncSftpClient;
 import org.apache.sshd.client.FullAccessSftpClient;
 import org.apache.sshd.client.extensions.BuiltinSftpClientExtensions;
 import org.apache.sshd.client.extensions.SftpClientExtension;
@@ -61,6 +69,7 @@ public abstract class AbstractSftpClient extends AbstractSubsystemClient impleme
 
     private final Attributes fileOpenAttributes = new Attributes();
     private final AtomicReference<Map<String, Object>> parsedExtensionsHolder = new AtomicReference<>(null);
+    private final AtomicReference<AsyncSftpClient> asyncHolder = new AtomicReference<>(null);
 
     protected AbstractSftpClient() {
         fileOpenAttributes.setType(SftpConstants.SSH_FILEXFER_TYPE_REGULAR);
@@ -71,6 +80,22 @@ public abstract class AbstractSftpClient extends AbstractSubsystemClient impleme
         return getClientChannel();
     }
 
+    @Override
+    public AsyncSftpClient async() {
+        AsyncSftpClient async = asyncHolder.get();
+        if (async == null) {
+            async = createAsyncSftpClient();
+            if (!asyncHolder.compareAndSet(null, async)) {
+                async = asyncHolder.get();
+            }
+        }
+        return async;
+    }
+
+    protected AsyncSftpClient createAsyncSftpClient() {
+        return new DefaultAsyncSftpClient(this);
+    }
+
     @Override
     public <E extends SftpClientExtension> E getExtension(Class<? extends E> extensionType) {
         Object instance = getExtension(BuiltinSftpClientExtensions.fromType(extensionType));
@@ -155,7 +180,30 @@ public abstract class AbstractSftpClient extends AbstractSubsystemClient impleme
     protected void checkCommandStatus(int cmd, Buffer request) throws IOException {
         int reqId = send(cmd, request);
         Buffer response = receive(reqId);
-        checkResponseStatus(cmd, response);
+        try {
+            checkResponseStatus(cmd, response);
+        } finally {
+            releaseResponse(response);
+        }
+    }
+
+    /**
+     * @return The {@link BufferPool} of the session
+     * @see    FactoryManager#getBufferPool()
+     */
+    protected BufferPool getBufferPool() {
+        ClientSession session = getClientSession();
+        FactoryManager manager = (session == null) ? null : session.getFactoryManager();
+        return (manager == null) ? BufferPool.NONE : manager.getBufferPool();
+    }
+
+    /**
+     * Invoked once a response has been fully parsed - the buffer must not be accessed afterwards
+     *
+     * @param response The response {@link Buffer}
+     */
+    protected void releaseResponse(Buffer response) {
+        getBufferPool().release(response);
     }
 
     /**
@@ -223,7 +271,11 @@ public abstract class AbstractSftpClient extends AbstractSubsystemClient impleme
     protected byte[] checkHandle(int cmd, Buffer request) throws IOException {
         int reqId = send(cmd, request);
         Buffer response = receive(reqId);
-        return checkHandleResponse(cmd, response);
+        try {
+            return checkHandleResponse(cmd, response);
+        } finally {
+            releaseResponse(response);
+        }
     }
 
     protected byte[] checkHandleResponse(int cmd, Buffer buffer) throws IOException {
@@ -275,7 +327,11 @@ public abstract class AbstractSftpClient extends AbstractSubsystemClient impleme
     protected Attributes checkAttributes(int cmd, Buffer request) throws IOException {
         int reqId = send(cmd, request);
         Buffer response = receive(reqId);
-        return checkAttributesResponse(cmd, response);
+        try {
+            return checkAttributesResponse(cmd, response);
+        } finally {
+            releaseResponse(response);
+        }
     }
 
     protected Attributes checkAttributesResponse(int cmd, Buffer buffer) throws IOException {
@@ -325,7 +381,11 @@ public abstract class AbstractSftpClient extends AbstractSubsystemClient impleme
     protected String checkOneName(int cmd, Buffer request) throws IOException {
         int reqId = send(cmd, request);
         Buffer response = receive(reqId);
-        return checkOneNameResponse(cmd, response);
+        try {
+            return checkOneNameResponse(cmd, response);
+        } finally {
+            releaseResponse(response);
+        }
     }
 
     protected String checkOneNameResponse(int cmd, Buffer buffer) throws IOException {
@@ -627,6 +687,15 @@ public abstract class AbstractSftpClient extends AbstractSubsystemClient impleme
             throw new IOException("open(" + path + ")[" + options + "] client is closed");
         }
 
+        Buffer buffer = createOpenRequest(path, options);
+        CloseableHandle handle = new DefaultCloseableHandle(this, path, checkHandle(SftpConstants.SSH_FXP_OPEN, buffer));
+        if (log.isTraceEnabled()) {
+            log.trace("open({})[{}] options={}: {}", getClientChannel(), path, options, handle);
+        }
+        return handle;
+    }
+
+    protected Buffer createOpenRequest(String path, Collection<OpenMode> options) throws IOException {
         /*
          * Be consistent with FileChannel#open - if no mode specified then READ is assumed
          */
@@ -689,13 +758,7 @@ public abstract class AbstractSftpClient extends AbstractSubsystemClient impleme
             }
         }
         buffer.putInt(mode);
-        buffer = writeAttributes(SftpConstants.SSH_FXP_OPEN, buffer, fileOpenAttributes);
-
-        CloseableHandle handle = new DefaultCloseableHandle(this, path, checkHandle(SftpConstants.SSH_FXP_OPEN, buffer));
-        if (log.isTraceEnabled()) {
-            log.trace("open({})[{}] options={}: {}", getClientChannel(), path, options, handle);
-        }
-        return handle;
+        return writeAttributes(SftpConstants.SSH_FXP_OPEN, buffer, fileOpenAttributes);
     }
 
     @Override
@@ -708,10 +771,19 @@ public abstract class AbstractSftpClient extends AbstractSubsystemClient impleme
             log.trace("close({}) {}", getClientChannel(), handle);
         }
 
+        checkCommandStatus(SftpConstants.SSH_FXP_CLOSE, createHandleRequest(handle));
+    }
+
+    protected Buffer createHandleRequest(Handle handle) {
         byte[] id = Objects.requireNonNull(handle, "No handle").getIdentifier();
         Buffer buffer = new ByteArrayBuffer(id.length + Long.SIZE /* some extra fields */, false);
         buffer.putBytes(id);
-        checkCommandStatus(SftpConstants.SSH_FXP_CLOSE, buffer);
+        return buffer;
+    }
+
+    protected Buffer createPathRequest(int cmd, String path) {
+        Buffer buffer = new ByteArrayBuffer(path.length() + Long.SIZE /* some extra fields */, false);
+        return putReferencedName(cmd, buffer, path, 0);
     }
 
     @Override
@@ -724,9 +796,7 @@ public abstract class AbstractSftpClient extends AbstractSubsystemClient impleme
             log.debug("remove({}) {}", getClientChannel(), path);
         }
 
-        Buffer buffer = new ByteArrayBuffer(path.length() + Long.SIZE /* some extra fields */, false);
-        buffer = putReferencedName(SftpConstants.SSH_FXP_REMOVE, buffer, path, 0);
-        checkCommandStatus(SftpConstants.SSH_FXP_REMOVE, buffer);
+        checkCommandStatus(SftpConstants.SSH_FXP_REMOVE, createPathRequest(SftpConstants.SSH_FXP_REMOVE, path));
     }
 
     @Override
@@ -739,6 +809,10 @@ public abstract class AbstractSftpClient extends AbstractSubsystemClient impleme
             log.debug("rename({}) {} => {}", getClientChannel(), oldPath, newPath);
         }
 
+        checkCommandStatus(SftpConstants.SSH_FXP_RENAME, createRenameRequest(oldPath, newPath, options));
+    }
+
+    protected Buffer createRenameRequest(String oldPath, String newPath, Collection<CopyMode> options) {
         Buffer buffer = new ByteArrayBuffer(oldPath.length() + newPath.length() + Long.SIZE /* some extra fields */, false);
         buffer = putReferencedName(SftpConstants.SSH_FXP_RENAME, buffer, oldPath, 0);
         buffer = putReferencedName(SftpConstants.SSH_FXP_RENAME, buffer, newPath, 1);
@@ -766,7 +840,7 @@ public abstract class AbstractSftpClient extends AbstractSubsystemClient impleme
                     "rename(" + oldPath + " => " + newPath + ")"
                                                     + " - copy options can not be used with this SFTP version: " + options);
         }
-        checkCommandStatus(SftpConstants.SSH_FXP_RENAME, buffer);
+        return buffer;
     }
 
     @Override
@@ -779,12 +853,14 @@ public abstract class AbstractSftpClient extends AbstractSubsystemClient impleme
             throw new IOException("read(" + handle + "/" + fileOffset + ")[" + dstOffset + "/" + len + "] client is closed");
         }
 
-        byte[] id = Objects.requireNonNull(handle, "No handle").getIdentifier();
-        Buffer buffer = new ByteArrayBuffer(id.length + Long.SIZE /* some extra fields */, false);
-        buffer.putBytes(id);
+        return checkData(SftpConstants.SSH_FXP_READ, createReadRequest(handle, fileOffset, len), dstOffset, dst, eofSignalled);
+    }
+
+    protected Buffer createReadRequest(Handle handle, long fileOffset, int len) {
+        Buffer buffer = createHandleRequest(handle);
         buffer.putLong(fileOffset);
         buffer.putInt(len);
-        return checkData(SftpConstants.SSH_FXP_READ, buffer, dstOffset, dst, eofSignalled);
+        return buffer;
     }
 
     protected int checkData(
@@ -795,12 +871,32 @@ public abstract class AbstractSftpClient extends AbstractSubsystemClient impleme
         }
         int reqId = send(cmd, request);
         Buffer response = receive(reqId);
-        return checkDataResponse(cmd, response, dstOffset, dst, eofSignalled);
+        try {
+            return checkDataResponse(cmd, response, dstOffset, dst, eofSignalled);
+        } finally {
+            releaseResponse(response);
+        }
     }
 
     protected int checkDataResponse(
             int cmd, Buffer buffer, int dstoff, byte[] dst, AtomicReference<Boolean> eofSignalled)
             throws IOException {
+        return checkDataResponse(cmd, buffer, ByteBuffer.wrap(dst, dstoff, dst.length - dstoff), eofSignalled);
+    }
+
+    /**
+     * Parses the response to a request answered by {@code SSH_FXP_DATA}
+     *
+     * @param  cmd          The request command
+     * @param  buffer       The response
+     * @param  dst          The destination of the data - its position is advanced by the number of copied bytes. Not
+     *                      accessed unless the response is {@code SSH_FXP_DATA}
+     * @param  eofSignalled If not {@code null} then upon return holds the EOF indicator of the response (if any)
+     * @return              Number of data bytes - {@code -1} if EOF reached
+     * @throws IOException  If the response reports an error
+     */
+    protected int checkDataResponse(int cmd, Buffer buffer, ByteBuffer dst, AtomicReference<Boolean> eofSignalled)
+            throws IOException {
         if (eofSignalled != null) {
             eofSignalled.set(null);
         }
@@ -812,7 +908,15 @@ public abstract class AbstractSftpClient extends AbstractSubsystemClient impleme
 
         if (type == SftpConstants.SSH_FXP_DATA) {
             int len = buffer.getInt();
-            buffer.getRawBytes(dst, dstoff, len);
+            if ((len < 0) || (len > buffer.available()) || (len > dst.remaining())) {
+                throw new StreamCorruptedException("Illegal data length " + len + " in response to "
+                                                   + SftpConstants.getCommandMessageName(cmd) + " id=" + id
+                                                   + " - available=" + buffer.available()
+                                                   + ", requested=" + dst.remaining());
+            }
+            int dstoff = dst.position();
+            dst.put(buffer.array(), buffer.rpos(), len);
+            buffer.rpos(buffer.rpos() + len);
             Boolean indicator = SftpHelper.getEndOfFileIndicatorValue(buffer, getVersion());
             if (log.isTraceEnabled()) {
                 log.trace("checkDataResponse({}][id={}] {} offset={}, len={}, EOF={}",
@@ -846,6 +950,32 @@ public abstract class AbstractSftpClient extends AbstractSubsystemClient impleme
         return handleUnknownDataPacket(cmd, id, type, length, buffer);
     }
 
+    /**
+     * Sends a request that is answered by {@code SSH_FXP_DATA} - e.g., {@code SSH_FXP_READ}. This default
+     * implementation parses the data out of the response buffer once it has been received. Implementations that can
+     * should copy it straight from the received packet into the destination.
+     *
+     * @param  cmd          The request command
+     * @param  request      The request
+     * @param  dst          The destination of the data - must not be accessed by the caller until the returned future
+     *                      is done
+     * @param  eofSignalled If not {@code null} then holds the EOF indicator of the response (if any) once the future
+     *                      is done
+     * @return              A future with the number of data bytes - {@code -1} if EOF reached
+     */
+    protected CompletableFuture<Integer> sendDataRequest(
+            int cmd, Buffer request, ByteBuffer dst, AtomicReference<Boolean> eofSignalled) {
+        return sendAsync(cmd, request).thenApply(response -> {
+            try {
+                return checkDataResponse(cmd, response, dst, eofSignalled);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            } finally {
+                releaseResponse(response);
+            }
+        });
+    }
+
     protected int handleUnknownDataPacket(int cmd, int id, int type, int length, Buffer buffer) throws IOException {
         IOException err = handleUnexpectedPacket(cmd, SftpConstants.SSH_FXP_DATA, id, type, length, buffer);
         if (err != null) {
@@ -858,37 +988,19 @@ public abstract class AbstractSftpClient extends AbstractSubsystemClient impleme
     @Override
     public void write(Handle handle, long fileOffset, byte[] src, int srcOffset, int len) throws IOException {
         // do some bounds checking first
-        if ((fileOffset < 0L) || (srcOffset < 0) || (len < 0)) {
-            throw new IllegalArgumentException(
-                    "write(" + handle + ") please ensure all parameters "
-                                               + " are non-negative values: file-offset=" + fileOffset
-                                               + ", src-offset=" + srcOffset + ", len=" + len);
-        }
-        if ((srcOffset + len) > src.length) {
-            throw new IllegalArgumentException(
-                    "write(" + handle + ")"
-                                               + " cannot read bytes " + srcOffset + " to " + (srcOffset + len)
-                                               + " when array is only of length " + src.length);
-        }
+        checkWriteRange(handle, fileOffset, src, srcOffset, len);
         if (!isOpen()) {
             throw new IOException("write(" + handle + "/" + fileOffset + ")[" + srcOffset + "/" + len + "] client is closed");
         }
 
         boolean traceEnabled = log.isTraceEnabled();
         Channel clientChannel = getClientChannel();
-        int chunkSize = SftpModuleProperties.WRITE_CHUNK_SIZE.getRequired(clientChannel);
-        ValidateUtils.checkState(chunkSize > ByteArrayBuffer.DEFAULT_SIZE, "Write chunk size too small: %d", chunkSize);
-
-        byte[] id = Objects.requireNonNull(handle, "No handle").getIdentifier();
+        int chunkSize = getWriteChunkSize();
         // NOTE: we don't want to filter out zero-length write requests
         int remLen = len;
         do {
             int writeSize = Math.min(remLen, chunkSize);
-            Buffer buffer = new ByteArrayBuffer(id.length + writeSize + Long.SIZE /* some extra fields */, false);
-            buffer.putBytes(id);
-            buffer.putLong(fileOffset);
-            buffer.putBytes(src, srcOffset, writeSize);
-
+            Buffer buffer = createWriteRequest(handle, fileOffset, src, srcOffset, writeSize);
             if (traceEnabled) {
                 log.trace("write({}) handle={}, file-offset={}, buf-offset={}, writeSize={}, remLen={}",
                         clientChannel, handle, fileOffset, srcOffset, writeSize, remLen - writeSize);
@@ -902,6 +1014,36 @@ public abstract class AbstractSftpClient extends AbstractSubsystemClient impleme
         } while (remLen > 0);
     }
 
+    protected void checkWriteRange(Handle handle, long fileOffset, byte[] src, int srcOffset, int len) {
+        if ((fileOffset < 0L) || (srcOffset < 0) || (len < 0)) {
+            throw new IllegalArgumentException(
+                    "write(" + handle + ") please ensure all parameters "
+                                               + " are non-negative values: file-offset=" + fileOffset
+                                               + ", src-offset=" + srcOffset + ", len=" + len);
+        }
+        if ((srcOffset + len) > src.length) {
+            throw new IllegalArgumentException(
+                    "write(" + handle + ")"
+                                               + " cannot read bytes " + srcOffset + " to " + (srcOffset + len)
+                                               + " when array is only of length " + src.length);
+        }
+    }
+
+    protected int getWriteChunkSize() {
+        int chunkSize = SftpModuleProperties.WRITE_CHUNK_SIZE.getRequired(getClientChannel());
+        ValidateUtils.checkState(chunkSize > ByteArrayBuffer.DEFAULT_SIZE, "Write chunk size too small: %d", chunkSize);
+        return chunkSize;
+    }
+
+    protected Buffer createWriteRequest(Handle handle, long fileOffset, byte[] src, int srcOffset, int len) {
+        byte[] id = Objects.requireNonNull(handle, "No handle").getIdentifier();
+        Buffer buffer = new ByteArrayBuffer(id.length + len + Long.SIZE /* some extra fields */, false);
+        buffer.putBytes(id);
+        buffer.putLong(fileOffset);
+        buffer.putBytes(src, srcOffset, len);
+        return buffer;
+    }
+
     @Override
     public void mkdir(String path) throws IOException {
         if (!isOpen()) {
@@ -912,16 +1054,18 @@ public abstract class AbstractSftpClient extends AbstractSubsystemClient impleme
             log.debug("mkdir({}) {}", getClientChannel(), path);
         }
 
-        Buffer buffer = new ByteArrayBuffer(path.length() + Long.SIZE /* some extra fields */, false);
-        buffer = putReferencedName(SftpConstants.SSH_FXP_MKDIR, buffer, path, 0);
+        checkCommandStatus(SftpConstants.SSH_FXP_MKDIR, createMkdirRequest(path));
+    }
+
+    protected Buffer createMkdirRequest(String path) {
+        Buffer buffer = createPathRequest(SftpConstants.SSH_FXP_MKDIR, path);
         buffer.putInt(0);
 
         int version = getVersion();
         if (version != SftpConstants.SFTP_V3) {
             buffer.putByte((byte) 0);
         }
-
-        checkCommandStatus(SftpConstants.SSH_FXP_MKDIR, buffer);
+        return buffer;
     }
 
     @Override
@@ -934,9 +1078,7 @@ public abstract class AbstractSftpClient extends AbstractSubsystemClient impleme
             log.debug("rmdir({}) {}", getClientChannel(), path);
         }
 
-        Buffer buffer = new ByteArrayBuffer(path.length() + Long.SIZE /* some extra fields */, false);
-        buffer = putReferencedName(SftpConstants.SSH_FXP_RMDIR, buffer, path, 0);
-        checkCommandStatus(SftpConstants.SSH_FXP_RMDIR, buffer);
+        checkCommandStatus(SftpConstants.SSH_FXP_RMDIR, createPathRequest(SftpConstants.SSH_FXP_RMDIR, path));
     }
 
     @Override
@@ -945,9 +1087,7 @@ public abstract class AbstractSftpClient extends AbstractSubsystemClient impleme
             throw new IOException("openDir(" + path + ") client is closed");
         }
 
-        Buffer buffer = new ByteArrayBuffer(path.length() + Long.SIZE /* some extra fields */, false);
-        buffer = putReferencedName(SftpConstants.SSH_FXP_OPENDIR, buffer, path, 0);
-
+        Buffer buffer = createPathRequest(SftpConstants.SSH_FXP_OPENDIR, path);
         CloseableHandle handle = new DefaultCloseableHandle(this, path, checkHandle(SftpConstants.SSH_FXP_OPENDIR, buffer));
         if (log.isTraceEnabled()) {
             log.trace("openDir({})[{}]: {}", getClientChannel(), path, handle);
@@ -965,13 +1105,13 @@ public abstract class AbstractSftpClient extends AbstractSubsystemClient impleme
             throw new IOException("readDir(" + handle + ") client is closed");
         }
 
-        byte[] id = Objects.requireNonNull(handle, "No handle").getIdentifier();
-        Buffer buffer = new ByteArrayBuffer(id.length + Byte.SIZE /* some extra fields */, false);
-        buffer.putBytes(id);
-
-        int cmdId = send(SftpConstants.SSH_FXP_READDIR, buffer);
+        int cmdId = send(SftpConstants.SSH_FXP_READDIR, createHandleRequest(handle));
         Buffer response = receive(cmdId);
-        return checkDirResponse(SftpConstants.SSH_FXP_READDIR, response, eolIndicator);
+        try {
+            return checkDirResponse(SftpConstants.SSH_FXP_READDIR, response, eolIndicator);
+        } finally {
+            releaseResponse(response);
+        }
     }
 
     protected List<DirEntry> checkDirResponse(int cmd, Buffer buffer, AtomicReference<Boolean> eolIndicator)
@@ -1098,9 +1238,7 @@ public abstract class AbstractSftpClient extends AbstractSubsystemClient impleme
             throw new IOException("canonicalPath(" + path + ") client is closed");
         }
 
-        Buffer buffer = new ByteArrayBuffer(path.length() + Long.SIZE, false);
-        buffer = putReferencedName(SftpConstants.SSH_FXP_REALPATH, buffer, path, 0);
-        return checkOneName(SftpConstants.SSH_FXP_REALPATH, buffer);
+        return checkOneName(SftpConstants.SSH_FXP_REALPATH, createPathRequest(SftpConstants.SSH_FXP_REALPATH, path));
     }
 
     @Override
@@ -1109,15 +1247,7 @@ public abstract class AbstractSftpClient extends AbstractSubsystemClient impleme
             throw new IOException("stat(" + path + ") client is closed");
         }
 
-        Buffer buffer = new ByteArrayBuffer(path.length() + Long.SIZE, false);
-        buffer = putReferencedName(SftpConstants.SSH_FXP_STAT, buffer, path, 0);
-
-        int version = getVersion();
-        if (version >= SftpConstants.SFTP_V4) {
-            buffer.putInt(SftpConstants.SSH_FILEXFER_ATTR_ALL);
-        }
-
-        return checkAttributes(SftpConstants.SSH_FXP_STAT, buffer);
+        return checkAttributes(SftpConstants.SSH_FXP_STAT, createStatRequest(SftpConstants.SSH_FXP_STAT, path));
     }
 
     @Override
@@ -1126,15 +1256,7 @@ public abstract class AbstractSftpClient extends AbstractSubsystemClient impleme
             throw new IOException("lstat(" + path + ") client is closed");
         }
 
-        Buffer buffer = new ByteArrayBuffer(path.length() + Long.SIZE, false);
-        buffer = putReferencedName(SftpConstants.SSH_FXP_LSTAT, buffer, path, 0);
-
-        int version = getVersion();
-        if (version >= SftpConstants.SFTP_V4) {
-            buffer.putInt(SftpConstants.SSH_FILEXFER_ATTR_ALL);
-        }
-
-        return checkAttributes(SftpConstants.SSH_FXP_LSTAT, buffer);
+        return checkAttributes(SftpConstants.SSH_FXP_LSTAT, createStatRequest(SftpConstants.SSH_FXP_LSTAT, path));
     }
 
     @Override
@@ -1143,16 +1265,25 @@ public abstract class AbstractSftpClient extends AbstractSubsystemClient impleme
             throw new IOException("stat(" + handle + ") client is closed");
         }
 
-        byte[] id = Objects.requireNonNull(handle, "No handle").getIdentifier();
-        Buffer buffer = new ByteArrayBuffer(id.length + Byte.SIZE /* a bit extra */, false);
-        buffer.putBytes(id);
+        return checkAttributes(SftpConstants.SSH_FXP_FSTAT, createStatRequest(handle));
+    }
 
+    protected Buffer createStatRequest(int cmd, String path) {
+        Buffer buffer = createPathRequest(cmd, path);
         int version = getVersion();
         if (version >= SftpConstants.SFTP_V4) {
             buffer.putInt(SftpConstants.SSH_FILEXFER_ATTR_ALL);
         }
+        return buffer;
+    }
 
-        return checkAttributes(SftpConstants.SSH_FXP_FSTAT, buffer);
+    protected Buffer createStatRequest(Handle handle) {
+        Buffer buffer = createHandleRequest(handle);
+        int version = getVersion();
+        if (version >= SftpConstants.SFTP_V4) {
+            buffer.putInt(SftpConstants.SSH_FILEXFER_ATTR_ALL);
+        }
+        return buffer;
     }
 
     @Override
@@ -1165,10 +1296,13 @@ public abstract class AbstractSftpClient extends AbstractSubsystemClient impleme
             log.debug("setStat({})[{}]: {}", getClientChannel(), path, attributes);
         }
 
+        checkCommandStatus(SftpConstants.SSH_FXP_SETSTAT, createSetStatRequest(path, attributes));
+    }
+
+    protected Buffer createSetStatRequest(String path, Attributes attributes) throws IOException {
         Buffer buffer = new ByteArrayBuffer();
         buffer = putReferencedName(SftpConstants.SSH_FXP_SETSTAT, buffer, path, 0);
-        buffer = writeAttributes(SftpConstants.SSH_FXP_SETSTAT, buffer, attributes);
-        checkCommandStatus(SftpConstants.SSH_FXP_SETSTAT, buffer);
+        return writeAttributes(SftpConstants.SSH_FXP_SETSTAT, buffer, attributes);
     }
 
     @Override
@@ -1180,11 +1314,14 @@ public abstract class AbstractSftpClient extends AbstractSubsystemClient impleme
         if (log.isDebugEnabled()) {
             log.debug("setStat({})[{}]: {}", getClientChannel(), handle, attributes);
         }
+        checkCommandStatus(SftpConstants.SSH_FXP_FSETSTAT, createSetStatRequest(handle, attributes));
+    }
+
+    protected Buffer createSetStatRequest(Handle handle, Attributes attributes) throws IOException {
         byte[] id = Objects.requireNonNull(handle, "No handle").getIdentifier();
         Buffer buffer = new ByteArrayBuffer(id.length + (2 * Long.SIZE) /* some extras */, false);
         buffer.putBytes(id);
-        buffer = writeAttributes(SftpConstants.SSH_FXP_FSETSTAT, buffer, attributes);
-        checkCommandStatus(SftpConstants.SSH_FXP_FSETSTAT, buffer);
+        return writeAttributes(SftpConstants.SSH_FXP_FSETSTAT, buffer, attributes);
     }
 
     @Override
@@ -1193,9 +1330,7 @@ public abstract class AbstractSftpClient extends AbstractSubsystemClient impleme
             throw new IOException("readLink(" + path + ") client is closed");
         }
 
-        Buffer buffer = new ByteArrayBuffer(path.length() + Long.SIZE /* some extra fields */, false);
-        buffer = putReferencedName(SftpConstants.SSH_FXP_READLINK, buffer, path, 0);
-        return checkOneName(SftpConstants.SSH_FXP_READLINK, buffer);
+        return checkOneName(SftpConstants.SSH_FXP_READLINK, createPathRequest(SftpConstants.SSH_FXP_READLINK, path));
     }
 
     @Override
@@ -1208,23 +1343,28 @@ public abstract class AbstractSftpClient extends AbstractSubsystemClient impleme
             log.debug("link({})[symbolic={}] {} => {}", getClientChannel(), symbolic, linkPath, targetPath);
         }
 
-        Buffer buffer = new ByteArrayBuffer(linkPath.length() + targetPath.length() + Long.SIZE /* some extra fields */, false);
+        checkCommandStatus(getLinkCommand(symbolic), createLinkRequest(linkPath, targetPath, symbolic));
+    }
+
+    protected int getLinkCommand(boolean symbolic) {
         int version = getVersion();
         if (version < SftpConstants.SFTP_V6) {
             if (!symbolic) {
                 throw new UnsupportedOperationException("Hard links are not supported in sftp v" + version);
             }
-            buffer = putReferencedName(SftpConstants.SSH_FXP_SYMLINK, buffer, targetPath, 0);
-            buffer = putReferencedName(SftpConstants.SSH_FXP_SYMLINK, buffer, linkPath, 1);
+            return SftpConstants.SSH_FXP_SYMLINK;
+        }
+        return SftpConstants.SSH_FXP_LINK;
+    }
 
-            checkCommandStatus(SftpConstants.SSH_FXP_SYMLINK, buffer);
-        } else {
-            buffer = putReferencedName(SftpConstants.SSH_FXP_SYMLINK, buffer, targetPath, 0);
-            buffer = putReferencedName(SftpConstants.SSH_FXP_SYMLINK, buffer, linkPath, 1);
+    protected Buffer createLinkRequest(String linkPath, String targetPath, boolean symbolic) {
+        Buffer buffer = new ByteArrayBuffer(linkPath.length() + targetPath.length() + Long.SIZE /* some extra fields */, false);
+        buffer = putReferencedName(SftpConstants.SSH_FXP_SYMLINK, buffer, targetPath, 0);
+        buffer = putReferencedName(SftpConstants.SSH_FXP_SYMLINK, buffer, linkPath, 1);
+        if (getVersion() >= SftpConstants.SFTP_V6) {
             buffer.putBoolean(symbolic);
-
-            checkCommandStatus(SftpConstants.SSH_FXP_LINK, buffer);
         }
+        return buffer;
     }
 
     @Override
@@ -1240,13 +1380,13 @@ public abstract class AbstractSftpClient extends AbstractSubsystemClient impleme
                     getClientChannel(), handle, offset, length, Integer.toHexString(mask));
         }
 
-        byte[] id = Objects.requireNonNull(handle, "No handle").getIdentifier();
-        Buffer buffer = new ByteArrayBuffer(id.length + Long.SIZE /* a bit extra */, false);
-        buffer.putBytes(id);
-        buffer.putLong(offset);
-        buffer.putLong(length);
+        checkCommandStatus(SftpConstants.SSH_FXP_BLOCK, createLockRequest(handle, offset, length, mask));
+    }
+
+    protected Buffer createLockRequest(Handle handle, long offset, long length, int mask) {
+        Buffer buffer = createUnlockRequest(handle, offset, length);
         buffer.putInt(mask);
-        checkCommandStatus(SftpConstants.SSH_FXP_BLOCK, buffer);
+        return buffer;
     }
 
     @Override
@@ -1259,12 +1399,14 @@ public abstract class AbstractSftpClient extends AbstractSubsystemClient impleme
             log.debug("unlock({})[{}] offset={}, length={}", getClientChannel(), handle, offset, length);
         }
 
-        byte[] id = Objects.requireNonNull(handle, "No handle").getIdentifier();
-        Buffer buffer = new ByteArrayBuffer(id.length + Long.SIZE /* a bit extra */, false);
-        buffer.putBytes(id);
+        checkCommandStatus(SftpConstants.SSH_FXP_UNBLOCK, createUnlockRequest(handle, offset, length));
+    }
+
+    protected Buffer createUnlockRequest(Handle handle, long offset, long length) {
+        Buffer buffer = createHandleRequest(handle);
         buffer.putLong(offset);
         buffer.putLong(length);
-        checkCommandStatus(SftpConstants.SSH_FXP_UNBLOCK, buffer);
+        return buffer;
     }
 
     @Override
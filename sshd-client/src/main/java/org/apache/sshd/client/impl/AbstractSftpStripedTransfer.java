@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.client.impl;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.apache.sshd.client.FullAccessSftpClient;
+import org.apache.sshd.common.util.GenericUtils;
+import org.apache.sshd.common.util.ValidateUtils;
+import org.apache.sshd.common.util.logging.AbstractLoggingBean;
+import org.apache.sshd.common.util.threads.CloseableExecutorService;
+import org.apache.sshd.common.util.threads.ThreadUtils;
+
+/**
+ * Base class for transfers that split a single file into stripes and move them concurrently over several SFTP
+ * channels - one worker thread per {@link FullAccessSftpClient}. The clients may share a session or use different
+ * ones. Within a stripe each worker keeps several requests in flight. A worker whose channel fails stops, and the
+ * stripe it was working on is handed to the remaining workers.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public abstract class AbstractSftpStripedTransfer extends AbstractLoggingBean {
+    public static final long DEFAULT_STRIPE_SIZE = 8L * 1024L * 1024L;
+    public static final int DEFAULT_CHUNK_SIZE = FullAccessSftpClient.IO_BUFFER_SIZE;
+    public static final int DEFAULT_MAX_PENDING_REQUESTS = 16;
+
+    protected final List<FullAccessSftpClient> clients;
+    private long stripeSize = DEFAULT_STRIPE_SIZE;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private int maxPendingRequests = DEFAULT_MAX_PENDING_REQUESTS;
+
+    protected AbstractSftpStripedTransfer(Collection<? extends FullAccessSftpClient> clients) {
+        ValidateUtils.checkNotNullAndNotEmpty(clients, "No SFTP clients");
+        this.clients = Collections.unmodifiableList(new ArrayList<>(clients));
+    }
+
+    public List<FullAccessSftpClient> getClients() {
+        return clients;
+    }
+
+    public long getStripeSize() {
+        return stripeSize;
+    }
+
+    public void setStripeSize(long stripeSize) {
+        ValidateUtils.checkTrue(stripeSize > 0L, "Invalid stripe size: %d", stripeSize);
+        this.stripeSize = stripeSize;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * @param chunkSize The number of bytes requested by a single {@code SSH_FXP_READ} / {@code SSH_FXP_WRITE}
+     */
+    public void setChunkSize(int chunkSize) {
+        ValidateUtils.checkTrue(chunkSize > 0, "Invalid chunk size: %d", chunkSize);
+        this.chunkSize = chunkSize;
+    }
+
+    public int getMaxPendingRequests() {
+        return maxPendingRequests;
+    }
+
+    /**
+     * @param maxPendingRequests The number of requests each worker keeps in flight on its channel
+     */
+    public void setMaxPendingRequests(int maxPendingRequests) {
+        ValidateUtils.checkTrue(maxPendingRequests > 0, "Invalid max. pending requests: %d", maxPendingRequests);
+        this.maxPendingRequests = maxPendingRequests;
+    }
+
+    /**
+     * @param  file The transferred file
+     * @return      The default location of the {@link SftpRangeMap} used to resume the transfer
+     */
+    public static Path getDefaultRangeFile(Path file) {
+        return file.resolveSibling(file.getFileName() + SftpRangeMap.DEFAULT_SUFFIX);
+    }
+
+    /**
+     * Runs the workers until all stripes have been transferred or no healthy client is left.
+     *
+     * @param  poolName    The name of the worker threads
+     * @param  stripes     The stripes to transfer - each a {@code start, end (exclusive)} pair. A worker updates the
+     *                     start as it makes progress and puts the stripe back into the queue if it fails
+     * @param  worker      The worker
+     * @throws IOException If some stripes could not be transferred
+     */
+    protected void transferStripes(String poolName, Queue<long[]> stripes, StripeWorker worker) throws IOException {
+        List<FullAccessSftpClient> healthy = new ArrayList<>(clients);
+        IOException err = null;
+        while ((!stripes.isEmpty()) && (!healthy.isEmpty())) {
+            int numWorkers = Math.min(healthy.size(), stripes.size());
+            CloseableExecutorService executor = ThreadUtils.newFixedThreadPool(poolName, numWorkers);
+            try {
+                List<Future<?>> futures = new ArrayList<>(numWorkers);
+                for (int index = 0; index < numWorkers; index++) {
+                    FullAccessSftpClient client = healthy.get(index);
+                    futures.add(executor.submit(() -> {
+                        worker.transfer(client, stripes);
+                        return null;
+                    }));
+                }
+
+                List<FullAccessSftpClient> failed = new ArrayList<>();
+                for (int index = 0; index < numWorkers; index++) {
+                    try {
+                        futures.get(index).get();
+                    } catch (ExecutionException e) {
+                        FullAccessSftpClient client = healthy.get(index);
+                        IOException ioe = toIOException(e.getCause());
+                        log.warn("transferStripes({}) worker on {} failed ({}): {}",
+                                poolName, client.getClientChannel(), ioe.getClass().getSimpleName(), ioe.getMessage());
+                        failed.add(client);
+                        err = GenericUtils.accumulateException(err, ioe);
+                    }
+                }
+                healthy.removeAll(failed);
+            } catch (InterruptedException e) {
+                throw (IOException) new InterruptedIOException("Interrupted while waiting for " + poolName).initCause(e);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        if (!stripes.isEmpty()) {
+            if (err != null) {
+                throw err;
+            }
+            throw new IOException(poolName + " incomplete - " + stripes.size() + " stripes left");
+        }
+    }
+
+    /**
+     * Waits for a request sent through the {@link org.apache.sshd.client.AsyncSftpClient}
+     *
+     * @param  <T>         The result type
+     * @param  future      The request future
+     * @return             The result
+     * @throws IOException If the request failed or the wait was interrupted
+     */
+    protected static <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            throw (IOException) new InterruptedIOException("Interrupted while waiting for SFTP response").initCause(e);
+        } catch (ExecutionException e) {
+            throw toIOException(e.getCause());
+        }
+    }
+
+    protected static IOException toIOException(Throwable t) {
+        Throwable e = GenericUtils.peelException(t);
+        if (e instanceof IOException) {
+            return (IOException) e;
+        }
+        return new IOException(e.getClass().getSimpleName() + ": " + e.getMessage(), e);
+    }
+
+    @FunctionalInterface
+    protected interface StripeWorker {
+        /**
+         * Transfers stripes taken from the queue until it is empty
+         *
+         * @param  client      The client owned by this worker
+         * @param  stripes     The stripes queue
+         * @throws IOException If the worker cannot continue - the stripe being transferred must have been put back
+         */
+        void transfer(FullAccessSftpClient client, Queue<long[]> stripes) throws IOException;
+    }
+}
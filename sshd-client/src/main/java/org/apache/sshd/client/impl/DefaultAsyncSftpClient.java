@@ -0,0 +1,286 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.client.impl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.apache.sshd.client.AsyncSftpClient;
+import org.apache.sshd.client.SftpClient;
+import org.apache.sshd.client.SftpClient.Attributes;
+import org.apache.sshd.client.SftpClient.CloseableHandle;
+import org.apache.sshd.client.SftpClient.CopyMode;
+import org.apache.sshd.client.SftpClient.DirEntry;
+import org.apache.sshd.client.SftpClient.Handle;
+import org.apache.sshd.client.SftpClient.OpenMode;
+import org.apache.sshd.common.SftpConstants;
+import org.apache.sshd.common.util.buffer.Buffer;
+import org.apache.sshd.common.util.io.functors.IOFunction;
+import org.apache.sshd.common.util.logging.AbstractLoggingBean;
+
+/**
+ * Implements the {@link AsyncSftpClient} view on top of the request builders and response parsers of an
+ * {@link AbstractSftpClient}.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class DefaultAsyncSftpClient extends AbstractLoggingBean implements AsyncSftpClient {
+    private final AbstractSftpClient client;
+
+    public DefaultAsyncSftpClient(AbstractSftpClient client) {
+        this.client = Objects.requireNonNull(client, "No client");
+    }
+
+    @Override
+    public SftpClient getClient() {
+        return client;
+    }
+
+    @Override
+    public CompletableFuture<CloseableHandle> open(String path, Collection<OpenMode> options) {
+        return request("open(" + path + ")", SftpConstants.SSH_FXP_OPEN,
+                () -> client.createOpenRequest(path, options),
+                response -> new DefaultCloseableHandle(
+                        client, path, client.checkHandleResponse(SftpConstants.SSH_FXP_OPEN, response)));
+    }
+
+    @Override
+    public CompletableFuture<Void> close(Handle handle) {
+        return status("close(" + handle + ")", SftpConstants.SSH_FXP_CLOSE, () -> client.createHandleRequest(handle));
+    }
+
+    @Override
+    public CompletableFuture<Void> remove(String path) {
+        return status("remove(" + path + ")", SftpConstants.SSH_FXP_REMOVE,
+                () -> client.createPathRequest(SftpConstants.SSH_FXP_REMOVE, path));
+    }
+
+    @Override
+    public CompletableFuture<Void> rename(String oldPath, String newPath, Collection<CopyMode> options) {
+        return status("rename(" + oldPath + " => " + newPath + ")", SftpConstants.SSH_FXP_RENAME,
+                () -> client.createRenameRequest(oldPath, newPath, options));
+    }
+
+    @Override
+    public CompletableFuture<Integer> read(Handle handle, long fileOffset, byte[] dst, int dstOffset, int len) {
+        if (!client.isOpen()) {
+            return failed(new IOException("read(" + handle + "/" + fileOffset + ") client is closed"));
+        }
+
+        ByteBuffer buffer;
+        Buffer request;
+        try {
+            buffer = ByteBuffer.wrap(dst, dstOffset, len);
+            request = client.createReadRequest(handle, fileOffset, len);
+        } catch (RuntimeException e) {
+            return failed(e);
+        }
+        // the data is copied into the destination by the thread that receives the response
+        return client.sendDataRequest(SftpConstants.SSH_FXP_READ, request, buffer, null);
+    }
+
+    @Override
+    public CompletableFuture<Void> write(Handle handle, long fileOffset, byte[] src, int srcOffset, int len) {
+        List<CompletableFuture<Void>> acks = new ArrayList<>();
+        try {
+            client.checkWriteRange(handle, fileOffset, src, srcOffset, len);
+            int chunkSize = client.getWriteChunkSize();
+            // NOTE: we don't want to filter out zero-length write requests
+            int remLen = len;
+            do {
+                int writeSize = Math.min(remLen, chunkSize);
+                long offset = fileOffset;
+                int srcPos = srcOffset;
+                acks.add(status("write(" + handle + "/" + offset + ")", SftpConstants.SSH_FXP_WRITE,
+                        () -> client.createWriteRequest(handle, offset, src, srcPos, writeSize)));
+                fileOffset += writeSize;
+                srcOffset += writeSize;
+                remLen -= writeSize;
+            } while (remLen > 0);
+        } catch (RuntimeException e) {
+            acks.add(failed(e));
+        }
+
+        if (acks.size() == 1) {
+            return acks.get(0);
+        }
+        return CompletableFuture.allOf(acks.toArray(new CompletableFuture<?>[0]));
+    }
+
+    @Override
+    public CompletableFuture<Void> mkdir(String path) {
+        return status("mkdir(" + path + ")", SftpConstants.SSH_FXP_MKDIR, () -> client.createMkdirRequest(path));
+    }
+
+    @Override
+    public CompletableFuture<Void> rmdir(String path) {
+        return status("rmdir(" + path + ")", SftpConstants.SSH_FXP_RMDIR,
+                () -> client.createPathRequest(SftpConstants.SSH_FXP_RMDIR, path));
+    }
+
+    @Override
+    public CompletableFuture<CloseableHandle> openDir(String path) {
+        return request("openDir(" + path + ")", SftpConstants.SSH_FXP_OPENDIR,
+                () -> client.createPathRequest(SftpConstants.SSH_FXP_OPENDIR, path),
+                response -> new DefaultCloseableHandle(
+                        client, path, client.checkHandleResponse(SftpConstants.SSH_FXP_OPENDIR, response)));
+    }
+
+    @Override
+    public CompletableFuture<List<DirEntry>> readDir(Handle handle) {
+        return request("readDir(" + handle + ")", SftpConstants.SSH_FXP_READDIR,
+                () -> client.createHandleRequest(handle),
+                response -> client.checkDirResponse(SftpConstants.SSH_FXP_READDIR, response, null));
+    }
+
+    @Override
+    public CompletableFuture<String> canonicalPath(String path) {
+        return request("canonicalPath(" + path + ")", SftpConstants.SSH_FXP_REALPATH,
+                () -> client.createPathRequest(SftpConstants.SSH_FXP_REALPATH, path),
+                response -> client.checkOneNameResponse(SftpConstants.SSH_FXP_REALPATH, response));
+    }
+
+    @Override
+    public CompletableFuture<Attributes> stat(String path) {
+        return attributes("stat(" + path + ")", SftpConstants.SSH_FXP_STAT,
+                () -> client.createStatRequest(SftpConstants.SSH_FXP_STAT, path));
+    }
+
+    @Override
+    public CompletableFuture<Attributes> lstat(String path) {
+        return attributes("lstat(" + path + ")", SftpConstants.SSH_FXP_LSTAT,
+                () -> client.createStatRequest(SftpConstants.SSH_FXP_LSTAT, path));
+    }
+
+    @Override
+    public CompletableFuture<Attributes> stat(Handle handle) {
+        return attributes("stat(" + handle + ")", SftpConstants.SSH_FXP_FSTAT, () -> client.createStatRequest(handle));
+    }
+
+    @Override
+    public CompletableFuture<Void> setStat(String path, Attributes attributes) {
+        return status("setStat(" + path + ")", SftpConstants.SSH_FXP_SETSTAT,
+                () -> client.createSetStatRequest(path, attributes));
+    }
+
+    @Override
+    public CompletableFuture<Void> setStat(Handle handle, Attributes attributes) {
+        return status("setStat(" + handle + ")", SftpConstants.SSH_FXP_FSETSTAT,
+                () -> client.createSetStatRequest(handle, attributes));
+    }
+
+    @Override
+    public CompletableFuture<String> readLink(String path) {
+        return request("readLink(" + path + ")", SftpConstants.SSH_FXP_READLINK,
+                () -> client.createPathRequest(SftpConstants.SSH_FXP_READLINK, path),
+                response -> client.checkOneNameResponse(SftpConstants.SSH_FXP_READLINK, response));
+    }
+
+    @Override
+    public CompletableFuture<Void> link(String linkPath, String targetPath, boolean symbolic) {
+        int cmd;
+        try {
+            cmd = client.getLinkCommand(symbolic);
+        } catch (RuntimeException e) {
+            return failed(e);
+        }
+        return status("link(" + linkPath + " => " + targetPath + ")", cmd,
+                () -> client.createLinkRequest(linkPath, targetPath, symbolic));
+    }
+
+    @Override
+    public CompletableFuture<Void> lock(Handle handle, long offset, long length, int mask) {
+        return status("lock(" + handle + ")", SftpConstants.SSH_FXP_BLOCK,
+                () -> client.createLockRequest(handle, offset, length, mask));
+    }
+
+    @Override
+    public CompletableFuture<Void> unlock(Handle handle, long offset, long length) {
+        return status("unlock(" + handle + ")", SftpConstants.SSH_FXP_UNBLOCK,
+                () -> client.createUnlockRequest(handle, offset, length));
+    }
+
+    protected CompletableFuture<Void> status(String operation, int cmd, RequestBuilder builder) {
+        return request(operation, cmd, builder, response -> {
+            client.checkResponseStatus(cmd, response);
+            return null;
+        });
+    }
+
+    protected CompletableFuture<Attributes> attributes(String operation, int cmd, RequestBuilder builder) {
+        return request(operation, cmd, builder, response -> client.checkAttributesResponse(cmd, response));
+    }
+
+    /**
+     * Builds and sends a request, and parses its response once it arrives
+     *
+     * @param  <T>       Type of parsed response
+     * @param  operation A description of the operation - used in error messages
+     * @param  cmd       The SFTP command to send
+     * @param  builder   Builds the request {@link Buffer}
+     * @param  parser    Parses the response {@link Buffer} - any {@link IOException} fails the returned future
+     * @return           The future for the parsed response
+     */
+    protected <T> CompletableFuture<T> request(
+            String operation, int cmd, RequestBuilder builder, IOFunction<? super Buffer, ? extends T> parser) {
+        if (!client.isOpen()) {
+            return failed(new IOException(operation + " client is closed"));
+        }
+
+        Buffer request;
+        try {
+            request = builder.build();
+        } catch (IOException | RuntimeException e) {
+            return failed(e);
+        }
+
+        if (log.isTraceEnabled()) {
+            log.trace("request({}) {} cmd={}", client.getClientChannel(), operation,
+                    SftpConstants.getCommandMessageName(cmd));
+        }
+
+        return client.sendAsync(cmd, request).thenApply(response -> {
+            try {
+                return parser.apply(response);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    protected static <T> CompletableFuture<T> failed(Throwable t) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(t);
+        return future;
+    }
+
+    /**
+     * Builds the {@link Buffer} of an SFTP request
+     */
+    @FunctionalInterface
+    protected interface RequestBuilder {
+        Buffer build() throws IOException;
+    }
+}
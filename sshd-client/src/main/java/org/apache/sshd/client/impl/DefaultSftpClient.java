@@ -23,21 +23,27 @@ import java.io.IOException;
 import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
 import java.net.SocketTimeoutException;
 import java.nio.charset.Charset;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
 import java.util.Objects;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -71,7 +77,17 @@ import org.apache.sshd.common.extensions.VersionsParser.Versions;
 public class DefaultSftpClient extends AbstractSftpClient {
     private final ClientSession clientSession;
     private final ChannelSubsystem channel;
-    private final Map<Integer, Buffer> messages = new HashMap<>();
+    /**
+     * Pending responses by request id - the entry is created by whichever comes first: the response or the receiver,
+     * so only the thread waiting for a specific id is woken up when its response arrives
+     */
+    private final Map<Integer, CompletableFuture<Buffer>> pendingResponses = new ConcurrentHashMap<>();
+    private final CompletableFuture<Buffer> initResponse = new CompletableFuture<>();
+    /**
+     * Destinations of {@code SSH_FXP_DATA} responses by request id - the data is copied straight from the received
+     * packet into them instead of going through {@link #pendingResponses}
+     */
+    private final Map<Integer, DataDestination> dataDestinations = new ConcurrentHashMap<>();
     private final AtomicInteger cmdId = new AtomicInteger(100);
     private final Buffer receiveBuffer = new ByteArrayBuffer();
     private final AtomicInteger versionHolder = new AtomicInteger(0);
@@ -95,10 +111,11 @@ public class DefaultSftpClient extends AbstractSftpClient {
         Duration initializationTimeout = SftpModuleProperties.SFTP_CHANNEL_OPEN_TIMEOUT.getRequired(clientSession);
         this.channel.open().verify(initializationTimeout);
         this.channel.onClose(() -> {
-            synchronized (messages) {
-                closing.set(true);
-                messages.notifyAll();
-            }
+            closing.set(true);
+            initResponse.completeExceptionally(new EOFException("Closing while await init message"));
+            SshException cause = new SshException("Channel is being closed");
+            pendingResponses.values().forEach(f -> f.completeExceptionally(cause));
+            dataDestinations.values().forEach(d -> d.result.completeExceptionally(cause));
 
             if (versionHolder.get() <= 0) {
                 log.warn("onClose({}) closed before version negotiated", channel);
@@ -238,14 +255,27 @@ public class DefaultSftpClient extends AbstractSftpClient {
      * @throws IOException if failed to process the buffer
      */
     protected void process(Buffer incoming) throws IOException {
-        // create a copy of the buffer in case it is being re-used
-        Buffer buffer = new ByteArrayBuffer(incoming.available() + Long.SIZE, false);
+        if (!dataDestinations.isEmpty()) {
+            int rpos = incoming.rpos();
+            incoming.rpos(rpos + Integer.BYTES /* length */ + 1 /* type */);
+            int id = incoming.getInt();
+            incoming.rpos(rpos);
+            DataDestination dest = dataDestinations.remove(id);
+            if (dest != null) {
+                // parse in place - the data is copied only once, directly into the destination
+                dest.deliver(incoming);
+                return;
+            }
+        }
+
+        // create a copy of the buffer in case it is being re-used - returned to the pool once the response is parsed
+        Buffer buffer = getBufferPool().acquire(incoming.available() + Long.SIZE);
         buffer.putBuffer(incoming);
 
         int rpos = buffer.rpos();
         int length = buffer.getInt();
         int type = buffer.getUByte();
-        Integer id = buffer.getInt();
+        int id = buffer.getInt();
         buffer.rpos(rpos);
 
         if (log.isTraceEnabled()) {
@@ -253,15 +283,44 @@ public class DefaultSftpClient extends AbstractSftpClient {
                     getClientChannel(), id, SftpConstants.getCommandMessageName(type), length);
         }
 
-        synchronized (messages) {
-            messages.put(id, buffer);
-            messages.notifyAll();
+        // the very first packet is the response to SSH_FXP_INIT - its "id" is actually the version
+        if (initResponse.complete(buffer)) {
+            return;
+        }
+
+        responseFuture(id).complete(buffer);
+    }
+
+    protected CompletableFuture<Buffer> responseFuture(int id) {
+        CompletableFuture<Buffer> future = pendingResponses.computeIfAbsent(id, k -> new CompletableFuture<>());
+        if (isClosing()) {
+            future.completeExceptionally(new SshException("Channel is being closed"));
         }
+        return future;
     }
 
     @Override
     public int send(int cmd, Buffer buffer) throws IOException {
+        return send(cmd, buffer, null);
+    }
+
+    /**
+     * @param  cmd         The command
+     * @param  buffer      The request
+     * @param  dest        If not {@code null} then registered for the response before the request is sent
+     * @return             The request id
+     * @throws IOException If failed to send the request
+     */
+    protected int send(int cmd, Buffer buffer, DataDestination dest) throws IOException {
         int id = cmdId.incrementAndGet();
+        if (dest != null) {
+            dest.id = id;
+            dataDestinations.put(id, dest);
+            if (isClosing()) {
+                dataDestinations.remove(id, dest);
+                throw new SshException("Channel is being closed");
+            }
+        }
         int len = buffer.available();
         if (log.isTraceEnabled()) {
             log.trace("send({}) cmd={}, len={}, id={}",
@@ -281,19 +340,141 @@ public class DefaultSftpClient extends AbstractSftpClient {
             buffer.wpos(wpos);
             buf = buffer;
         } else {
-            buf = new ByteArrayBuffer(hdr + len);
+            buf = getBufferPool().acquire(hdr + len);
             buf.putInt(1 /* cmd */ + Integer.BYTES /* id */ + len);
             buf.putByte((byte) (cmd & 0xFF));
             buf.putInt(id);
             buf.putBuffer(buffer);
         }
 
-        IoOutputStream asyncIn = channel.getAsyncIn();
-        IoWriteFuture writeFuture = asyncIn.writeBuffer(buf);
-        writeFuture.verify();
+        try {
+            IoOutputStream asyncIn = channel.getAsyncIn();
+            IoWriteFuture writeFuture = asyncIn.writeBuffer(buf);
+            Buffer leased = (buf != buffer) ? buf : null;
+            writeFuture.addListener(f -> onRequestWritten(id, dest, leased, f));
+            if (mustAwaitWrite(asyncIn)) {
+                writeFuture.verify();
+            }
+        } catch (IOException | RuntimeException e) {
+            if (dest != null) {
+                dataDestinations.remove(id, dest);
+            }
+            throw e;
+        }
         return id;
     }
 
+    /**
+     * @param  asyncIn The channel's input stream
+     * @return         {@code true} if the caller must wait until the request has been written - either because the
+     *                 stream does not queue writes or because too much data is queued already
+     * @see            SftpModuleProperties#MAX_QUEUED_WRITE_BYTES
+     */
+    protected boolean mustAwaitWrite(IoOutputStream asyncIn) {
+        if (!(asyncIn instanceof ChannelAsyncOutputStream)) {
+            return true;
+        }
+
+        ChannelAsyncOutputStream out = (ChannelAsyncOutputStream) asyncIn;
+        return (!out.isQueued())
+                || (out.getQueuedBytes() > SftpModuleProperties.MAX_QUEUED_WRITE_BYTES.getRequired(getClientSession()));
+    }
+
+    /**
+     * Invoked once a request has been written - or failed to be. A failure is reported to whoever waits for the
+     * response, since the request was not sent.
+     *
+     * @param id     The request id
+     * @param dest   The registered data destination - {@code null} if none
+     * @param leased The pooled buffer holding the request - {@code null} if none
+     * @param future The write future
+     */
+    protected void onRequestWritten(int id, DataDestination dest, Buffer leased, IoWriteFuture future) {
+        if (future.isWritten()) {
+            if (leased != null) {
+                getBufferPool().release(leased);
+            }
+            return;
+        }
+
+        Throwable reason = future.getException();
+        if (log.isDebugEnabled()) {
+            log.debug("onRequestWritten({}) failed ({}) to send id={}: {}",
+                    getClientChannel(), reason.getClass().getSimpleName(), id, reason.getMessage());
+        }
+
+        SshException err = new SshException("Failed to send request id=" + id + ": " + reason.getMessage(), reason);
+        if (dest != null) {
+            if (dataDestinations.remove(id, dest)) {
+                dest.result.completeExceptionally(err);
+            }
+        } else {
+            responseFuture(id).completeExceptionally(err);
+        }
+    }
+
+    @Override
+    public int read(Handle handle, long fileOffset, byte[] dst, int dstOffset, int len, AtomicReference<Boolean> eofSignalled)
+            throws IOException {
+        return read(handle, fileOffset, ByteBuffer.wrap(dst, dstOffset, len), eofSignalled);
+    }
+
+    @Override
+    public int read(Handle handle, long fileOffset, ByteBuffer dst, AtomicReference<Boolean> eofSignalled)
+            throws IOException {
+        if (eofSignalled != null) {
+            eofSignalled.set(null);
+        }
+        if (!isOpen()) {
+            throw new IOException("read(" + handle + "/" + fileOffset + ")[" + dst.remaining() + "] client is closed");
+        }
+
+        DataDestination dest = new DataDestination(SftpConstants.SSH_FXP_READ, dst, eofSignalled);
+        send(SftpConstants.SSH_FXP_READ, createReadRequest(handle, fileOffset, dst.remaining()), dest);
+        return awaitData(dest);
+    }
+
+    @Override
+    protected CompletableFuture<Integer> sendDataRequest(
+            int cmd, Buffer request, ByteBuffer dst, AtomicReference<Boolean> eofSignalled) {
+        DataDestination dest = new DataDestination(cmd, dst, eofSignalled);
+        try {
+            send(cmd, request, dest);
+        } catch (IOException | RuntimeException e) {
+            dest.result.completeExceptionally(e);
+        }
+        return dest.result;
+    }
+
+    protected int awaitData(DataDestination dest) throws IOException {
+        Duration idleTimeout = CoreModuleProperties.IDLE_TIMEOUT.getRequired(getClientSession());
+        if (GenericUtils.isNegativeOrNull(idleTimeout)) {
+            idleTimeout = CoreModuleProperties.IDLE_TIMEOUT.getRequiredDefault();
+        }
+
+        try {
+            try {
+                return dest.result.get(idleTimeout.toNanos(), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException | InterruptedException e) {
+                if (!dataDestinations.remove(dest.id, dest)) {
+                    // the response is being copied into the destination right now - it must not outlive this call
+                    return dest.result.join();
+                }
+                if (e instanceof InterruptedException) {
+                    throw (IOException) new InterruptedIOException("Interrupted while waiting for id=" + dest.id)
+                            .initCause(e);
+                }
+                throw new SshException("Timeout expired while waiting for id=" + dest.id);
+            }
+        } catch (ExecutionException | CompletionException e) {
+            Throwable cause = GenericUtils.peelException(e.getCause());
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new SshException("Failed to receive data for id=" + dest.id + ": " + cause.getMessage(), cause);
+        }
+    }
+
     @Override
     public Buffer receive(int id) throws IOException {
         Session session = getClientSession();
@@ -332,20 +513,37 @@ public class DefaultSftpClient extends AbstractSftpClient {
 
     @Override
     public Buffer receive(int id, Duration idleTimeout) throws IOException {
-        synchronized (messages) {
-            Buffer buffer = messages.remove(id);
-            if (buffer != null) {
-                return buffer;
-            }
+        CompletableFuture<Buffer> future = responseFuture(id);
+        Buffer buffer;
+        try {
             if (GenericUtils.isPositive(idleTimeout)) {
-                try {
-                    messages.wait(idleTimeout.toMillis(), idleTimeout.getNano() % 1_000_000);
-                } catch (InterruptedException e) {
-                    throw (IOException) new InterruptedIOException("Interrupted while waiting for messages").initCause(e);
-                }
+                buffer = future.get(idleTimeout.toNanos(), TimeUnit.NANOSECONDS);
+            } else {
+                buffer = future.getNow(null);
             }
+        } catch (TimeoutException e) {
+            return null;
+        } catch (InterruptedException e) {
+            throw (IOException) new InterruptedIOException("Interrupted while waiting for messages").initCause(e);
+        } catch (ExecutionException e) {
+            pendingResponses.remove(id, future);
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new SshException("Failed to receive response for id=" + id, cause);
         }
-        return null;
+
+        if (buffer != null) {
+            pendingResponses.remove(id, future);
+        }
+        return buffer;
+    }
+
+    @Override
+    public CompletableFuture<Buffer> receiveAsync(int id) {
+        CompletableFuture<Buffer> future = responseFuture(id);
+        return future.whenComplete((buffer, t) -> pendingResponses.remove(id, future));
     }
 
     int LOWER_SFTP_IMPL = SftpConstants.SFTP_V3; // Working implementation from v3
@@ -441,39 +639,30 @@ public class DefaultSftpClient extends AbstractSftpClient {
         ValidateUtils.checkTrue(GenericUtils.isPositive(initializationTimeout), "Invalid initialization timeout: %d",
                 initializationTimeout);
 
-        synchronized (messages) {
-            /*
-             * We need to use a timeout since if the remote server does not support SFTP, we will not know it
-             * immediately. This is due to the fact that the request for the subsystem does not contain a reply as to
-             * its success or failure. Thus, the SFTP channel is created by the client, but there is no one on the other
-             * side to reply - thus the need for the timeout
-             */
-            Instant now = Instant.now();
-            Instant max = now.plus(initializationTimeout);
-            while ((now.compareTo(max) < 0) && messages.isEmpty() && (!isClosing()) && isOpen()) {
-                try {
-                    Duration rem = Duration.between(now, max);
-                    messages.wait(rem.toMillis(), rem.getNano() % 1_000_000);
-                    now = Instant.now();
-                } catch (InterruptedException e) {
-                    throw (IOException) new InterruptedIOException(
-                            "Interrupted init() while " + Duration.between(now, max) + " remaining").initCause(e);
-                }
-            }
-
-            if (isClosing() || (!isOpen())) {
-                throw new EOFException("Closing while await init message");
-            }
+        /*
+         * We need to use a timeout since if the remote server does not support SFTP, we will not know it immediately.
+         * This is due to the fact that the request for the subsystem does not contain a reply as to its success or
+         * failure. Thus, the SFTP channel is created by the client, but there is no one on the other side to reply -
+         * thus the need for the timeout
+         */
+        if (isClosing() || (!isOpen())) {
+            throw new EOFException("Closing while await init message");
+        }
 
-            if (messages.isEmpty()) {
-                throw new SocketTimeoutException(
-                        "No incoming initialization response received within " + initializationTimeout + " msec.");
+        try {
+            return initResponse.get(initializationTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new SocketTimeoutException(
+                    "No incoming initialization response received within " + initializationTimeout + " msec.");
+        } catch (InterruptedException e) {
+            throw (IOException) new InterruptedIOException(
+                    "Interrupted init() while waiting " + initializationTimeout).initCause(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
             }
-
-            Collection<Integer> ids = messages.keySet();
-            Iterator<Integer> iter = ids.iterator();
-            Integer reqId = iter.next();
-            return messages.remove(reqId);
+            throw new SshException("Failed to receive init response", cause);
         }
     }
 
@@ -565,7 +754,9 @@ public class DefaultSftpClient extends AbstractSftpClient {
         }
 
         protected ChannelAsyncOutputStream createAsyncInput(Session session) {
-            return new ChannelAsyncOutputStream(this, SshConstants.SSH_MSG_CHANNEL_DATA) {
+            // queued so that requests can be sent without waiting for the previous one to be written
+            boolean queued = SftpModuleProperties.MAX_QUEUED_WRITE_BYTES.getRequired(session) > 0;
+            return new ChannelAsyncOutputStream(this, SshConstants.SSH_MSG_CHANNEL_DATA, queued) {
                 @SuppressWarnings("synthetic-access")
                 @Override
                 protected CloseFuture doCloseGracefully() {
@@ -606,4 +797,34 @@ public class DefaultSftpClient extends AbstractSftpClient {
             return new NullOutputStream();
         }
     }
+
+    /**
+     * The destination of the data of a pending {@code SSH_FXP_DATA} response
+     */
+    protected class DataDestination {
+        protected final int cmd;
+        protected final ByteBuffer dst;
+        protected final AtomicReference<Boolean> eofSignalled;
+        protected final CompletableFuture<Integer> result = new CompletableFuture<>();
+        protected volatile int id;
+
+        protected DataDestination(int cmd, ByteBuffer dst, AtomicReference<Boolean> eofSignalled) {
+            this.cmd = cmd;
+            this.dst = Objects.requireNonNull(dst, "No destination");
+            this.eofSignalled = eofSignalled;
+        }
+
+        /**
+         * Invoked by the receiving thread with the complete response packet
+         *
+         * @param incoming The packet - positioned at its length field
+         */
+        protected void deliver(Buffer incoming) {
+            try {
+                result.complete(checkDataResponse(cmd, incoming, dst, eofSignalled));
+            } catch (IOException | RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        }
+    }
 }
@@ -19,13 +19,18 @@
 package org.apache.sshd.client.impl;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.channels.WritableByteChannel;
 import java.util.Collection;
 import java.util.Deque;
+import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.logging.log4j.LogManager;
@@ -42,6 +47,8 @@ import org.apache.sshd.client.SftpClient.CloseableHandle;
 import org.apache.sshd.client.SftpClient.OpenMode;
 import org.apache.sshd.common.SftpConstants;
 import org.apache.sshd.common.SftpHelper;
+import org.apache.sshd.common.SftpModuleProperties;
+import org.apache.sshd.common.util.GenericUtils;
 
 public class SftpInputStreamAsync extends InputStreamWithChannel {
     protected final Logger log;
@@ -53,6 +60,9 @@ public class SftpInputStreamAsync extends InputStreamWithChannel {
     protected long requestOffset;
     protected long clientOffset;
     protected final Deque<SftpAckData> pendingReads = new LinkedList<>();
+    // responses of the pending reads when their arrival is timed by the adaptive read-ahead
+    protected final Map<Integer, CompletableFuture<Buffer>> pendingResponses = new HashMap<>();
+    protected final SftpReadAheadController readAhead;
     protected boolean eofIndicator;
 
     private final AbstractSftpClient clientInstance;
@@ -66,6 +76,7 @@ public class SftpInputStreamAsync extends InputStreamWithChannel {
         this.handle = client.open(path, mode);
         this.bufferSize = bufferSize;
         this.fileSize = client.stat(handle).getSize();
+        this.readAhead = createReadAheadController(client, bufferSize);
     }
 
     public SftpInputStreamAsync(AbstractSftpClient client, int bufferSize, long clientOffset, long fileSize,
@@ -77,6 +88,14 @@ public class SftpInputStreamAsync extends InputStreamWithChannel {
         this.bufferSize = bufferSize;
         this.clientOffset = clientOffset;
         this.fileSize = fileSize;
+        this.readAhead = createReadAheadController(client, bufferSize);
+    }
+
+    protected SftpReadAheadController createReadAheadController(AbstractSftpClient client, int bufferSize) {
+        Session session = client.getSession();
+        return new SftpReadAheadController(
+                SftpModuleProperties.READ_AHEAD_ADAPTIVE.getRequired(session), bufferSize,
+                SftpModuleProperties.READ_AHEAD_MAX_CHUNK_SIZE.getRequired(session));
     }
 
     /**
@@ -97,6 +116,14 @@ public class SftpInputStreamAsync extends InputStreamWithChannel {
         return path;
     }
 
+    /**
+     * @return A snapshot of the read size and number of outstanding reads currently used, and of the round trip time
+     *         and delivery rate they are based on
+     */
+    public SftpReadAheadStats getReadAheadStats() {
+        return readAhead.getStats();
+    }
+
     /**
      * Check if the stream is at EOF
      *
@@ -249,8 +276,10 @@ public class SftpInputStreamAsync extends InputStreamWithChannel {
         Session session = client.getSession();
         byte[] id = handle.getIdentifier();
         boolean traceEnabled = log.isTraceEnabled();
+        int chunkSize = readAhead.getChunkSize();
+        int maxOutstanding = readAhead.getMaxOutstanding(windowSize);
         for (int ackIndex = 1;
-             (pendingReads.size() < (int) (windowSize / bufferSize)) && (requestOffset < (fileSize + bufferSize))
+             (pendingReads.size() < maxOutstanding) && (requestOffset < (fileSize + chunkSize))
                      || pendingReads.isEmpty();
              ackIndex++) {
             Buffer buf = session.createBuffer(SshConstants.SSH_MSG_CHANNEL_DATA,
@@ -259,14 +288,71 @@ public class SftpInputStreamAsync extends InputStreamWithChannel {
             buf.wpos(23);
             buf.putBytes(id);
             buf.putLong(requestOffset);
-            buf.putInt(bufferSize);
+            buf.putInt(chunkSize);
+            long sentAt = System.nanoTime();
             int reqId = client.send(SftpConstants.SSH_FXP_READ, buf);
-            SftpAckData ack = new SftpAckData(reqId, requestOffset, bufferSize);
+            SftpAckData ack = new SftpAckData(reqId, requestOffset, chunkSize);
             if (traceEnabled) {
                 log.trace("sendRequests({}) enqueue pending ack #{}: {}", this, ackIndex, ack);
             }
+            readAhead.requestSent();
+            if (readAhead.isAdaptive()) {
+                pendingResponses.put(reqId, timeResponse(client, ack, sentAt));
+            }
             pendingReads.add(ack);
-            requestOffset += bufferSize;
+            requestOffset += chunkSize;
+        }
+    }
+
+    /**
+     * Reports the arrival of the response to the read-ahead controller as soon as it is received - rather than when
+     * the reader gets to it
+     *
+     * @param  client The client
+     * @param  ack    The pending read
+     * @param  sentAt {@link System#nanoTime()} when the read was sent
+     * @return        The response future
+     */
+    protected CompletableFuture<Buffer> timeResponse(AbstractSftpClient client, SftpAckData ack, long sentAt) {
+        return client.receiveAsync(ack.id).thenApply(buf -> {
+            long arrivedAt = System.nanoTime();
+            int len = peekDataLength(buf);
+            boolean shortRead = (len >= 0) && (len < ack.length) && (ack.offset + len < fileSize);
+            readAhead.responseReceived(sentAt, arrivedAt, len, shortRead);
+            return buf;
+        });
+    }
+
+    protected static int peekDataLength(Buffer buf) {
+        int rpos = buf.rpos();
+        try {
+            buf.getInt(); // length
+            int type = buf.getUByte();
+            buf.getInt(); // id
+            return (type == SftpConstants.SSH_FXP_DATA) ? buf.getInt() : -1;
+        } catch (RuntimeException e) {
+            return -1;
+        } finally {
+            buf.rpos(rpos);
+        }
+    }
+
+    protected Buffer receiveResponse(SftpAckData ack) throws IOException {
+        CompletableFuture<Buffer> future = pendingResponses.remove(ack.id);
+        if (future == null) {
+            return getClient().receive(ack.id);
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            throw (IOException) new InterruptedIOException("Interrupted while waiting for read response").initCause(e);
+        } catch (ExecutionException e) {
+            Throwable cause = GenericUtils.peelException(e.getCause());
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Failed to receive read response: " + cause.getMessage(), cause);
         }
     }
 
@@ -310,7 +396,9 @@ public class SftpInputStreamAsync extends InputStreamWithChannel {
             }
 
             buffer.getRawBytes(data, nb, buffer.available());
+            Buffer prev = buffer;
             buffer = new ByteArrayBuffer(data);
+            getClient().releaseResponse(prev);
         }
     }
 
@@ -321,7 +409,7 @@ public class SftpInputStreamAsync extends InputStreamWithChannel {
         }
 
         AbstractSftpClient client = getClient();
-        Buffer buf = client.receive(ack.id);
+        Buffer buf = receiveResponse(ack);
         int length = buf.getInt();
         int type = buf.getUByte();
         int id = buf.getInt();
@@ -340,11 +428,15 @@ public class SftpInputStreamAsync extends InputStreamWithChannel {
             }
             buf.rpos(rpos);
             buf.wpos(rpos + dlen);
+            // the previous data has been fully consumed by now
+            Buffer prev = this.buffer;
             this.buffer = buf;
+            client.releaseResponse(prev);
         } else if (type == SftpConstants.SSH_FXP_STATUS) {
             int substatus = buf.getInt();
             String msg = buf.getString();
             String lang = buf.getString();
+            client.releaseResponse(buf);
             if (substatus == SftpConstants.SSH_FX_EOF) {
                 eofIndicator = true;
             } else {
@@ -353,6 +445,7 @@ public class SftpInputStreamAsync extends InputStreamWithChannel {
         } else {
             IOException err = client.handleUnexpectedPacket(SshConstants.SSH_MSG_CHANNEL_DATA,
                     SftpConstants.SSH_FXP_STATUS, id, type, length, buf);
+            client.releaseResponse(buf);
             if (err != null) {
                 throw err;
             }
@@ -383,6 +476,8 @@ public class SftpInputStreamAsync extends InputStreamWithChannel {
             }
         } finally {
             handle = null;
+            getClient().releaseResponse(buffer);
+            buffer = null;
         }
     }
 
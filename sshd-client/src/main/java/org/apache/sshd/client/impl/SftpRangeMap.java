@@ -0,0 +1,283 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.client.impl;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import org.apache.sshd.common.util.ValidateUtils;
+
+/**
+ * Keeps track of the byte ranges of a file that have already been transferred, so that an interrupted striped
+ * transfer can be resumed. Adjacent and overlapping ranges are merged. The map can be persisted as a small text file
+ * next to the transferred file. It records which source was copied to which target along with the size and
+ * modification time of the source, so that a resumed transfer can make sure it continues the very same copy - see
+ * {@link #matches(String, String, long, long)}. All methods are thread-safe - they synchronize on the map.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class SftpRangeMap {
+    /**
+     * Suffix appended to the transferred file name for the persisted range map
+     */
+    public static final String DEFAULT_SUFFIX = ".ranges";
+
+    /**
+     * Value of {@link #getLastModified()} if the modification time of the source is not known
+     */
+    public static final long UNKNOWN_TIME = -1L;
+
+    private final String source;
+    private final String target;
+    private final long size;
+    private final long lastModified;
+    // start => end (exclusive) of each completed range
+    private final NavigableMap<Long, Long> ranges = new TreeMap<>();
+
+    public SftpRangeMap(long size) {
+        this(null, null, size, UNKNOWN_TIME);
+    }
+
+    /**
+     * @param source       The copied file - {@code null} if unknown
+     * @param target       The file being written - {@code null} if unknown
+     * @param size         The size of the source
+     * @param lastModified The modification time of the source (msec.) - {@link #UNKNOWN_TIME} if unknown
+     */
+    public SftpRangeMap(String source, String target, long size, long lastModified) {
+        ValidateUtils.checkTrue(size >= 0L, "Invalid size: %d", size);
+        this.source = source;
+        this.target = target;
+        this.size = size;
+        this.lastModified = lastModified;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public String getTarget() {
+        return target;
+    }
+
+    /**
+     * @return The size of the transferred file
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return The modification time of the source (msec.) - {@link #UNKNOWN_TIME} if unknown
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Checks whether the map describes the given transfer - a map that does not know its source or target (e.g., one
+     * saved by an older version) never matches.
+     *
+     * @param  source       The copied file
+     * @param  target       The file being written
+     * @param  size         The current size of the source
+     * @param  lastModified The current modification time of the source (msec.) - {@link #UNKNOWN_TIME} if unknown
+     * @return              {@code true} if the ranges recorded by this map may be skipped by the transfer
+     */
+    public boolean matches(String source, String target, long size, long lastModified) {
+        return (this.source != null) && this.source.equals(source)
+                && (this.target != null) && this.target.equals(target)
+                && (this.size == size)
+                && (this.lastModified == lastModified);
+    }
+
+    /**
+     * Marks a range as transferred
+     *
+     * @param start The start offset
+     * @param end   The end offset (exclusive)
+     */
+    public synchronized void add(long start, long end) {
+        ValidateUtils.checkTrue((start >= 0L) && (start <= end), "Invalid range start: %d", start);
+        if (start == end) {
+            return;
+        }
+
+        Map.Entry<Long, Long> floor = ranges.floorEntry(start);
+        if ((floor != null) && (floor.getValue() >= start)) {
+            start = floor.getKey();
+            end = Math.max(end, floor.getValue());
+        }
+        for (Map.Entry<Long, Long> next = ranges.ceilingEntry(start);
+             (next != null) && (next.getKey() <= end);
+             next = ranges.ceilingEntry(start)) {
+            end = Math.max(end, next.getValue());
+            ranges.remove(next.getKey());
+        }
+        ranges.put(start, end);
+    }
+
+    /**
+     * @return Total number of bytes already transferred
+     */
+    public synchronized long getCompleted() {
+        long total = 0L;
+        for (Map.Entry<Long, Long> e : ranges.entrySet()) {
+            total += e.getValue() - e.getKey();
+        }
+        return total;
+    }
+
+    public synchronized boolean isComplete() {
+        Map.Entry<Long, Long> first = ranges.firstEntry();
+        return (size == 0L) || ((ranges.size() == 1) && (first.getKey() == 0L) && (first.getValue() >= size));
+    }
+
+    /**
+     * @param  maxLength Maximum length of a returned range
+     * @return           The ranges not transferred yet, split into pieces of at most {@code maxLength} bytes - each
+     *                   entry is a {@code start, end (exclusive)} pair
+     */
+    public synchronized List<long[]> getMissing(long maxLength) {
+        ValidateUtils.checkTrue(maxLength > 0L, "Invalid max. length: %d", maxLength);
+        List<long[]> missing = new ArrayList<>();
+        long pos = 0L;
+        for (Map.Entry<Long, Long> e : ranges.entrySet()) {
+            split(pos, Math.min(e.getKey(), size), maxLength, missing);
+            pos = Math.max(pos, e.getValue());
+        }
+        split(pos, size, maxLength, missing);
+        return missing;
+    }
+
+    private static void split(long start, long end, long maxLength, List<long[]> result) {
+        for (long pos = start; pos < end;) {
+            long next = pos + Math.min(maxLength, end - pos); // no overflow for huge lengths
+            result.add(new long[] { pos, next });
+            pos = next;
+        }
+    }
+
+    /**
+     * Writes the map to the given file - first to a temporary file which then replaces the target, so that an
+     * interruption never leaves a truncated map behind.
+     *
+     * @param  file        The target file
+     * @throws IOException If failed to write the file
+     */
+    public synchronized void save(Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            w.write("size=" + size);
+            w.newLine();
+            w.write("modified=" + lastModified);
+            w.newLine();
+            if (source != null) {
+                w.write("source=" + encode(source));
+                w.newLine();
+            }
+            if (target != null) {
+                w.write("target=" + encode(target));
+                w.newLine();
+            }
+            for (Map.Entry<Long, Long> e : ranges.entrySet()) {
+                w.write(e.getKey() + "-" + e.getValue());
+                w.newLine();
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @param  file        The file written by {@link #save(Path)}
+     * @return             The loaded map
+     * @throws IOException If failed to read or parse the file
+     */
+    public static SftpRangeMap load(Path file) throws IOException {
+        try (BufferedReader r = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line = r.readLine();
+            if ((line == null) || (!line.startsWith("size="))) {
+                throw new StreamCorruptedException("Missing size in range map " + file);
+            }
+
+            try {
+                long size = Long.parseLong(line.substring(5));
+                long lastModified = UNKNOWN_TIME;
+                String source = null;
+                String target = null;
+                for (line = r.readLine(); (line != null) && (line.indexOf('=') > 0); line = r.readLine()) {
+                    int pos = line.indexOf('=');
+                    String value = line.substring(pos + 1);
+                    switch (line.substring(0, pos)) {
+                        case "modified":
+                            lastModified = Long.parseLong(value);
+                            break;
+                        case "source":
+                            source = decode(value);
+                            break;
+                        case "target":
+                            target = decode(value);
+                            break;
+                        default: // ignore unknown properties
+                    }
+                }
+
+                SftpRangeMap map = new SftpRangeMap(source, target, size, lastModified);
+                for (; line != null; line = r.readLine()) {
+                    int pos = line.indexOf('-');
+                    if (pos <= 0) {
+                        throw new StreamCorruptedException("Bad range '" + line + "' in range map " + file);
+                    }
+                    map.add(Long.parseLong(line.substring(0, pos)), Long.parseLong(line.substring(pos + 1)));
+                }
+                return map;
+            } catch (IllegalArgumentException e) {
+                throw new StreamCorruptedException("Bad range map " + file + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static String encode(String value) {
+        // keeps line breaks out of the file
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static String decode(String value) {
+        return URLDecoder.decode(value, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return getClass().getSimpleName() + "[" + source + " => " + target + ", size=" + size
+               + ", completed=" + getCompleted() + ", ranges=" + ranges.size() + "]";
+    }
+}
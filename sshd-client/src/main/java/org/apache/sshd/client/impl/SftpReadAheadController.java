@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.client.impl;
+
+import java.time.Duration;
+
+import org.apache.sshd.common.util.ValidateUtils;
+
+/**
+ * Chooses the read size and the number of outstanding reads of a {@link SftpInputStreamAsync}. In adaptive mode it
+ * measures the round trip time of each read and the rate at which the data arrives, and sizes the read-ahead to twice
+ * the estimated bandwidth-delay product: a pipeline that is too short delivers less than the link can carry, so the
+ * measured rate - and with it the target - grows until the link (or the channel window) is saturated, while a LAN with
+ * a tiny round trip time ends up with only a few reads in flight. The read size grows along with the read-ahead, but
+ * never beyond the largest read the server has been seen to answer in full.
+ * <P>
+ * In non-adaptive mode the fixed initial read size is used and the channel window is filled, as before.
+ * </P>
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class SftpReadAheadController {
+    public static final int MIN_OUTSTANDING = 2;
+    /**
+     * Number of reads that make up a delivery rate sample
+     */
+    public static final int RATE_SAMPLES = 16;
+    /**
+     * The read-ahead is sized to this multiple of the bandwidth-delay product
+     */
+    public static final double GAIN = 2.0d;
+
+    private final boolean adaptive;
+    private final int initialChunkSize;
+    private final int maxChunkSize;
+    private int serverChunkLimit = Integer.MAX_VALUE;
+    private int chunkSize;
+    private int maxOutstanding;
+
+    private long minRtt = Long.MAX_VALUE;
+    private long smoothedRtt;
+    private final long[] arrivalTimes = new long[RATE_SAMPLES];
+    private final int[] arrivalBytes = new int[RATE_SAMPLES];
+    private int numSamples;
+    private int sampleIndex;
+    private double deliveryRate;
+
+    private long requests;
+    private long responses;
+    private long shortReads;
+
+    public SftpReadAheadController(boolean adaptive, int initialChunkSize, int maxChunkSize) {
+        ValidateUtils.checkTrue(initialChunkSize > 0, "Invalid initial chunk size: %d", initialChunkSize);
+        this.adaptive = adaptive;
+        this.initialChunkSize = initialChunkSize;
+        this.maxChunkSize = Math.max(initialChunkSize, maxChunkSize);
+        this.chunkSize = initialChunkSize;
+    }
+
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    public synchronized int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * @param  windowSize The maximum size of the local channel window - the read-ahead never exceeds it since the
+     *                    server could not send the data anyway
+     * @return            The number of reads to keep in flight
+     */
+    public synchronized int getMaxOutstanding(long windowSize) {
+        int windowLimit = (int) Math.min(Integer.MAX_VALUE, windowSize / chunkSize);
+        if ((!adaptive) || (numSamples < RATE_SAMPLES) || (minRtt == Long.MAX_VALUE)) {
+            // start like the non-adaptive mode and let the first measurements shrink it if needed
+            maxOutstanding = windowLimit;
+        } else {
+            double target = GAIN * getBandwidthDelayProduct();
+            int wanted = (int) Math.min(Integer.MAX_VALUE, (long) Math.ceil(target / chunkSize));
+            maxOutstanding = Math.max(MIN_OUTSTANDING, Math.min(wanted, windowLimit));
+        }
+        return maxOutstanding;
+    }
+
+    public synchronized void requestSent() {
+        requests++;
+    }
+
+    /**
+     * Invoked (from any thread) when the response to a read arrives
+     *
+     * @param sentAt    {@link System#nanoTime()} when the request was sent
+     * @param arrivedAt {@link System#nanoTime()} when the response arrived
+     * @param received  The number of data bytes in the response - negative if the response carried no data
+     * @param shortRead {@code true} if the server returned less than requested before the end of the file
+     */
+    public synchronized void responseReceived(long sentAt, long arrivedAt, int received, boolean shortRead) {
+        responses++;
+        long rtt = Math.max(1L, arrivedAt - sentAt);
+        minRtt = Math.min(minRtt, rtt);
+        smoothedRtt = (smoothedRtt == 0L) ? rtt : (7L * smoothedRtt + rtt) / 8L;
+
+        arrivalTimes[sampleIndex] = arrivedAt;
+        arrivalBytes[sampleIndex] = Math.max(0, received);
+        sampleIndex = (sampleIndex + 1) % RATE_SAMPLES;
+        if (numSamples < RATE_SAMPLES) {
+            numSamples++;
+        }
+        int oldest = (numSamples < RATE_SAMPLES) ? 0 : sampleIndex;
+        if (numSamples > 1) {
+            long span = arrivedAt - arrivalTimes[oldest];
+            if (span > 0L) {
+                long bytes = 0L;
+                // the bytes of the oldest sample arrived before the measured span started
+                for (int i = 0; i < numSamples; i++) {
+                    if (i != oldest) {
+                        bytes += arrivalBytes[i];
+                    }
+                }
+                deliveryRate = bytes * 1.0e9d / span;
+            }
+        }
+
+        if (shortRead && (received > 0)) {
+            shortReads++;
+            serverChunkLimit = Math.min(serverChunkLimit, received);
+        }
+
+        if (adaptive) {
+            updateChunkSize();
+        }
+    }
+
+    protected void updateChunkSize() {
+        // requesting more than the server delivers only causes gaps that must be filled synchronously
+        int limit = Math.min(maxChunkSize, serverChunkLimit);
+        int size = initialChunkSize;
+        if (numSamples >= RATE_SAMPLES) {
+            // aim at roughly 8 reads in flight, so that a single slow response does not stall the pipeline
+            double target = GAIN * getBandwidthDelayProduct() / 8.0d;
+            while ((size < target) && (size < limit)) {
+                size <<= 1;
+            }
+        }
+        chunkSize = Math.max(1, Math.min(size, limit));
+    }
+
+    protected double getBandwidthDelayProduct() {
+        return (minRtt == Long.MAX_VALUE) ? 0.0d : deliveryRate * minRtt / 1.0e9d;
+    }
+
+    public synchronized SftpReadAheadStats getStats() {
+        return new SftpReadAheadStats(adaptive, chunkSize, maxOutstanding,
+                (minRtt == Long.MAX_VALUE) ? Duration.ZERO : Duration.ofNanos(minRtt),
+                Duration.ofNanos(smoothedRtt), deliveryRate, requests, responses, shortReads);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + getStats();
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.client.impl;
+
+import java.time.Duration;
+
+/**
+ * A snapshot of the values measured and chosen by a {@link SftpReadAheadController}
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class SftpReadAheadStats {
+    private final boolean adaptive;
+    private final int chunkSize;
+    private final int maxOutstanding;
+    private final Duration minRtt;
+    private final Duration smoothedRtt;
+    private final double deliveryRate;
+    private final long requests;
+    private final long responses;
+    private final long shortReads;
+
+    public SftpReadAheadStats(boolean adaptive, int chunkSize, int maxOutstanding, Duration minRtt,
+                              Duration smoothedRtt, double deliveryRate, long requests, long responses,
+                              long shortReads) {
+        this.adaptive = adaptive;
+        this.chunkSize = chunkSize;
+        this.maxOutstanding = maxOutstanding;
+        this.minRtt = minRtt;
+        this.smoothedRtt = smoothedRtt;
+        this.deliveryRate = deliveryRate;
+        this.requests = requests;
+        this.responses = responses;
+        this.shortReads = shortReads;
+    }
+
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    /**
+     * @return The number of bytes currently requested by each {@code SSH_FXP_READ}
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * @return The number of reads currently kept in flight
+     */
+    public int getMaxOutstanding() {
+        return maxOutstanding;
+    }
+
+    /**
+     * @return The smallest round trip time seen so far - {@link Duration#ZERO} if not measured yet
+     */
+    public Duration getMinRtt() {
+        return minRtt;
+    }
+
+    public Duration getSmoothedRtt() {
+        return smoothedRtt;
+    }
+
+    /**
+     * @return The recent rate at which read data arrived - in bytes per second
+     */
+    public double getDeliveryRate() {
+        return deliveryRate;
+    }
+
+    /**
+     * @return The estimated bandwidth-delay product in bytes
+     */
+    public long getBandwidthDelayProduct() {
+        return (long) (deliveryRate * minRtt.toNanos() / 1.0e9d);
+    }
+
+    public long getRequests() {
+        return requests;
+    }
+
+    public long getResponses() {
+        return responses;
+    }
+
+    /**
+     * @return The number of reads for which the server returned less data than requested before the end of the file
+     */
+    public long getShortReads() {
+        return shortReads;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName()
+               + "[adaptive=" + adaptive
+               + ", chunkSize=" + chunkSize
+               + ", maxOutstanding=" + maxOutstanding
+               + ", minRtt=" + minRtt
+               + ", srtt=" + smoothedRtt
+               + ", rate=" + String.format("%.1f", deliveryRate)
+               + ", bdp=" + getBandwidthDelayProduct()
+               + ", requests=" + requests
+               + ", responses=" + responses
+               + ", shortReads=" + shortReads
+               + "]";
+    }
+}
@@ -121,12 +121,9 @@ public class SftpRemotePathChannel extends FileChannel {
     protected long doRead(Collection<? extends ByteBuffer> buffers, long position) throws IOException {
         ensureOpen(READ_MODES);
 
-        ClientSession clientSession = sftp.getClientSession();
-        int copySize = SftpModuleProperties.COPY_BUF_SIZE.getRequired(clientSession);
         boolean debugEnabled = log.isDebugEnabled();
         if (debugEnabled) {
-            log.debug("doRead({})[position={}] fill {} buffers using copySize={}",
-                    this, position, buffers.size(), copySize);
+            log.debug("doRead({})[position={}] fill {} buffers", this, position, buffers.size());
         }
 
         boolean completed = false;
@@ -143,20 +140,9 @@ public class SftpRemotePathChannel extends FileChannel {
                     numBufsUsed++;
 
                     while (buffer.remaining() > 0) {
-                        ByteBuffer wrap = buffer;
-                        if (!buffer.hasArray()) {
-                            wrap = ByteBuffer.allocate(Math.min(copySize, buffer.remaining()));
-                        }
-
-                        int read = sftp.read(handle, curPos, wrap.array(),
-                                wrap.arrayOffset() + wrap.position(), wrap.remaining());
+                        // the client copies the data straight into the buffer - even a direct one
+                        int read = sftp.read(handle, curPos, buffer);
                         if (read > 0) {
-                            // reference equality on purpose
-                            if (wrap == buffer) {
-                                wrap.position(wrap.position() + read);
-                            } else {
-                                buffer.put(wrap.array(), wrap.arrayOffset(), read);
-                            }
                             curPos += read;
                             totalRead += read;
                         } else {
@@ -175,8 +161,8 @@ public class SftpRemotePathChannel extends FileChannel {
         }
 
         if (debugEnabled) {
-            log.debug("doRead({})[position={}] filled {}/{} with copySize={} - totalRead={}, completed={}, eof={}",
-                    this, position, numBufsUsed, buffers.size(), copySize, totalRead, completed, eof);
+            log.debug("doRead({})[position={}] filled {}/{} - totalRead={}, completed={}, eof={}",
+                    this, position, numBufsUsed, buffers.size(), totalRead, completed, eof);
         }
 
         if (totalRead > 0L) {
@@ -0,0 +1,215 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.client.impl;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.apache.sshd.client.AsyncSftpClient;
+import org.apache.sshd.client.FullAccessSftpClient;
+import org.apache.sshd.client.SftpClient.Attributes;
+import org.apache.sshd.client.SftpClient.CloseableHandle;
+import org.apache.sshd.client.SftpClient.Handle;
+import org.apache.sshd.client.SftpClient.OpenMode;
+
+/**
+ * Downloads a single remote file by splitting it into stripes that are fetched at the same time over several SFTP
+ * channels and written directly at their offset into a local {@link FileChannel}. A single channel is capped by its
+ * window and by the one thread that decrypts its packets - several channels (ideally on several sessions) are not.
+ * <P>
+ * The completed ranges are recorded in a {@link SftpRangeMap} which is saved next to the local file after every stripe
+ * (once the data has been forced to disk) and on failure, so that a later download of the same file - even after a
+ * crash - only fetches the missing ranges. The map records the remote path, its size and modification time and the
+ * local file - it is discarded unless all of them are unchanged.
+ * </P>
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class SftpStripedDownload extends AbstractSftpStripedTransfer {
+    public SftpStripedDownload(Collection<? extends FullAccessSftpClient> clients) {
+        super(clients);
+    }
+
+    /**
+     * Downloads the file, resuming from {@link #getDefaultRangeFile(Path)} if it exists
+     *
+     * @param  remotePath  The remote file path
+     * @param  local       The local file
+     * @return             The number of bytes downloaded by this call
+     * @throws IOException If the download failed - the range map has been saved
+     */
+    public long download(String remotePath, Path local) throws IOException {
+        return download(remotePath, local, getDefaultRangeFile(local));
+    }
+
+    /**
+     * @param  remotePath  The remote file path
+     * @param  local       The local file
+     * @param  rangeFile   The file holding the {@link SftpRangeMap} of a previous, interrupted download - ignored if
+     *                     it does not exist, if it was written for another local file or if the size or modification
+     *                     time of the remote file changed. Deleted once the download is complete
+     * @return             The number of bytes downloaded by this call
+     * @throws IOException If the download failed - the range map has been saved
+     */
+    public long download(String remotePath, Path local, Path rangeFile) throws IOException {
+        Attributes attrs = clients.get(0).stat(remotePath);
+        long size = attrs.getSize();
+        FileTime mtime = attrs.getModifyTime();
+        long lastModified = (mtime == null) ? SftpRangeMap.UNKNOWN_TIME : mtime.toMillis();
+        String target = local.toAbsolutePath().toString();
+        SftpRangeMap ranges = null;
+        if (Files.exists(rangeFile) && Files.exists(local)) {
+            ranges = SftpRangeMap.load(rangeFile);
+            if (!ranges.matches(remotePath, target, size, lastModified)) {
+                if (log.isDebugEnabled()) {
+                    log.debug("download({} => {}) range map {} does not match - restarting", remotePath, local, ranges);
+                }
+                ranges = null;
+            }
+        }
+
+        Set<StandardOpenOption> options = EnumSet.of(StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        if (ranges == null) {
+            ranges = new SftpRangeMap(remotePath, target, size, lastModified);
+            options.add(StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        long completed = ranges.getCompleted();
+        Queue<long[]> stripes = new ConcurrentLinkedQueue<>(ranges.getMissing(getStripeSize()));
+        if (log.isDebugEnabled()) {
+            log.debug("download({} => {}) size={}, completed={}, stripes={}, channels={}",
+                    remotePath, local, size, completed, stripes.size(), clients.size());
+        }
+
+        SftpRangeMap map = ranges;
+        try (FileChannel channel = FileChannel.open(local, options)) {
+            try {
+                transferStripes("sftp-striped-download", stripes,
+                        (client, queue) -> downloadStripes(client, remotePath, channel, queue, map, rangeFile));
+            } catch (IOException e) {
+                saveProgress(channel, map, rangeFile);
+                throw e;
+            }
+            channel.force(true);
+        }
+
+        Files.deleteIfExists(rangeFile);
+        return size - completed;
+    }
+
+    protected void downloadStripes(
+            FullAccessSftpClient client, String remotePath, FileChannel channel, Queue<long[]> stripes,
+            SftpRangeMap ranges, Path rangeFile)
+            throws IOException {
+        try (CloseableHandle handle = client.open(remotePath, OpenMode.Read)) {
+            for (long[] stripe = stripes.poll(); stripe != null; stripe = stripes.poll()) {
+                try {
+                    downloadStripe(client, handle, channel, stripe, ranges);
+                } catch (IOException | RuntimeException e) {
+                    // let another channel fetch the rest
+                    stripes.add(stripe);
+                    throw e;
+                }
+                saveProgress(channel, ranges, rangeFile);
+            }
+        }
+    }
+
+    /**
+     * Saves the range map once the data written so far is on disk. The map is locked meanwhile, so that no range
+     * written after the channel was forced can be recorded as completed.
+     *
+     * @param  channel     The local file channel
+     * @param  ranges      The completed ranges
+     * @param  rangeFile   The file holding the range map
+     * @throws IOException If failed to force the data or to save the map
+     */
+    protected void saveProgress(FileChannel channel, SftpRangeMap ranges, Path rangeFile) throws IOException {
+        synchronized (ranges) {
+            channel.force(false);
+            ranges.save(rangeFile);
+        }
+    }
+
+    protected void downloadStripe(
+            FullAccessSftpClient client, Handle handle, FileChannel channel, long[] stripe, SftpRangeMap ranges)
+            throws IOException {
+        AsyncSftpClient async = client.async();
+        Deque<PendingRead> pending = new ArrayDeque<>();
+        long end = stripe[1];
+        long requestOffset = stripe[0];
+        int chunkSize = getChunkSize();
+        int maxPending = getMaxPendingRequests();
+        while (stripe[0] < end) {
+            while ((pending.size() < maxPending) && (requestOffset < end)) {
+                byte[] data = new byte[(int) Math.min(chunkSize, end - requestOffset)];
+                pending.add(new PendingRead(requestOffset, data, async.read(handle, requestOffset, data)));
+                requestOffset += data.length;
+            }
+
+            PendingRead read = pending.removeFirst();
+            int len = await(read.future);
+            // the server may return less than requested - fetch the remainder synchronously
+            while ((len >= 0) && (len < read.data.length)) {
+                int n = client.read(handle, read.offset + len, read.data, len, read.data.length - len);
+                if (n < 0) {
+                    break;
+                }
+                len += n;
+            }
+            if (len < read.data.length) {
+                throw new EOFException("Premature EOF at offset " + (read.offset + Math.max(len, 0))
+                                       + " - remote file shrunk to less than " + ranges.getSize() + " bytes");
+            }
+
+            ByteBuffer bb = ByteBuffer.wrap(read.data, 0, len);
+            for (long pos = read.offset; bb.hasRemaining();) {
+                pos += channel.write(bb, pos);
+            }
+            ranges.add(read.offset, read.offset + len);
+            stripe[0] = read.offset + len;
+        }
+    }
+
+    protected static class PendingRead {
+        protected final long offset;
+        protected final byte[] data;
+        protected final CompletableFuture<Integer> future;
+
+        protected PendingRead(long offset, byte[] data, CompletableFuture<Integer> future) {
+            this.offset = offset;
+            this.data = data;
+            this.future = future;
+        }
+    }
+}
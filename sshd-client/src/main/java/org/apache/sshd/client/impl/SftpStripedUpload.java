@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.client.impl;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.apache.sshd.client.AsyncSftpClient;
+import org.apache.sshd.client.FullAccessSftpClient;
+import org.apache.sshd.client.SftpClient.CloseableHandle;
+import org.apache.sshd.client.SftpClient.Handle;
+import org.apache.sshd.client.SftpClient.OpenMode;
+import org.apache.sshd.client.extensions.openssh.OpenSSHFsyncExtension;
+import org.apache.sshd.common.SftpConstants;
+import org.apache.sshd.common.SftpException;
+
+/**
+ * Uploads a single local file by splitting it into stripes that are written at the same time over several SFTP
+ * channels. Each worker reads its stripe with positional reads from a shared {@link FileChannel} and keeps several
+ * {@code SSH_FXP_WRITE} requests in flight - the server receives the ranges out of order. A range only counts as
+ * uploaded once its write has been acknowledged. At the end the file is flushed to disk on the server with the
+ * {@link OpenSSHFsyncExtension} if the server supports it.
+ * <P>
+ * The acknowledged ranges form a {@link SftpRangeMap} manifest which is saved after every stripe and on failure, so
+ * that an interrupted upload continues with the missing ranges only. The manifest records the local file, its size
+ * and modification time and the remote path - it is discarded unless all of them are unchanged.
+ * </P>
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class SftpStripedUpload extends AbstractSftpStripedTransfer {
+    private boolean fsync = true;
+
+    public SftpStripedUpload(Collection<? extends FullAccessSftpClient> clients) {
+        super(clients);
+    }
+
+    public boolean isFsync() {
+        return fsync;
+    }
+
+    /**
+     * @param fsync If {@code true} (default) flush the uploaded file to disk on the server - ignored if the server
+     *              does not support the &quot;fsync@openssh.com&quot; extension
+     */
+    public void setFsync(boolean fsync) {
+        this.fsync = fsync;
+    }
+
+    /**
+     * Uploads the file, resuming from the manifest at {@link #getDefaultRangeFile(Path)} if it exists
+     *
+     * @param  local       The local file
+     * @param  remotePath  The remote file path
+     * @return             The number of bytes uploaded by this call
+     * @throws IOException If the upload failed - the manifest has been saved
+     */
+    public long upload(Path local, String remotePath) throws IOException {
+        return upload(local, remotePath, getDefaultRangeFile(local));
+    }
+
+    /**
+     * @param  local       The local file
+     * @param  remotePath  The remote file path
+     * @param  manifest    The file holding the {@link SftpRangeMap} of a previous, interrupted upload - ignored if it
+     *                     does not exist, if it was written for another remote path, if the size or modification time
+     *                     of the local file changed or if the remote file is gone. Deleted once the upload is complete
+     * @return             The number of bytes uploaded by this call
+     * @throws IOException If the upload failed - the manifest has been saved
+     */
+    public long upload(Path local, String remotePath, Path manifest) throws IOException {
+        String source = local.toAbsolutePath().toString();
+        long size = Files.size(local);
+        long lastModified = Files.getLastModifiedTime(local).toMillis();
+        FullAccessSftpClient first = clients.get(0);
+        SftpRangeMap ranges = null;
+        if (Files.exists(manifest)) {
+            ranges = SftpRangeMap.load(manifest);
+            if (!ranges.matches(source, remotePath, size, lastModified)) {
+                if (log.isDebugEnabled()) {
+                    log.debug("upload({} => {}) manifest {} does not match - restarting", local, remotePath, ranges);
+                }
+                ranges = null;
+            } else if (!exists(first, remotePath)) {
+                if (log.isDebugEnabled()) {
+                    log.debug("upload({}) remote file {} is gone - restarting", local, remotePath);
+                }
+                ranges = null;
+            }
+        }
+
+        if (ranges == null) {
+            ranges = new SftpRangeMap(source, remotePath, size, lastModified);
+            // create or truncate the target once, the workers then open it for writing only
+            first.open(remotePath, EnumSet.of(OpenMode.Write, OpenMode.Create, OpenMode.Truncate)).close();
+        }
+
+        long completed = ranges.getCompleted();
+        Queue<long[]> stripes = new ConcurrentLinkedQueue<>(ranges.getMissing(getStripeSize()));
+        if (log.isDebugEnabled()) {
+            log.debug("upload({} => {}) size={}, completed={}, stripes={}, channels={}",
+                    local, remotePath, size, completed, stripes.size(), clients.size());
+        }
+
+        SftpRangeMap map = ranges;
+        try (FileChannel channel = FileChannel.open(local, StandardOpenOption.READ)) {
+            transferStripes("sftp-striped-upload", stripes,
+                    (client, queue) -> uploadStripes(client, channel, remotePath, queue, map, manifest));
+        } catch (IOException e) {
+            map.save(manifest);
+            throw e;
+        }
+
+        if (isFsync()) {
+            fsync(first, remotePath);
+        }
+        Files.deleteIfExists(manifest);
+        return size - completed;
+    }
+
+    protected void uploadStripes(
+            FullAccessSftpClient client, FileChannel channel, String remotePath, Queue<long[]> stripes,
+            SftpRangeMap ranges, Path manifest)
+            throws IOException {
+        try (CloseableHandle handle = client.open(remotePath, OpenMode.Write)) {
+            for (long[] stripe = stripes.poll(); stripe != null; stripe = stripes.poll()) {
+                try {
+                    uploadStripe(client, handle, channel, stripe, ranges);
+                } catch (IOException | RuntimeException e) {
+                    // let another channel send the rest
+                    stripes.add(stripe);
+                    throw e;
+                }
+                ranges.save(manifest);
+            }
+        }
+    }
+
+    protected void uploadStripe(
+            FullAccessSftpClient client, Handle handle, FileChannel channel, long[] stripe, SftpRangeMap ranges)
+            throws IOException {
+        AsyncSftpClient async = client.async();
+        Deque<PendingWrite> pending = new ArrayDeque<>();
+        long end = stripe[1];
+        long requestOffset = stripe[0];
+        int chunkSize = getChunkSize();
+        int maxPending = getMaxPendingRequests();
+        while (stripe[0] < end) {
+            while ((pending.size() < maxPending) && (requestOffset < end)) {
+                byte[] data = new byte[(int) Math.min(chunkSize, end - requestOffset)];
+                ByteBuffer bb = ByteBuffer.wrap(data);
+                for (long pos = requestOffset; bb.hasRemaining();) {
+                    int n = channel.read(bb, pos);
+                    if (n < 0) {
+                        throw new EOFException("Premature EOF at offset " + pos
+                                               + " - local file shrunk to less than " + ranges.getSize() + " bytes");
+                    }
+                    pos += n;
+                }
+                pending.add(new PendingWrite(requestOffset, data.length, async.write(handle, requestOffset, data)));
+                requestOffset += data.length;
+            }
+
+            PendingWrite write = pending.removeFirst();
+            await(write.future);
+            ranges.add(write.offset, write.offset + write.length);
+            stripe[0] = write.offset + write.length;
+        }
+    }
+
+    protected boolean exists(FullAccessSftpClient client, String remotePath) throws IOException {
+        try {
+            client.lstat(remotePath);
+            return true;
+        } catch (SftpException e) {
+            if (e.getStatus() == SftpConstants.SSH_FX_NO_SUCH_FILE) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    protected void fsync(FullAccessSftpClient client, String remotePath) throws IOException {
+        OpenSSHFsyncExtension ext = client.getExtension(OpenSSHFsyncExtension.class);
+        if ((ext == null) || (!ext.isSupported())) {
+            if (log.isDebugEnabled()) {
+                log.debug("fsync({}) not supported by the server", remotePath);
+            }
+            return;
+        }
+
+        try (CloseableHandle handle = client.open(remotePath, OpenMode.Write)) {
+            ext.fsync(handle);
+        }
+    }
+
+    protected static class PendingWrite {
+        protected final long offset;
+        protected final int length;
+        protected final CompletableFuture<Void> future;
+
+        protected PendingWrite(long offset, int length, CompletableFuture<Void> future) {
+            this.offset = offset;
+            this.length = length;
+            this.future = future;
+        }
+    }
+}
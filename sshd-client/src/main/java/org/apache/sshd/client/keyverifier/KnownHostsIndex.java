@@ -0,0 +1,298 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.sshd.client.keyverifier;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import org.apache.sshd.client.config.hosts.HostPatternValue;
+import org.apache.sshd.client.config.hosts.HostPatternsHolder;
+import org.apache.sshd.client.config.hosts.KnownHostEntry;
+import org.apache.sshd.client.config.hosts.KnownHostHashValue;
+import org.apache.sshd.client.keyverifier.KnownHostsServerKeyVerifier.HostEntryPair;
+import org.apache.sshd.common.NamedFactory;
+import org.apache.sshd.common.RuntimeSshException;
+import org.apache.sshd.common.SshConstants;
+import org.apache.sshd.common.mac.Mac;
+import org.apache.sshd.common.util.GenericUtils;
+import org.apache.sshd.common.util.net.SshdSocketAddress;
+
+/**
+ * The loaded known hosts entries - in file order - along with the lookup structures that locate the first entry
+ * matching a host without checking each and every entry:
+ * <UL>
+ * <LI>Entries whose patterns are all specific host names/addresses are kept in a map keyed by the (lower case) host
+ * and effective port.</LI>
+ * <LI>Hashed entries are grouped by digester and salt, each group mapping the hash values to the entries, so a host
+ * requires one HMAC per distinct salt rather than one per entry. Since OpenSSH uses a new salt for every line, the
+ * resulting (first) match is also remembered per host, which makes repeated lookups of the same host a map access.</LI>
+ * <LI>All the others (wildcards, negations) are checked one by one - but only up to the best match found so far.</LI>
+ * </UL>
+ * The result is the same as that of checking the entries in order.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class KnownHostsIndex extends AbstractList<HostEntryPair> implements RandomAccess {
+    /**
+     * Max. number of remembered hashed entries lookups - the memory is cleared once it is exceeded
+     */
+    public static final int MAX_HASHED_LOOKUPS = 1024;
+
+    private static final Integer NO_MATCH = -1;
+
+    private final List<HostEntryPair> pairs;
+    private final Map<String, int[]> plainEntries = new HashMap<>();
+    private final List<HashedGroup> hashedGroups = new ArrayList<>();
+    private final int[] patternEntries;
+    private final Map<String, HostEntryPair> configLines = new HashMap<>();
+    private final Map<String, Integer> hashedLookups = new ConcurrentHashMap<>();
+
+    public KnownHostsIndex(Collection<? extends HostEntryPair> pairs) {
+        this.pairs = new ArrayList<>(pairs);
+
+        Map<String, HashedGroup> groups = new HashMap<>();
+        List<Integer> others = new ArrayList<>();
+        for (int index = 0; index < this.pairs.size(); index++) {
+            HostEntryPair pair = this.pairs.get(index);
+            KnownHostEntry entry = pair.getHostEntry();
+            String line = entry.getConfigLine();
+            if (line != null) {
+                configLines.putIfAbsent(line, pair);
+            }
+
+            KnownHostHashValue hash = entry.getHashedEntry();
+            Collection<HostPatternValue> patterns = entry.getPatterns();
+            if ((hash != null) && GenericUtils.isEmpty(patterns)) {
+                NamedFactory<Mac> digester = hash.getDigester();
+                String groupKey = digester.getName() + ":" + Base64.getEncoder().encodeToString(hash.getSaltValue());
+                HashedGroup group = groups.get(groupKey);
+                if (group == null) {
+                    group = new HashedGroup(digester, hash.getSaltValue());
+                    groups.put(groupKey, group);
+                    hashedGroups.add(group);
+                }
+                group.add(hash.getDigestValue(), index);
+            } else if ((hash == null) && isSpecific(patterns)) {
+                for (HostPatternValue pv : patterns) {
+                    String key = toKey(toHostName(pv.getPattern()), pv.getPort());
+                    plainEntries.merge(key, new int[] { index }, KnownHostsIndex::append);
+                }
+            } else {
+                others.add(index);
+            }
+        }
+
+        patternEntries = new int[others.size()];
+        for (int index = 0; index < patternEntries.length; index++) {
+            patternEntries[index] = others.get(index);
+        }
+    }
+
+    @Override
+    public HostEntryPair get(int index) {
+        return pairs.get(index);
+    }
+
+    @Override
+    public int size() {
+        return pairs.size();
+    }
+
+    /**
+     * @param  line The configuration line
+     * @return      The (first) loaded entry created from exactly the same line - {@code null} if none
+     */
+    public HostEntryPair findByConfigLine(String line) {
+        HostEntryPair pair = (line == null) ? null : configLines.get(line);
+        // the entry may have been updated since it was loaded
+        return ((pair != null) && line.equals(pair.getHostEntry().getConfigLine())) ? pair : null;
+    }
+
+    /**
+     * @param  candidates       The host identities to match
+     * @return                  The first entry (in file order) that matches any of the candidates - {@code null} if
+     *                          none
+     * @throws RuntimeException If failed to calculate a host hash value
+     */
+    public HostEntryPair findMatch(Collection<SshdSocketAddress> candidates) {
+        if (GenericUtils.isEmpty(candidates) || pairs.isEmpty()) {
+            return null;
+        }
+
+        int best = Integer.MAX_VALUE;
+        for (SshdSocketAddress host : candidates) {
+            String hostName = host.getHostName();
+            if (GenericUtils.isEmpty(hostName)) {
+                continue;
+            }
+
+            int port = host.getPort();
+            int[] plain = plainEntries.get(toKey(hostName, port));
+            if (plain != null) {
+                best = Math.min(best, plain[0]);
+            }
+
+            int hashed = findHashedMatch(hostName, port);
+            if (hashed >= 0) {
+                best = Math.min(best, hashed);
+            }
+
+            for (int index : patternEntries) {
+                if (index >= best) {
+                    break;
+                }
+
+                KnownHostEntry entry = pairs.get(index).getHostEntry();
+                if (entry.isHostMatch(hostName, port)) {
+                    best = index;
+                    break;
+                }
+            }
+        }
+
+        return (best == Integer.MAX_VALUE) ? null : pairs.get(best);
+    }
+
+    protected int findHashedMatch(String host, int port) {
+        if (hashedGroups.isEmpty()) {
+            return -1;
+        }
+
+        String hostPattern = KnownHostHashValue.createHostPattern(host, port);
+        Integer cached = hashedLookups.get(hostPattern);
+        if (cached != null) {
+            return cached;
+        }
+
+        int best = Integer.MAX_VALUE;
+        Map<String, Mac> macs = new HashMap<>();
+        for (HashedGroup group : hashedGroups) {
+            try {
+                Mac mac = macs.computeIfAbsent(group.digester.getName(), name -> group.digester.create());
+                byte[] digest = KnownHostHashValue.calculateHashValue(host, port, mac, group.salt);
+                int[] indices = group.entries.get(ByteBuffer.wrap(digest));
+                if (indices != null) {
+                    best = Math.min(best, indices[0]);
+                }
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeSshException(
+                        "Failed (" + e.getClass().getSimpleName() + ")" + " to calculate hash value: " + e.getMessage(), e);
+            }
+        }
+
+        Integer result = (best == Integer.MAX_VALUE) ? NO_MATCH : Integer.valueOf(best);
+        if (hashedLookups.size() >= MAX_HASHED_LOOKUPS) {
+            hashedLookups.clear();
+        }
+        hashedLookups.put(hostPattern, result);
+        return result;
+    }
+
+    protected static String toKey(String host, int port) {
+        return host.toLowerCase(Locale.ROOT) + ":" + SshConstants.TO_EFFECTIVE_PORT.applyAsInt(port);
+    }
+
+    /**
+     * @param  patterns The entry patterns
+     * @return          {@code true} if there is at least one pattern and all of them are non-negated specific host
+     *                  names/addresses
+     */
+    protected static boolean isSpecific(Collection<HostPatternValue> patterns) {
+        if (GenericUtils.isEmpty(patterns)) {
+            return false;
+        }
+
+        for (HostPatternValue pv : patterns) {
+            if (pv.isNegated() || (toHostName(pv.getPattern()) == null)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param  pattern The regular expression generated for a host pattern
+     * @return         The host name/address it matches - {@code null} if it contains wildcards (or was not generated
+     *                 from a host pattern)
+     */
+    protected static String toHostName(Pattern pattern) {
+        if ((pattern == null) || ((pattern.flags() & Pattern.CASE_INSENSITIVE) == 0)) {
+            return null;
+        }
+
+        String regex = pattern.pattern();
+        StringBuilder sb = new StringBuilder(regex.length());
+        for (int index = 0; index < regex.length(); index++) {
+            char ch = regex.charAt(index);
+            if (ch == '\\') {
+                index++;
+                if ((index >= regex.length()) || (regex.charAt(index) != '.')) {
+                    return null;
+                }
+                sb.append('.');
+            } else if ((ch == '.') || (ch == HostPatternsHolder.WILDCARD_PATTERN)
+                    || (!HostPatternsHolder.isValidPatternChar(ch))) {
+                return null;
+            } else {
+                sb.append(ch);
+            }
+        }
+        return (sb.length() <= 0) ? null : sb.toString();
+    }
+
+    protected static int[] append(int[] indices, int[] added) {
+        int[] result = new int[indices.length + added.length];
+        System.arraycopy(indices, 0, result, 0, indices.length);
+        System.arraycopy(added, 0, result, indices.length, added.length);
+        return result;
+    }
+
+    /**
+     * The hashed entries that share the same digester and salt
+     *
+     * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+     */
+    protected static class HashedGroup {
+        private final NamedFactory<Mac> digester;
+        private final byte[] salt;
+        private final Map<ByteBuffer, int[]> entries = new HashMap<>();
+
+        protected HashedGroup(NamedFactory<Mac> digester, byte[] salt) {
+            this.digester = digester;
+            this.salt = salt;
+        }
+
+        protected void add(byte[] digest, int index) {
+            entries.merge(ByteBuffer.wrap(digest), new int[] { index }, KnownHostsIndex::append);
+        }
+    }
+}
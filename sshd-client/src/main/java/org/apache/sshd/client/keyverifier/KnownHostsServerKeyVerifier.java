@@ -122,6 +122,8 @@ public class KnownHostsServerKeyVerifier
     private final ServerKeyVerifier delegate;
     private final AtomicReference<Supplier<? extends Collection<HostEntryPair>>> keysSupplier
             = new AtomicReference<>(getKnownHostSupplier(null, getPath()));
+    // the most recently loaded entries - re-used for the unchanged lines when the file is reloaded
+    private volatile KnownHostsIndex loadedIndex;
     private ModifiedServerKeyAcceptor modKeyAcceptor;
 
     public KnownHostsServerKeyVerifier(ServerKeyVerifier delegate, Path file) {
@@ -197,7 +199,9 @@ public class KnownHostsServerKeyVerifier
     /**
      * @param  session                  The {@link ClientSession} that triggered this request
      * @param  file                     The {@link Path} to reload from
-     * @return                          A {@link List} of the loaded {@link HostEntryPair}s - may be {@code null}/empty
+     * @return                          A {@link List} of the loaded {@link HostEntryPair}s - may be {@code null}/empty.
+     *                                  By default a {@link KnownHostsIndex}, where the entries of lines that did not
+     *                                  change since the previous load are re-used rather than resolved again
      * @throws IOException              If failed to parse the file
      * @throws GeneralSecurityException If failed to resolve the encoded public keys
      */
@@ -216,7 +220,16 @@ public class KnownHostsServerKeyVerifier
 
         List<HostEntryPair> keys = new ArrayList<>(entries.size());
         PublicKeyEntryResolver resolver = getFallbackPublicKeyEntryResolver();
+        KnownHostsIndex previous = loadedIndex;
+        int reused = 0;
         for (KnownHostEntry entry : entries) {
+            HostEntryPair loaded = (previous == null) ? null : previous.findByConfigLine(entry.getConfigLine());
+            if (loaded != null) {
+                keys.add(loaded);
+                reused++;
+                continue;
+            }
+
             try {
                 PublicKey key = resolveHostKey(session, entry, resolver);
                 if (key != null) {
@@ -228,7 +241,12 @@ public class KnownHostsServerKeyVerifier
             }
         }
 
-        return keys;
+        KnownHostsIndex index = new KnownHostsIndex(keys);
+        if (debugEnabled) {
+            log.debug("reloadKnownHosts({}) indexed {} entries ({} re-used)", file, index.size(), reused);
+        }
+        loadedIndex = index;
+        return index;
     }
 
     /**
@@ -508,6 +526,19 @@ public class KnownHostsServerKeyVerifier
             return null;
         }
 
+        if (knownHosts instanceof KnownHostsIndex) {
+            try {
+                HostEntryPair match = ((KnownHostsIndex) knownHosts).findMatch(candidates);
+                if (debugEnabled) {
+                    log.debug("findKnownHostEntry({})[{}] indexed match: {}", clientSession, remoteAddress, match);
+                }
+                return match;
+            } catch (RuntimeException | Error e) {
+                warn("findKnownHostEntry({})[{}] failed ({}) to look up indexed entries - checking them one by one: {}",
+                        clientSession, remoteAddress, e.getClass().getSimpleName(), e.getMessage(), e);
+            }
+        }
+
         for (HostEntryPair match : knownHosts) {
             KnownHostEntry entry = match.getHostEntry();
             for (SshdSocketAddress host : candidates) {
@@ -20,9 +20,7 @@ package org.apache.sshd.client.session;
 
 import java.io.IOException;
 import java.time.Duration;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
 
 import org.apache.sshd.common.FactoryManager;
 import org.apache.sshd.common.SshConstants;
@@ -32,6 +30,7 @@ import org.apache.sshd.common.session.Session;
 import org.apache.sshd.common.session.helpers.AbstractConnectionService;
 import org.apache.sshd.common.util.GenericUtils;
 import org.apache.sshd.common.util.buffer.Buffer;
+import org.apache.sshd.common.util.threads.TimingWheel;
 import org.apache.sshd.common.CoreModuleProperties;
 
 /**
@@ -82,9 +81,8 @@ public class ClientConnectionService
 
             ClientSession session = getClientSession();
             FactoryManager manager = session.getFactoryManager();
-            ScheduledExecutorService service = manager.getScheduledExecutorService();
-            clientHeartbeat = service.scheduleAtFixedRate(
-                    this::sendHeartBeat, heartbeatInterval.toMillis(), heartbeatInterval.toMillis(), TimeUnit.MILLISECONDS);
+            TimingWheel wheel = manager.getTimingWheel();
+            clientHeartbeat = wheel.scheduleAtFixedRate(this::sendHeartBeat, heartbeatInterval, heartbeatInterval);
             if (log.isDebugEnabled()) {
                 log.debug("startHeartbeat({}) - started at interval={} with request={}",
                         session, heartbeatInterval, heartbeatRequest);
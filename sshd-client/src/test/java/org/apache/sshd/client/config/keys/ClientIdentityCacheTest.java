@@ -0,0 +1,287 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.client.config.keys;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.KeyPair;
+import java.security.PrivateKey;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.sshd.common.NamedResource;
+import org.apache.sshd.common.config.keys.FilePasswordProvider;
+import org.apache.sshd.common.session.SessionContext;
+import org.apache.sshd.common.util.io.resource.PathResource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class ClientIdentityCacheTest {
+    private static final Duration MAX_IDLE = Duration.ofMinutes(10L);
+
+    @TempDir
+    Path tempDir;
+
+    private final TestCache cache = new TestCache(3, MAX_IDLE);
+    private final TestLoader loader = new TestLoader();
+
+    @Test
+    public void testReloadOnSizeChange() throws Exception {
+        Path file = write("id_test", "key");
+        Iterable<KeyPair> ids = load(file, null);
+        assertSame(ids, load(file, null), "Not cached");
+        assertEquals(1, loader.loads.get());
+
+        Files.write(file, "more".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        assertNotSame(ids, load(file, null));
+        assertEquals(2, loader.loads.get());
+    }
+
+    @Test
+    public void testReloadOnModifiedTimeChange() throws Exception {
+        Path file = write("id_test", "key");
+        load(file, null);
+
+        Files.write(file, "KEY".getBytes(StandardCharsets.UTF_8));
+        FileTime modified = Files.getLastModifiedTime(file);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(modified.toMillis() + 10000L));
+        load(file, null);
+        assertEquals(2, loader.loads.get());
+        load(file, null);
+        assertEquals(2, loader.loads.get());
+    }
+
+    @Test
+    public void testReloadOnFileKeyChange() throws Exception {
+        Path file = write("id_test", "key");
+        Object fileKey = Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+        assumeTrue(fileKey != null, "No file keys");
+        load(file, null);
+
+        // same size and time, but another file renamed over the original one
+        Path replacement = write("id_test.new", "KEY");
+        Files.setLastModifiedTime(replacement, Files.getLastModifiedTime(file));
+        Files.move(replacement, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        assumeTrue(!fileKey.equals(Files.readAttributes(file, BasicFileAttributes.class).fileKey()),
+                "File key re-used");
+
+        load(file, null);
+        assertEquals(2, loader.loads.get());
+    }
+
+    @Test
+    public void testKeyedByProviderAndLoader() throws Exception {
+        Path file = write("id_test", "key");
+        FilePasswordProvider provider = FilePasswordProvider.of("secret");
+        Iterable<KeyPair> ids = load(file, provider);
+
+        assertNotSame(ids, load(file, FilePasswordProvider.of("secret")), "Other provider instance");
+        assertNotSame(ids, load(file, null), "No provider");
+        assertSame(ids, load(file, provider));
+        assertEquals(3, loader.loads.get());
+
+        TestLoader other = new TestLoader();
+        assertNotSame(ids, cache.loadClientIdentities(file, null, other, new PathResource(file), provider));
+        assertEquals(1, other.loads.get());
+        assertEquals(3, loader.loads.get());
+    }
+
+    @Test
+    public void testInvalidateAllProviders() throws Exception {
+        cache.setDestroyOnEviction(true);
+        Path file = write("id_test", "key");
+        Path kept = write("id_kept", "key");
+        load(file, null);
+        load(file, FilePasswordProvider.EMPTY);
+        load(kept, null);
+
+        cache.invalidate(file);
+        assertEquals(1, cache.size());
+        assertEquals(2, loader.destroyed());
+        load(file, null);
+        load(kept, null);
+        assertEquals(4, loader.loads.get());
+    }
+
+    @Test
+    public void testSizeBound() throws Exception {
+        cache.setDestroyOnEviction(true);
+        Path a = write("id_a", "a");
+        Path b = write("id_b", "b");
+        Path c = write("id_c", "c");
+        Path d = write("id_d", "d");
+        load(a, null);
+        load(b, null);
+        load(c, null);
+        // makes "b" the least recently used entry
+        load(a, null);
+
+        load(d, null);
+        assertEquals(3, cache.size());
+        assertEquals(1, loader.destroyed());
+        assertTrue(isDestroyed(loader.keys.get(1)), "Least recently used entry kept");
+
+        load(a, null);
+        load(c, null);
+        assertEquals(4, loader.loads.get());
+        load(b, null);
+        assertEquals(5, loader.loads.get());
+    }
+
+    @Test
+    public void testIdleExpiry() throws Exception {
+        cache.setDestroyOnEviction(true);
+        Path a = write("id_a", "a");
+        Path b = write("id_b", "b");
+        load(a, null);
+        cache.elapse(MAX_IDLE.minusNanos(1L));
+        load(b, null);
+        assertEquals(2, cache.size());
+        assertEquals(0, loader.destroyed());
+
+        // "a" has not been used for the max. idle time by now
+        cache.elapse(Duration.ofNanos(1L));
+        load(b, null);
+        assertEquals(1, cache.size());
+        assertEquals(1, loader.destroyed());
+        assertTrue(isDestroyed(loader.keys.get(0)));
+        assertEquals(2, loader.loads.get());
+
+        load(a, null);
+        assertEquals(3, loader.loads.get());
+    }
+
+    @Test
+    public void testNotDestroyedByDefault() throws Exception {
+        Path file = write("id_test", "key");
+        load(file, null);
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertFalse(isDestroyed(loader.keys.get(0)));
+    }
+
+    private Iterable<KeyPair> load(Path file, FilePasswordProvider provider) throws Exception {
+        return cache.loadClientIdentities(file, null, loader, new PathResource(file), provider);
+    }
+
+    private Path write(String name, String data) throws Exception {
+        return Files.write(tempDir.resolve(name), data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static boolean isDestroyed(KeyPair kp) {
+        return kp.getPrivate().isDestroyed();
+    }
+
+    private static class TestCache extends ClientIdentityCache {
+        private long now;
+
+        TestCache(int maxSize, Duration maxIdle) {
+            super(maxSize, maxIdle);
+        }
+
+        void elapse(Duration duration) {
+            now += duration.toNanos();
+        }
+
+        @Override
+        protected long nanoTime() {
+            return now;
+        }
+    }
+
+    private static class TestLoader implements ClientIdentityLoader {
+        private final AtomicInteger loads = new AtomicInteger();
+        private final List<KeyPair> keys = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public boolean isValidLocation(NamedResource location) {
+            return true;
+        }
+
+        @Override
+        public Iterable<KeyPair> loadClientIdentities(
+                SessionContext session, NamedResource location, FilePasswordProvider provider) {
+            loads.incrementAndGet();
+            KeyPair kp = new KeyPair(null, new TestPrivateKey());
+            keys.add(kp);
+            return Collections.singletonList(kp);
+        }
+
+        int destroyed() {
+            int count = 0;
+            synchronized (keys) {
+                for (KeyPair kp : keys) {
+                    if (isDestroyed(kp)) {
+                        count++;
+                    }
+                }
+            }
+            return count;
+        }
+    }
+
+    private static class TestPrivateKey implements PrivateKey {
+        private static final long serialVersionUID = 1L;
+
+        private volatile boolean destroyed;
+
+        @Override
+        public String getAlgorithm() {
+            return "test";
+        }
+
+        @Override
+        public String getFormat() {
+            return null;
+        }
+
+        @Override
+        public byte[] getEncoded() {
+            return null;
+        }
+
+        @Override
+        public void destroy() {
+            destroyed = true;
+        }
+
+        @Override
+        public boolean isDestroyed() {
+            return destroyed;
+        }
+    }
+}
@@ -0,0 +1,480 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.client.forward;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.sshd.common.Closeable;
+import org.apache.sshd.common.CoreModuleProperties;
+import org.apache.sshd.common.PropertyResolver;
+import org.apache.sshd.common.SshConstants;
+import org.apache.sshd.common.channel.AbstractChannel;
+import org.apache.sshd.common.channel.ChannelAsyncOutputStream;
+import org.apache.sshd.common.channel.IoWriteFutureImpl;
+import org.apache.sshd.common.channel.throttle.ChannelStreamWriter;
+import org.apache.sshd.common.future.OpenFuture;
+import org.apache.sshd.common.helpers.AbstractFactoryManager;
+import org.apache.sshd.common.io.IoSession;
+import org.apache.sshd.common.io.IoWriteFuture;
+import org.apache.sshd.common.session.Session;
+import org.apache.sshd.common.util.buffer.Buffer;
+import org.apache.sshd.common.util.buffer.ByteArrayBuffer;
+import org.apache.sshd.common.util.buffer.DefaultBufferPool;
+import org.apache.sshd.common.util.net.SshdSocketAddress;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs a bridge between a socket session and a channel whose writes are recorded, and completed (or failed)
+ * explicitly - checking when the socket reads are suspended, and that every pooled buffer is returned.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class TcpipBridgeTest {
+    private static final long HIGH_THRESHOLD = 1000L;
+    private static final long LOW_THRESHOLD = 400L;
+    private static final long PACKET_SIZE = 256L;
+    private static final long LOCAL_WINDOW_SIZE = 1000L;
+    private static final int CHUNK_SIZE = 300;
+
+    private final TestBufferPool pool = new TestBufferPool();
+    private final TestChannel channel = new TestChannel(pool);
+    private final TestWriter writer = new TestWriter();
+    private final TestIoSession socket = new TestIoSession();
+    private final ForwardingTunnel tunnel = new ForwardingTunnel(ForwardingTunnel.Type.Local,
+            new SshdSocketAddress("localhost", 2222), new SshdSocketAddress("localhost", 2222),
+            new SshdSocketAddress("localhost", 22));
+    private ChannelAsyncOutputStream output;
+    private TcpipBridge bridge;
+    private int chunks;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        CoreModuleProperties.TCPIP_FORWARDER_QUEUED_BYTES_THRESHOLD_HIGH.set(channel, HIGH_THRESHOLD);
+        CoreModuleProperties.TCPIP_FORWARDER_QUEUED_BYTES_THRESHOLD_LOW.set(channel, LOW_THRESHOLD);
+        channel.setChannelStreamWriterResolver((c, cmd) -> writer);
+        channel.getRemoteWindow().init(0L, PACKET_SIZE, PropertyResolver.EMPTY);
+        channel.getLocalWindow().init(LOCAL_WINDOW_SIZE, PACKET_SIZE, PropertyResolver.EMPTY);
+
+        bridge = new TcpipBridge(channel, socket.proxy, tunnel);
+        output = new ChannelAsyncOutputStream(channel, SshConstants.SSH_MSG_CHANNEL_DATA, true);
+        bridge.setOutput(output);
+        bridge.opened();
+        assertEquals(1, tunnel.getActiveConnections());
+    }
+
+    @Test
+    public void testSuspendAndResumeAtThresholds() throws Exception {
+        socketData(3);
+        assertEquals(0, socket.suspended, "Suspended below the high threshold");
+        socketData(1);
+        assertEquals(1, socket.suspended, "Not suspended at the high threshold");
+        // queued while already suspended
+        socketData(1);
+        assertEquals(1, socket.suspended, "Suspended twice");
+        assertEquals(5, pool.leased.size());
+
+        expandWindow(600);
+        assertEquals(Arrays.asList(256, 256, 88), writer.lengths());
+        writer.complete(0);
+        writer.complete(1);
+        // the first chunk has been sent, but the queue is still above the low threshold
+        assertEquals(0, socket.resumed);
+        assertEquals(4, pool.leased.size());
+
+        expandWindow(300);
+        writer.complete(2);
+        assertEquals(600L, output.getQueuedBytes());
+        assertEquals(0, socket.resumed, "Resumed above the low threshold");
+        // checked once the next chunk has been sent
+        expandWindow(200);
+        assertEquals(LOW_THRESHOLD, output.getQueuedBytes());
+        writer.complete(3);
+        assertEquals(0, socket.resumed);
+        writer.complete(4);
+        assertEquals(1, socket.resumed, "Not resumed at the low threshold");
+        assertEquals(2, pool.leased.size());
+
+        expandWindow(1000);
+        writer.completeAll();
+        assertEquals(1, socket.resumed, "Resumed twice");
+        assertTrue(pool.leased.isEmpty(), "Buffers not released: " + pool.leased.size());
+        assertEquals(5L * CHUNK_SIZE, tunnel.getStatistics().getBytesSent());
+        assertArrayEquals(expected(5), writer.data());
+        assertFalse(socket.closed, "Socket closed");
+    }
+
+    @Test
+    public void testSuspendedAgainAfterResume() throws Exception {
+        socketData(4);
+        expandWindow(4096);
+        writer.completeAll();
+        assertEquals(1, socket.suspended);
+        assertEquals(1, socket.resumed);
+
+        channel.getRemoteWindow().consume(channel.getRemoteWindow().getSize());
+        socketData(4);
+        assertEquals(2, socket.suspended);
+        expandWindow(4096);
+        writer.completeAll();
+        assertEquals(2, socket.resumed);
+        assertTrue(pool.leased.isEmpty(), "Buffers not released: " + pool.leased.size());
+    }
+
+    @Test
+    public void testSocketDataFailureReleasesBuffers() throws Exception {
+        socketData(4);
+        assertEquals(1, socket.suspended);
+        expandWindow(400);
+        assertEquals(Arrays.asList(256, 144), writer.lengths());
+
+        IOException reason = new IOException("packet lost");
+        writer.fail(0, reason);
+        writer.fail(1, reason);
+        // the ones sent, and the ones failed in the queue
+        assertTrue(pool.leased.isEmpty(), "Buffers not released: " + pool.leased.size());
+        assertTrue(socket.closed, "Socket not closed");
+        assertEquals(0L, tunnel.getStatistics().getBytesSent());
+
+        // released on the spot if it cannot even be queued
+        assertThrows(IOException.class, () -> socketData(1));
+        assertTrue(pool.leased.isEmpty(), "Buffer not released after failed write");
+        writer.completeAll();
+        assertTrue(pool.leased.isEmpty());
+    }
+
+    @Test
+    public void testChannelDataWrittenToSocket() throws Exception {
+        byte[] data = data(2);
+        bridge.channelDataReceived(data, 0, data.length);
+        assertEquals(1, pool.leased.size());
+        assertEquals(1, socket.futures.size());
+        // not consumed before the socket took the data
+        assertEquals(LOCAL_WINDOW_SIZE, channel.getLocalWindow().getSize());
+
+        socket.futures.get(0).setValue(Boolean.TRUE);
+        assertTrue(pool.leased.isEmpty(), "Buffer not released");
+        assertEquals((long) data.length, tunnel.getStatistics().getBytesReceived());
+        assertEquals(Collections.singletonList((long) data.length), channel.adjustments, "Window not adjusted");
+        assertEquals(LOCAL_WINDOW_SIZE, channel.getLocalWindow().getSize());
+        assertFalse(channel.isClosing(), "Channel closed");
+    }
+
+    @Test
+    public void testChannelDataFailureReleasesBuffer() throws Exception {
+        byte[] data = data(1);
+        bridge.channelDataReceived(data, 0, data.length);
+        socket.futures.get(0).setValue(new IOException("socket closed"));
+        assertTrue(pool.leased.isEmpty(), "Buffer not released");
+        assertTrue(channel.isClosing(), "Channel not closed");
+        assertEquals(0L, tunnel.getStatistics().getBytesReceived());
+        assertEquals(Collections.emptyList(), channel.adjustments);
+
+        // the socket is closed along with the channel
+        assertTrue(socket.closed, "Socket not closed");
+        assertEquals(0, tunnel.getActiveConnections());
+    }
+
+    @Test
+    public void testChannelDataRejectedReleasesBuffer() throws Exception {
+        IOException reason = new IOException("socket closing");
+        socket.failure = reason;
+        byte[] data = data(1);
+        IOException e = assertThrows(IOException.class, () -> bridge.channelDataReceived(data, 0, data.length));
+        assertSame(reason, e);
+        assertTrue(pool.leased.isEmpty(), "Buffer not released");
+        assertEquals(0L, tunnel.getStatistics().getBytesReceived());
+    }
+
+    private void socketData(int count) throws IOException {
+        for (int index = 0; index < count; index++) {
+            byte[] chunk = new byte[CHUNK_SIZE];
+            Arrays.fill(chunk, (byte) chunks++);
+            bridge.socketDataReceived(new ByteArrayBuffer(chunk));
+        }
+    }
+
+    private void expandWindow(int size) throws IOException {
+        channel.getRemoteWindow().expand(size);
+        output.onWindowExpanded();
+    }
+
+    private static byte[] data(int count) {
+        byte[] data = new byte[count * CHUNK_SIZE];
+        for (int index = 0; index < data.length; index++) {
+            data[index] = (byte) index;
+        }
+        return data;
+    }
+
+    private static byte[] expected(int count) {
+        byte[] data = new byte[count * CHUNK_SIZE];
+        for (int index = 0; index < data.length; index++) {
+            data[index] = (byte) (index / CHUNK_SIZE);
+        }
+        return data;
+    }
+
+    /**
+     * Keeps track of the buffers that have been leased and not released yet
+     */
+    private static class TestBufferPool extends DefaultBufferPool {
+        private final Set<Buffer> leased
+                = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+
+        TestBufferPool() {
+            super(32 * 1024, 4, 4, false);
+        }
+
+        @Override
+        public Buffer acquire(int capacity) {
+            Buffer buffer = super.acquire(capacity);
+            assertTrue(leased.add(buffer), "Leased twice");
+            return buffer;
+        }
+
+        @Override
+        public boolean release(Buffer buffer) {
+            assertTrue(leased.remove(buffer), "Released twice");
+            return super.release(buffer);
+        }
+    }
+
+    /**
+     * Records the sent packets along with their (pending) write futures
+     */
+    private static class TestWriter implements ChannelStreamWriter {
+        private final List<Buffer> packets = new ArrayList<>();
+        private final List<IoWriteFutureImpl> futures = new ArrayList<>();
+
+        TestWriter() {
+            super();
+        }
+
+        @Override
+        public IoWriteFuture writeData(Buffer buffer) {
+            buffer.getByte();
+            buffer.getInt();
+            buffer.getInt();
+            packets.add(buffer);
+            IoWriteFutureImpl future = new IoWriteFutureImpl(this, buffer);
+            futures.add(future);
+            return future;
+        }
+
+        List<Integer> lengths() {
+            List<Integer> lengths = new ArrayList<>(packets.size());
+            for (Buffer buffer : packets) {
+                lengths.add(buffer.available());
+            }
+            return lengths;
+        }
+
+        byte[] data() {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            for (Buffer buffer : packets) {
+                out.write(buffer.array(), buffer.rpos(), buffer.available());
+            }
+            return out.toByteArray();
+        }
+
+        void complete(int index) {
+            futures.get(index).setValue(Boolean.TRUE);
+        }
+
+        void completeAll() {
+            futures.forEach(f -> f.setValue(Boolean.TRUE));
+        }
+
+        void fail(int index, Throwable reason) {
+            futures.get(index).setValue(reason);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+            // ignored
+        }
+    }
+
+    /**
+     * Counts the suspended and resumed reads of the socket, and records its (pending) write futures
+     */
+    private static class TestIoSession {
+        private final List<IoWriteFutureImpl> futures = new ArrayList<>();
+        private int suspended;
+        private int resumed;
+        private boolean closed;
+        private IOException failure;
+        private final IoSession proxy = (IoSession) Proxy.newProxyInstance(
+                IoSession.class.getClassLoader(), new Class<?>[] { IoSession.class }, (p, method, args) -> {
+                    switch (method.getName()) {
+                        case "suspendRead":
+                            suspended++;
+                            return null;
+                        case "resumeRead":
+                            resumed++;
+                            return null;
+                        case "close":
+                            closed = true;
+                            return null;
+                        case "writeBuffer":
+                            if (failure != null) {
+                                throw failure;
+                            }
+                            IoWriteFutureImpl future = new IoWriteFutureImpl(this, (Buffer) args[0]);
+                            futures.add(future);
+                            return future;
+                        case "hashCode":
+                            return System.identityHashCode(p);
+                        case "equals":
+                            return p == args[0];
+                        case "toString":
+                            return IoSession.class.getSimpleName();
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+
+        TestIoSession() {
+            super();
+        }
+    }
+
+    /**
+     * An open channel whose session only creates buffers, and whose window adjustments are recorded
+     */
+    private static class TestChannel extends AbstractChannel {
+        private final List<Long> adjustments = new ArrayList<>();
+        private final Session session;
+
+        TestChannel(DefaultBufferPool pool) {
+            super(true);
+            setRecipient(7);
+
+            TestFactoryManager manager = new TestFactoryManager();
+            manager.setBufferPool(pool);
+            session = (Session) Proxy.newProxyInstance(
+                    Session.class.getClassLoader(), new Class<?>[] { Session.class }, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "createBuffer":
+                                Buffer buffer = new ByteArrayBuffer();
+                                buffer.putByte((Byte) args[0]);
+                                return buffer;
+                            case "getFactoryManager":
+                                return manager;
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+                            case "equals":
+                                return proxy == args[0];
+                            case "toString":
+                                return Session.class.getSimpleName();
+                            default:
+                                throw new UnsupportedOperationException(method.getName());
+                        }
+                    });
+        }
+
+        @Override
+        public Session getSession() {
+            return session;
+        }
+
+        @Override
+        public PropertyResolver getParentPropertyResolver() {
+            return null;
+        }
+
+        @Override
+        protected Closeable getInnerCloseable() {
+            // nothing to send to the peer
+            return builder().build();
+        }
+
+        @Override
+        protected void sendWindowAdjust(long len) {
+            adjustments.add(len);
+        }
+
+        @Override
+        protected void doWriteData(byte[] data, int off, long len) {
+            throw new UnsupportedOperationException("doWriteData");
+        }
+
+        @Override
+        protected void doWriteExtendedData(byte[] data, int off, long len) {
+            throw new UnsupportedOperationException("doWriteExtendedData");
+        }
+
+        @Override
+        public void handleEof() {
+            // ignored
+        }
+
+        @Override
+        public void handleOpenSuccess(int recipient, long rwSize, long packetSize, Buffer buffer) {
+            // ignored
+        }
+
+        @Override
+        public void handleOpenFailure(Buffer buffer) {
+            // ignored
+        }
+
+        @Override
+        public OpenFuture open(int recipient, long rwSize, long packetSize, Buffer buffer) {
+            throw new UnsupportedOperationException("open");
+        }
+
+        @Override
+        public String toString() {
+            return getClass().getSimpleName();
+        }
+    }
+
+    private static class TestFactoryManager extends AbstractFactoryManager {
+        TestFactoryManager() {
+            super();
+        }
+
+        @Override
+        protected Closeable getInnerCloseable() {
+            return builder().build();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.client.impl;
+
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class SftpRangeMapTest {
+    private static final String SOURCE = "/home/user/data.bin";
+    private static final String TARGET = "/upload/data.bin";
+    private static final long MODIFIED = 1600000000000L;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testMergeRanges() {
+        SftpRangeMap map = new SftpRangeMap(100L);
+        map.add(10L, 20L);
+        map.add(30L, 40L);
+        assertMissing(map, 0L, 10L, 20L, 30L, 40L, 100L);
+
+        // adjacent on both sides
+        map.add(20L, 30L);
+        assertMissing(map, 0L, 10L, 40L, 100L);
+        assertEquals(30L, map.getCompleted());
+
+        // overlapping several ranges
+        map.add(60L, 70L);
+        map.add(80L, 90L);
+        map.add(35L, 85L);
+        assertMissing(map, 0L, 10L, 90L, 100L);
+        assertEquals(80L, map.getCompleted());
+
+        // contained and empty ranges change nothing
+        map.add(50L, 60L);
+        map.add(95L, 95L);
+        assertMissing(map, 0L, 10L, 90L, 100L);
+        assertFalse(map.isComplete());
+
+        map.add(0L, 10L);
+        map.add(90L, 100L);
+        assertTrue(map.isComplete());
+        assertEquals(100L, map.getCompleted());
+        assertTrue(map.getMissing(10L).isEmpty());
+    }
+
+    @Test
+    public void testMissingRangesSplit() {
+        SftpRangeMap map = new SftpRangeMap(25L);
+        map.add(5L, 10L);
+        List<long[]> missing = map.getMissing(7L);
+        assertEquals(4, missing.size());
+        assertEquals(Arrays.toString(new long[] { 0L, 5L }), Arrays.toString(missing.get(0)));
+        assertEquals(Arrays.toString(new long[] { 10L, 17L }), Arrays.toString(missing.get(1)));
+        assertEquals(Arrays.toString(new long[] { 17L, 24L }), Arrays.toString(missing.get(2)));
+        assertEquals(Arrays.toString(new long[] { 24L, 25L }), Arrays.toString(missing.get(3)));
+    }
+
+    @Test
+    public void testInvalidRange() {
+        SftpRangeMap map = new SftpRangeMap(10L);
+        assertThrows(IllegalArgumentException.class, () -> map.add(5L, 4L));
+        assertThrows(IllegalArgumentException.class, () -> map.add(-1L, 4L));
+    }
+
+    @Test
+    public void testSaveAndLoad() throws Exception {
+        SftpRangeMap map = new SftpRangeMap(SOURCE, TARGET, 1000L, MODIFIED);
+        map.add(0L, 100L);
+        map.add(500L, 700L);
+
+        Path file = tempDir.resolve("data.bin" + SftpRangeMap.DEFAULT_SUFFIX);
+        map.save(file);
+        SftpRangeMap loaded = SftpRangeMap.load(file);
+        assertEquals(SOURCE, loaded.getSource());
+        assertEquals(TARGET, loaded.getTarget());
+        assertEquals(1000L, loaded.getSize());
+        assertEquals(MODIFIED, loaded.getLastModified());
+        assertEquals(300L, loaded.getCompleted());
+        assertMissing(loaded, 100L, 500L, 700L, 1000L);
+        assertTrue(loaded.matches(SOURCE, TARGET, 1000L, MODIFIED));
+
+        // saving again replaces the previous contents
+        loaded.add(100L, 1000L);
+        loaded.save(file);
+        assertTrue(SftpRangeMap.load(file).isComplete());
+        assertFalse(Files.exists(file.resolveSibling(file.getFileName() + ".tmp")));
+    }
+
+    @Test
+    public void testSaveAndLoadSpecialCharacters() throws Exception {
+        String source = "C:\\temp\\line\nbreak=50% \u00e9t\u00e9";
+        String target = "/upload/a b+c&d=e";
+        SftpRangeMap map = new SftpRangeMap(source, target, 10L, SftpRangeMap.UNKNOWN_TIME);
+        map.add(0L, 5L);
+
+        Path file = tempDir.resolve("special" + SftpRangeMap.DEFAULT_SUFFIX);
+        map.save(file);
+        SftpRangeMap loaded = SftpRangeMap.load(file);
+        assertEquals(source, loaded.getSource());
+        assertEquals(target, loaded.getTarget());
+        assertEquals(5L, loaded.getCompleted());
+        assertTrue(loaded.matches(source, target, 10L, SftpRangeMap.UNKNOWN_TIME));
+    }
+
+    @Test
+    public void testMatches() {
+        SftpRangeMap map = new SftpRangeMap(SOURCE, TARGET, 1000L, MODIFIED);
+        assertTrue(map.matches(SOURCE, TARGET, 1000L, MODIFIED));
+        assertFalse(map.matches("/home/user/other.bin", TARGET, 1000L, MODIFIED), "other source");
+        assertFalse(map.matches(SOURCE, "/upload/other.bin", 1000L, MODIFIED), "other target");
+        assertFalse(map.matches(SOURCE, TARGET, 1001L, MODIFIED), "other size");
+        assertFalse(map.matches(SOURCE, TARGET, 1000L, MODIFIED + 1L), "rewritten at the same size");
+        assertFalse(new SftpRangeMap(1000L).matches(SOURCE, TARGET, 1000L, SftpRangeMap.UNKNOWN_TIME), "no identity");
+    }
+
+    @Test
+    public void testLoadWithoutIdentity() throws Exception {
+        Path file = tempDir.resolve("legacy" + SftpRangeMap.DEFAULT_SUFFIX);
+        Files.write(file, Arrays.asList("size=100", "0-50"), StandardCharsets.UTF_8);
+
+        SftpRangeMap loaded = SftpRangeMap.load(file);
+        assertEquals(100L, loaded.getSize());
+        assertEquals(50L, loaded.getCompleted());
+        assertFalse(loaded.matches(SOURCE, TARGET, 100L, SftpRangeMap.UNKNOWN_TIME));
+    }
+
+    @Test
+    public void testLoadCorrupted() throws Exception {
+        Path file = tempDir.resolve("corrupted" + SftpRangeMap.DEFAULT_SUFFIX);
+        Files.write(file, Arrays.asList("0-50"), StandardCharsets.UTF_8);
+        assertThrows(StreamCorruptedException.class, () -> SftpRangeMap.load(file));
+
+        Files.write(file, Arrays.asList("size=100", "modified=0", "50"), StandardCharsets.UTF_8);
+        assertThrows(StreamCorruptedException.class, () -> SftpRangeMap.load(file));
+
+        Files.write(file, Arrays.asList("size=100", "modified=0", "50-10"), StandardCharsets.UTF_8);
+        assertThrows(StreamCorruptedException.class, () -> SftpRangeMap.load(file));
+    }
+
+    /**
+     * @param map        The map
+     * @param boundaries The expected start and end of each missing range
+     */
+    private static void assertMissing(SftpRangeMap map, long... boundaries) {
+        List<long[]> missing = map.getMissing(Long.MAX_VALUE);
+        long[] actual = new long[missing.size() * 2];
+        for (int index = 0; index < missing.size(); index++) {
+            actual[2 * index] = missing.get(index)[0];
+            actual[2 * index + 1] = missing.get(index)[1];
+        }
+        assertEquals(Arrays.toString(boundaries), Arrays.toString(actual));
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.client.keyverifier;
+
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.sshd.client.config.hosts.KnownHostEntry;
+import org.apache.sshd.client.config.hosts.KnownHostHashValue;
+import org.apache.sshd.client.keyverifier.KnownHostsServerKeyVerifier.HostEntryPair;
+import org.apache.sshd.common.config.keys.PublicKeyEntry;
+import org.apache.sshd.common.util.net.SshdSocketAddress;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class KnownHostsIndexTest {
+    private static final List<String> HOSTS = Collections.unmodifiableList(Arrays.asList(
+            "host1.example.com", "HOST1.example.com", "10.0.0.1", "host2.example.com", "host3.example.com",
+            "host4.example.com", "bad.example.com", "good.example.com", "revoked.example.com", "a.ca.example.net",
+            "hostx.other.org", "hostxy.other.org", "web6.other.org", "web7.other.org", "other.com", "unknown.org",
+            "127.0.0.1"));
+    private static final int[] PORTS = { 0, 22, 2222, 2200 };
+
+    private final List<String> lines = new ArrayList<>();
+    private PublicKey key;
+    private String keyData;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        key = generator.generateKeyPair().getPublic();
+        keyData = PublicKeyEntry.toString(key);
+
+        byte[] sharedSalt = salt(1);
+        add("@cert-authority *.ca.example.net");
+        add("@revoked revoked.example.com");
+        add("[!bad.example.com]:2200,[*.example.com]:2200");
+        add("host1.example.com,10.0.0.1");
+        add("[host1.example.com]:2222");
+        add(hashed("host2.example.com", 22, salt(2)));
+        add(hashed("host2.example.com", 2222, salt(3)));
+        add("host2.example.com,revoked.example.com");
+        add("HOST3.Example.COM");
+        add("host?.other.org");
+        add(hashed("hostx.other.org", 22, salt(4)));
+        add(hashed("web6.other.org", 22, sharedSalt));
+        add(hashed("web7.other.org", 22, sharedSalt));
+        add(hashed("web6.other.org", 22, salt(5)));
+        add(hashed("web6.other.org", 2222, salt(6)));
+        add("[*.other.org]:2200");
+        add(hashed("bad.example.com", 2200, salt(7)));
+        add("!*.example.com,*.com");
+        add("host4.example.com");
+    }
+
+    @Test
+    public void testSameAsLinearScan() {
+        List<HostEntryPair> pairs = parse();
+        KnownHostsIndex index = new KnownHostsIndex(pairs);
+        assertEquals(pairs, index);
+
+        Set<Integer> matched = new TreeSet<>();
+        for (int pass = 0; pass < 2; pass++) {
+            // the second pass answers the hashed lookups from memory
+            for (String host : HOSTS) {
+                for (int port : PORTS) {
+                    List<SshdSocketAddress> candidates = Collections.singletonList(new SshdSocketAddress(host, port));
+                    HostEntryPair expected = linearScan(pairs, candidates);
+                    assertSame(expected, index.findMatch(candidates), host + ":" + port);
+                    if (expected != null) {
+                        matched.add(pairs.indexOf(expected));
+                    }
+                }
+            }
+        }
+        // all but the entries shadowed by earlier ones for every host
+        List<Integer> shadowed = Arrays.asList(7, 10, 13);
+        for (int entry = 0; entry < pairs.size(); entry++) {
+            assertEquals(!shadowed.contains(entry), matched.contains(entry), lines.get(entry));
+        }
+    }
+
+    @Test
+    public void testSameAsLinearScanForSeveralCandidates() {
+        List<HostEntryPair> pairs = parse();
+        KnownHostsIndex index = new KnownHostsIndex(pairs);
+        for (String host : HOSTS) {
+            for (String other : HOSTS) {
+                for (int port : PORTS) {
+                    // a host name along with its address - the first entry matching either of them wins
+                    List<SshdSocketAddress> candidates = Arrays.asList(
+                            new SshdSocketAddress(host, port), new SshdSocketAddress(other, port));
+                    assertSame(linearScan(pairs, candidates), index.findMatch(candidates), candidates.toString());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testFileOrder() {
+        List<HostEntryPair> pairs = parse();
+        KnownHostsIndex index = new KnownHostsIndex(pairs);
+
+        assertMatch(index, "a.ca.example.net", 22, 0);
+        assertEquals("cert-authority", find(index, "a.ca.example.net", 22).getHostEntry().getMarker());
+        // the revoked entry comes before the plain one for the same host
+        assertMatch(index, "revoked.example.com", 22, 1);
+        assertEquals("revoked", find(index, "revoked.example.com", 22).getHostEntry().getMarker());
+        assertMatch(index, "revoked.example.com", 2200, 2);
+        // excluded from the wildcard entry, so the later hashed one applies
+        assertMatch(index, "bad.example.com", 2200, 16);
+        assertMatch(index, "host4.example.com", 2200, 2);
+        assertMatch(index, "host1.example.com", 2222, 4);
+        assertMatch(index, "host1.example.com", 0, 3);
+        assertMatch(index, "HOST1.example.com", 22, 3);
+        assertMatch(index, "10.0.0.1", 22, 3);
+        assertMatch(index, "host2.example.com", 22, 5);
+        assertMatch(index, "host2.example.com", 2222, 6);
+        assertMatch(index, "host3.example.com", 22, 8);
+        // the wildcard comes before the hashed entry of the same host
+        assertMatch(index, "hostx.other.org", 22, 9);
+        // the entries sharing a salt, and a later hashed one of the same host
+        assertMatch(index, "web6.other.org", 22, 11);
+        assertMatch(index, "web7.other.org", 22, 12);
+        assertMatch(index, "web6.other.org", 2222, 14);
+        assertMatch(index, "web6.other.org", 2200, 15);
+        // negated for all of the domain, including the later plain entry
+        assertMatch(index, "other.com", 22, 17);
+        assertNull(find(index, "good.example.com", 22));
+        assertMatch(index, "host4.example.com", 22, 18);
+        assertNull(index.findMatch(Collections.singletonList(new SshdSocketAddress("unknown.org", 22))));
+    }
+
+    @Test
+    public void testHashedEntriesSharingSalt() {
+        List<HostEntryPair> pairs = new ArrayList<>();
+        byte[] salt = salt(1);
+        for (String host : Arrays.asList("web6.other.org", "web7.other.org", "web6.other.org")) {
+            pairs.add(pair(hashed(host, 22, salt)));
+        }
+        KnownHostsIndex index = new KnownHostsIndex(pairs);
+        assertSame(pairs.get(0), find(index, "web6.other.org", 22));
+        assertSame(pairs.get(1), find(index, "web7.other.org", 22));
+        assertNull(find(index, "web6.other.org", 2222));
+    }
+
+    private void assertMatch(KnownHostsIndex index, String host, int port, int expected) {
+        HostEntryPair match = find(index, host, port);
+        assertEquals(lines.get(expected), (match == null) ? null : match.getHostEntry().getConfigLine(), host + ":" + port);
+    }
+
+    private static HostEntryPair find(KnownHostsIndex index, String host, int port) {
+        return index.findMatch(Collections.singletonList(new SshdSocketAddress(host, port)));
+    }
+
+    private static HostEntryPair linearScan(List<HostEntryPair> pairs, Collection<SshdSocketAddress> candidates) {
+        for (HostEntryPair pair : pairs) {
+            for (SshdSocketAddress host : candidates) {
+                if (pair.getHostEntry().isHostMatch(host.getHostName(), host.getPort())) {
+                    return pair;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void add(String hosts) {
+        lines.add(hosts + " " + keyData);
+    }
+
+    private List<HostEntryPair> parse() {
+        List<HostEntryPair> pairs = new ArrayList<>(lines.size());
+        for (String line : lines) {
+            pairs.add(new HostEntryPair(KnownHostEntry.parseKnownHostEntry(line), key));
+        }
+        return pairs;
+    }
+
+    private HostEntryPair pair(String hosts) {
+        return new HostEntryPair(KnownHostEntry.parseKnownHostEntry(hosts + " " + keyData), key);
+    }
+
+    private static byte[] salt(int seed) {
+        byte[] salt = new byte[20];
+        Arrays.fill(salt, (byte) seed);
+        return salt;
+    }
+
+    private static String hashed(String host, int port, byte[] salt) {
+        try {
+            byte[] digest = KnownHostHashValue.calculateHashValue(host, port, KnownHostHashValue.DEFAULT_DIGEST, salt);
+            return KnownHostHashValue.append(new StringBuilder(), KnownHostHashValue.DEFAULT_DIGEST, salt, digest).toString();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -72,6 +72,7 @@ public class BaseBuilder<T extends AbstractFactoryManager, S extends BaseBuilder
                     BuiltinCiphers.aes256ctr,
                     BuiltinCiphers.aes128gcm,
                     BuiltinCiphers.aes256gcm,
+                    BuiltinCiphers.cc20p1305_openssh,
                     BuiltinCiphers.aes128cbc,
                     BuiltinCiphers.aes192cbc,
                     BuiltinCiphers.aes256cbc));
@@ -82,6 +83,8 @@ public class BaseBuilder<T extends AbstractFactoryManager, S extends BaseBuilder
      */
     public static final List<BuiltinDHFactories> DEFAULT_KEX_PREFERENCE = Collections.unmodifiableList(
             Arrays.asList(
+                    BuiltinDHFactories.curve25519,
+                    BuiltinDHFactories.curve25519_libssh,
                     BuiltinDHFactories.ecdhp521,
                     BuiltinDHFactories.ecdhp384,
                     BuiltinDHFactories.ecdhp256,
@@ -153,6 +153,14 @@ public final class CoreModuleProperties {
     public static final Property<Boolean> IGNORE_INVALID_IDENTITIES
             = Property.bool("ignore-invalid-identities", true);
 
+    /**
+     * Whether to keep the key pairs loaded from the client identities files in the JVM-wide cache so that encrypted
+     * keys are not decrypted again for every session. <B>Note:</B> the password provider is not consulted again for
+     * cached keys.
+     */
+    public static final Property<Boolean> CACHE_CLIENT_IDENTITIES
+            = Property.bool("cache-client-identities", false);
+
     /**
      * Defines if we should abort in case we encounter an invalid (e.g. expired) openssh certificate.
      */
@@ -272,6 +280,13 @@ public final class CoreModuleProperties {
     public static final Property<Duration> IDLE_TIMEOUT
             = Property.duration("idle-timeout", Duration.ofMinutes(10));
 
+    /**
+     * The resolution of the timing wheel that holds the sessions timeout and heartbeat deadlines - they may expire up
+     * to this much later than configured
+     */
+    public static final Property<Duration> TIMING_WHEEL_TICK
+            = Property.duration("timing-wheel-tick", Duration.ofMillis(100L));
+
     /**
      * Key used to retrieve the value of the socket read timeout for NIO2 session implementation - in milliseconds.
      */
@@ -284,6 +299,20 @@ public final class CoreModuleProperties {
     public static final Property<Duration> NIO2_MIN_WRITE_TIMEOUT
             = Property.duration("nio2-min-write-timeout", Duration.ofSeconds(30L));
 
+    /**
+     * Maximum number of queued packets that a NIO2 session submits to the socket as a single gathering write. A value
+     * of 1 writes each packet on its own.
+     */
+    public static final Property<Integer> NIO2_WRITE_COALESCE_MAX_COUNT
+            = Property.integer("nio2-write-coalesce-max-count", 64);
+
+    /**
+     * Maximum number of bytes that a NIO2 session submits to the socket as a single gathering write - the first queued
+     * packet is always included, regardless of its size.
+     */
+    public static final Property<Integer> NIO2_WRITE_COALESCE_MAX_BYTES
+            = Property.integer("nio2-write-coalesce-max-bytes", 256 * 1024);
+
     /**
      * Key used to retrieve the value of the disconnect timeout which is used when a disconnection is attempted. If the
      * disconnect message has not been sent before the timeout, the underlying socket will be forcibly closed - in
@@ -299,6 +328,13 @@ public final class CoreModuleProperties {
     public static final Property<Duration> CHANNEL_CLOSE_TIMEOUT
             = Property.duration("channel-close-timeout", Duration.ofSeconds(5));
 
+    /**
+     * Whether a {@link org.apache.sshd.common.channel.ChannelAsyncOutputStream} accepts any number of outstanding
+     * writes - merging them into full packets - instead of allowing only one pending write at a time
+     */
+    public static final Property<Boolean> ASYNC_OUTPUT_QUEUED
+            = Property.bool("channel-async-output-queued", false);
+
     /**
      * Timeout (milliseconds) to wait for client / server stop request if immediate stop requested.
      */
@@ -346,12 +382,51 @@ public final class CoreModuleProperties {
     public static final Property<Boolean> TCP_NODELAY
             = Property.bool("tcp-nodelay", false);
 
+    /**
+     * Whether the packet buffers of the sessions are leased from a pooling
+     * {@link org.apache.sshd.common.util.buffer.DefaultBufferPool} instead of being allocated per packet - see
+     * {@link org.apache.sshd.common.FactoryManager#getBufferPool()}
+     */
+    public static final Property<Boolean> BUFFER_POOL_ENABLED
+            = Property.bool("buffer-pool-enabled", false);
+
+    /**
+     * Whether the pooled socket read buffers are direct (off-heap) ones
+     */
+    public static final Property<Boolean> BUFFER_POOL_DIRECT
+            = Property.bool("buffer-pool-direct", false);
+
+    /**
+     * Largest pooled buffer size - rounded up to a power of 2. Larger buffers are allocated and discarded as before
+     */
+    public static final Property<Integer> BUFFER_POOL_MAX_SIZE
+            = Property.integer("buffer-pool-max-size", 256 * 1024);
+
+    /**
+     * Number of released buffers per size class each thread keeps for itself
+     */
+    public static final Property<Integer> BUFFER_POOL_THREAD_CACHE_SIZE
+            = Property.integer("buffer-pool-thread-cache-size", 4);
+
+    /**
+     * Number of released buffers per size class kept in the cache shared by all threads
+     */
+    public static final Property<Integer> BUFFER_POOL_SHARED_CACHE_SIZE
+            = Property.integer("buffer-pool-shared-cache-size", 64);
+
     /**
      * Read buffer size for NIO2 sessions See {@link org.apache.sshd.common.io.nio2.Nio2Session}
      */
     public static final Property<Integer> NIO2_READ_BUFFER_SIZE
             = Property.integer("nio2-read-buf-size", 32 * 1024);
 
+    /**
+     * Size up to which a session retains the buffer it decodes the incoming packets from - a buffer that grew beyond it
+     * is shrunk back once it is mostly idle again
+     */
+    public static final Property<Integer> DECODER_BUFFER_RETAINED_SIZE
+            = Property.integer("decoder-buffer-retained-size", 64 * 1024);
+
     /**
      * Maximum allowed size of the initial identification text sent during the handshake
      */
@@ -692,6 +767,23 @@ public final class CoreModuleProperties {
     public static final Property<Long> TCPIP_SERVER_CHANNEL_BUFFER_SIZE_THRESHOLD_LOW
             = Property.long_("tcpip-server-channel-buffer-size-threshold-low");
 
+    /**
+     * Configuration value for the {@code org.apache.sshd.client.forward.DefaultForwarder} to control how much data read
+     * from a forwarded socket may wait for room in the channel window. If the queued data size reaches this value, the
+     * socket is not read until the data length goes below the {@link #TCPIP_FORWARDER_QUEUED_BYTES_THRESHOLD_LOW}
+     * threshold.
+     */
+    public static final Property<Long> TCPIP_FORWARDER_QUEUED_BYTES_THRESHOLD_HIGH
+            = Property.long_("tcpip-forwarder-queued-bytes-threshold-high", 1024 * 1024);
+
+    /**
+     * The lower threshold. If not set, half the higher threshold will be used.
+     *
+     * @see #TCPIP_FORWARDER_QUEUED_BYTES_THRESHOLD_HIGH
+     */
+    public static final Property<Long> TCPIP_FORWARDER_QUEUED_BYTES_THRESHOLD_LOW
+            = Property.long_("tcpip-forwarder-queued-bytes-threshold-low");
+
     private CoreModuleProperties() {
         throw new UnsupportedOperationException("No instance");
     }
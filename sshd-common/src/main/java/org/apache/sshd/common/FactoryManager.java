@@ -39,6 +39,8 @@ import org.apache.sshd.common.session.SessionDisconnectHandlerManager;
 import org.apache.sshd.common.session.SessionHeartbeatController;
 import org.apache.sshd.common.session.SessionListenerManager;
 import org.apache.sshd.common.session.UnknownChannelReferenceHandlerManager;
+import org.apache.sshd.common.util.buffer.BufferPool;
+import org.apache.sshd.common.util.threads.TimingWheel;
 
 /**
  * This interface allows retrieving all the <code>NamedFactory</code> used in the SSH protocol.
@@ -81,6 +83,23 @@ public interface FactoryManager
      */
     Factory<Random> getRandomFactory();
 
+    /**
+     * Retrieve the {@link BufferPool} the sessions lease their packet buffers from.
+     *
+     * @return The pool - {@link BufferPool#NONE} if pooling is disabled
+     * @see    CoreModuleProperties#BUFFER_POOL_ENABLED
+     */
+    BufferPool getBufferPool();
+
+    /**
+     * Retrieve the {@link TimingWheel} that holds the sessions timeout checks and heartbeats.
+     *
+     * @return                       The (started) timing wheel
+     * @throws IllegalStateException If the manager has already been stopped
+     * @see                          CoreModuleProperties#TIMING_WHEEL_TICK
+     */
+    TimingWheel getTimingWheel();
+
     /**
      * Retrieve the list of named factories for <code>Channel</code> objects.
      *
@@ -90,6 +90,35 @@ public final class SftpModuleProperties {
     public static final Property<Charset> NAME_DECODER_CHARSET
             = Property.charset("sftp-fs-name-decoder-charset", StandardCharsets.UTF_8);
 
+    /**
+     * How long the attributes a path got from the directory listing it came from are used instead of querying the
+     * server - see {@code org.apache.sshd.fs.SftpPath#getCachedAttributes}. They are ignored once anything was
+     * modified through the file system since the listing. Zero disables their use.
+     */
+    public static final Property<Duration> DIR_ENTRY_ATTRIBUTES_TTL
+            = Property.duration("sftp-fs-dir-entry-attributes-ttl", Duration.ofSeconds(5L));
+
+    /**
+     * Max. number of entries of the attributes cache of a {@code org.apache.sshd.fs.SftpFileSystem} - zero (default)
+     * disables the cache.
+     */
+    public static final Property<Integer> METADATA_CACHE_SIZE
+            = Property.integer("sftp-fs-metadata-cache-size", 0);
+
+    /**
+     * How long the attributes of a file are cached by a {@code org.apache.sshd.fs.SftpFileSystem} - unless modified
+     * through it
+     */
+    public static final Property<Duration> METADATA_CACHE_TTL
+            = Property.duration("sftp-fs-metadata-cache-ttl", Duration.ofSeconds(5L));
+
+    /**
+     * How long the absence of a file is cached by a {@code org.apache.sshd.fs.SftpFileSystem} - zero disables
+     * negative caching
+     */
+    public static final Property<Duration> METADATA_CACHE_NEGATIVE_TTL
+            = Property.duration("sftp-fs-metadata-cache-negative-ttl", Duration.ofSeconds(1L));
+
     /**
      * Property used to avoid large buffers when
      * {@link org.apache.sshd.sftp.client.impl.AbstractSftpClient#write(SftpClient.Handle, long, byte[], int, int)} is
@@ -99,6 +128,31 @@ public final class SftpModuleProperties {
             = Property.integer("sftp-client-write-chunk-size",
                     SshConstants.SSH_REQUIRED_PAYLOAD_PACKET_LENGTH_SUPPORT - Long.SIZE);
 
+    /**
+     * Whether {@link org.apache.sshd.client.impl.SftpInputStreamAsync} adapts the read size and the number of
+     * outstanding reads to the measured round trip time and delivery rate, instead of filling the channel window with
+     * reads of the fixed buffer size.
+     *
+     * @see org.apache.sshd.client.impl.SftpReadAheadController
+     */
+    public static final Property<Boolean> READ_AHEAD_ADAPTIVE
+            = Property.bool("sftp-client-read-ahead-adaptive", false);
+
+    /**
+     * Upper limit for the read size chosen by the adaptive read-ahead. The default stays just below the 256KB that
+     * OpenSSH answers in full - smaller server limits are detected from short reads.
+     */
+    public static final Property<Integer> READ_AHEAD_MAX_CHUNK_SIZE
+            = Property.integer("sftp-client-read-ahead-max-chunk-size", 255 * 1024);
+
+    /**
+     * Number of request bytes the client may queue in its channel before a send waits for them to be written. Below
+     * it requests are sent without waiting, so that several threads and pipelined reads/writes share the channel
+     * without a hand-off per request. Zero restores the previous behavior of waiting for every request.
+     */
+    public static final Property<Integer> MAX_QUEUED_WRITE_BYTES
+            = Property.integer("sftp-client-max-queued-write-bytes", 1024 * 1024);
+
     /**
      * Internal allocate buffer size when copying data to/from the channel
      */
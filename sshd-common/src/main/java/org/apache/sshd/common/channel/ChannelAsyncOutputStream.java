@@ -20,9 +20,14 @@ package org.apache.sshd.common.channel;
 
 import java.io.EOFException;
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicReference;
 
+import org.apache.sshd.common.CoreModuleProperties;
 import org.apache.sshd.common.SshConstants;
 import org.apache.sshd.common.channel.throttle.ChannelStreamWriter;
 import org.apache.sshd.common.future.CloseFuture;
@@ -34,18 +39,43 @@ import org.apache.sshd.common.util.buffer.Buffer;
 import org.apache.sshd.common.util.buffer.ByteArrayBuffer;
 import org.apache.sshd.common.util.closeable.AbstractCloseable;
 
+/**
+ * An {@link IoOutputStream} that sends the written data as channel data packets as the remote window permits. By
+ * default only one write may be pending at a time. In queued mode any number of writes may be outstanding: the
+ * buffers are queued, merged into packets of up to the remote packet size and sent whenever there is room in the remote
+ * window. Each write's future completes once the packet holding its last byte has been written. A queued buffer must
+ * not be modified until its future is done.
+ *
+ * @see CoreModuleProperties#ASYNC_OUTPUT_QUEUED
+ */
 public class ChannelAsyncOutputStream extends AbstractCloseable implements IoOutputStream, ChannelHolder {
     private final Channel channelInstance;
     private final ChannelStreamWriter packetWriter;
     private final byte cmd;
     private final AtomicReference<IoWriteFutureImpl> pendingWrite = new AtomicReference<>();
     private final Object packetWriteId;
+    private final boolean queued;
+    private final Deque<IoWriteFutureImpl> writeQueue = new ArrayDeque<>();
+    private long queuedBytes;
+    private boolean draining;
+    private IoWriteFutureImpl lastQueued;
+    private Throwable queueFailure;
 
     public ChannelAsyncOutputStream(Channel channel, byte cmd) {
+        this(channel, cmd, CoreModuleProperties.ASYNC_OUTPUT_QUEUED.getRequired(channel));
+    }
+
+    /**
+     * @param channel The channel
+     * @param cmd     The data command
+     * @param queued  Whether to accept any number of outstanding writes
+     */
+    public ChannelAsyncOutputStream(Channel channel, byte cmd, boolean queued) {
         this.channelInstance = Objects.requireNonNull(channel, "No channel");
         this.packetWriter = channelInstance.resolveChannelStreamWriter(channel, cmd);
         this.cmd = cmd;
         this.packetWriteId = channel.toString() + "[" + SshConstants.getCommandMessageName(cmd) + "]";
+        this.queued = queued;
     }
 
     @Override
@@ -53,8 +83,24 @@ public class ChannelAsyncOutputStream extends AbstractCloseable implements IoOut
         return channelInstance;
     }
 
+    public boolean isQueued() {
+        return queued;
+    }
+
+    /**
+     * @return The number of written bytes that have not been handed to the session yet - always zero if not in queued
+     *         mode
+     */
+    public synchronized long getQueuedBytes() {
+        return queuedBytes;
+    }
+
     public void onWindowExpanded() throws IOException {
-        doWriteIfPossible(true);
+        if (queued) {
+            drainQueue(true);
+        } else {
+            doWriteIfPossible(true);
+        }
     }
 
     @Override
@@ -63,6 +109,10 @@ public class ChannelAsyncOutputStream extends AbstractCloseable implements IoOut
             throw new EOFException("Closing: " + state);
         }
 
+        if (queued) {
+            return enqueue(buffer);
+        }
+
         IoWriteFutureImpl future = new IoWriteFutureImpl(packetWriteId, buffer);
         if (!pendingWrite.compareAndSet(null, future)) {
             throw new WritePendingException("A write operation is already pending");
@@ -87,7 +137,151 @@ public class ChannelAsyncOutputStream extends AbstractCloseable implements IoOut
 
     @Override
     protected CloseFuture doCloseGracefully() {
-        return builder().when(pendingWrite.get()).build().close(false);
+        IoWriteFutureImpl last;
+        if (queued) {
+            synchronized (this) {
+                last = lastQueued;
+            }
+        } else {
+            last = pendingWrite.get();
+        }
+        return builder().when(last).build().close(false);
+    }
+
+    @Override
+    protected void doCloseImmediately() {
+        if (queued) {
+            failQueue(new EOFException("Stream closed with " + getQueuedBytes() + " unsent bytes"));
+        }
+        super.doCloseImmediately();
+    }
+
+    protected synchronized IoWriteFuture enqueue(Buffer buffer) throws IOException {
+        if (queueFailure != null) {
+            throw new IOException("Previous write failed: " + queueFailure.getMessage(), queueFailure);
+        }
+
+        IoWriteFutureImpl future = new IoWriteFutureImpl(packetWriteId, buffer);
+        int len = buffer.available();
+        if (len <= 0) {
+            future.setValue(Boolean.TRUE);
+            return future;
+        }
+
+        writeQueue.addLast(future);
+        queuedBytes += len;
+        lastQueued = future;
+        drainQueue(false);
+        return future;
+    }
+
+    /**
+     * Sends as many packets from the queued buffers as the remote window allows
+     *
+     * @param resume Whether invoked due to a window expansion
+     */
+    protected synchronized void drainQueue(boolean resume) {
+        // a future listener that writes again must not start a nested drain - the running one picks up its data
+        if (draining) {
+            return;
+        }
+
+        draining = true;
+        try {
+            for (int count = 0;; count++) {
+                if (!sendQueuedPacket()) {
+                    if (log.isTraceEnabled()) {
+                        log.trace("drainQueue({})[resume={}] sent {} packets - queued={}", this, resume, count, queuedBytes);
+                    }
+                    break;
+                }
+            }
+        } finally {
+            draining = false;
+        }
+    }
+
+    /**
+     * @return {@code true} if a packet has been sent - {@code false} if nothing is queued or if there is not enough
+     *         room in the remote window
+     */
+    protected boolean sendQueuedPacket() {
+        if (writeQueue.isEmpty() || (queueFailure != null)) {
+            return false;
+        }
+
+        Channel channel = getChannel();
+        Window remoteWindow = channel.getRemoteWindow();
+        // send whatever fits - the peer may wait for the window to be used up before adjusting it
+        long length = Math.min(Math.min(queuedBytes, remoteWindow.getPacketSize()), remoteWindow.getSize());
+        if (length <= 0L) {
+            return false;
+        }
+        if (length >= (Integer.MAX_VALUE - 12)) {
+            throw new IllegalArgumentException(
+                    "Command " + SshConstants.getCommandMessageName(cmd) + " length (" + length + ") exceeds int boundaries");
+        }
+
+        Buffer buf = channel.getSession().createBuffer(cmd, (int) length + 12);
+        buf.putInt(channel.getRecipient());
+        if (cmd == SshConstants.SSH_MSG_CHANNEL_EXTENDED_DATA) {
+            buf.putInt(SshConstants.SSH_EXTENDED_DATA_STDERR);
+        }
+        buf.putInt(length);
+
+        // the writes whose last byte goes into this packet
+        List<IoWriteFutureImpl> completed = new ArrayList<>();
+        for (long remaining = length; remaining > 0L;) {
+            IoWriteFutureImpl future = writeQueue.peekFirst();
+            Buffer buffer = future.getBuffer();
+            int n = (int) Math.min(remaining, buffer.available());
+            buf.putRawBytes(buffer.array(), buffer.rpos(), n);
+            buffer.rpos(buffer.rpos() + n);
+            remaining -= n;
+            if (buffer.available() <= 0) {
+                writeQueue.removeFirst();
+                completed.add(future);
+            }
+        }
+        queuedBytes -= length;
+        remoteWindow.consume(length);
+
+        try {
+            IoWriteFuture writeFuture = packetWriter.writeData(buf);
+            writeFuture.addListener(f -> onQueuedPacketWritten(completed, length, f));
+        } catch (IOException e) {
+            completed.forEach(f -> f.setValue(e));
+            failQueue(e);
+            return false;
+        }
+        return true;
+    }
+
+    protected void onQueuedPacketWritten(List<IoWriteFutureImpl> completed, long length, IoWriteFuture f) {
+        if (f.isWritten()) {
+            completed.forEach(w -> w.setValue(Boolean.TRUE));
+            return;
+        }
+
+        Throwable reason = f.getException();
+        debug("onQueuedPacketWritten({}) failed ({}) to write packet of {} bytes: {}",
+                this, reason.getClass().getSimpleName(), length, reason.getMessage(), reason);
+        completed.forEach(w -> w.setValue(reason));
+        // the data stream has a gap now - nothing queued can be delivered anymore
+        failQueue(reason);
+    }
+
+    protected void failQueue(Throwable reason) {
+        List<IoWriteFutureImpl> failed;
+        synchronized (this) {
+            if (queueFailure == null) {
+                queueFailure = reason;
+            }
+            failed = new ArrayList<>(writeQueue);
+            writeQueue.clear();
+            queuedBytes = 0L;
+        }
+        failed.forEach(w -> w.setValue(reason));
     }
 
     protected synchronized void doWriteIfPossible(boolean resume) {
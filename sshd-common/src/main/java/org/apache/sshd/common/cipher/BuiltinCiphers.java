@@ -70,6 +70,18 @@ public enum BuiltinCiphers implements CipherFactory {
                     getKeySize(), getTransformation(), getCipherBlockSize());
         }
     },
+    cc20p1305_openssh(Constants.CC20P1305_OPENSSH, 0, 16, 64, "ChaCha20", 256, "ChaCha20-Poly1305", 16) {
+        @Override
+        public boolean isSupported() {
+            // pure Java implementation - does not depend on the JCE provider
+            return true;
+        }
+
+        @Override
+        public Cipher create() {
+            return new ChaCha20Poly1305Cipher();
+        }
+    },
     aes192cbc(Constants.AES192_CBC, 16, 0, 24, "AES", 192, "AES/CBC/NoPadding", 16),
     aes192ctr(Constants.AES192_CTR, 16, 0, 24, "AES", 192, "AES/CTR/NoPadding", 16),
     aes256cbc(Constants.AES256_CBC, 16, 0, 32, "AES", 256, "AES/CBC/NoPadding", 16),
@@ -368,6 +380,7 @@ public enum BuiltinCiphers implements CipherFactory {
         public static final String AES256_CBC = "aes256-cbc";
         public static final String AES256_CTR = "aes256-ctr";
         public static final String AES256_GCM = "aes256-gcm@openssh.com";
+        public static final String CC20P1305_OPENSSH = "chacha20-poly1305@openssh.com";
         public static final String ARCFOUR128 = "arcfour128";
         public static final String ARCFOUR256 = "arcfour256";
         public static final String BLOWFISH_CBC = "blowfish-cbc";
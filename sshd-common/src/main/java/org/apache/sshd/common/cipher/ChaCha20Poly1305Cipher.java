@@ -0,0 +1,558 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common.cipher;
+
+import java.util.Arrays;
+
+import javax.crypto.AEADBadTagException;
+
+import org.apache.sshd.common.mac.Mac;
+import org.apache.sshd.common.util.ValidateUtils;
+
+/**
+ * The <A HREF="https://cvsweb.openbsd.org/src/usr.bin/ssh/PROTOCOL.chacha20poly1305">chacha20-poly1305@openssh.com</A>
+ * AEAD cipher. The 64 bytes key holds 2 ChaCha20 keys - the 2nd one encrypts the packet length field, the 1st one
+ * generates the Poly1305 key (block 0) and encrypts the payload (from block 1 on). The packet sequence number is used
+ * as nonce, and the tag authenticates the <U>encrypted</U> length and payload. Unlike the other ciphers it does not
+ * delegate to the JCE provider - the (original, 64-bit nonce) ChaCha20 and Poly1305 implementations work on
+ * pre-allocated state and do not allocate anything per packet.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class ChaCha20Poly1305Cipher implements Cipher {
+    public static final int KEY_SIZE = 32;
+    public static final int TAG_SIZE = 16;
+
+    protected final ChaCha20Engine headerEngine = new ChaCha20Engine();
+    protected final ChaCha20Engine payloadEngine = new ChaCha20Engine();
+    protected final Poly1305 poly1305 = new Poly1305();
+    protected Mode mode;
+    protected long sequenceNumber;
+
+    private final byte[] polyKey = new byte[KEY_SIZE];
+    private final byte[] encryptedLength = new byte[Integer.BYTES];
+    private final byte[] computedTag = new byte[TAG_SIZE];
+
+    public ChaCha20Poly1305Cipher() {
+        super();
+    }
+
+    @Override
+    public String getAlgorithm() {
+        return "ChaCha20";
+    }
+
+    @Override
+    public int getKeySize() {
+        return KEY_SIZE * Byte.SIZE;
+    }
+
+    @Override
+    public String getTransformation() {
+        return "ChaCha20-Poly1305";
+    }
+
+    @Override
+    public int getIVSize() {
+        return 0;
+    }
+
+    @Override
+    public int getAuthenticationTagSize() {
+        return TAG_SIZE;
+    }
+
+    /**
+     * ChaCha20 is a stream cipher - the reported block size aligns the padding as for AES-GCM, which keeps the
+     * automatic re-keying limits in line with those of the other AEAD ciphers.
+     */
+    @Override
+    public int getCipherBlockSize() {
+        return 16;
+    }
+
+    @Override
+    public int getKdfSize() {
+        return 2 * KEY_SIZE;
+    }
+
+    @Override
+    public void init(Mode mode, byte[] key, byte[] iv) throws Exception {
+        ValidateUtils.checkTrue(key.length >= getKdfSize(), "Key too short: %d", key.length);
+        this.mode = mode;
+        payloadEngine.setKey(key, 0);
+        headerEngine.setKey(key, KEY_SIZE);
+        sequenceNumber = 0L;
+    }
+
+    @Override
+    public void setSequenceNumber(long seqNo) {
+        sequenceNumber = seqNo;
+    }
+
+    /**
+     * Encrypts or decrypts (in place) the packet length field - the encrypted value is retained as it is authenticated
+     * along with the payload by {@link #update(byte[], int, int)}.
+     */
+    @Override
+    public void updateAAD(byte[] data, int offset, int length) throws Exception {
+        ValidateUtils.checkTrue(length == Integer.BYTES, "Bad packet length field size: %d", length);
+        if (mode == Mode.Decrypt) {
+            System.arraycopy(data, offset, encryptedLength, 0, Integer.BYTES);
+        }
+
+        headerEngine.reset(sequenceNumber, 0L);
+        headerEngine.process(data, offset, Integer.BYTES);
+
+        if (mode == Mode.Encrypt) {
+            System.arraycopy(data, offset, encryptedLength, 0, Integer.BYTES);
+        }
+    }
+
+    /**
+     * Encrypts the payload and appends the tag, or verifies the tag that follows the payload and decrypts it
+     */
+    @Override
+    public void update(byte[] input, int inputOffset, int inputLen) throws Exception {
+        // Poly1305 key = 1st half of the key stream block #0
+        Arrays.fill(polyKey, (byte) 0);
+        payloadEngine.reset(sequenceNumber, 0L);
+        payloadEngine.process(polyKey, 0, KEY_SIZE);
+        poly1305.init(polyKey, 0);
+        poly1305.update(encryptedLength, 0, Integer.BYTES);
+
+        payloadEngine.reset(sequenceNumber, 1L);
+        if (mode == Mode.Encrypt) {
+            payloadEngine.process(input, inputOffset, inputLen);
+            poly1305.update(input, inputOffset, inputLen);
+            poly1305.doFinal(input, inputOffset + inputLen);
+        } else {
+            poly1305.update(input, inputOffset, inputLen);
+            poly1305.doFinal(computedTag, 0);
+            if (!Mac.equals(computedTag, 0, input, inputOffset + inputLen, TAG_SIZE)) {
+                throw new AEADBadTagException("Tag mismatch");
+            }
+            payloadEngine.process(input, inputOffset, inputLen);
+        }
+
+        sequenceNumber = (sequenceNumber + 1L) & 0x0ffffffffL;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + getAlgorithm() + "," + getKeySize() + "," + getTransformation() + "]";
+    }
+
+    static int getIntLE(byte[] buf, int off) {
+        return (buf[off] & 0xFF)
+               | ((buf[off + 1] & 0xFF) << 8)
+               | ((buf[off + 2] & 0xFF) << 16)
+               | ((buf[off + 3] & 0xFF) << 24);
+    }
+
+    static void putIntLE(int value, byte[] buf, int off) {
+        buf[off] = (byte) value;
+        buf[off + 1] = (byte) (value >>> 8);
+        buf[off + 2] = (byte) (value >>> 16);
+        buf[off + 3] = (byte) (value >>> 24);
+    }
+
+    /**
+     * The original ChaCha20 stream cipher - 64-bit block counter and 64-bit nonce
+     *
+     * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+     */
+    public static class ChaCha20Engine {
+        public static final int BLOCK_SIZE = 64;
+
+        private final int[] state = new int[16];
+        private final int[] keyStream = new int[16];
+
+        public ChaCha20Engine() {
+            // "expand 32-byte k"
+            state[0] = 0x61707865;
+            state[1] = 0x3320646e;
+            state[2] = 0x79622d32;
+            state[3] = 0x6b206574;
+        }
+
+        public void setKey(byte[] key, int offset) {
+            for (int index = 0; index < 8; index++) {
+                state[4 + index] = getIntLE(key, offset + index * Integer.BYTES);
+            }
+        }
+
+        /**
+         * @param nonce   The nonce - serialized in big-endian order as by the SSH protocol
+         * @param counter The block counter to start from
+         */
+        public void reset(long nonce, long counter) {
+            state[12] = (int) counter;
+            state[13] = (int) (counter >>> 32);
+            state[14] = Integer.reverseBytes((int) (nonce >>> 32));
+            state[15] = Integer.reverseBytes((int) nonce);
+        }
+
+        /**
+         * XOR-s (in place) the key stream with the data
+         *
+         * @param data   The data buffer
+         * @param offset Offset of the data in the buffer
+         * @param length Number of bytes to process - any partial block of key stream left is discarded
+         */
+        public void process(byte[] data, int offset, int length) {
+            int[] ks = keyStream;
+            while (length > 0) {
+                nextBlock();
+
+                int chunk = Math.min(length, BLOCK_SIZE);
+                int words = chunk >>> 2;
+                for (int index = 0, pos = offset; index < words; index++, pos += Integer.BYTES) {
+                    int k = ks[index];
+                    data[pos] ^= (byte) k;
+                    data[pos + 1] ^= (byte) (k >>> 8);
+                    data[pos + 2] ^= (byte) (k >>> 16);
+                    data[pos + 3] ^= (byte) (k >>> 24);
+                }
+                for (int index = words << 2; index < chunk; index++) {
+                    data[offset + index] ^= (byte) (ks[index >>> 2] >>> ((index & 0x03) << 3));
+                }
+
+                offset += chunk;
+                length -= chunk;
+            }
+        }
+
+        protected void nextBlock() {
+            int[] s = state;
+            int x0 = s[0];
+            int x1 = s[1];
+            int x2 = s[2];
+            int x3 = s[3];
+            int x4 = s[4];
+            int x5 = s[5];
+            int x6 = s[6];
+            int x7 = s[7];
+            int x8 = s[8];
+            int x9 = s[9];
+            int x10 = s[10];
+            int x11 = s[11];
+            int x12 = s[12];
+            int x13 = s[13];
+            int x14 = s[14];
+            int x15 = s[15];
+
+            for (int round = 0; round < 10; round++) {
+                // column rounds
+                x0 += x4;
+                x12 = Integer.rotateLeft(x12 ^ x0, 16);
+                x8 += x12;
+                x4 = Integer.rotateLeft(x4 ^ x8, 12);
+                x0 += x4;
+                x12 = Integer.rotateLeft(x12 ^ x0, 8);
+                x8 += x12;
+                x4 = Integer.rotateLeft(x4 ^ x8, 7);
+
+                x1 += x5;
+                x13 = Integer.rotateLeft(x13 ^ x1, 16);
+                x9 += x13;
+                x5 = Integer.rotateLeft(x5 ^ x9, 12);
+                x1 += x5;
+                x13 = Integer.rotateLeft(x13 ^ x1, 8);
+                x9 += x13;
+                x5 = Integer.rotateLeft(x5 ^ x9, 7);
+
+                x2 += x6;
+                x14 = Integer.rotateLeft(x14 ^ x2, 16);
+                x10 += x14;
+                x6 = Integer.rotateLeft(x6 ^ x10, 12);
+                x2 += x6;
+                x14 = Integer.rotateLeft(x14 ^ x2, 8);
+                x10 += x14;
+                x6 = Integer.rotateLeft(x6 ^ x10, 7);
+
+                x3 += x7;
+                x15 = Integer.rotateLeft(x15 ^ x3, 16);
+                x11 += x15;
+                x7 = Integer.rotateLeft(x7 ^ x11, 12);
+                x3 += x7;
+                x15 = Integer.rotateLeft(x15 ^ x3, 8);
+                x11 += x15;
+                x7 = Integer.rotateLeft(x7 ^ x11, 7);
+
+                // diagonal rounds
+                x0 += x5;
+                x15 = Integer.rotateLeft(x15 ^ x0, 16);
+                x10 += x15;
+                x5 = Integer.rotateLeft(x5 ^ x10, 12);
+                x0 += x5;
+                x15 = Integer.rotateLeft(x15 ^ x0, 8);
+                x10 += x15;
+                x5 = Integer.rotateLeft(x5 ^ x10, 7);
+
+                x1 += x6;
+                x12 = Integer.rotateLeft(x12 ^ x1, 16);
+                x11 += x12;
+                x6 = Integer.rotateLeft(x6 ^ x11, 12);
+                x1 += x6;
+                x12 = Integer.rotateLeft(x12 ^ x1, 8);
+                x11 += x12;
+                x6 = Integer.rotateLeft(x6 ^ x11, 7);
+
+                x2 += x7;
+                x13 = Integer.rotateLeft(x13 ^ x2, 16);
+                x8 += x13;
+                x7 = Integer.rotateLeft(x7 ^ x8, 12);
+                x2 += x7;
+                x13 = Integer.rotateLeft(x13 ^ x2, 8);
+                x8 += x13;
+                x7 = Integer.rotateLeft(x7 ^ x8, 7);
+
+                x3 += x4;
+                x14 = Integer.rotateLeft(x14 ^ x3, 16);
+                x9 += x14;
+                x4 = Integer.rotateLeft(x4 ^ x9, 12);
+                x3 += x4;
+                x14 = Integer.rotateLeft(x14 ^ x3, 8);
+                x9 += x14;
+                x4 = Integer.rotateLeft(x4 ^ x9, 7);
+            }
+
+            int[] ks = keyStream;
+            ks[0] = x0 + s[0];
+            ks[1] = x1 + s[1];
+            ks[2] = x2 + s[2];
+            ks[3] = x3 + s[3];
+            ks[4] = x4 + s[4];
+            ks[5] = x5 + s[5];
+            ks[6] = x6 + s[6];
+            ks[7] = x7 + s[7];
+            ks[8] = x8 + s[8];
+            ks[9] = x9 + s[9];
+            ks[10] = x10 + s[10];
+            ks[11] = x11 + s[11];
+            ks[12] = x12 + s[12];
+            ks[13] = x13 + s[13];
+            ks[14] = x14 + s[14];
+            ks[15] = x15 + s[15];
+
+            // 64-bit block counter
+            s[12]++;
+            if (s[12] == 0) {
+                s[13]++;
+            }
+        }
+    }
+
+    /**
+     * The Poly1305 one-time authenticator - 26-bit limbs arithmetic
+     *
+     * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+     */
+    protected static class Poly1305 {
+        public static final int BLOCK_SIZE = 16;
+
+        private final byte[] block = new byte[BLOCK_SIZE];
+        private int blockOffset;
+        private int r0;
+        private int r1;
+        private int r2;
+        private int r3;
+        private int r4;
+        private int s1;
+        private int s2;
+        private int s3;
+        private int s4;
+        private int k0;
+        private int k1;
+        private int k2;
+        private int k3;
+        private int h0;
+        private int h1;
+        private int h2;
+        private int h3;
+        private int h4;
+
+        public Poly1305() {
+            super();
+        }
+
+        public void init(byte[] key, int offset) {
+            int t0 = getIntLE(key, offset);
+            int t1 = getIntLE(key, offset + 4);
+            int t2 = getIntLE(key, offset + 8);
+            int t3 = getIntLE(key, offset + 12);
+
+            // clamped r
+            r0 = t0 & 0x03ffffff;
+            r1 = ((t0 >>> 26) | (t1 << 6)) & 0x03ffff03;
+            r2 = ((t1 >>> 20) | (t2 << 12)) & 0x03ffc0ff;
+            r3 = ((t2 >>> 14) | (t3 << 18)) & 0x03f03fff;
+            r4 = (t3 >>> 8) & 0x000fffff;
+
+            s1 = r1 * 5;
+            s2 = r2 * 5;
+            s3 = r3 * 5;
+            s4 = r4 * 5;
+
+            k0 = getIntLE(key, offset + 16);
+            k1 = getIntLE(key, offset + 20);
+            k2 = getIntLE(key, offset + 24);
+            k3 = getIntLE(key, offset + 28);
+
+            h0 = 0;
+            h1 = 0;
+            h2 = 0;
+            h3 = 0;
+            h4 = 0;
+            blockOffset = 0;
+        }
+
+        public void update(byte[] data, int offset, int length) {
+            if (blockOffset > 0) {
+                int chunk = Math.min(length, BLOCK_SIZE - blockOffset);
+                System.arraycopy(data, offset, block, blockOffset, chunk);
+                blockOffset += chunk;
+                offset += chunk;
+                length -= chunk;
+                if (blockOffset < BLOCK_SIZE) {
+                    return;
+                }
+                processBlock(block, 0, true);
+                blockOffset = 0;
+            }
+
+            while (length >= BLOCK_SIZE) {
+                processBlock(data, offset, true);
+                offset += BLOCK_SIZE;
+                length -= BLOCK_SIZE;
+            }
+
+            if (length > 0) {
+                System.arraycopy(data, offset, block, 0, length);
+                blockOffset = length;
+            }
+        }
+
+        /**
+         * @param out    Where to write the 16 bytes tag
+         * @param offset Offset in the output buffer
+         */
+        public void doFinal(byte[] out, int offset) {
+            if (blockOffset > 0) {
+                block[blockOffset] = 1;
+                for (int index = blockOffset + 1; index < BLOCK_SIZE; index++) {
+                    block[index] = 0;
+                }
+                processBlock(block, 0, false);
+                blockOffset = 0;
+            }
+
+            // fully carry h
+            h2 += h1 >>> 26;
+            h1 &= 0x03ffffff;
+            h3 += h2 >>> 26;
+            h2 &= 0x03ffffff;
+            h4 += h3 >>> 26;
+            h3 &= 0x03ffffff;
+            h0 += (h4 >>> 26) * 5;
+            h4 &= 0x03ffffff;
+            h1 += h0 >>> 26;
+            h0 &= 0x03ffffff;
+
+            // compute h + -p
+            int g0 = h0 + 5;
+            int b = g0 >>> 26;
+            g0 &= 0x03ffffff;
+            int g1 = h1 + b;
+            b = g1 >>> 26;
+            g1 &= 0x03ffffff;
+            int g2 = h2 + b;
+            b = g2 >>> 26;
+            g2 &= 0x03ffffff;
+            int g3 = h3 + b;
+            b = g3 >>> 26;
+            g3 &= 0x03ffffff;
+            int g4 = h4 + b - (1 << 26);
+
+            // select h if h < p, or h + -p if h >= p
+            b = (g4 >>> 31) - 1;
+            int nb = ~b;
+            h0 = (h0 & nb) | (g0 & b);
+            h1 = (h1 & nb) | (g1 & b);
+            h2 = (h2 & nb) | (g2 & b);
+            h3 = (h3 & nb) | (g3 & b);
+            h4 = (h4 & nb) | (g4 & b);
+
+            // h = (h + k) % 2^128
+            long f0 = ((h0 | (h1 << 26)) & 0xffffffffL) + (k0 & 0xffffffffL);
+            long f1 = (((h1 >>> 6) | (h2 << 20)) & 0xffffffffL) + (k1 & 0xffffffffL);
+            long f2 = (((h2 >>> 12) | (h3 << 14)) & 0xffffffffL) + (k2 & 0xffffffffL);
+            long f3 = (((h3 >>> 18) | (h4 << 8)) & 0xffffffffL) + (k3 & 0xffffffffL);
+
+            putIntLE((int) f0, out, offset);
+            f1 += f0 >>> 32;
+            putIntLE((int) f1, out, offset + 4);
+            f2 += f1 >>> 32;
+            putIntLE((int) f2, out, offset + 8);
+            f3 += f2 >>> 32;
+            putIntLE((int) f3, out, offset + 12);
+        }
+
+        protected void processBlock(byte[] data, int offset, boolean full) {
+            long t0 = getIntLE(data, offset) & 0xffffffffL;
+            long t1 = getIntLE(data, offset + 4) & 0xffffffffL;
+            long t2 = getIntLE(data, offset + 8) & 0xffffffffL;
+            long t3 = getIntLE(data, offset + 12) & 0xffffffffL;
+
+            h0 += (int) (t0 & 0x03ffffff);
+            h1 += (int) ((((t1 << 32) | t0) >>> 26) & 0x03ffffff);
+            h2 += (int) ((((t2 << 32) | t1) >>> 20) & 0x03ffffff);
+            h3 += (int) ((((t3 << 32) | t2) >>> 14) & 0x03ffffff);
+            h4 += (int) (t3 >>> 8);
+            if (full) {
+                // the 2^128 bit - a final partial block carries it as the padding byte
+                h4 += 1 << 24;
+            }
+
+            long d0 = mul(h0, r0) + mul(h1, s4) + mul(h2, s3) + mul(h3, s2) + mul(h4, s1);
+            long d1 = mul(h0, r1) + mul(h1, r0) + mul(h2, s4) + mul(h3, s3) + mul(h4, s2);
+            long d2 = mul(h0, r2) + mul(h1, r1) + mul(h2, r0) + mul(h3, s4) + mul(h4, s3);
+            long d3 = mul(h0, r3) + mul(h1, r2) + mul(h2, r1) + mul(h3, r0) + mul(h4, s4);
+            long d4 = mul(h0, r4) + mul(h1, r3) + mul(h2, r2) + mul(h3, r1) + mul(h4, r0);
+
+            h0 = (int) d0 & 0x03ffffff;
+            d1 += d0 >>> 26;
+            h1 = (int) d1 & 0x03ffffff;
+            d2 += d1 >>> 26;
+            h2 = (int) d2 & 0x03ffffff;
+            d3 += d2 >>> 26;
+            h3 = (int) d3 & 0x03ffffff;
+            d4 += d3 >>> 26;
+            h4 = (int) d4 & 0x03ffffff;
+            h0 += (int) (d4 >>> 26) * 5;
+            h1 += h0 >>> 26;
+            h0 &= 0x03ffffff;
+        }
+
+        private static long mul(int a, int b) {
+            return (a & 0xffffffffL) * b;
+        }
+    }
+}
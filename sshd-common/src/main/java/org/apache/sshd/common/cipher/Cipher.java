@@ -43,6 +43,16 @@ public interface Cipher extends CipherInformation {
      */
     void init(Mode mode, byte[] key, byte[] iv) throws Exception;
 
+    /**
+     * Provides the sequence number of the packet about to be processed - required by ciphers that derive their nonce
+     * from it. Called only in AEAD mode, once per packet before any {@code updateAAD}/{@code update} call.
+     *
+     * @param seqNo The packet sequence number
+     */
+    default void setSequenceNumber(long seqNo) {
+        // ignored by default
+    }
+
     /**
      * Performs in-place encryption or decryption on the given data.
      *
@@ -27,8 +27,6 @@ import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 import org.apache.sshd.common.Factory;
@@ -60,7 +58,9 @@ import org.apache.sshd.common.session.helpers.AbstractSessionFactory;
 import org.apache.sshd.common.session.helpers.SessionTimeoutListener;
 import org.apache.sshd.common.util.EventListenerUtils;
 import org.apache.sshd.common.util.ValidateUtils;
+import org.apache.sshd.common.util.buffer.BufferPool;
 import org.apache.sshd.common.util.threads.ThreadUtils;
+import org.apache.sshd.common.util.threads.TimingWheel;
 import org.apache.sshd.common.CoreModuleProperties;
 import org.apache.sshd.common.forward.ForwardingFilter;
 
@@ -71,6 +71,10 @@ public abstract class AbstractFactoryManager extends AbstractKexFactoryManager i
     protected IoServiceFactoryFactory ioServiceFactoryFactory;
     protected IoServiceFactory ioServiceFactory;
     protected Factory<Random> randomFactory;
+    protected volatile BufferPool bufferPool;
+    protected volatile TimingWheel timingWheel;
+    // set once the timing wheel has been stopped along with the session timeout listener - guarded by this
+    protected boolean timingWheelStopped;
     protected List<ChannelFactory> channelFactories;
     protected ScheduledExecutorService executor;
     protected boolean shutdownExecutor;
@@ -80,7 +84,6 @@ public abstract class AbstractFactoryManager extends AbstractKexFactoryManager i
     protected List<ServiceFactory> serviceFactories;
     protected List<RequestHandler<ConnectionService>> globalRequestHandlers;
     protected SessionTimeoutListener sessionTimeoutListener;
-    protected ScheduledFuture<?> timeoutListenerFuture;
     protected final Collection<SessionListener> sessionListeners = new CopyOnWriteArraySet<>();
     protected final SessionListener sessionListenerProxy;
     protected final Collection<ChannelListener> channelListeners = new CopyOnWriteArraySet<>();
@@ -140,6 +143,51 @@ public abstract class AbstractFactoryManager extends AbstractKexFactoryManager i
         this.randomFactory = randomFactory;
     }
 
+    @Override
+    public BufferPool getBufferPool() {
+        BufferPool pool = bufferPool;
+        if (pool == null) {
+            synchronized (this) {
+                pool = bufferPool;
+                if (pool == null) {
+                    pool = BufferPool.of(this);
+                    bufferPool = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
+    @Override
+    public TimingWheel getTimingWheel() {
+        TimingWheel wheel = timingWheel;
+        if (wheel == null) {
+            synchronized (this) {
+                wheel = timingWheel;
+                if (wheel == null) {
+                    if (timingWheelStopped) {
+                        // a wheel created now would never be stopped
+                        throw new IllegalStateException("Timing wheel already stopped for " + this);
+                    }
+
+                    wheel = new TimingWheel(
+                            getScheduledExecutorService(), CoreModuleProperties.TIMING_WHEEL_TICK.getRequired(this));
+                    wheel.start();
+                    timingWheel = wheel;
+                }
+            }
+        }
+        return wheel;
+    }
+
+    /**
+     * @param bufferPool The pool to use - if {@code null} then one is created on first use according to the
+     *                   configured properties
+     */
+    public void setBufferPool(BufferPool bufferPool) {
+        this.bufferPool = bufferPool;
+    }
+
     @Override
     public Map<String, Object> getProperties() {
         return properties;
@@ -455,12 +503,12 @@ public abstract class AbstractFactoryManager extends AbstractKexFactoryManager i
     }
 
     protected void setupSessionTimeout(AbstractSessionFactory<?, ?> sessionFactory) {
-        // set up the the session timeout listener and schedule it
+        // set up the the session timeout listener - it arms a deadline per session on the timing wheel
+        synchronized (this) {
+            timingWheelStopped = false;
+        }
         sessionTimeoutListener = createSessionTimeoutListener();
         addSessionListener(sessionTimeoutListener);
-
-        timeoutListenerFuture = getScheduledExecutorService()
-                .scheduleAtFixedRate(sessionTimeoutListener, 1, 1, TimeUnit.SECONDS);
     }
 
     protected void removeSessionTimeout(AbstractSessionFactory<?, ?> sessionFactory) {
@@ -468,19 +516,10 @@ public abstract class AbstractFactoryManager extends AbstractKexFactoryManager i
     }
 
     protected SessionTimeoutListener createSessionTimeoutListener() {
-        return new SessionTimeoutListener();
+        return new SessionTimeoutListener(getTimingWheel());
     }
 
     protected void stopSessionTimeoutListener(AbstractSessionFactory<?, ?> sessionFactory) {
-        // cancel the timeout monitoring task
-        if (timeoutListenerFuture != null) {
-            try {
-                timeoutListenerFuture.cancel(true);
-            } finally {
-                timeoutListenerFuture = null;
-            }
-        }
-
         // remove the sessionTimeoutListener completely; should the SSH server/client be restarted, a new one
         // will be created.
         if (sessionTimeoutListener != null) {
@@ -490,6 +529,16 @@ public abstract class AbstractFactoryManager extends AbstractKexFactoryManager i
                 sessionTimeoutListener = null;
             }
         }
+
+        TimingWheel wheel;
+        synchronized (this) {
+            wheel = timingWheel;
+            timingWheel = null;
+            timingWheelStopped = true;
+        }
+        if (wheel != null) {
+            wheel.stop();
+        }
     }
 
     protected void checkConfig() {
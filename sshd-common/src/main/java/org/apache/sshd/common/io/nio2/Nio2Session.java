@@ -25,12 +25,16 @@ import java.nio.ByteBuffer;
 import java.nio.channels.AsynchronousSocketChannel;
 import java.nio.channels.ClosedChannelException;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Queue;
 import java.util.concurrent.LinkedTransferQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -71,6 +75,9 @@ public class Nio2Session extends AbstractCloseable implements IoSession {
     private final AtomicLong writeCyclesCounter = new AtomicLong();
     private final AtomicLong lastWriteCycleStart = new AtomicLong();
     private final Object suspendLock = new Object();
+    private final int writeCoalesceMaxCount;
+    private final int writeCoalesceMaxBytes;
+    private final AtomicReference<ByteBuffer> pooledReadBuffer = new AtomicReference<>();
     private volatile boolean suspend;
     private volatile Runnable readRunnable;
 
@@ -85,6 +92,8 @@ public class Nio2Session extends AbstractCloseable implements IoSession {
         this.localAddress = socket.getLocalAddress();
         this.remoteAddress = socket.getRemoteAddress();
         this.acceptanceAddress = acceptanceAddress;
+        this.writeCoalesceMaxCount = CoreModuleProperties.NIO2_WRITE_COALESCE_MAX_COUNT.getRequired(manager);
+        this.writeCoalesceMaxBytes = CoreModuleProperties.NIO2_WRITE_COALESCE_MAX_BYTES.getRequired(manager);
         if (log.isDebugEnabled()) {
             log.debug("Creating IoSession on {} from {} via {}", localAddress, remoteAddress, acceptanceAddress);
         }
@@ -305,7 +314,10 @@ public class Nio2Session extends AbstractCloseable implements IoSession {
     }
 
     public void startReading(int bufSize) {
-        startReading(new byte[bufSize]);
+        // the read buffer lives as long as the session - it is returned to the pool once reading stops
+        ByteBuffer buffer = manager.getBufferPool().acquireByteBuffer(bufSize);
+        pooledReadBuffer.set(buffer);
+        startReading(buffer);
     }
 
     public void startReading(byte[] buf) {
@@ -364,12 +376,14 @@ public class Nio2Session extends AbstractCloseable implements IoSession {
                     if (debugEnabled) {
                         log.debug("handleReadCycleCompletion({}) IoSession has been closed, stop reading", this);
                     }
+                    releaseReadBuffer(buffer);
                 }
             } else {
                 if (debugEnabled) {
                     log.debug("handleReadCycleCompletion({}) Socket has been disconnected (result={}), closing IoSession now",
                             this, result);
                 }
+                releaseReadBuffer(buffer);
                 close(true);
             }
         } catch (Throwable exc) {
@@ -382,9 +396,21 @@ public class Nio2Session extends AbstractCloseable implements IoSession {
                 this, exc.getClass().getSimpleName(), System.nanoTime() - lastReadCycleStart.get(),
                 readCyclesCounter, exc.getMessage(), exc);
 
+        releaseReadBuffer(buffer);
         exceptionCaught(exc);
     }
 
+    /**
+     * Returns the read buffer to the pool if it was leased from it - invoked once no more reads are pending
+     *
+     * @param buffer The read buffer
+     */
+    protected void releaseReadBuffer(ByteBuffer buffer) {
+        if (pooledReadBuffer.compareAndSet(buffer, null)) {
+            manager.getBufferPool().releaseByteBuffer(buffer);
+        }
+    }
+
     @Override
     public void suspendRead() {
         log.trace("suspendRead({})", this);
@@ -439,15 +465,28 @@ public class Nio2Session extends AbstractCloseable implements IoSession {
             return;
         }
 
+        List<Nio2DefaultIoWriteFuture> batch = collectWriteBatch(future);
         try {
             AsynchronousSocketChannel socket = getSocket();
-            ByteBuffer buffer = future.getBuffer();
-            Nio2CompletionHandler<Integer, Object> handler = Objects.requireNonNull(
-                    createWriteCycleCompletionHandler(future, socket, buffer),
-                    "No write cycle completion handler created");
-            doWriteCycle(buffer, handler);
+            if (batch.size() > 1) {
+                Nio2DefaultIoWriteFuture[] futures = batch.toArray(new Nio2DefaultIoWriteFuture[0]);
+                ByteBuffer[] buffers = new ByteBuffer[futures.length];
+                for (int index = 0; index < futures.length; index++) {
+                    buffers[index] = futures[index].getBuffer();
+                }
+                Nio2CompletionHandler<Long, Object> handler = Objects.requireNonNull(
+                        createGatheringWriteCycleCompletionHandler(futures, socket, buffers),
+                        "No gathering write cycle completion handler created");
+                doGatheringWriteCycle(buffers, 0, handler);
+            } else {
+                ByteBuffer buffer = future.getBuffer();
+                Nio2CompletionHandler<Integer, Object> handler = Objects.requireNonNull(
+                        createWriteCycleCompletionHandler(future, socket, buffer),
+                        "No write cycle completion handler created");
+                doWriteCycle(buffer, handler);
+            }
         } catch (Throwable e) {
-            future.setWritten();
+            batch.forEach(Nio2DefaultIoWriteFuture::setWritten);
 
             if (e instanceof RuntimeException) {
                 throw (RuntimeException) e;
@@ -457,6 +496,146 @@ public class Nio2Session extends AbstractCloseable implements IoSession {
         }
     }
 
+    /**
+     * Collects the queued writes that are submitted together with the one at the head of the queue
+     *
+     * @param  first The write at the head of the queue
+     * @return       The writes - in queue order, starting with the first one
+     * @see          CoreModuleProperties#NIO2_WRITE_COALESCE_MAX_COUNT
+     * @see          CoreModuleProperties#NIO2_WRITE_COALESCE_MAX_BYTES
+     */
+    protected List<Nio2DefaultIoWriteFuture> collectWriteBatch(Nio2DefaultIoWriteFuture first) {
+        if (writeCoalesceMaxCount <= 1) {
+            return Collections.singletonList(first);
+        }
+
+        List<Nio2DefaultIoWriteFuture> batch = new ArrayList<>();
+        long numBytes = 0L;
+        for (Nio2DefaultIoWriteFuture future : writes) {
+            int len = future.getBuffer().remaining();
+            if (batch.isEmpty()) {
+                if (future != first) {
+                    break;
+                }
+            } else if ((batch.size() >= writeCoalesceMaxCount) || ((numBytes + len) > writeCoalesceMaxBytes)) {
+                break;
+            }
+            batch.add(future);
+            numBytes += len;
+        }
+
+        return batch.isEmpty() ? Collections.singletonList(first) : batch;
+    }
+
+    protected void doGatheringWriteCycle(
+            ByteBuffer[] buffers, int offset, Nio2CompletionHandler<Long, Object> completion) {
+        AsynchronousSocketChannel socket = getSocket();
+        Duration writeTimeout = CoreModuleProperties.NIO2_MIN_WRITE_TIMEOUT.getRequired(manager);
+        writeCyclesCounter.incrementAndGet();
+        lastWriteCycleStart.set(System.nanoTime());
+        socket.write(buffers, offset, buffers.length - offset,
+                writeTimeout.toMillis(), TimeUnit.MILLISECONDS, null, completion);
+    }
+
+    protected Nio2CompletionHandler<Long, Object> createGatheringWriteCycleCompletionHandler(
+            Nio2DefaultIoWriteFuture[] futures, AsynchronousSocketChannel socket, ByteBuffer[] buffers) {
+        long writeLen = 0L;
+        for (ByteBuffer buffer : buffers) {
+            writeLen += buffer.remaining();
+        }
+
+        long totalLen = writeLen;
+        // number of writes completed so far - updated before the next cycle is started, whose completion may run
+        // nested or on another thread
+        AtomicInteger numWritten = new AtomicInteger();
+        return new Nio2CompletionHandler<Long, Object>() {
+            @Override
+            protected void onCompleted(Long result, Object attachment) {
+                handleCompletedGatheringWriteCycle(
+                        futures, socket, buffers, numWritten, totalLen, this, result, attachment);
+            }
+
+            @Override
+            protected void onFailed(Throwable exc, Object attachment) {
+                handleGatheringWriteCycleFailure(futures, numWritten.get(), totalLen, exc, attachment);
+            }
+        };
+    }
+
+    /**
+     * Completes the writes whose bytes have been fully flushed and continues with the rest
+     *
+     * @param  futures           The batch of writes
+     * @param  socket            The socket
+     * @param  buffers           The buffers of the writes
+     * @param  completed         The number of writes completed before this cycle - updated with the ones completed
+     *                           by it <U>before</U> the next cycle is started
+     * @param  writeLen          The total number of bytes of the batch
+     * @param  completionHandler The handler for the next cycle
+     * @param  result            The number of bytes written by this cycle
+     * @param  attachment        The cycle attachment
+     */
+    protected void handleCompletedGatheringWriteCycle(
+            Nio2DefaultIoWriteFuture[] futures, AsynchronousSocketChannel socket, ByteBuffer[] buffers,
+            AtomicInteger completed, long writeLen, Nio2CompletionHandler<Long, Object> completionHandler,
+            Long result, Object attachment) {
+        int numWritten = completed.get();
+        while ((numWritten < futures.length) && (!buffers[numWritten].hasRemaining())) {
+            Nio2DefaultIoWriteFuture future = futures[numWritten];
+            numWritten++;
+            // see handleCompletedWriteCycle - remove before signalling
+            writes.remove(future);
+            future.setWritten();
+        }
+        completed.set(numWritten);
+
+        if (numWritten < futures.length) {
+            try {
+                doGatheringWriteCycle(buffers, numWritten, completionHandler);
+            } catch (Throwable t) {
+                debug("handleCompletedGatheringWriteCycle({}) {} while writing to socket len={}: {}",
+                        this, t.getClass().getSimpleName(), writeLen, t.getMessage(), t);
+                for (int index = numWritten; index < futures.length; index++) {
+                    writes.remove(futures[index]);
+                    futures[index].setWritten();
+                }
+                finishWrite(futures[0]);
+            }
+        } else {
+            if (log.isTraceEnabled()) {
+                log.trace("handleCompletedGatheringWriteCycle({}) finished writing {} buffers len={} at cycle={} after {} nanos",
+                        this, futures.length, writeLen, writeCyclesCounter, System.nanoTime() - lastWriteCycleStart.get());
+            }
+            finishWrite(futures[0]);
+        }
+    }
+
+    protected void handleGatheringWriteCycleFailure(
+            Nio2DefaultIoWriteFuture[] futures, int numWritten, long writeLen, Throwable exc, Object attachment) {
+        if (log.isDebugEnabled()) {
+            debug("handleGatheringWriteCycleFailure({}) failed ({}) to write {} bytes in {} buffers at write cycle={}: {}",
+                    this, exc.getClass().getSimpleName(), writeLen, futures.length, writeCyclesCounter,
+                    exc.getMessage(), exc);
+        }
+
+        for (int index = numWritten; index < futures.length; index++) {
+            futures[index].setException(exc);
+        }
+        exceptionCaught(exc);
+
+        try {
+            for (int index = numWritten; index < futures.length; index++) {
+                writes.remove(futures[index]);
+            }
+            finishWrite(futures[0]);
+        } catch (RuntimeException e) {
+            if (log.isTraceEnabled()) {
+                log.trace("handleGatheringWriteCycleFailure({}) failed ({}) to finish writing: {}",
+                        this, e.getClass().getSimpleName(), e.getMessage());
+            }
+        }
+    }
+
     protected void doWriteCycle(ByteBuffer buffer, Nio2CompletionHandler<Integer, Object> completion) {
         AsynchronousSocketChannel socket = getSocket();
         Duration writeTimeout = CoreModuleProperties.NIO2_MIN_WRITE_TIMEOUT.getRequired(manager);
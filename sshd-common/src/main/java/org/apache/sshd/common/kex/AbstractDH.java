@@ -22,6 +22,7 @@ import javax.crypto.KeyAgreement;
 
 import org.apache.sshd.common.digest.Digest;
 import org.apache.sshd.common.util.NumberUtils;
+import org.apache.sshd.common.util.buffer.Buffer;
 
 /**
  * Base class for the Diffie-Hellman key agreement.
@@ -63,6 +64,26 @@ public abstract class AbstractDH {
         return e_array;
     }
 
+    /**
+     * Writes the local public key data to a key exchange message or to the exchange hash input
+     *
+     * @param buffer The target {@link Buffer}
+     * @param e      The public key data - as an mpint by default
+     */
+    public void putE(Buffer buffer, byte[] e) {
+        buffer.putMPInt(e);
+    }
+
+    /**
+     * Writes the peer's public key data to the exchange hash input
+     *
+     * @param buffer The target {@link Buffer}
+     * @param f      The public key data - as an mpint by default
+     */
+    public void putF(Buffer buffer, byte[] f) {
+        buffer.putMPInt(f);
+    }
+
     public boolean isSharedSecretAvailable() {
         return k_array != null;
     }
@@ -201,6 +201,34 @@ public enum BuiltinDHFactories implements DHFactory {
             return true;
         }
     },
+    curve25519(Constants.CURVE25519_SHA256) {
+        @Override
+        public X25519 create(Object... params) throws Exception {
+            if (!GenericUtils.isEmpty(params)) {
+                throw new IllegalArgumentException("No accepted parameters for " + getName());
+            }
+            return new X25519(BuiltinDigests.sha256);
+        }
+
+        @Override
+        public boolean isSupported() {
+            return BuiltinDigests.sha256.isSupported();
+        }
+    },
+    curve25519_libssh(Constants.CURVE25519_SHA256_LIBSSH) {
+        @Override
+        public X25519 create(Object... params) throws Exception {
+            if (!GenericUtils.isEmpty(params)) {
+                throw new IllegalArgumentException("No accepted parameters for " + getName());
+            }
+            return new X25519(BuiltinDigests.sha256);
+        }
+
+        @Override
+        public boolean isSupported() {
+            return BuiltinDigests.sha256.isSupported();
+        }
+    },
     ecdhp256(Constants.ECDH_SHA2_NISTP256) {
         @Override
         public ECDH create(Object... params) throws Exception {
@@ -414,6 +442,8 @@ public enum BuiltinDHFactories implements DHFactory {
         public static final String DIFFIE_HELLMAN_GROUP18_SHA512 = "diffie-hellman-group18-sha512";
         public static final String DIFFIE_HELLMAN_GROUP_EXCHANGE_SHA1 = "diffie-hellman-group-exchange-sha1";
         public static final String DIFFIE_HELLMAN_GROUP_EXCHANGE_SHA256 = "diffie-hellman-group-exchange-sha256";
+        public static final String CURVE25519_SHA256 = "curve25519-sha256";
+        public static final String CURVE25519_SHA256_LIBSSH = "curve25519-sha256@libssh.org";
         public static final String ECDH_SHA2_NISTP256 = "ecdh-sha2-nistp256";
         public static final String ECDH_SHA2_NISTP384 = "ecdh-sha2-nistp384";
         public static final String ECDH_SHA2_NISTP521 = "ecdh-sha2-nistp521";
@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common.kex;
+
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Objects;
+
+import org.apache.sshd.common.SshConstants;
+import org.apache.sshd.common.SshException;
+import org.apache.sshd.common.digest.Digest;
+import org.apache.sshd.common.digest.DigestFactory;
+import org.apache.sshd.common.util.buffer.Buffer;
+import org.apache.sshd.common.util.security.eddsa.EdDSASecurityProviderUtils;
+import org.xbib.io.sshd.eddsa.math.Field;
+import org.xbib.io.sshd.eddsa.math.FieldElement;
+import org.xbib.io.sshd.eddsa.math.GroupElement;
+import org.xbib.io.sshd.eddsa.spec.EdDSANamedCurveSpec;
+import org.xbib.io.sshd.eddsa.spec.EdDSANamedCurveTable;
+
+/**
+ * X25519 (<A HREF="https://tools.ietf.org/html/rfc7748">RFC 7748</A>) key agreement for the {@code curve25519-sha256}
+ * key exchange (<A HREF="https://tools.ietf.org/html/rfc8731">RFC 8731</A>), built on the constant-time field
+ * arithmetic of the Ed25519 implementation. The public key is derived from the pre-computed Ed25519 base point table
+ * and mapped to its Montgomery u-coordinate, while the shared secret uses the Montgomery ladder.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class X25519 extends AbstractDH {
+    public static final String KEX_TYPE = "X25519";
+    public static final int KEY_SIZE = 32;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final DigestFactory digestFactory;
+    private byte[] scalar;
+    private byte[] f;
+
+    public X25519(DigestFactory digestFactory) {
+        this.digestFactory = Objects.requireNonNull(digestFactory, "No digest factory");
+    }
+
+    @Override
+    protected byte[] calculateE() throws Exception {
+        scalar = generatePrivateKey();
+        clamp(scalar);
+        return publicKey(scalar);
+    }
+
+    /**
+     * @return The (not yet clamped) private key - random bytes by default
+     */
+    protected byte[] generatePrivateKey() {
+        byte[] k = new byte[KEY_SIZE];
+        RANDOM.nextBytes(k);
+        return k;
+    }
+
+    @Override
+    protected byte[] calculateK() throws Exception {
+        Objects.requireNonNull(scalar, "No private key generated");
+        Objects.requireNonNull(f, "Missing 'f' value");
+        byte[] secret;
+        try {
+            secret = sharedSecret(scalar, f);
+        } finally {
+            Arrays.fill(scalar, (byte) 0);
+        }
+
+        int bits = 0;
+        for (byte b : secret) {
+            bits |= b;
+        }
+        // RFC 8731 section 3: reject the all-zero value (low order peer point)
+        if (bits == 0) {
+            throw new SshException(
+                    SshConstants.SSH2_DISCONNECT_KEY_EXCHANGE_FAILED, "Invalid X25519 shared secret");
+        }
+
+        // RFC 8731 section 3.1: the shared secret is encoded as an mpint of its bytes
+        return stripLeadingZeroes(secret);
+    }
+
+    @Override
+    public void setF(byte[] f) {
+        Objects.requireNonNull(f, "No 'f' value specified");
+        if (f.length != KEY_SIZE) {
+            throw new IllegalArgumentException("Bad X25519 public key length: " + f.length);
+        }
+        this.f = f;
+    }
+
+    /**
+     * The public keys are exchanged (and hashed) as strings rather than mpints
+     */
+    @Override
+    public void putE(Buffer buffer, byte[] e) {
+        buffer.putBytes(e);
+    }
+
+    @Override
+    public void putF(Buffer buffer, byte[] f) {
+        buffer.putBytes(f);
+    }
+
+    @Override
+    public Digest getHash() throws Exception {
+        return digestFactory.create();
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + "[" + digestFactory + "]";
+    }
+
+    public static void clamp(byte[] k) {
+        k[0] &= (byte) 248;
+        k[31] &= (byte) 127;
+        k[31] |= (byte) 64;
+    }
+
+    /**
+     * @param  k The clamped private scalar (little-endian)
+     * @return   The u-coordinate of {@code k * base point} (little-endian)
+     */
+    public static byte[] publicKey(byte[] k) {
+        // u = (1 + y) / (1 - y) = (Z + Y) / (Z - Y) of the Edwards point
+        GroupElement p = getCurveSpec().getB().scalarMultiply(k);
+        FieldElement y = p.getY();
+        FieldElement z = p.getZ();
+        return z.add(y).multiply(z.subtract(y).invert()).toByteArray();
+    }
+
+    /**
+     * @param  k The clamped private scalar (little-endian)
+     * @param  u The peer's public u-coordinate (little-endian)
+     * @return   The shared secret - {@code X25519(k, u)}
+     */
+    public static byte[] sharedSecret(byte[] k, byte[] u) {
+        Field field = getCurveSpec().getCurve().getField();
+        FieldElement x1 = field.fromByteArray(u); // the most significant bit is masked by the decoding
+        FieldElement x2 = field.ONE;
+        FieldElement z2 = field.ZERO;
+        FieldElement x3 = x1;
+        FieldElement z3 = field.ONE;
+        FieldElement a24 = A24Holder.A24;
+
+        int swap = 0;
+        for (int t = 254; t >= 0; t--) {
+            int kt = (k[t >>> 3] >>> (t & 0x07)) & 0x01;
+            swap ^= kt;
+            FieldElement tx = x2.cmov(x3, swap);
+            x3 = x3.cmov(x2, swap);
+            x2 = tx;
+            FieldElement tz = z2.cmov(z3, swap);
+            z3 = z3.cmov(z2, swap);
+            z2 = tz;
+            swap = kt;
+
+            FieldElement a = x2.add(z2);
+            FieldElement aa = a.square();
+            FieldElement b = x2.subtract(z2);
+            FieldElement bb = b.square();
+            FieldElement e = aa.subtract(bb);
+            FieldElement c = x3.add(z3);
+            FieldElement d = x3.subtract(z3);
+            FieldElement da = d.multiply(a);
+            FieldElement cb = c.multiply(b);
+            x3 = da.add(cb).square();
+            z3 = x1.multiply(da.subtract(cb).square());
+            x2 = aa.multiply(bb);
+            // AA + 121665 * E == BB + 121666 * E
+            z2 = e.multiply(bb.add(a24.multiply(e)));
+        }
+
+        x2 = x2.cmov(x3, swap);
+        z2 = z2.cmov(z3, swap);
+        return x2.multiply(z2.invert()).toByteArray();
+    }
+
+    public static EdDSANamedCurveSpec getCurveSpec() {
+        return EdDSANamedCurveTable.getByName(EdDSASecurityProviderUtils.CURVE_ED25519_SHA512);
+    }
+
+    private static final class A24Holder {
+        // (486662 + 2) / 4
+        private static final FieldElement A24;
+
+        static {
+            byte[] value = new byte[KEY_SIZE];
+            value[0] = (byte) 0x42;
+            value[1] = (byte) 0xdb;
+            value[2] = (byte) 0x01;
+            A24 = getCurveSpec().getCurve().getField().fromByteArray(value);
+        }
+
+        private A24Holder() {
+            throw new UnsupportedOperationException("No instance");
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common.random;
+
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+import org.apache.sshd.common.cipher.ChaCha20Poly1305Cipher.ChaCha20Engine;
+import org.apache.sshd.common.util.ValidateUtils;
+
+/**
+ * A fast deterministic random bits generator meant to be used by a single session - a ChaCha20 key stream (the same
+ * construction as OpenBSD's {@code arc4random}) seeded from the system {@link SecureRandom}. The key stream is
+ * generated in bulk into an internal pool, so that filling the padding of an outgoing packet costs an array copy. Each
+ * refill re-keys the generator from its own output (&quot;fast key erasure&quot;) and the consumed bytes are wiped from
+ * the pool, so past output cannot be recovered from the current state. The generator is re-seeded from the system
+ * source every {@value #RESEED_INTERVAL} bytes.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class ChaCha20Random extends AbstractRandom {
+    public static final String NAME = "ChaCha20";
+
+    public static final int KEY_SIZE = 32;
+    public static final int POOL_SIZE = 16 * ChaCha20Engine.BLOCK_SIZE;
+    public static final long RESEED_INTERVAL = 1024L * 1024L;
+
+    private static final SecureRandom SEED_SOURCE = new SecureRandom();
+
+    private final ChaCha20Engine engine = new ChaCha20Engine();
+    private final byte[] pool = new byte[POOL_SIZE];
+    private final byte[] intBytes = new byte[Integer.BYTES];
+    private int available;
+    private long generated;
+
+    public ChaCha20Random() {
+        reseed();
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public synchronized void fill(byte[] bytes, int start, int len) {
+        while (len > 0) {
+            if (available <= 0) {
+                refill();
+            }
+
+            int chunk = Math.min(len, available);
+            int pos = POOL_SIZE - available;
+            System.arraycopy(pool, pos, bytes, start, chunk);
+            Arrays.fill(pool, pos, pos + chunk, (byte) 0);
+            available -= chunk;
+            start += chunk;
+            len -= chunk;
+        }
+    }
+
+    @Override
+    public synchronized int random(int n) {
+        ValidateUtils.checkTrue(n > 0, "Bound must be positive: %d", n);
+        // same unbiased rejection sampling as java.util.Random#nextInt(int)
+        int bits;
+        int value;
+        do {
+            fill(intBytes, 0, intBytes.length);
+            bits = (((intBytes[0] & 0xFF) << 24)
+                    | ((intBytes[1] & 0xFF) << 16)
+                    | ((intBytes[2] & 0xFF) << 8)
+                    | (intBytes[3] & 0xFF)) >>> 1;
+            value = bits % n;
+        } while ((bits - value + (n - 1)) < 0);
+
+        return value;
+    }
+
+    protected void reseed() {
+        byte[] seed = new byte[KEY_SIZE];
+        synchronized (SEED_SOURCE) {
+            SEED_SOURCE.nextBytes(seed);
+        }
+        engine.setKey(seed, 0);
+        Arrays.fill(seed, (byte) 0);
+        Arrays.fill(pool, (byte) 0);
+        available = 0;
+        generated = 0L;
+    }
+
+    protected void refill() {
+        if (generated >= RESEED_INTERVAL) {
+            reseed();
+        }
+
+        // the consumed bytes have already been wiped - i.e., the pool is all zeroes
+        engine.reset(0L, 0L);
+        engine.process(pool, 0, POOL_SIZE);
+        // the first bytes become the next key and are never handed out
+        engine.setKey(pool, 0);
+        Arrays.fill(pool, 0, KEY_SIZE, (byte) 0);
+        available = POOL_SIZE - KEY_SIZE;
+        generated += available;
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common.random;
+
+/**
+ * Named factory for the {@link ChaCha20Random} generator. Unlike the {@link JceRandomFactory} - which is usually
+ * wrapped by a {@link SingletonRandomFactory} and thus shared by all the sessions - this factory is meant to be used
+ * as-is so that each session gets its own generator and filling the packets padding does not contend on a JVM-wide
+ * lock:
+ *
+ * <pre>
+ * builder.randomFactory(ChaCha20RandomFactory.INSTANCE);
+ * </pre>
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class ChaCha20RandomFactory extends AbstractRandomFactory {
+    public static final String NAME = "chacha20";
+    public static final ChaCha20RandomFactory INSTANCE = new ChaCha20RandomFactory();
+
+    public ChaCha20RandomFactory() {
+        super(NAME);
+    }
+
+    @Override
+    public boolean isSupported() {
+        return true;
+    }
+
+    @Override
+    public Random create() {
+        return new ChaCha20Random();
+    }
+}
@@ -28,7 +28,14 @@ import org.apache.sshd.common.util.buffer.ByteArrayBuffer;
  * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
  */
 public class SessionWorkBuffer extends ByteArrayBuffer implements SessionHolder<Session> {
+    /**
+     * Number of consecutive compactions during which a buffer that grew beyond its retained size must hold little
+     * enough data before it is shrunk back
+     */
+    public static final int SHRINK_CYCLES = 16;
+
     private final Session session;
+    private int idleCycles;
 
     public SessionWorkBuffer(Session session) {
         this.session = Objects.requireNonNull(session, "No session");
@@ -47,4 +54,23 @@ public class SessionWorkBuffer extends ByteArrayBuffer implements SessionHolder<
     public void forceClear(boolean wipeData) {
         super.clear(wipeData);
     }
+
+    /**
+     * Compacts the buffer once its data has been consumed. A backing array that grew beyond the retained size (e.g.,
+     * for a large packet) is shrunk back to it after {@value #SHRINK_CYCLES} consecutive compactions left at most half
+     * of it in use, so that bursts of large packets do not re-allocate it over and over.
+     *
+     * @param retainedSize The backing array size to shrink back to
+     */
+    public void compactAndTrim(int retainedSize) {
+        if ((size() <= retainedSize) || (available() > (retainedSize / 2))) {
+            idleCycles = 0;
+            compact();
+        } else if (++idleCycles < SHRINK_CYCLES) {
+            compact();
+        } else {
+            idleCycles = 0;
+            shrink(retainedSize);
+        }
+    }
 }
@@ -27,9 +27,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -64,6 +62,7 @@ import org.apache.sshd.common.util.Int2IntFunction;
 import org.apache.sshd.common.util.ValidateUtils;
 import org.apache.sshd.common.util.buffer.Buffer;
 import org.apache.sshd.common.util.closeable.AbstractInnerCloseable;
+import org.apache.sshd.common.util.threads.TimingWheel;
 import org.apache.sshd.common.CoreModuleProperties;
 
 /**
@@ -191,9 +190,8 @@ public abstract class AbstractConnectionService
         }
 
         FactoryManager manager = session.getFactoryManager();
-        ScheduledExecutorService service = manager.getScheduledExecutorService();
-        return service.scheduleAtFixedRate(
-                this::sendHeartBeat, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+        TimingWheel wheel = manager.getTimingWheel();
+        return wheel.scheduleAtFixedRate(this::sendHeartBeat, interval, interval);
     }
 
     /**
@@ -84,6 +84,7 @@ import org.apache.sshd.common.util.NumberUtils;
 import org.apache.sshd.common.util.Readable;
 import org.apache.sshd.common.util.ValidateUtils;
 import org.apache.sshd.common.util.buffer.Buffer;
+import org.apache.sshd.common.util.buffer.BufferPool;
 import org.apache.sshd.common.util.buffer.BufferUtils;
 import org.apache.sshd.common.util.buffer.ByteArrayBuffer;
 import org.apache.sshd.common.CoreModuleProperties;
@@ -96,8 +97,8 @@ import org.apache.sshd.common.CoreModuleProperties;
  * method, which is dependent on the state and side of this session.
  * </P>
  *
- * TODO: if there is any very big packet, decoderBuffer and uncompressBuffer will get quite big and they won't be
- * resized down at any time. Though the packet size is really limited by the channel max packet size
+ * TODO: if there is any very big packet, uncompressBuffer will get quite big and it won't be resized down at any
+ * time. Though the packet size is really limited by the channel max packet size
  *
  * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
  */
@@ -170,6 +171,7 @@ public abstract class AbstractSession extends SessionHelper {
     protected final SessionWorkBuffer decoderBuffer;
     protected int decoderState;
     protected int decoderLength;
+    protected int decoderBufferRetainedSize;
     protected final Object encodeLock = new Object();
     protected final Object decodeLock = new Object();
     protected final Object requestLock = new Object();
@@ -393,6 +395,8 @@ public abstract class AbstractSession extends SessionHelper {
      * Refresh whatever internal configuration is not {@code final}
      */
     protected void refreshConfiguration() {
+        decoderBufferRetainedSize = CoreModuleProperties.DECODER_BUFFER_RETAINED_SIZE.getRequired(this);
+
         synchronized (random) {
             // re-keying configuration
             maxRekeyBytes = CoreModuleProperties.REKEY_BYTES_LIMIT.getRequired(this);
@@ -976,7 +980,7 @@ public abstract class AbstractSession extends SessionHelper {
             ignoreBuf = encode(ignoreBuf);
 
             IoSession networkSession = getIoSession();
-            networkSession.writeBuffer(ignoreBuf);
+            releaseWhenWritten(networkSession.writeBuffer(ignoreBuf), ignoreBuf, ignoreBuf);
         }
 
         return encode(buffer);
@@ -990,10 +994,41 @@ public abstract class AbstractSession extends SessionHelper {
             Buffer packet = resolveOutputPacket(buffer);
             IoSession networkSession = getIoSession();
             IoWriteFuture future = networkSession.writeBuffer(packet);
+            releaseWhenWritten(future, buffer, packet);
             return future;
         }
     }
 
+    /**
+     * Returns the buffers of a written packet to the {@link BufferPool} once the network layer is done with them
+     *
+     * @param future The write future
+     * @param buffer The buffer the packet was written to
+     * @param packet The actually written (encoded) buffer - may be the same as the original one
+     */
+    protected void releaseWhenWritten(IoWriteFuture future, Buffer buffer, Buffer packet) {
+        BufferPool pool = getBufferPool();
+        if (pool == BufferPool.NONE) {
+            return;
+        }
+
+        future.addListener(f -> {
+            pool.release(packet);
+            if (buffer != packet) {
+                pool.release(buffer);
+            }
+        });
+    }
+
+    /**
+     * @return The {@link BufferPool} the packet buffers are leased from
+     * @see    FactoryManager#getBufferPool()
+     */
+    public BufferPool getBufferPool() {
+        FactoryManager manager = getFactoryManager();
+        return (manager == null) ? BufferPool.NONE : manager.getBufferPool();
+    }
+
     protected int resolveIgnoreBufferDataLength() {
         if ((ignorePacketDataLength <= 0)
                 || (ignorePacketsFrequency <= 0L)
@@ -1136,7 +1171,7 @@ public abstract class AbstractSession extends SessionHelper {
     @Override
     public Buffer createBuffer(byte cmd, int len) {
         if (len <= 0) {
-            return prepareBuffer(cmd, new ByteArrayBuffer());
+            return prepareBuffer(cmd, getBufferPool().acquire(ByteArrayBuffer.DEFAULT_SIZE));
         }
 
         // Since the caller claims to know how many bytes they will need
@@ -1151,7 +1186,7 @@ public abstract class AbstractSession extends SessionHelper {
             len += outMacSize;
         }
 
-        return prepareBuffer(cmd, new ByteArrayBuffer(new byte[len + Byte.SIZE], false));
+        return prepareBuffer(cmd, getBufferPool().acquire(len + Byte.SIZE));
     }
 
     @Override
@@ -1299,6 +1334,7 @@ public abstract class AbstractSession extends SessionHelper {
             throw new IllegalArgumentException("AEAD mode requires an AEAD cipher");
         }
         byte[] data = buf.array();
+        outCipher.setSequenceNumber(seqo);
         outCipher.updateWithAAD(data, offset, Integer.BYTES, len);
         int blocksCount = len / outCipherSize;
         outBlocksCount.addAndGet(Math.max(1, blocksCount));
@@ -1331,11 +1367,15 @@ public abstract class AbstractSession extends SessionHelper {
     }
 
     /**
-     * Decode the incoming buffer and handle packets as needed.
+     * Decode the incoming buffer and handle packets as needed. All the complete packets received so far are decoded in
+     * place one after the other and the buffer is compacted only once all of them have been handled, so that a read
+     * bringing in many small packets does not move the remaining data for each of them.
      *
      * @throws Exception If failed to decode
      */
     protected void decode() throws Exception {
+        // Offset of the packet being decoded - the buffer is compacted on entry
+        int packetOffset = 0;
         // Decoding loop
         for (;;) {
 
@@ -1345,8 +1385,8 @@ public abstract class AbstractSession extends SessionHelper {
             boolean etmMode = inMac != null && inMac.isEncryptThenMac();
             // Wait for beginning of packet
             if (decoderState == 0) {
-                // The read position should always be 0 at this point because we have compacted this buffer
-                assert decoderBuffer.rpos() == 0;
+                // The read position should always be at the start of the packet at this point
+                assert decoderBuffer.rpos() == packetOffset;
                 /*
                  * Note: according to RFC-4253 section 6:
                  *
@@ -1361,10 +1401,11 @@ public abstract class AbstractSession extends SessionHelper {
                 if (decoderBuffer.available() > minBufLen) {
                     if (authMode) {
                         // RFC 5647: packet length encoded in additional data
-                        inCipher.updateAAD(decoderBuffer.array(), 0, Integer.BYTES);
+                        inCipher.setSequenceNumber(seqi);
+                        inCipher.updateAAD(decoderBuffer.array(), packetOffset, Integer.BYTES);
                     } else if ((inCipher != null) && (!etmMode)) {
                         // Decrypt the first bytes so we can extract the packet length
-                        inCipher.update(decoderBuffer.array(), 0, inCipherSize);
+                        inCipher.update(decoderBuffer.array(), packetOffset, inCipherSize);
 
                         int blocksCount = inCipherSize / inCipher.getCipherBlockSize();
                         inBlocksCount.addAndGet(Math.max(1, blocksCount));
@@ -1384,6 +1425,13 @@ public abstract class AbstractSession extends SessionHelper {
                                 SshConstants.SSH2_DISCONNECT_PROTOCOL_ERROR,
                                 "Invalid packet length: " + decoderLength);
                     }
+
+                    // Make room for the whole packet at once rather than growing the buffer read after read
+                    int missing = packetOffset + Integer.BYTES + decoderLength + macSize + authSize
+                                  - decoderBuffer.wpos();
+                    if (missing > 0) {
+                        decoderBuffer.ensureCapacity(missing);
+                    }
                     // Ok, that's good, we can go to the next step
                     decoderState = 1;
                 } else {
@@ -1393,20 +1441,22 @@ public abstract class AbstractSession extends SessionHelper {
                 // We have received the beginning of the packet
             } else if (decoderState == 1) {
                 // The read position should always be after reading the packet length at this point
-                assert decoderBuffer.rpos() == Integer.BYTES;
+                assert decoderBuffer.rpos() == (packetOffset + Integer.BYTES);
                 // Check if the packet has been fully received
                 if (decoderBuffer.available() >= (decoderLength + macSize + authSize)) {
                     byte[] data = decoderBuffer.array();
                     if (authMode) {
-                        inCipher.update(data, Integer.BYTES /* packet length is handled by AAD */, decoderLength);
+                        inCipher.update(data, packetOffset + Integer.BYTES /* packet length is handled by AAD */,
+                                decoderLength);
 
                         int blocksCount = decoderLength / inCipherSize;
                         inBlocksCount.addAndGet(Math.max(1, blocksCount));
                     } else if (etmMode) {
-                        validateIncomingMac(data, 0, decoderLength + Integer.BYTES);
+                        validateIncomingMac(data, packetOffset, decoderLength + Integer.BYTES);
 
                         if (inCipher != null) {
-                            inCipher.update(data, Integer.BYTES /* packet length is unencrypted */, decoderLength);
+                            inCipher.update(data, packetOffset + Integer.BYTES /* packet length is unencrypted */,
+                                    decoderLength);
 
                             int blocksCount = decoderLength / inCipherSize;
                             inBlocksCount.addAndGet(Math.max(1, blocksCount));
@@ -1418,13 +1468,13 @@ public abstract class AbstractSession extends SessionHelper {
                          */
                         if (inCipher != null) {
                             int updateLen = decoderLength + Integer.BYTES - inCipherSize;
-                            inCipher.update(data, inCipherSize, updateLen);
+                            inCipher.update(data, packetOffset + inCipherSize, updateLen);
 
                             int blocksCount = updateLen / inCipherSize;
                             inBlocksCount.addAndGet(Math.max(1, blocksCount));
                         }
 
-                        validateIncomingMac(data, 0, decoderLength + Integer.BYTES);
+                        validateIncomingMac(data, packetOffset, decoderLength + Integer.BYTES);
                     }
 
                     // Increment incoming packet sequence number
@@ -1448,7 +1498,7 @@ public abstract class AbstractSession extends SessionHelper {
                         inCompression.uncompress(decoderBuffer, uncompressBuffer);
                         packet = uncompressBuffer;
                     } else {
-                        decoderBuffer.wpos(decoderLength + Integer.BYTES - pad);
+                        decoderBuffer.wpos(packetOffset + decoderLength + Integer.BYTES - pad);
                         packet = decoderBuffer;
                     }
 
@@ -1464,10 +1514,10 @@ public abstract class AbstractSession extends SessionHelper {
                     // Process decoded packet
                     handleMessage(packet);
 
-                    // Set ready to handle next packet
-                    decoderBuffer.rpos(decoderLength + Integer.BYTES + macSize + authSize);
+                    // Set ready to handle next packet - the buffer is compacted once all of them were handled
+                    packetOffset += decoderLength + Integer.BYTES + macSize + authSize;
+                    decoderBuffer.rpos(packetOffset);
                     decoderBuffer.wpos(wpos);
-                    decoderBuffer.compact();
                     decoderState = 0;
                 } else {
                     // need more data
@@ -1475,6 +1525,12 @@ public abstract class AbstractSession extends SessionHelper {
                 }
             }
         }
+
+        // Move the partially received packet (if any) to the start of the buffer
+        int consumed = decoderBuffer.rpos() - packetOffset;
+        decoderBuffer.rpos(packetOffset);
+        decoderBuffer.compactAndTrim(decoderBufferRetainedSize);
+        decoderBuffer.rpos(consumed);
     }
 
     protected void validateIncomingMac(byte[] data, int offset, int len) throws Exception {
@@ -18,34 +18,73 @@
  */
 package org.apache.sshd.common.session.helpers;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ScheduledFuture;
 
 import org.apache.sshd.common.session.Session;
 import org.apache.sshd.common.session.SessionListener;
 import org.apache.sshd.common.util.GenericUtils;
 import org.apache.sshd.common.util.logging.AbstractLoggingBean;
+import org.apache.sshd.common.util.threads.TimingWheel;
 
 /**
- * Task that iterates over all currently open {@link Session}s and checks each of them for timeouts. If the
- * {@link AbstractSession} has timed out (either authentication or idle timeout), the session will be disconnected.
+ * Checks the tracked {@link Session}s for timeouts. If the {@link AbstractSession} has timed out (either authentication
+ * or idle timeout), the session will be disconnected.
+ * <P>
+ * If created with a {@link TimingWheel}, each session has a single deadline on it - the earliest moment one of its
+ * timeouts could expire. When the deadline is reached the session is checked and, unless it timed out, a new deadline
+ * is armed according to its current timeout start times. Activity thus only updates these start times, and the cost
+ * of the checks is proportional to the number of sessions that reach their deadline rather than to the total number
+ * of sessions. A session none of whose timeouts is currently enabled - e.g., authenticated and without an idle
+ * timeout - is re-checked every {@link #RECHECK_INTERVAL}, so that timeouts enabled later on are still enforced.
+ * Otherwise, the (periodic) {@link #run()} iterates over all the tracked sessions.
+ * </P>
  *
  * @see SessionHelper#checkForTimeouts()
  */
 public class SessionTimeoutListener
         extends AbstractLoggingBean
         implements SessionListener, Runnable {
+    /**
+     * How often a tracked session is checked while none of its timeouts is enabled - same as the period of the
+     * {@link #run() scan} of all the sessions
+     */
+    public static final Duration RECHECK_INTERVAL = Duration.ofSeconds(1L);
+
     protected final Set<SessionHelper> sessions = new CopyOnWriteArraySet<>();
+    protected final Map<SessionHelper, ScheduledFuture<?>> deadlines = new ConcurrentHashMap<>();
+    protected final TimingWheel timingWheel;
 
     public SessionTimeoutListener() {
-        super();
+        this(null);
+    }
+
+    /**
+     * @param timingWheel The {@link TimingWheel} to arm the sessions deadlines on - if {@code null} then the sessions
+     *                    are only checked by {@link #run()}
+     */
+    public SessionTimeoutListener(TimingWheel timingWheel) {
+        this.timingWheel = timingWheel;
     }
 
     @Override
     public void sessionCreated(Session session) {
         if ((session instanceof SessionHelper)
                 && (GenericUtils.isPositive(session.getAuthTimeout()) || GenericUtils.isPositive(session.getIdleTimeout()))) {
-            sessions.add((SessionHelper) session);
+            SessionHelper helper = (SessionHelper) session;
+            if (timingWheel == null) {
+                sessions.add(helper);
+            } else {
+                Duration delay = getNextCheckDelay(helper);
+                if (delay != null) {
+                    deadlines.put(helper, timingWheel.schedule(() -> checkSession(helper), delay));
+                }
+            }
             if (log.isDebugEnabled()) {
                 log.debug("sessionCreated({}) tracking", session);
             }
@@ -66,7 +105,12 @@ public class SessionTimeoutListener
     @SuppressWarnings("SuspiciousMethodCalls")
     @Override
     public void sessionClosed(Session s) {
-        if (sessions.remove(s)) {
+        ScheduledFuture<?> deadline = deadlines.remove(s);
+        if (deadline != null) {
+            deadline.cancel(false);
+        }
+
+        if (sessions.remove(s) || (deadline != null)) {
             if (log.isDebugEnabled()) {
                 log.debug("sessionClosed({}) un-tracked", s);
             }
@@ -88,4 +132,63 @@ public class SessionTimeoutListener
             }
         }
     }
+
+    /**
+     * Invoked when the deadline of a session is reached - checks it and arms the next deadline
+     *
+     * @param session The checked session
+     */
+    protected void checkSession(SessionHelper session) {
+        try {
+            session.checkForTimeouts();
+        } catch (Exception e) {
+            warn("checkSession({}) {} while checking timeouts: {}", session, e.getClass().getSimpleName(), e.getMessage(),
+                    e);
+        }
+
+        // re-arm only if still tracked - i.e., not closed meanwhile
+        deadlines.computeIfPresent(session, (s, expired) -> {
+            Duration delay = getNextCheckDelay(s);
+            return (delay == null) ? null : timingWheel.schedule(() -> checkSession(s), delay);
+        });
+    }
+
+    /**
+     * @param  session The session
+     * @return         How long until one of its timeouts could expire - {@link #RECHECK_INTERVAL} if none is enabled
+     *                 at the moment, {@code null} if the session is closing or has already timed out
+     */
+    protected Duration getNextCheckDelay(SessionHelper session) {
+        if ((!session.isOpen()) || session.isClosing()) {
+            return null;
+        }
+
+        TimeoutIndicator status = session.getTimeoutStatus();
+        if ((status != null) && (status.getStatus() != TimeoutIndicator.TimeoutStatus.NoTimeout)) {
+            return null;
+        }
+
+        Instant deadline = null;
+        Duration authTimeout = session.getAuthTimeout();
+        if ((!session.isAuthenticated()) && GenericUtils.isPositive(authTimeout)) {
+            deadline = session.getAuthTimeoutStart().plus(authTimeout);
+        }
+
+        Duration idleTimeout = session.getIdleTimeout();
+        if (GenericUtils.isPositive(idleTimeout)) {
+            Instant idleDeadline = session.getIdleTimeoutStart().plus(idleTimeout);
+            if ((deadline == null) || idleDeadline.isBefore(deadline)) {
+                deadline = idleDeadline;
+            }
+        }
+
+        if (deadline == null) {
+            // a timeout may still be set on the session later on
+            return RECHECK_INTERVAL;
+        }
+
+        // the checks require the elapsed time to exceed the timeout
+        Duration delay = Duration.between(Instant.now(), deadline).plusMillis(1L);
+        return delay.isNegative() ? Duration.ZERO : delay;
+    }
 }
@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common.util.buffer;
+
+import java.nio.ByteBuffer;
+
+import org.apache.sshd.common.CoreModuleProperties;
+import org.apache.sshd.common.PropertyResolver;
+
+/**
+ * Leases the buffers used for packets, so that they can be re-used instead of being allocated (and collected) for
+ * every single packet. A leased buffer must not be accessed anymore once it has been released. Releasing a
+ * {@link Buffer} that was not leased from the pool is ignored, so callers can release whatever buffer they ended up
+ * with - a {@link ByteBuffer} on the other hand must only be released if it was leased.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public interface BufferPool {
+    /**
+     * A pool that does not pool anything - every lease is a new allocation of exactly the requested size
+     */
+    BufferPool NONE = new BufferPool() {
+        @Override
+        public Buffer acquire(int capacity) {
+            return new ByteArrayBuffer(new byte[capacity], false);
+        }
+
+        @Override
+        public boolean release(Buffer buffer) {
+            return false;
+        }
+
+        @Override
+        public ByteBuffer acquireByteBuffer(int capacity) {
+            return ByteBuffer.allocate(capacity);
+        }
+
+        @Override
+        public boolean releaseByteBuffer(ByteBuffer buffer) {
+            return false;
+        }
+
+        @Override
+        public BufferPoolStatistics getStatistics() {
+            return BufferPoolStatistics.EMPTY;
+        }
+
+        @Override
+        public String toString() {
+            return "NONE";
+        }
+    };
+
+    /**
+     * @param  capacity The minimum required capacity
+     * @return          An empty buffer ready for writing with at least the requested capacity
+     */
+    Buffer acquire(int capacity);
+
+    /**
+     * @param  buffer The buffer to return to the pool - ignored if {@code null} or if not leased from this pool
+     * @return        {@code true} if the buffer was leased from this pool (whether it is kept for re-use or not)
+     */
+    boolean release(Buffer buffer);
+
+    /**
+     * @param  capacity The minimum required capacity
+     * @return          A cleared buffer with at least the requested capacity - direct if the pool is configured for
+     *                  off-heap buffers
+     */
+    ByteBuffer acquireByteBuffer(int capacity);
+
+    /**
+     * @param  buffer The buffer leased by {@link #acquireByteBuffer(int)} - ignored if {@code null}
+     * @return        {@code true} if the buffer was kept for re-use
+     */
+    boolean releaseByteBuffer(ByteBuffer buffer);
+
+    /**
+     * @return A snapshot of the pool's counters
+     */
+    BufferPoolStatistics getStatistics();
+
+    /**
+     * @param  resolver The {@link PropertyResolver} holding the configuration
+     * @return          A {@link DefaultBufferPool} configured according to the resolver's properties, or {@link #NONE}
+     *                  if pooling is disabled
+     * @see             CoreModuleProperties#BUFFER_POOL_ENABLED
+     */
+    static BufferPool of(PropertyResolver resolver) {
+        if (!CoreModuleProperties.BUFFER_POOL_ENABLED.getRequired(resolver)) {
+            return NONE;
+        }
+
+        return new DefaultBufferPool(
+                CoreModuleProperties.BUFFER_POOL_MAX_SIZE.getRequired(resolver),
+                CoreModuleProperties.BUFFER_POOL_THREAD_CACHE_SIZE.getRequired(resolver),
+                CoreModuleProperties.BUFFER_POOL_SHARED_CACHE_SIZE.getRequired(resolver),
+                CoreModuleProperties.BUFFER_POOL_DIRECT.getRequired(resolver));
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common.util.buffer;
+
+import java.time.Duration;
+
+/**
+ * A snapshot of the counters of a {@link BufferPool}
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class BufferPoolStatistics {
+    public static final BufferPoolStatistics EMPTY = new BufferPoolStatistics(0L, 0L, 0L, 0L, 0L, 0L, 0L, Duration.ZERO);
+
+    private final long acquired;
+    private final long released;
+    private final long threadLocalHits;
+    private final long sharedHits;
+    private final long allocations;
+    private final long allocatedBytes;
+    private final long discarded;
+    private final Duration uptime;
+
+    public BufferPoolStatistics(long acquired, long released, long threadLocalHits, long sharedHits,
+                                long allocations, long allocatedBytes, long discarded, Duration uptime) {
+        this.acquired = acquired;
+        this.released = released;
+        this.threadLocalHits = threadLocalHits;
+        this.sharedHits = sharedHits;
+        this.allocations = allocations;
+        this.allocatedBytes = allocatedBytes;
+        this.discarded = discarded;
+        this.uptime = uptime;
+    }
+
+    /**
+     * @return Number of leases
+     */
+    public long getAcquired() {
+        return acquired;
+    }
+
+    /**
+     * @return Number of leased buffers that have been returned
+     */
+    public long getReleased() {
+        return released;
+    }
+
+    /**
+     * @return Number of leases served from the calling thread's cache
+     */
+    public long getThreadLocalHits() {
+        return threadLocalHits;
+    }
+
+    /**
+     * @return Number of leases served from the shared overflow cache
+     */
+    public long getSharedHits() {
+        return sharedHits;
+    }
+
+    /**
+     * @return Number of leases that required a new allocation
+     */
+    public long getAllocations() {
+        return allocations;
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * @return Number of released buffers that were dropped - either because the caches were full or because the
+     *         buffer had grown beyond the pooled sizes
+     */
+    public long getDiscarded() {
+        return discarded;
+    }
+
+    /**
+     * @return Time since the pool was created
+     */
+    public Duration getUptime() {
+        return uptime;
+    }
+
+    /**
+     * @return Fraction of the leases that did not require an allocation
+     */
+    public double getHitRatio() {
+        return (acquired <= 0L) ? 0.0d : (double) (acquired - allocations) / acquired;
+    }
+
+    /**
+     * @return Average number of bytes allocated per second since the pool was created
+     */
+    public double getAllocationRate() {
+        long nanos = uptime.toNanos();
+        return (nanos <= 0L) ? 0.0d : allocatedBytes * 1.0e9d / nanos;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName()
+               + "[acquired=" + acquired
+               + ", released=" + released
+               + ", threadLocalHits=" + threadLocalHits
+               + ", sharedHits=" + sharedHits
+               + ", allocations=" + allocations
+               + ", allocatedBytes=" + allocatedBytes
+               + ", discarded=" + discarded
+               + ", allocationRate=" + String.format("%.1f", getAllocationRate())
+               + "]";
+    }
+}
@@ -183,6 +183,32 @@ public class ByteArrayBuffer extends Buffer {
         rpos = 0;
     }
 
+    /**
+     * Compacts the buffer into a smaller backing array if the current one is larger than the given size
+     *
+     * @param  maxSize The max. size of the backing array to retain - the array is never shrunk below the available
+     *                 data
+     * @return         {@code true} if the backing array was re-allocated
+     * @see            #compact()
+     */
+    public boolean shrink(int maxSize) {
+        int avail = available();
+        int newSize = Math.max(maxSize, avail);
+        if (data.length <= newSize) {
+            compact();
+            return false;
+        }
+
+        byte[] tmp = new byte[newSize];
+        if (avail > 0) {
+            System.arraycopy(data, rpos, tmp, 0, avail);
+        }
+        data = tmp;
+        wpos = avail;
+        rpos = 0;
+        return true;
+    }
+
     @Override
     public Buffer clear(boolean wipeData) {
         rpos = 0;
@@ -0,0 +1,288 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common.util.buffer;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.sshd.common.util.ValidateUtils;
+
+/**
+ * A {@link BufferPool} with power of 2 size classes - from {@value #MIN_SIZE} bytes up to a configured maximum. Each
+ * thread keeps a small cache of released arrays per size class, and whatever does not fit into it goes to a bounded
+ * shared cache that all threads can lease from. This matters since packets are usually leased by the thread that
+ * writes them but released by the I/O thread that completes the write. Leases larger than the maximum size are
+ * plain allocations that are never pooled.
+ * <P>
+ * The {@link ByteBuffer}s (used for socket reads) are pooled in the shared cache only, and are direct ones if the pool
+ * is configured for off-heap buffers. The {@link Buffer}s are always backed by a heap array.
+ * </P>
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class DefaultBufferPool implements BufferPool {
+    /**
+     * The smallest size class
+     */
+    public static final int MIN_SIZE = ByteArrayBuffer.DEFAULT_SIZE;
+
+    private final int maxSize;
+    private final int threadCacheSize;
+    private final int sharedCacheSize;
+    private final boolean direct;
+    private final Queue<byte[]>[] sharedArrays;
+    private final Queue<ByteBuffer>[] sharedByteBuffers;
+    private final ThreadLocal<ThreadCache> threadCaches;
+    private final long created = System.nanoTime();
+
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder released = new LongAdder();
+    private final LongAdder threadLocalHits = new LongAdder();
+    private final LongAdder sharedHits = new LongAdder();
+    private final LongAdder allocations = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final LongAdder discarded = new LongAdder();
+
+    /**
+     * @param maxSize         The largest pooled size - rounded up to a power of 2
+     * @param threadCacheSize Number of buffers per size class kept by each thread
+     * @param sharedCacheSize Number of buffers per size class kept in the shared cache
+     * @param direct          Whether the {@link ByteBuffer}s are direct ones
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public DefaultBufferPool(int maxSize, int threadCacheSize, int sharedCacheSize, boolean direct) {
+        ValidateUtils.checkTrue(maxSize >= MIN_SIZE, "Max. size below %d", MIN_SIZE);
+        ValidateUtils.checkTrue(threadCacheSize >= 0, "Invalid thread cache size: %d", threadCacheSize);
+        ValidateUtils.checkTrue(sharedCacheSize >= 0, "Invalid shared cache size: %d", sharedCacheSize);
+        this.maxSize = BufferUtils.getNextPowerOf2(maxSize);
+        this.threadCacheSize = threadCacheSize;
+        this.sharedCacheSize = sharedCacheSize;
+        this.direct = direct;
+
+        int numClasses = sizeClass(this.maxSize) + 1;
+        this.threadCaches = ThreadLocal.withInitial(() -> new ThreadCache(numClasses, threadCacheSize));
+        this.sharedArrays = new Queue[numClasses];
+        this.sharedByteBuffers = new Queue[numClasses];
+        for (int index = 0; index < numClasses; index++) {
+            // a zero capacity is not allowed - the queues are not used at all in that case
+            sharedArrays[index] = new ArrayBlockingQueue<>(Math.max(1, sharedCacheSize));
+            sharedByteBuffers[index] = new ArrayBlockingQueue<>(Math.max(1, sharedCacheSize));
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public boolean isDirect() {
+        return direct;
+    }
+
+    @Override
+    public Buffer acquire(int capacity) {
+        acquired.increment();
+        if (capacity > maxSize) {
+            allocated(capacity);
+            return new ByteArrayBuffer(new byte[capacity], false);
+        }
+
+        int sizeClass = sizeClass(capacity);
+        byte[] data = null;
+        if (threadCacheSize > 0) {
+            data = threadCaches.get().poll(sizeClass);
+            if (data != null) {
+                threadLocalHits.increment();
+            }
+        }
+        if ((data == null) && (sharedCacheSize > 0)) {
+            data = sharedArrays[sizeClass].poll();
+            if (data != null) {
+                sharedHits.increment();
+            }
+        }
+        if (data == null) {
+            int size = MIN_SIZE << sizeClass;
+            allocated(size);
+            data = new byte[size];
+        }
+        return new PooledBuffer(this, data);
+    }
+
+    @Override
+    public boolean release(Buffer buffer) {
+        if (!(buffer instanceof PooledBuffer)) {
+            return false;
+        }
+
+        PooledBuffer pooled = (PooledBuffer) buffer;
+        if ((pooled.pool != this) || (!pooled.released.compareAndSet(false, true))) {
+            return false;
+        }
+        released.increment();
+
+        // the buffer may have been grown by its user
+        byte[] data = pooled.array();
+        int sizeClass = sizeClass(data.length);
+        if ((data.length > maxSize) || ((MIN_SIZE << sizeClass) != data.length)) {
+            discarded.increment();
+            return true;
+        }
+
+        if ((threadCacheSize > 0) && threadCaches.get().offer(sizeClass, data)) {
+            return true;
+        }
+        if ((sharedCacheSize <= 0) || (!sharedArrays[sizeClass].offer(data))) {
+            discarded.increment();
+        }
+        return true;
+    }
+
+    @Override
+    public ByteBuffer acquireByteBuffer(int capacity) {
+        acquired.increment();
+        if (capacity > maxSize) {
+            allocated(capacity);
+            return allocateByteBuffer(capacity);
+        }
+
+        int sizeClass = sizeClass(capacity);
+        ByteBuffer buffer = (sharedCacheSize > 0) ? sharedByteBuffers[sizeClass].poll() : null;
+        if (buffer == null) {
+            int size = MIN_SIZE << sizeClass;
+            allocated(size);
+            return allocateByteBuffer(size);
+        }
+
+        sharedHits.increment();
+        buffer.clear();
+        return buffer;
+    }
+
+    @Override
+    public boolean releaseByteBuffer(ByteBuffer buffer) {
+        if ((buffer == null) || (buffer.isDirect() != direct) || (buffer.capacity() > maxSize)) {
+            return false;
+        }
+
+        int sizeClass = sizeClass(buffer.capacity());
+        if ((MIN_SIZE << sizeClass) != buffer.capacity()) {
+            return false;
+        }
+
+        released.increment();
+        if ((sharedCacheSize > 0) && sharedByteBuffers[sizeClass].offer(buffer)) {
+            return true;
+        }
+        discarded.increment();
+        return false;
+    }
+
+    protected ByteBuffer allocateByteBuffer(int capacity) {
+        return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+
+    protected void allocated(int size) {
+        allocations.increment();
+        allocatedBytes.add(size);
+    }
+
+    @Override
+    public BufferPoolStatistics getStatistics() {
+        return new BufferPoolStatistics(
+                acquired.sum(), released.sum(), threadLocalHits.sum(), sharedHits.sum(),
+                allocations.sum(), allocatedBytes.sum(), discarded.sum(),
+                Duration.ofNanos(System.nanoTime() - created));
+    }
+
+    /**
+     * @param  capacity The required capacity
+     * @return          The index of the smallest size class that can hold it
+     */
+    protected static int sizeClass(int capacity) {
+        if (capacity <= MIN_SIZE) {
+            return 0;
+        }
+        return (Integer.SIZE - Integer.numberOfLeadingZeros(capacity - 1))
+               - (Integer.SIZE - Integer.numberOfLeadingZeros(MIN_SIZE - 1));
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[maxSize=" + maxSize + ", direct=" + direct + "]";
+    }
+
+    /**
+     * A {@link Buffer} leased from a {@link DefaultBufferPool}
+     *
+     * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+     */
+    protected static class PooledBuffer extends ByteArrayBuffer {
+        private final DefaultBufferPool pool;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        protected PooledBuffer(DefaultBufferPool pool, byte[] data) {
+            super(data, false);
+            this.pool = pool;
+        }
+    }
+
+    /**
+     * The per-thread stacks of released arrays - accessed only by the owning thread
+     *
+     * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+     */
+    protected static class ThreadCache {
+        private final byte[][][] stacks;
+        private final int[] sizes;
+
+        protected ThreadCache(int numClasses, int capacity) {
+            this.stacks = new byte[numClasses][capacity][];
+            this.sizes = new int[numClasses];
+        }
+
+        protected byte[] poll(int sizeClass) {
+            int size = sizes[sizeClass];
+            if (size <= 0) {
+                return null;
+            }
+
+            size--;
+            byte[] data = stacks[sizeClass][size];
+            stacks[sizeClass][size] = null;
+            sizes[sizeClass] = size;
+            return data;
+        }
+
+        protected boolean offer(int sizeClass, byte[] data) {
+            byte[][] stack = stacks[sizeClass];
+            int size = sizes[sizeClass];
+            if (size >= stack.length) {
+                return false;
+            }
+
+            stack[size] = data;
+            sizes[sizeClass] = size + 1;
+            return true;
+        }
+    }
+}
@@ -36,6 +36,7 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.sshd.common.util.GenericUtils;
 import org.apache.sshd.common.util.OsUtils;
@@ -63,6 +64,7 @@ public class ModifiableFileWatcher extends AbstractLoggingBean {
     private final AtomicBoolean lastExisted = new AtomicBoolean(false);
     private final AtomicLong lastSize = new AtomicLong(Long.MIN_VALUE);
     private final AtomicLong lastModified = new AtomicLong(-1L);
+    private final AtomicReference<Object> lastFileKey = new AtomicReference<>(null);
 
     public ModifiableFileWatcher(Path file) {
         this(file, IoUtils.getLinkOptions(true));
@@ -102,6 +104,20 @@ public class ModifiableFileWatcher extends AbstractLoggingBean {
         }
     }
 
+    /**
+     * @return             The {@link BasicFileAttributes#fileKey() file key} of the watched file - {@code null} if the
+     *                     file does not exist or the file system does not provide such a key
+     * @throws IOException If failed to query file data
+     */
+    public final Object fileKey() throws IOException {
+        if (exists()) {
+            BasicFileAttributes attrs = Files.readAttributes(getPath(), BasicFileAttributes.class, options);
+            return attrs.fileKey();
+        } else {
+            return null;
+        }
+    }
+
     /**
      * @return             {@code true} if the watched file has probably been changed
      * @throws IOException If failed to query file data
@@ -139,8 +155,14 @@ public class ModifiableFileWatcher extends AbstractLoggingBean {
         }
 
         long timestamp = modifiedTime.toMillis();
-        return timestamp != lastModified.getAndSet(timestamp);
+        if (timestamp != lastModified.getAndSet(timestamp)) {
+            return true;
+        }
 
+        // same size and time, but the file may have been replaced (e.g., renamed over) within the timestamp resolution
+        Object key = fileKey();
+        Object prevKey = lastFileKey.getAndSet(key);
+        return (prevKey != null) && (!prevKey.equals(key));
     }
 
     /**
@@ -151,11 +173,12 @@ public class ModifiableFileWatcher extends AbstractLoggingBean {
         lastExisted.set(false);
         lastSize.set(Long.MIN_VALUE);
         lastModified.set(-1L);
+        lastFileKey.set(null);
     }
 
     /**
-     * May be called to refresh the state attributes used to detect changes e.g., file existence, size and last-modified
-     * time once re-loading is successfully completed. If the file does not exist then the attributes are reset to an
+     * May be called to refresh the state attributes used to detect changes e.g., file existence, size, last-modified
+     * time and file key once re-loading is successfully completed. If the file does not exist then the attributes are reset to an
      * &quot;unknown&quot; state.
      *
      * @throws IOException If failed to access the file (if exists)
@@ -170,6 +193,7 @@ public class ModifiableFileWatcher extends AbstractLoggingBean {
                 lastExisted.set(true);
                 lastSize.set(size);
                 lastModified.set(modifiedTime.toMillis());
+                lastFileKey.set(fileKey());
                 return;
             }
         }
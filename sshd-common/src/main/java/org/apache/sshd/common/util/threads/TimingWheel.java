@@ -0,0 +1,444 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common.util.threads;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.sshd.common.util.ValidateUtils;
+import org.apache.sshd.common.util.logging.AbstractLoggingBean;
+
+/**
+ * A hierarchical timing wheel - {@value #LEVELS} wheels of {@value #WHEEL_SIZE} slots each, where a slot of a wheel
+ * spans a whole turn of the wheel below it. A deadline is kept in the lowest wheel whose turn still contains it, and is
+ * moved down a wheel when the time reaches its slot, so scheduling and cancelling are constant time operations and
+ * each tick only touches the deadlines that are due (or about to be). This makes it suitable for holding the
+ * timeouts of many thousands of sessions, most of which are re-armed or cancelled long before they expire.
+ * <P>
+ * A single periodic task of the given {@link ScheduledExecutorService} advances the wheel, and the expired tasks are
+ * handed to the same service for execution. The resolution is one tick - tasks never run before their deadline, but
+ * may run up to a tick later.
+ * </P>
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class TimingWheel extends AbstractLoggingBean {
+    public static final int WHEEL_BITS = 6;
+    public static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    public static final int LEVELS = 4;
+
+    private static final int SLOT_MASK = WHEEL_SIZE - 1;
+
+    private final ScheduledExecutorService executor;
+    private final long tickNanos;
+    private final long origin;
+    private final Timeout[][] slots = new Timeout[LEVELS][WHEEL_SIZE];
+    private long currentTick;
+    private int size;
+    private ScheduledFuture<?> driver;
+
+    public TimingWheel(ScheduledExecutorService executor, Duration tick) {
+        this.executor = Objects.requireNonNull(executor, "No executor");
+        ValidateUtils.checkTrue((tick != null) && (!tick.isNegative()) && (!tick.isZero()), "Invalid tick: %s", tick);
+        this.tickNanos = tick.toNanos();
+        this.origin = nanoTime();
+    }
+
+    /**
+     * @return The current time of the wheel (nanos.) - only meaningful relative to other values returned by it
+     * @see    System#nanoTime()
+     */
+    protected long nanoTime() {
+        return System.nanoTime();
+    }
+
+    public Duration getTick() {
+        return Duration.ofNanos(tickNanos);
+    }
+
+    /**
+     * @return Number of pending deadlines
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized boolean isStarted() {
+        return driver != null;
+    }
+
+    public synchronized void start() {
+        if (driver == null) {
+            driver = executor.scheduleAtFixedRate(this::tick, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Stops advancing the wheel and cancels all the pending tasks
+     */
+    public void stop() {
+        List<Timeout> pending = new ArrayList<>();
+        synchronized (this) {
+            if (driver != null) {
+                driver.cancel(false);
+                driver = null;
+            }
+
+            for (Timeout[] wheel : slots) {
+                for (int slot = 0; slot < wheel.length; slot++) {
+                    for (Timeout t = detach(wheel, slot); t != null; t = t.next) {
+                        pending.add(t);
+                    }
+                }
+            }
+            size = 0;
+        }
+
+        for (Timeout t : pending) {
+            t.next = null;
+            t.cancel(false);
+        }
+    }
+
+    /**
+     * @param  task  The task to run
+     * @param  delay How long to wait before running it
+     * @return       The {@link ScheduledFuture} that can be used to cancel the task
+     */
+    public ScheduledFuture<?> schedule(Runnable task, Duration delay) {
+        return schedule(task, delay, null);
+    }
+
+    /**
+     * @param  task         The task to run
+     * @param  initialDelay How long to wait before the 1st execution
+     * @param  period       The time between the executions - as in
+     *                      {@link ScheduledExecutorService#scheduleAtFixedRate(Runnable, long, long, TimeUnit)}, the
+     *                      executions stop if the task throws an exception
+     * @return              The {@link ScheduledFuture} that can be used to cancel the task
+     */
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, Duration initialDelay, Duration period) {
+        ValidateUtils.checkTrue((period != null) && (!period.isNegative()) && (!period.isZero()),
+                "Invalid period: %s", period);
+        return schedule(task, initialDelay, period);
+    }
+
+    protected Timeout schedule(Runnable task, Duration delay, Duration period) {
+        Objects.requireNonNull(task, "No task");
+        long delayNanos = ((delay == null) || delay.isNegative()) ? 0L : delay.toNanos();
+        Timeout timeout = new Timeout(task, nanoTime() + delayNanos, (period == null) ? 0L : period.toNanos());
+        synchronized (this) {
+            insert(timeout);
+        }
+        return timeout;
+    }
+
+    /**
+     * Advances the wheel up to the current time and runs the expired tasks
+     */
+    protected void tick() {
+        long target = (nanoTime() - origin) / tickNanos;
+        List<Timeout> expired = new ArrayList<>();
+        synchronized (this) {
+            while (currentTick < target) {
+                currentTick++;
+                advance(currentTick, expired);
+            }
+        }
+
+        for (Timeout t : expired) {
+            dispatch(t);
+        }
+    }
+
+    // Note: must be called while holding the lock
+    protected void advance(long tick, List<Timeout> expired) {
+        // move the deadlines of each wheel that completed a turn down - the highest first
+        int top = 0;
+        for (int level = 1; level < LEVELS; level++) {
+            if ((tick & ((1L << (WHEEL_BITS * level)) - 1L)) != 0L) {
+                break;
+            }
+            top = level;
+        }
+
+        for (int level = top; level >= 0; level--) {
+            int slot = (int) ((tick >>> (WHEEL_BITS * level)) & SLOT_MASK);
+            Timeout t = detach(slots[level], slot);
+            while (t != null) {
+                Timeout next = t.next;
+                t.next = null;
+                size--;
+                if (t.deadlineTick <= tick) {
+                    expired.add(t);
+                } else {
+                    link(t);
+                }
+                t = next;
+            }
+        }
+    }
+
+    protected void dispatch(Timeout timeout) {
+        try {
+            executor.execute(timeout::run);
+        } catch (RejectedExecutionException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("dispatch({}) rejected: {}", timeout, e.getMessage());
+            }
+            timeout.cancel(false);
+        }
+    }
+
+    protected void reschedule(Timeout timeout) {
+        synchronized (this) {
+            if (!timeout.isPending()) {
+                return;
+            }
+            if (driver != null) {
+                timeout.deadlineNanos += timeout.periodNanos;
+                insert(timeout);
+                return;
+            }
+        }
+
+        timeout.cancel(false); // the wheel has been stopped meanwhile
+    }
+
+    protected void remove(Timeout timeout) {
+        synchronized (this) {
+            if (timeout.level < 0) {
+                return; // not linked - e.g., running or already expired
+            }
+
+            Timeout[] wheel = slots[timeout.level];
+            if (timeout.prev == null) {
+                wheel[timeout.slot] = timeout.next;
+            } else {
+                timeout.prev.next = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.level = -1;
+            size--;
+        }
+    }
+
+    // Note: must be called while holding the lock
+    protected void insert(Timeout timeout) {
+        long elapsed = timeout.deadlineNanos - origin;
+        long deadline = (elapsed <= 0L) ? 0L : ((elapsed + tickNanos - 1L) / tickNanos);
+        // the current tick has already been processed
+        timeout.deadlineTick = Math.max(deadline, currentTick + 1L);
+        link(timeout);
+    }
+
+    // Note: must be called while holding the lock
+    protected void link(Timeout timeout) {
+        long deadline = timeout.deadlineTick;
+        int level = 0;
+        // the lowest wheel whose current turn contains the deadline
+        while ((level < (LEVELS - 1))
+                && ((deadline >>> (WHEEL_BITS * (level + 1))) != (currentTick >>> (WHEEL_BITS * (level + 1))))) {
+            level++;
+        }
+
+        int slot = (int) ((deadline >>> (WHEEL_BITS * level)) & SLOT_MASK);
+        Timeout[] wheel = slots[level];
+        Timeout head = wheel[slot];
+        timeout.prev = null;
+        timeout.next = head;
+        if (head != null) {
+            head.prev = timeout;
+        }
+        wheel[slot] = timeout;
+        timeout.level = level;
+        timeout.slot = slot;
+        size++;
+    }
+
+    // Note: must be called while holding the lock
+    protected static Timeout detach(Timeout[] wheel, int slot) {
+        Timeout head = wheel[slot];
+        wheel[slot] = null;
+        for (Timeout t = head; t != null; t = t.next) {
+            t.prev = null;
+            t.level = -1;
+        }
+        return head;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[tick=" + getTick() + ", size=" + size() + "]";
+    }
+
+    /**
+     * A task scheduled on a {@link TimingWheel}
+     *
+     * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+     */
+    protected class Timeout implements ScheduledFuture<Object> {
+        private static final int PENDING = 0;
+        private static final int RUNNING = 1;
+        private static final int DONE = 2;
+        private static final int CANCELLED = 3;
+        private static final int FAILED = 4;
+
+        private final Runnable task;
+        private final long periodNanos;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+        private volatile long deadlineNanos;
+        private volatile Throwable failure;
+
+        // guarded by the wheel's lock
+        private long deadlineTick;
+        private int level = -1;
+        private int slot;
+        private Timeout prev;
+        private Timeout next;
+
+        protected Timeout(Runnable task, long deadlineNanos, long periodNanos) {
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+            this.periodNanos = periodNanos;
+        }
+
+        public boolean isPeriodic() {
+            return periodNanos > 0L;
+        }
+
+        protected boolean isPending() {
+            return state.get() == PENDING;
+        }
+
+        protected void run() {
+            if (!(isPeriodic() ? isPending() : state.compareAndSet(PENDING, RUNNING))) {
+                return;
+            }
+
+            try {
+                task.run();
+            } catch (Throwable t) {
+                warn("run({}) failed ({}) to execute: {}", task, t.getClass().getSimpleName(), t.getMessage(), t);
+                failure = t;
+                state.set(FAILED);
+                signalDone();
+                return;
+            }
+
+            if (isPeriodic()) {
+                reschedule(this);
+            } else {
+                state.set(DONE);
+                signalDone();
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            if (!state.compareAndSet(PENDING, CANCELLED)) {
+                return false;
+            }
+
+            remove(this);
+            signalDone();
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        @Override
+        public boolean isDone() {
+            return state.get() >= DONE;
+        }
+
+        protected synchronized void signalDone() {
+            notifyAll();
+        }
+
+        @Override
+        public Object get() throws InterruptedException, ExecutionException {
+            synchronized (this) {
+                while (!isDone()) {
+                    wait();
+                }
+            }
+            return report();
+        }
+
+        @Override
+        public Object get(long timeout, TimeUnit unit)
+                throws InterruptedException, ExecutionException, TimeoutException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            synchronized (this) {
+                for (long remaining = unit.toNanos(timeout); !isDone(); remaining = deadline - System.nanoTime()) {
+                    if (remaining <= 0L) {
+                        throw new TimeoutException("Not done within " + timeout + " " + unit);
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                }
+            }
+            return report();
+        }
+
+        protected Object report() throws ExecutionException {
+            int value = state.get();
+            if (value == CANCELLED) {
+                throw new CancellationException("Cancelled: " + task);
+            }
+            if (value == FAILED) {
+                throw new ExecutionException(failure);
+            }
+            return null;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadlineNanos - nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return (other == this) ? 0 : Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+
+        @Override
+        public String toString() {
+            return getClass().getSimpleName() + "[task=" + task + ", periodic=" + isPeriodic() + ", state=" + state + "]";
+        }
+    }
+}
@@ -0,0 +1,355 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common.channel;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.sshd.common.PropertyResolver;
+import org.apache.sshd.common.SshConstants;
+import org.apache.sshd.common.channel.throttle.ChannelStreamWriter;
+import org.apache.sshd.common.future.OpenFuture;
+import org.apache.sshd.common.io.IoWriteFuture;
+import org.apache.sshd.common.session.Session;
+import org.apache.sshd.common.util.buffer.Buffer;
+import org.apache.sshd.common.util.buffer.ByteArrayBuffer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the queued mode on a channel whose packets are recorded instead of being sent, and whose write futures are
+ * completed (or failed) explicitly.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class ChannelAsyncOutputStreamTest {
+    private static final int RECIPIENT = 7;
+    private static final long PACKET_SIZE = 256L;
+
+    private final TestChannel channel = new TestChannel();
+    private final TestWriter writer = new TestWriter();
+    private ChannelAsyncOutputStream stream;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        channel.setChannelStreamWriterResolver((c, cmd) -> writer);
+        stream = new ChannelAsyncOutputStream(channel, SshConstants.SSH_MSG_CHANNEL_DATA, true);
+    }
+
+    @Test
+    public void testMergedIntoPackets() throws Exception {
+        initWindow(0L);
+        List<IoWriteFuture> futures = write(3, 100);
+        assertEquals(300L, stream.getQueuedBytes());
+        assertEquals(0, writer.packets.size());
+
+        expandWindow(4096);
+        // the last 44 bytes of the third buffer go into the second packet
+        assertEquals(Arrays.asList(256, 44), writer.lengths());
+        assertEquals(0L, stream.getQueuedBytes());
+        assertEquals(4096L - 300L, channel.getRemoteWindow().getSize());
+
+        writer.complete(0);
+        assertTrue(futures.get(0).isWritten());
+        assertTrue(futures.get(1).isWritten());
+        assertFalse(futures.get(2).isDone(), "Completed before its last byte was written");
+        writer.complete(1);
+        assertTrue(futures.get(2).isWritten());
+        assertArrayEquals(data(3, 100), writer.data());
+    }
+
+    @Test
+    public void testSmallWindowUsedUp() throws Exception {
+        initWindow(100L);
+        List<IoWriteFuture> futures = write(3, 100);
+        assertEquals(Arrays.asList(100), writer.lengths(), "Window not used up");
+        assertEquals(200L, stream.getQueuedBytes());
+
+        expandWindow(150);
+        assertEquals(Arrays.asList(100, 150), writer.lengths());
+        expandWindow(1000);
+        assertEquals(Arrays.asList(100, 150, 50), writer.lengths());
+
+        writer.completeAll();
+        futures.forEach(f -> assertTrue(f.isWritten()));
+        assertArrayEquals(data(3, 100), writer.data());
+    }
+
+    @Test
+    public void testPacketFailurePropagatesToAllPending() throws Exception {
+        initWindow(0L);
+        List<IoWriteFuture> futures = write(8, 100);
+        // 3 packets in flight, and the rest waiting for window space
+        expandWindow(600);
+        assertEquals(Arrays.asList(256, 256, 88), writer.lengths());
+        assertEquals(200L, stream.getQueuedBytes());
+
+        IOException reason = new IOException("packet lost");
+        writer.fail(0, reason);
+        // the ones ending in the failed packet, and all the queued ones
+        for (int index : new int[] { 0, 1, 6, 7 }) {
+            assertSame(reason, futures.get(index).getException(), "Write #" + index);
+        }
+        // those ending in packets still in flight depend on their own packet
+        for (int index = 2; index < 6; index++) {
+            assertFalse(futures.get(index).isDone(), "Write #" + index);
+        }
+        assertEquals(0L, stream.getQueuedBytes());
+
+        IOException e = assertThrows(IOException.class, () -> stream.writeBuffer(new ByteArrayBuffer(new byte[10])));
+        assertSame(reason, e.getCause());
+        expandWindow(1000);
+        assertEquals(3, writer.packets.size(), "Sent after failure");
+
+        writer.fail(1, reason);
+        writer.fail(2, reason);
+        futures.forEach(f -> assertSame(reason, f.getException()));
+    }
+
+    @Test
+    public void testWriterFailurePropagatesToAllPending() throws Exception {
+        initWindow(200L);
+        List<IoWriteFuture> futures = write(3, 100);
+        assertEquals(Arrays.asList(100, 100), writer.lengths());
+
+        IOException reason = new IOException("session closed");
+        writer.failure = reason;
+        expandWindow(4096);
+        assertSame(reason, futures.get(2).getException());
+        assertEquals(0L, stream.getQueuedBytes());
+        IOException e = assertThrows(IOException.class, () -> stream.writeBuffer(new ByteArrayBuffer(new byte[10])));
+        assertSame(reason, e.getCause());
+
+        // the ones sent before are not affected
+        writer.completeAll();
+        assertTrue(futures.get(0).isWritten());
+        assertTrue(futures.get(1).isWritten());
+    }
+
+    @Test
+    public void testCloseFailsQueued() throws Exception {
+        initWindow(150L);
+        List<IoWriteFuture> futures = write(3, 100);
+        stream.close(true);
+        assertTrue(futures.get(1).getException() instanceof EOFException);
+        assertTrue(futures.get(2).getException() instanceof EOFException);
+
+        // the one in flight is not affected
+        writer.complete(0);
+        assertTrue(futures.get(0).isWritten());
+        assertThrows(EOFException.class, () -> stream.writeBuffer(new ByteArrayBuffer(new byte[10])));
+    }
+
+    @Test
+    public void testWriteFromListener() throws Exception {
+        initWindow(4096L);
+        List<IoWriteFuture> nested = new ArrayList<>();
+        IoWriteFuture first = stream.writeBuffer(new ByteArrayBuffer(data(1, 10)));
+        first.addListener(f -> {
+            try {
+                nested.add(stream.writeBuffer(new ByteArrayBuffer(new byte[] { 42 })));
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        writer.complete(0);
+        assertEquals(1, nested.size());
+        assertEquals(Arrays.asList(10, 1), writer.lengths());
+        writer.complete(1);
+        assertTrue(nested.get(0).isWritten());
+    }
+
+    private void initWindow(long size) {
+        channel.getRemoteWindow().init(size, PACKET_SIZE, PropertyResolver.EMPTY);
+    }
+
+    private void expandWindow(int size) throws IOException {
+        channel.getRemoteWindow().expand(size);
+        stream.onWindowExpanded();
+    }
+
+    private List<IoWriteFuture> write(int count, int size) throws IOException {
+        byte[] data = data(count, size);
+        List<IoWriteFuture> futures = new ArrayList<>(count);
+        for (int index = 0; index < count; index++) {
+            futures.add(stream.writeBuffer(new ByteArrayBuffer(data, index * size, size)));
+        }
+        return futures;
+    }
+
+    private static byte[] data(int count, int size) {
+        byte[] data = new byte[count * size];
+        for (int index = 0; index < data.length; index++) {
+            data[index] = (byte) (index / size);
+        }
+        return data;
+    }
+
+    /**
+     * Records the sent packets along with their (pending) write futures
+     */
+    private static class TestWriter implements ChannelStreamWriter {
+        private final List<Buffer> packets = new ArrayList<>();
+        private final List<IoWriteFutureImpl> futures = new ArrayList<>();
+        private IOException failure;
+
+        TestWriter() {
+            super();
+        }
+
+        @Override
+        public IoWriteFuture writeData(Buffer buffer) throws IOException {
+            if (failure != null) {
+                throw failure;
+            }
+
+            assertEquals(SshConstants.SSH_MSG_CHANNEL_DATA, buffer.getByte());
+            assertEquals(RECIPIENT, buffer.getInt());
+            int len = buffer.getInt();
+            assertEquals(len, buffer.available());
+            packets.add(buffer);
+            IoWriteFutureImpl future = new IoWriteFutureImpl(this, buffer);
+            futures.add(future);
+            return future;
+        }
+
+        List<Integer> lengths() {
+            List<Integer> lengths = new ArrayList<>(packets.size());
+            for (Buffer buffer : packets) {
+                lengths.add(buffer.available());
+            }
+            return lengths;
+        }
+
+        byte[] data() {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            for (Buffer buffer : packets) {
+                out.write(buffer.array(), buffer.rpos(), buffer.available());
+            }
+            return out.toByteArray();
+        }
+
+        void complete(int index) {
+            futures.get(index).setValue(Boolean.TRUE);
+        }
+
+        void completeAll() {
+            futures.forEach(f -> f.setValue(Boolean.TRUE));
+        }
+
+        void fail(int index, Throwable reason) {
+            futures.get(index).setValue(reason);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+            // ignored
+        }
+    }
+
+    /**
+     * An open channel whose session only creates buffers
+     */
+    private static class TestChannel extends AbstractChannel {
+        private final Session session = (Session) Proxy.newProxyInstance(
+                Session.class.getClassLoader(), new Class<?>[] { Session.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "createBuffer":
+                            Buffer buffer = new ByteArrayBuffer();
+                            buffer.putByte((Byte) args[0]);
+                            return buffer;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        case "toString":
+                            return Session.class.getSimpleName();
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+
+        TestChannel() {
+            super(true);
+            setRecipient(RECIPIENT);
+        }
+
+        @Override
+        public Session getSession() {
+            return session;
+        }
+
+        @Override
+        public PropertyResolver getParentPropertyResolver() {
+            return null;
+        }
+
+        @Override
+        protected void doWriteData(byte[] data, int off, long len) {
+            throw new UnsupportedOperationException("doWriteData");
+        }
+
+        @Override
+        protected void doWriteExtendedData(byte[] data, int off, long len) {
+            throw new UnsupportedOperationException("doWriteExtendedData");
+        }
+
+        @Override
+        public void handleEof() {
+            // ignored
+        }
+
+        @Override
+        public void handleOpenSuccess(int recipient, long rwSize, long packetSize, Buffer buffer) {
+            // ignored
+        }
+
+        @Override
+        public void handleOpenFailure(Buffer buffer) {
+            // ignored
+        }
+
+        @Override
+        public OpenFuture open(int recipient, long rwSize, long packetSize, Buffer buffer) {
+            throw new UnsupportedOperationException("open");
+        }
+
+        @Override
+        public String toString() {
+            return getClass().getSimpleName() + "[" + RECIPIENT + "]";
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common.cipher;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import javax.crypto.AEADBadTagException;
+
+import org.apache.sshd.common.cipher.Cipher.Mode;
+import org.apache.sshd.common.util.buffer.BufferUtils;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Known-answer tests of the {@code chacha20-poly1305@openssh.com} cipher and of its ChaCha20 and Poly1305 primitives.
+ * The RFC 8439 vectors use a 96-bit nonce and a 32-bit block counter - the first nonce word maps to the high half of
+ * the 64-bit counter of the original ChaCha20, and the remaining 8 bytes to its nonce.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class ChaCha20Poly1305CipherTest {
+    // length = 16, padding = 5, SSH_MSG_IGNORE "hello" - key = 00..3f, sequence number = 7
+    private static final String PLAIN_PACKET = "00000010" + "05020000000568656c6c6f0000000000";
+    private static final String ENCRYPTED_LENGTH = "a39afcba";
+    private static final String ENCRYPTED_PAYLOAD = "2d4415434e86423b0001d4f0d78fd32c";
+    private static final String TAG = "39bc16111d67a8b463bba33c22ede960";
+    private static final int PAYLOAD_LENGTH = 16;
+
+    /**
+     * <A HREF="https://tools.ietf.org/html/rfc8439#section-2.3.2">RFC 8439 section 2.3.2</A> - block function
+     */
+    @Test
+    public void testChaCha20BlockFunction() {
+        ChaCha20Poly1305Cipher.ChaCha20Engine engine = new ChaCha20Poly1305Cipher.ChaCha20Engine();
+        engine.setKey(sequentialBytes(0x00, 32), 0);
+        // nonce 00:00:00:09:00:00:00:4a:00:00:00:00, block count = 1
+        engine.reset(0x0000004a00000000L, 0x0900000000000001L);
+
+        byte[] block = new byte[ChaCha20Poly1305Cipher.ChaCha20Engine.BLOCK_SIZE];
+        engine.process(block, 0, block.length);
+        assertArrayEquals(decodeHex(
+                "10f1e7e4d13b5915500fdd1fa32071c4c7d1f4c733c068030422aa9ac3d46c4e"
+                + "d2826446079faa0914c2d705d98b02a2b5129cd1de164eb9cbd083e8a2503c4e"),
+                block);
+    }
+
+    /**
+     * <A HREF="https://tools.ietf.org/html/rfc8439#section-2.4.2">RFC 8439 section 2.4.2</A> - encryption
+     */
+    @Test
+    public void testChaCha20Encryption() {
+        ChaCha20Poly1305Cipher.ChaCha20Engine engine = new ChaCha20Poly1305Cipher.ChaCha20Engine();
+        engine.setKey(sequentialBytes(0x00, 32), 0);
+        // nonce 00:00:00:00:00:00:00:4a:00:00:00:00, initial counter = 1
+        engine.reset(0x0000004a00000000L, 1L);
+
+        byte[] data = ("Ladies and Gentlemen of the class of '99: If I could offer you only one tip for the future,"
+                       + " sunscreen would be it.").getBytes(StandardCharsets.US_ASCII);
+        engine.process(data, 0, data.length);
+        assertArrayEquals(decodeHex(
+                "6e2e359a2568f98041ba0728dd0d6981e97e7aec1d4360c20a27afccfd9fae0b"
+                + "f91b65c5524733ab8f593dabcd62b3571639d624e65152ab8f530c359f0861d8"
+                + "07ca0dbf500d6a6156a38e088a22b65e52bc514d16ccf806818ce91ab7793736"
+                + "5af90bbf74a35be6b40b8eedf2785e42874d"),
+                data);
+    }
+
+    /**
+     * <A HREF="https://tools.ietf.org/html/rfc8439#section-2.5.2">RFC 8439 section 2.5.2</A> - message authentication
+     */
+    @Test
+    public void testPoly1305Tag() {
+        ChaCha20Poly1305Cipher.Poly1305 poly1305 = new ChaCha20Poly1305Cipher.Poly1305();
+        poly1305.init(decodeHex("85d6be7857556d337f4452fe42d506a80103808afb0db2fd4abff6af4149f51b"), 0);
+
+        byte[] msg = "Cryptographic Forum Research Group".getBytes(StandardCharsets.US_ASCII);
+        poly1305.update(msg, 0, msg.length);
+
+        byte[] tag = new byte[ChaCha20Poly1305Cipher.TAG_SIZE];
+        poly1305.doFinal(tag, 0);
+        assertArrayEquals(decodeHex("a8061dc1305136c6c22b8baf0c0127a9"), tag);
+    }
+
+    /**
+     * <A HREF="https://tools.ietf.org/html/rfc8439#section-2.6.2">RFC 8439 section 2.6.2</A> - Poly1305 key generation
+     */
+    @Test
+    public void testPoly1305KeyGeneration() {
+        ChaCha20Poly1305Cipher.ChaCha20Engine engine = new ChaCha20Poly1305Cipher.ChaCha20Engine();
+        engine.setKey(sequentialBytes(0x80, 32), 0);
+        // nonce 00:00:00:00:00:01:02:03:04:05:06:07, block count = 0
+        engine.reset(0x0001020304050607L, 0L);
+
+        byte[] key = new byte[ChaCha20Poly1305Cipher.KEY_SIZE];
+        engine.process(key, 0, key.length);
+        assertArrayEquals(decodeHex("8ad5a08b905f81cc815040274ab29471a833b637e3fd0da508dbb8e2fdd1a646"), key);
+    }
+
+    /**
+     * A packet encrypted as by OpenSSH {@code PROTOCOL.chacha20poly1305}: the length with K_1 (the 2nd half of the
+     * key) from block 0, the payload with K_2 (the 1st half) from block 1, and the tag keyed by K_2 block 0 over the
+     * encrypted length and payload - all with the sequence number as the 64-bit big-endian nonce.
+     */
+    @Test
+    public void testOpenSshPacket() throws Exception {
+        byte[] packet = decodeHex(PLAIN_PACKET + "00000000000000000000000000000000");
+
+        ChaCha20Poly1305Cipher cipher = new ChaCha20Poly1305Cipher();
+        cipher.init(Mode.Encrypt, sequentialBytes(0x00, 64), null);
+        cipher.setSequenceNumber(7L);
+        cipher.updateAAD(packet, 0, Integer.BYTES);
+        assertArrayEquals(decodeHex(ENCRYPTED_LENGTH), Arrays.copyOf(packet, Integer.BYTES));
+
+        cipher.update(packet, Integer.BYTES, PAYLOAD_LENGTH);
+        assertArrayEquals(decodeHex(ENCRYPTED_LENGTH + ENCRYPTED_PAYLOAD + TAG), packet);
+    }
+
+    @Test
+    public void testOpenSshPacketDecryption() throws Exception {
+        byte[] packet = decodeHex(ENCRYPTED_LENGTH + ENCRYPTED_PAYLOAD + TAG);
+
+        ChaCha20Poly1305Cipher cipher = new ChaCha20Poly1305Cipher();
+        cipher.init(Mode.Decrypt, sequentialBytes(0x00, 64), null);
+        cipher.setSequenceNumber(7L);
+        cipher.updateAAD(packet, 0, Integer.BYTES);
+        cipher.update(packet, Integer.BYTES, PAYLOAD_LENGTH);
+        assertArrayEquals(decodeHex(PLAIN_PACKET + TAG), packet);
+    }
+
+    @Test
+    public void testOpenSshPacketTamperedTag() throws Exception {
+        byte[] packet = decodeHex(ENCRYPTED_LENGTH + ENCRYPTED_PAYLOAD + TAG);
+        packet[packet.length - 1] ^= 0x01;
+
+        ChaCha20Poly1305Cipher cipher = new ChaCha20Poly1305Cipher();
+        cipher.init(Mode.Decrypt, sequentialBytes(0x00, 64), null);
+        cipher.setSequenceNumber(7L);
+        cipher.updateAAD(packet, 0, Integer.BYTES);
+        assertThrows(AEADBadTagException.class, () -> cipher.update(packet, Integer.BYTES, PAYLOAD_LENGTH));
+    }
+
+    private static byte[] sequentialBytes(int first, int length) {
+        byte[] data = new byte[length];
+        for (int index = 0; index < length; index++) {
+            data[index] = (byte) (first + index);
+        }
+        return data;
+    }
+
+    private static byte[] decodeHex(String hex) {
+        return BufferUtils.decodeHex(BufferUtils.EMPTY_HEX_SEPARATOR, hex);
+    }
+}
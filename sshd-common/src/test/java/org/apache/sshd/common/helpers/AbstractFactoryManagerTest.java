@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common.helpers;
+
+import org.apache.sshd.common.Closeable;
+import org.apache.sshd.common.util.threads.ThreadUtils;
+import org.apache.sshd.common.util.threads.TimingWheel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class AbstractFactoryManagerTest {
+    private final TestFactoryManager manager = new TestFactoryManager();
+
+    @AfterEach
+    public void tearDown() {
+        manager.stopSessionTimeoutListener(null);
+        manager.getScheduledExecutorService().shutdownNow();
+    }
+
+    @Test
+    public void testTimingWheelLifecycle() {
+        manager.setupSessionTimeout(null);
+        TimingWheel wheel = manager.getTimingWheel();
+        assertTrue(wheel.isStarted());
+        assertSame(wheel, manager.getTimingWheel());
+        assertNotNull(manager.sessionTimeoutListener);
+
+        manager.removeSessionTimeout(null);
+        assertFalse(wheel.isStarted());
+        assertNull(manager.sessionTimeoutListener);
+        // e.g., a heartbeat started by a session that is still closing
+        assertThrows(IllegalStateException.class, manager::getTimingWheel);
+        assertThrows(IllegalStateException.class, manager::getTimingWheel);
+    }
+
+    @Test
+    public void testTimingWheelAfterRestart() {
+        manager.setupSessionTimeout(null);
+        TimingWheel wheel = manager.getTimingWheel();
+        manager.removeSessionTimeout(null);
+
+        manager.setupSessionTimeout(null);
+        TimingWheel restarted = manager.getTimingWheel();
+        assertNotSame(wheel, restarted);
+        assertTrue(restarted.isStarted());
+        assertFalse(wheel.isStarted());
+    }
+
+    private static class TestFactoryManager extends AbstractFactoryManager {
+        TestFactoryManager() {
+            setScheduledExecutorService(ThreadUtils.newSingleThreadScheduledExecutor(getClass().getSimpleName()), true);
+        }
+
+        @Override
+        protected Closeable getInnerCloseable() {
+            return builder().build();
+        }
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common.io.nio2;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousChannelGroup;
+import java.nio.channels.AsynchronousServerSocketChannel;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.sshd.common.Closeable;
+import org.apache.sshd.common.CoreModuleProperties;
+import org.apache.sshd.common.FactoryManager;
+import org.apache.sshd.common.helpers.AbstractFactoryManager;
+import org.apache.sshd.common.io.IoHandler;
+import org.apache.sshd.common.io.IoSession;
+import org.apache.sshd.common.io.IoWriteFuture;
+import org.apache.sshd.common.util.Readable;
+import org.apache.sshd.common.util.buffer.ByteArrayBuffer;
+import org.apache.sshd.common.util.threads.ThreadUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Writes through a {@link Nio2Session} to a loopback socket that is read only once all the packets are queued.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class Nio2SessionTest {
+    private static final int SOCKET_BUFFER_SIZE = 4096;
+    private static final int FIRST_PACKET_SIZE = 128 * 1024;
+    private static final int PACKET_SIZE = 8 * 1024;
+    private static final int NUM_PACKETS = 40;
+    private static final long TIMEOUT = TimeUnit.SECONDS.toMillis(10L);
+
+    private final TestFactoryManager manager = new TestFactoryManager();
+    private final IoHandler handler = new TestIoHandler();
+    private ExecutorService executor;
+    private AsynchronousChannelGroup group;
+    private AsynchronousServerSocketChannel acceptor;
+    private AsynchronousSocketChannel peer;
+    private Nio2Connector service;
+    private TestSession session;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        executor = ThreadUtils.newFixedThreadPool(getClass().getSimpleName(), 2);
+        group = AsynchronousChannelGroup.withThreadPool(executor);
+        service = new Nio2Connector(manager, handler, group);
+        acceptor = AsynchronousServerSocketChannel.open(group);
+        // small socket buffers make the writes block until the peer reads
+        acceptor.setOption(StandardSocketOptions.SO_RCVBUF, SOCKET_BUFFER_SIZE);
+        acceptor.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        if (session != null) {
+            session.close(true);
+        }
+        if (peer != null) {
+            peer.close();
+        }
+        acceptor.close();
+        service.close(true);
+        group.shutdownNow();
+        group.awaitTermination(TIMEOUT, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void testPartialGatheringWrites() throws Exception {
+        connect();
+        List<IoWriteFuture> futures = writePackets();
+        List<Integer> completed = Collections.synchronizedList(new ArrayList<>());
+        List<Integer> early = Collections.synchronizedList(new ArrayList<>());
+        for (int index = 0; index < futures.size(); index++) {
+            int packet = index;
+            futures.get(index).addListener(f -> {
+                completed.add(packet);
+                if (((Nio2DefaultIoWriteFuture) f).getBuffer().hasRemaining()) {
+                    early.add(packet);
+                }
+            });
+        }
+        assertTrue(completed.isEmpty(), "Completed before the peer read anything");
+
+        readPackets();
+        for (IoWriteFuture future : futures) {
+            future.verify(TIMEOUT);
+        }
+
+        List<Integer> expected = new ArrayList<>();
+        for (int index = 0; index < futures.size(); index++) {
+            expected.add(index);
+        }
+        assertEquals(expected, completed, "Completion order");
+        assertEquals(Collections.emptyList(), early, "Completed before flushed");
+
+        // the packets queued behind the first one, in batches up to the max. bytes
+        int perBatch = CoreModuleProperties.NIO2_WRITE_COALESCE_MAX_BYTES.getRequired(manager) / PACKET_SIZE;
+        assertEquals(Arrays.asList(perBatch, NUM_PACKETS - perBatch), session.batches);
+        assertTrue(session.resumedMidPacket > 0, "No cycle continued within a packet");
+        assertTrue(session.resumedAfterPacket > 0, "No cycle continued after completed packets");
+    }
+
+    @Test
+    public void testCoalescingDisabled() throws Exception {
+        CoreModuleProperties.NIO2_WRITE_COALESCE_MAX_COUNT.set(manager, 1);
+        connect();
+        List<IoWriteFuture> futures = writePackets();
+        readPackets();
+        for (IoWriteFuture future : futures) {
+            future.verify(TIMEOUT);
+        }
+        assertEquals(Collections.emptyList(), session.batches);
+    }
+
+    @Test
+    public void testPendingWritesAbortedOnClose() throws Exception {
+        connect();
+        List<IoWriteFuture> futures = writePackets();
+        session.close(true);
+        for (IoWriteFuture future : futures) {
+            assertTrue(future.await(TIMEOUT), "Not done");
+            assertFalse(future.isWritten(), "Written without a reader");
+        }
+    }
+
+    private void connect() throws Exception {
+        AsynchronousSocketChannel socket = AsynchronousSocketChannel.open(group);
+        socket.setOption(StandardSocketOptions.SO_SNDBUF, SOCKET_BUFFER_SIZE);
+        Future<AsynchronousSocketChannel> accepted = acceptor.accept();
+        socket.connect(acceptor.getLocalAddress()).get(TIMEOUT, TimeUnit.MILLISECONDS);
+        peer = accepted.get(TIMEOUT, TimeUnit.MILLISECONDS);
+        session = new TestSession(service, manager, handler, socket);
+    }
+
+    private List<IoWriteFuture> writePackets() throws IOException {
+        List<IoWriteFuture> futures = new ArrayList<>();
+        // the first one is being written while the others are queued
+        futures.add(session.writeBuffer(packet(0, FIRST_PACKET_SIZE)));
+        for (int index = 1; index <= NUM_PACKETS; index++) {
+            futures.add(session.writeBuffer(packet(index, PACKET_SIZE)));
+        }
+        return futures;
+    }
+
+    private void readPackets() throws Exception {
+        // not a multiple of the packet size, so the socket frees odd amounts
+        ByteBuffer buffer = ByteBuffer.allocate(1000);
+        int numPackets = NUM_PACKETS + 1;
+        int packet = 0;
+        int remaining = FIRST_PACKET_SIZE;
+        while (packet < numPackets) {
+            buffer.clear();
+            int len = peer.read(buffer).get(TIMEOUT, TimeUnit.MILLISECONDS);
+            assertTrue(len > 0, "Premature EOF in packet #" + packet);
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                assertEquals((byte) packet, buffer.get(), "Data of packet #" + packet);
+                remaining--;
+                if (remaining <= 0) {
+                    packet++;
+                    remaining = PACKET_SIZE;
+                }
+            }
+        }
+    }
+
+    private static ByteArrayBuffer packet(int index, int size) {
+        byte[] data = new byte[size];
+        for (int pos = 0; pos < size; pos++) {
+            data[pos] = (byte) index;
+        }
+        return new ByteArrayBuffer(data);
+    }
+
+    /**
+     * Records the batches of the gathering writes and how the cycles continued
+     */
+    private static class TestSession extends Nio2Session {
+        private final List<Integer> batches = Collections.synchronizedList(new ArrayList<>());
+        private volatile int resumedMidPacket;
+        private volatile int resumedAfterPacket;
+
+        TestSession(Nio2Service service, FactoryManager manager, IoHandler handler, AsynchronousSocketChannel socket)
+                throws IOException {
+            super(service, manager, handler, socket, null);
+        }
+
+        @Override
+        protected void doGatheringWriteCycle(
+                ByteBuffer[] buffers, int offset, Nio2CompletionHandler<Long, Object> completion) {
+            if ((offset == 0) && (buffers[0].position() == 0)) {
+                batches.add(buffers.length);
+            } else if (buffers[offset].position() > 0) {
+                resumedMidPacket++;
+            } else {
+                resumedAfterPacket++;
+            }
+            super.doGatheringWriteCycle(buffers, offset, completion);
+        }
+    }
+
+    private static class TestIoHandler implements IoHandler {
+        TestIoHandler() {
+            super();
+        }
+
+        @Override
+        public void sessionCreated(IoSession session) {
+            // ignored
+        }
+
+        @Override
+        public void sessionClosed(IoSession session) {
+            // ignored
+        }
+
+        @Override
+        public void exceptionCaught(IoSession session, Throwable cause) {
+            // ignored
+        }
+
+        @Override
+        public void messageReceived(IoSession session, Readable message) {
+            // ignored
+        }
+    }
+
+    private static class TestFactoryManager extends AbstractFactoryManager {
+        TestFactoryManager() {
+            super();
+        }
+
+        @Override
+        protected Closeable getInnerCloseable() {
+            return builder().build();
+        }
+    }
+}
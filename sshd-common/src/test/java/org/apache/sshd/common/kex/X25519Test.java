@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common.kex;
+
+import org.apache.sshd.common.digest.BuiltinDigests;
+import org.apache.sshd.common.util.buffer.Buffer;
+import org.apache.sshd.common.util.buffer.BufferUtils;
+import org.apache.sshd.common.util.buffer.ByteArrayBuffer;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * Tests the {@code curve25519-sha256} key exchange with the <A HREF="https://tools.ietf.org/html/rfc7748">RFC 7748</A>
+ * vectors and the <A HREF="https://tools.ietf.org/html/rfc8731#section-3.1">RFC 8731</A> encoding of the shared secret.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class X25519Test {
+    private static final String ALICE_PRIVATE = "77076d0a7318a57d3c16c17251b26645df4c2f87ebc0992ab177fba51db92c2a";
+    private static final String ALICE_PUBLIC = "8520f0098930a754748b7ddcb43ef75a0dbf3a0d26381af4eba4a98eaa9b4e6a";
+    private static final String BOB_PRIVATE = "5dab087e624a8a4b79e17f8b83800ee66f3bb1292618b6fd1c2f8b27ff88e0eb";
+    private static final String BOB_PUBLIC = "de9edb7d7b7dc1b4d35b61c2ece435373f8343c85b78674dadfc7e146f882b4f";
+    private static final String SHARED_SECRET = "4a5d9d5ba4ce2de1728e3bf480350f25e07e21c947d19e3376f09b3c1e161742";
+
+    /**
+     * <A HREF="https://tools.ietf.org/html/rfc7748#section-5.2">RFC 7748 section 5.2</A> - the scalars are clamped and
+     * the most significant bit of the u-coordinates is ignored
+     */
+    @Test
+    public void testScalarMultiplication() {
+        assertArrayEquals(
+                decodeHex("c3da55379de9c6908e94ea4df28d084f32eccf03491c71f754b4075577a28552"),
+                X25519.sharedSecret(
+                        clamped("a546e36bf0527c9d3b16154b82465edd62144c0ac1fc5a18506a2244ba449ac4"),
+                        decodeHex("e6db6867583030db3594c1a424b15f7c726624ec26b3353b10a903a6d0ab1c4c")));
+        assertArrayEquals(
+                decodeHex("95cbde9476e8907d7aade45cb4b873f88b595a68799fa152e6f8f7647aac7957"),
+                X25519.sharedSecret(
+                        clamped("4b66e9d4d1b4673c5ad22691957d6af5c11b6421e0ea01d42ca4169e7918ba0d"),
+                        decodeHex("e5210f12786811d3f4b7959d0538ae2c31dbe7106fc03c3efc4cd549c715a493")));
+    }
+
+    /**
+     * <A HREF="https://tools.ietf.org/html/rfc7748#section-6.1">RFC 7748 section 6.1</A> - public keys
+     */
+    @Test
+    public void testPublicKey() {
+        assertArrayEquals(decodeHex(ALICE_PUBLIC), X25519.publicKey(clamped(ALICE_PRIVATE)));
+        assertArrayEquals(decodeHex(BOB_PUBLIC), X25519.publicKey(clamped(BOB_PRIVATE)));
+    }
+
+    /**
+     * <A HREF="https://tools.ietf.org/html/rfc7748#section-6.1">RFC 7748 section 6.1</A> - shared secret
+     */
+    @Test
+    public void testSharedSecret() {
+        assertArrayEquals(decodeHex(SHARED_SECRET), X25519.sharedSecret(clamped(ALICE_PRIVATE), decodeHex(BOB_PUBLIC)));
+        assertArrayEquals(decodeHex(SHARED_SECRET), X25519.sharedSecret(clamped(BOB_PRIVATE), decodeHex(ALICE_PUBLIC)));
+    }
+
+    @Test
+    public void testKeyExchange() throws Exception {
+        AbstractDH alice = newX25519(ALICE_PRIVATE);
+        assertArrayEquals(decodeHex(ALICE_PUBLIC), alice.getE());
+        alice.setF(decodeHex(BOB_PUBLIC));
+
+        AbstractDH bob = newX25519(BOB_PRIVATE);
+        assertArrayEquals(decodeHex(BOB_PUBLIC), bob.getE());
+        bob.setF(decodeHex(ALICE_PUBLIC));
+
+        assertArrayEquals(decodeHex(SHARED_SECRET), alice.getK());
+        assertArrayEquals(decodeHex(SHARED_SECRET), bob.getK());
+        assertArrayEquals(decodeHex("00000020" + SHARED_SECRET), encodeMPInt(alice.getK()));
+    }
+
+    @Test
+    public void testBuiltinFactories() throws Exception {
+        for (BuiltinDHFactories factory : new BuiltinDHFactories[] {
+                BuiltinDHFactories.curve25519, BuiltinDHFactories.curve25519_libssh }) {
+            AbstractDH client = factory.create();
+            AbstractDH server = factory.create();
+            client.setF(server.getE());
+            server.setF(client.getE());
+            assertArrayEquals(client.getK(), server.getK(), factory.getName());
+        }
+    }
+
+    /**
+     * The RFC 8731 mpint gets a sign byte if the most significant bit of the secret is set
+     */
+    @Test
+    public void testSharedSecretSignByte() throws Exception {
+        AbstractDH dh = newX25519("4b66e9d4d1b4673c5ad22691957d6af5c11b6421e0ea01d42ca4169e7918ba0d");
+        dh.getE();
+        dh.setF(decodeHex("e5210f12786811d3f4b7959d0538ae2c31dbe7106fc03c3efc4cd549c715a493"));
+        assertArrayEquals(
+                decodeHex("0000002100" + "95cbde9476e8907d7aade45cb4b873f88b595a68799fa152e6f8f7647aac7957"),
+                encodeMPInt(dh.getK()));
+    }
+
+    /**
+     * The RFC 8731 mpint has no leading zero bytes
+     */
+    @Test
+    public void testSharedSecretLeadingZero() throws Exception {
+        AbstractDH dh = newX25519("537a684bf68b9033e6977af198f6c86b7a2daf461653dd37ea08ff2fb399b1cb");
+        dh.getE();
+        dh.setF(decodeHex(BOB_PUBLIC));
+        assertArrayEquals(
+                decodeHex("0000001f" + "492b88d76a188b6957b33283c3c051db6e3f474ea1d3a7a2655215b4786071"),
+                encodeMPInt(dh.getK()));
+    }
+
+    private static AbstractDH newX25519(String privateKey) {
+        return new X25519(BuiltinDigests.sha256) {
+            @Override
+            protected byte[] generatePrivateKey() {
+                return decodeHex(privateKey);
+            }
+        };
+    }
+
+    private static byte[] encodeMPInt(byte[] value) {
+        Buffer buffer = new ByteArrayBuffer();
+        buffer.putMPInt(value);
+        return buffer.getCompactData();
+    }
+
+    private static byte[] clamped(String scalar) {
+        byte[] k = decodeHex(scalar);
+        X25519.clamp(k);
+        return k;
+    }
+
+    private static byte[] decodeHex(String hex) {
+        return BufferUtils.decodeHex(BufferUtils.EMPTY_HEX_SEPARATOR, hex);
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common.session.helpers;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.sshd.common.Closeable;
+import org.apache.sshd.common.CoreModuleProperties;
+import org.apache.sshd.common.FactoryManager;
+import org.apache.sshd.common.helpers.AbstractFactoryManager;
+import org.apache.sshd.common.io.IoSession;
+import org.apache.sshd.common.kex.KexProposalOption;
+import org.apache.sshd.common.random.JceRandomFactory;
+import org.apache.sshd.common.session.ConnectionService;
+import org.apache.sshd.common.session.helpers.TimeoutIndicator.TimeoutStatus;
+import org.apache.sshd.common.util.GenericUtils;
+import org.apache.sshd.common.util.buffer.Buffer;
+import org.apache.sshd.common.util.threads.ManualTimingWheel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class SessionTimeoutListenerTest {
+    private static final Duration TICK = Duration.ofMillis(10L);
+
+    private final ManualTimingWheel wheel = new ManualTimingWheel(TICK);
+    private final SessionTimeoutListener listener = new SessionTimeoutListener(wheel);
+    private TestSession session;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        wheel.start();
+        session = new TestSession(new TestFactoryManager());
+        // authenticated and without an idle timeout - none of its timeouts is enabled
+        CoreModuleProperties.IDLE_TIMEOUT.set(session, Duration.ZERO);
+        session.setAuthenticated();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        wheel.stop();
+    }
+
+    @Test
+    public void testRecheckedUntilTimeoutEnabled() {
+        listener.sessionCreated(session);
+        assertEquals(1, wheel.size(), "Not tracked");
+
+        for (int index = 1; index <= 3; index++) {
+            wheel.elapse(SessionTimeoutListener.RECHECK_INTERVAL);
+            assertEquals(index, session.checks.get());
+            assertEquals(1, wheel.size(), "Not re-armed after check #" + index);
+        }
+
+        // the timeout is enabled later on, and the session has been idle for longer already
+        CoreModuleProperties.IDLE_TIMEOUT.set(session, Duration.ofSeconds(5L));
+        session.idleStart = Instant.now().minusSeconds(10L);
+        wheel.elapse(SessionTimeoutListener.RECHECK_INTERVAL);
+        assertEquals(4, session.checks.get());
+        assertEquals(TimeoutStatus.IdleTimeout, session.getTimeoutStatus().getStatus());
+        assertEquals(0, wheel.size(), "Still tracked after timeout");
+    }
+
+    @Test
+    public void testArmedAtIdleDeadline() {
+        Duration idleTimeout = Duration.ofHours(1L);
+        CoreModuleProperties.IDLE_TIMEOUT.set(session, idleTimeout);
+        listener.sessionCreated(session);
+
+        // no checks while the session may not have timed out
+        wheel.elapse(Duration.ofMinutes(30L));
+        assertEquals(0, session.checks.get());
+
+        // the deadline is re-computed from the idle start when reached
+        session.idleStart = Instant.now();
+        wheel.elapse(Duration.ofMinutes(31L));
+        assertEquals(1, session.checks.get());
+        assertEquals(1, wheel.size());
+        assertEquals(TimeoutStatus.NoTimeout, session.getTimeoutStatus().getStatus());
+
+        session.idleStart = Instant.now().minus(idleTimeout).minusSeconds(1L);
+        wheel.elapse(Duration.ofMinutes(61L));
+        assertEquals(2, session.checks.get());
+        assertEquals(TimeoutStatus.IdleTimeout, session.getTimeoutStatus().getStatus());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testClosedSessionUntracked() {
+        listener.sessionCreated(session);
+        assertEquals(1, wheel.size());
+
+        listener.sessionClosed(session);
+        assertEquals(0, wheel.size());
+        wheel.elapse(SessionTimeoutListener.RECHECK_INTERVAL.multipliedBy(2L));
+        assertEquals(0, session.checks.get());
+    }
+
+    @Test
+    public void testSessionWithoutTimeoutsNotTracked() {
+        CoreModuleProperties.AUTH_TIMEOUT.set(session, Duration.ZERO);
+        listener.sessionCreated(session);
+        assertEquals(0, wheel.size());
+    }
+
+    /**
+     * Detects only idle timeouts - measured from a settable start - and does not disconnect
+     */
+    private static class TestSession extends AbstractSession {
+        private final AtomicInteger checks = new AtomicInteger();
+        private volatile Instant idleStart = Instant.now();
+        private volatile TimeoutIndicator status = TimeoutIndicator.NONE;
+
+        TestSession(FactoryManager manager) {
+            super(true, manager, newIoSession());
+        }
+
+        @Override
+        public Instant getIdleTimeoutStart() {
+            return idleStart;
+        }
+
+        @Override
+        public TimeoutIndicator getTimeoutStatus() {
+            return status;
+        }
+
+        @Override
+        protected TimeoutIndicator checkForTimeouts() {
+            checks.incrementAndGet();
+            Duration idleTimeout = getIdleTimeout();
+            Duration idle = Duration.between(getIdleTimeoutStart(), Instant.now());
+            if (GenericUtils.isPositive(idleTimeout) && (idle.compareTo(idleTimeout) > 0)) {
+                status = new TimeoutIndicator(TimeoutStatus.IdleTimeout, idleTimeout, idle);
+            }
+            return status;
+        }
+
+        @Override
+        protected ConnectionService getConnectionService() {
+            return null;
+        }
+
+        @Override
+        protected void checkKeys() {
+            throw new UnsupportedOperationException("checkKeys");
+        }
+
+        @Override
+        protected boolean readIdentification(Buffer buffer) {
+            throw new UnsupportedOperationException("readIdentification");
+        }
+
+        @Override
+        protected void receiveKexInit(Map<KexProposalOption, String> proposal, byte[] seed) {
+            throw new UnsupportedOperationException("receiveKexInit");
+        }
+
+        @Override
+        protected String resolveAvailableSignaturesProposal(FactoryManager manager) {
+            throw new UnsupportedOperationException("resolveAvailableSignaturesProposal");
+        }
+
+        @Override
+        protected void setKexSeed(byte... seed) {
+            throw new UnsupportedOperationException("setKexSeed");
+        }
+
+        @Override
+        public void startService(String name, Buffer buffer) {
+            throw new UnsupportedOperationException("startService");
+        }
+
+        private static IoSession newIoSession() {
+            return (IoSession) Proxy.newProxyInstance(IoSession.class.getClassLoader(), new Class<?>[] { IoSession.class },
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+                            case "equals":
+                                return proxy == args[0];
+                            case "toString":
+                                return IoSession.class.getSimpleName();
+                            default:
+                                return (method.getReturnType() == boolean.class) ? Boolean.FALSE : null;
+                        }
+                    });
+        }
+    }
+
+    private static class TestFactoryManager extends AbstractFactoryManager {
+        TestFactoryManager() {
+            setRandomFactory(JceRandomFactory.INSTANCE);
+        }
+
+        @Override
+        protected Closeable getInnerCloseable() {
+            return builder().build();
+        }
+    }
+}
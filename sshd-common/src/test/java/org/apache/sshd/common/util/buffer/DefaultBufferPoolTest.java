@@ -0,0 +1,251 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common.util.buffer;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.sshd.common.util.threads.ThreadUtils;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class DefaultBufferPoolTest {
+    private static final int MAX_SIZE = 4096;
+
+    @Test
+    public void testSizeClassRounding() {
+        int[][] expected = {
+                { 0, 0 }, { 1, 0 }, { DefaultBufferPool.MIN_SIZE, 0 },
+                { DefaultBufferPool.MIN_SIZE + 1, 1 }, { 512, 1 }, { 513, 2 }, { 1024, 2 }, { 1025, 3 },
+                { MAX_SIZE, 4 }
+        };
+        for (int[] e : expected) {
+            assertEquals(e[1], DefaultBufferPool.sizeClass(e[0]), "Size class of " + e[0]);
+        }
+
+        DefaultBufferPool pool = new DefaultBufferPool(MAX_SIZE - 1, 2, 2, false);
+        assertEquals(MAX_SIZE, pool.getMaxSize(), "Max. size not rounded up");
+        for (int[] e : expected) {
+            Buffer buffer = pool.acquire(e[0]);
+            assertEquals(DefaultBufferPool.MIN_SIZE << e[1], buffer.array().length, "Leased for " + e[0]);
+            assertEquals(0, buffer.available());
+            assertTrue(pool.release(buffer));
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> new DefaultBufferPool(DefaultBufferPool.MIN_SIZE - 1, 2, 2, false));
+    }
+
+    @Test
+    public void testReuseBySizeClass() {
+        DefaultBufferPool pool = new DefaultBufferPool(MAX_SIZE, 2, 2, false);
+        Buffer buffer = pool.acquire(600);
+        byte[] data = buffer.array();
+        assertTrue(pool.release(buffer));
+
+        // any capacity of the same size class gets the same array
+        assertSame(data, pool.acquire(1024).array());
+        assertNotSame(data, pool.acquire(600).array(), "Array leased twice");
+
+        BufferPoolStatistics stats = pool.getStatistics();
+        assertEquals(3L, stats.getAcquired());
+        assertEquals(1L, stats.getReleased());
+        assertEquals(1L, stats.getThreadLocalHits());
+        assertEquals(2L, stats.getAllocations());
+        assertEquals(2048L, stats.getAllocatedBytes());
+    }
+
+    @Test
+    public void testDoubleRelease() {
+        DefaultBufferPool pool = new DefaultBufferPool(MAX_SIZE, 2, 2, false);
+        Buffer buffer = pool.acquire(100);
+        assertTrue(pool.release(buffer));
+        assertFalse(pool.release(buffer), "Released twice");
+
+        // otherwise both leases would share the same array
+        assertNotSame(pool.acquire(100).array(), pool.acquire(100).array());
+        BufferPoolStatistics stats = pool.getStatistics();
+        assertEquals(1L, stats.getReleased());
+        assertEquals(1L, stats.getThreadLocalHits());
+        assertEquals(2L, stats.getAllocations());
+    }
+
+    @Test
+    public void testForeignRelease() {
+        DefaultBufferPool pool = new DefaultBufferPool(MAX_SIZE, 2, 2, false);
+        DefaultBufferPool other = new DefaultBufferPool(MAX_SIZE, 2, 2, false);
+        Buffer buffer = other.acquire(100);
+        assertFalse(pool.release(buffer), "Released to another pool");
+        assertFalse(pool.release(new ByteArrayBuffer(DefaultBufferPool.MIN_SIZE)), "Plain buffer released");
+        assertFalse(pool.release(null));
+        assertEquals(0L, pool.getStatistics().getReleased());
+
+        // still leased from its own pool
+        assertTrue(other.release(buffer));
+        assertSame(buffer.array(), other.acquire(100).array());
+    }
+
+    @Test
+    public void testUnpooledLease() {
+        DefaultBufferPool pool = new DefaultBufferPool(MAX_SIZE, 2, 2, false);
+        Buffer buffer = pool.acquire(MAX_SIZE + 1);
+        assertEquals(MAX_SIZE + 1, buffer.array().length);
+        assertFalse(pool.release(buffer));
+        assertEquals(1L, pool.getStatistics().getAllocations());
+        assertEquals(MAX_SIZE + 1L, pool.getStatistics().getAllocatedBytes());
+    }
+
+    @Test
+    public void testGrownBufferDiscarded() {
+        DefaultBufferPool pool = new DefaultBufferPool(MAX_SIZE, 2, 2, false);
+        Buffer beyondMax = pool.acquire(MAX_SIZE);
+        beyondMax.putRawBytes(new byte[MAX_SIZE + 1]);
+        assertTrue(pool.release(beyondMax));
+
+        Buffer oddSize = pool.acquire(100);
+        oddSize.ensureCapacity(300, size -> size);
+        assertEquals(300, oddSize.array().length);
+        assertTrue(pool.release(oddSize));
+
+        BufferPoolStatistics stats = pool.getStatistics();
+        assertEquals(2L, stats.getReleased());
+        assertEquals(2L, stats.getDiscarded());
+        assertNotSame(beyondMax.array(), pool.acquire(MAX_SIZE).array());
+        assertEquals(0L, pool.getStatistics().getThreadLocalHits());
+
+        // grown by the default factor to the next size class - still fit for that class
+        Buffer grown = pool.acquire(100);
+        grown.putRawBytes(new byte[DefaultBufferPool.MIN_SIZE + 1]);
+        byte[] data = grown.array();
+        assertEquals(2 * DefaultBufferPool.MIN_SIZE, data.length);
+        assertTrue(pool.release(grown));
+        assertSame(data, pool.acquire(DefaultBufferPool.MIN_SIZE + 1).array());
+        assertEquals(2L, pool.getStatistics().getDiscarded());
+    }
+
+    @Test
+    public void testThreadCacheOverflow() throws Exception {
+        DefaultBufferPool pool = new DefaultBufferPool(MAX_SIZE, 2, 2, false);
+        List<Buffer> leased = new ArrayList<>();
+        for (int index = 0; index < 5; index++) {
+            leased.add(pool.acquire(100));
+        }
+        // 2 are kept by this thread, 2 go to the shared cache and the last one is dropped
+        for (Buffer buffer : leased) {
+            assertTrue(pool.release(buffer));
+        }
+        assertEquals(1L, pool.getStatistics().getDiscarded());
+
+        ExecutorService executor = ThreadUtils.newSingleThreadExecutor(getClass().getSimpleName());
+        try {
+            List<byte[]> other = executor.submit(() -> {
+                List<byte[]> arrays = new ArrayList<>();
+                for (int index = 0; index < 3; index++) {
+                    arrays.add(pool.acquire(100).array());
+                }
+                return arrays;
+            }).get(5L, TimeUnit.SECONDS);
+            assertSame(leased.get(2).array(), other.get(0));
+            assertSame(leased.get(3).array(), other.get(1));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        BufferPoolStatistics stats = pool.getStatistics();
+        assertEquals(2L, stats.getSharedHits());
+        assertEquals(0L, stats.getThreadLocalHits());
+        assertEquals(6L, stats.getAllocations());
+
+        // the ones kept by this thread are still there
+        assertSame(leased.get(1).array(), pool.acquire(100).array());
+        assertSame(leased.get(0).array(), pool.acquire(100).array());
+        assertEquals(2L, pool.getStatistics().getThreadLocalHits());
+    }
+
+    @Test
+    public void testLeaseAcrossThreads() throws Exception {
+        // packets are leased by the writer and released by the I/O thread once written
+        DefaultBufferPool pool = new DefaultBufferPool(MAX_SIZE, 1, 4, false);
+        ExecutorService ioThread = ThreadUtils.newSingleThreadExecutor(getClass().getSimpleName());
+        int packets = 3;
+        int rounds = 10;
+        try {
+            for (int round = 0; round < rounds; round++) {
+                List<Buffer> written = new ArrayList<>();
+                Set<byte[]> arrays = Collections.newSetFromMap(new IdentityHashMap<>());
+                for (int index = 0; index < packets; index++) {
+                    Buffer buffer = pool.acquire(1000);
+                    assertTrue(arrays.add(buffer.array()), "Array leased twice in round " + round);
+                    buffer.putInt(round);
+                    written.add(buffer);
+                }
+
+                ioThread.submit(() -> {
+                    for (Buffer buffer : written) {
+                        assertTrue(pool.release(buffer));
+                    }
+                }).get(5L, TimeUnit.SECONDS);
+            }
+        } finally {
+            ioThread.shutdownNow();
+        }
+
+        // the I/O thread keeps the first one in its own cache, and the writer re-uses all others
+        BufferPoolStatistics stats = pool.getStatistics();
+        assertEquals(packets * rounds, stats.getReleased());
+        assertEquals(0L, stats.getThreadLocalHits());
+        assertEquals(packets * (rounds - 1) - 1, stats.getSharedHits());
+        assertEquals(packets + 1, stats.getAllocations());
+        assertEquals(0L, stats.getDiscarded());
+    }
+
+    @Test
+    public void testByteBuffers() {
+        DefaultBufferPool pool = new DefaultBufferPool(MAX_SIZE, 2, 2, true);
+        ByteBuffer buffer = pool.acquireByteBuffer(300);
+        assertTrue(buffer.isDirect());
+        assertEquals(512, buffer.capacity());
+        buffer.putInt(7);
+        assertTrue(pool.releaseByteBuffer(buffer));
+
+        ByteBuffer reused = pool.acquireByteBuffer(512);
+        assertSame(buffer, reused);
+        assertEquals(0, reused.position(), "Not cleared");
+        assertEquals(512, reused.limit());
+
+        assertFalse(pool.releaseByteBuffer(ByteBuffer.allocate(512)), "Heap buffer pooled as direct one");
+        assertFalse(pool.releaseByteBuffer(ByteBuffer.allocateDirect(300)), "Odd capacity pooled");
+        assertFalse(pool.releaseByteBuffer(ByteBuffer.allocateDirect(2 * MAX_SIZE)), "Capacity above max. pooled");
+        assertFalse(pool.releaseByteBuffer(null));
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common.util.threads;
+
+import java.time.Duration;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link TimingWheel} whose time only moves when {@link #elapse(Duration) told so} - the expired tasks are run by
+ * the calling thread.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class ManualTimingWheel extends TimingWheel {
+    private final ScheduledThreadPoolExecutor executor;
+    private volatile long now; // still zero when the super constructor reads the origin
+
+    public ManualTimingWheel(Duration tick) {
+        this(newExecutor(), tick);
+    }
+
+    private ManualTimingWheel(ScheduledThreadPoolExecutor executor, Duration tick) {
+        super(executor, tick);
+        this.executor = executor;
+    }
+
+    /**
+     * @param  duration How much time passes
+     * @return          The current time of the wheel since its creation
+     */
+    public Duration elapse(Duration duration) {
+        now += duration.toNanos();
+        tick();
+        return Duration.ofNanos(now);
+    }
+
+    public Duration getElapsed() {
+        return Duration.ofNanos(now);
+    }
+
+    @Override
+    protected long nanoTime() {
+        return now;
+    }
+
+    @Override
+    protected void dispatch(Timeout timeout) {
+        timeout.run();
+    }
+
+    @Override
+    public void stop() {
+        try {
+            super.stop();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static ScheduledThreadPoolExecutor newExecutor() {
+        return new ScheduledThreadPoolExecutor(1) {
+            @Override
+            public ScheduledFuture<?> scheduleAtFixedRate(
+                    Runnable command, long initialDelay, long period, TimeUnit unit) {
+                // the driver never runs - the test advances the wheel
+                return schedule(command, 1L, TimeUnit.DAYS);
+            }
+        };
+    }
+}
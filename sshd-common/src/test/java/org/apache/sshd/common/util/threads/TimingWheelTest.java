@@ -0,0 +1,243 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common.util.threads;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class TimingWheelTest {
+    private static final Duration TICK = Duration.ofMillis(1L);
+
+    private final ManualTimingWheel wheel = new ManualTimingWheel(TICK);
+
+    @BeforeEach
+    public void setUp() {
+        wheel.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        wheel.stop();
+    }
+
+    @Test
+    public void testExpiryOrder() {
+        long[] delays = { 50L, 3L, 70L, 10L, 1L, 64L, 65L, 200L, 10L, 0L };
+        List<Long> expired = new ArrayList<>();
+        for (long delay : delays) {
+            wheel.schedule(() -> {
+                // tasks run no earlier than their deadline and at most a tick later
+                long elapsed = wheel.getElapsed().toMillis();
+                assertTrue((elapsed >= delay) && (elapsed <= delay + TICK.toMillis()), delay + "ms task ran at " + elapsed);
+                expired.add(delay);
+            }, Duration.ofMillis(delay));
+        }
+        assertEquals(delays.length, wheel.size());
+
+        for (int index = 0; index < 250; index++) {
+            wheel.elapse(TICK);
+        }
+
+        long[] sorted = delays.clone();
+        Arrays.sort(sorted);
+        assertEquals(Arrays.toString(sorted), expired.toString());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testCascadingLevels() {
+        long levelTicks = TimingWheel.WHEEL_SIZE;
+        // one deadline per wheel level, and one beyond a whole turn of the highest wheel
+        Duration[] delays = new Duration[TimingWheel.LEVELS + 1];
+        for (int level = 0; level < delays.length; level++) {
+            long ticks = (level == 0) ? 10L : (levelTicks + 5L);
+            delays[level] = TICK.multipliedBy(ticks);
+            levelTicks *= TimingWheel.WHEEL_SIZE;
+        }
+
+        for (Duration delay : delays) {
+            AtomicInteger runs = new AtomicInteger();
+            ManualTimingWheel levelWheel = new ManualTimingWheel(TICK);
+            try {
+                levelWheel.start();
+                levelWheel.schedule(runs::incrementAndGet, delay);
+
+                levelWheel.elapse(delay.minus(TICK));
+                assertEquals(0, runs.get(), "Ran before " + delay);
+                assertEquals(1, levelWheel.size(), "Lost while cascading towards " + delay);
+                levelWheel.elapse(TICK);
+                assertEquals(1, runs.get(), "Not run at " + delay);
+                assertEquals(0, levelWheel.size());
+            } finally {
+                levelWheel.stop();
+            }
+        }
+    }
+
+    @Test
+    public void testDeadlinesInSameSlotOfHigherLevel() {
+        // both land in the same level 1 slot, and are split up when it is moved down
+        List<String> expired = new ArrayList<>();
+        wheel.schedule(() -> expired.add("b"), Duration.ofMillis(100L));
+        wheel.schedule(() -> expired.add("a"), Duration.ofMillis(99L));
+        wheel.schedule(() -> expired.add("c"), Duration.ofMillis(127L));
+
+        assertEquals(Duration.ofMillis(98L), wheel.elapse(Duration.ofMillis(98L)));
+        assertTrue(expired.isEmpty());
+        wheel.elapse(TICK);
+        assertEquals(Arrays.asList("a"), expired);
+        wheel.elapse(TICK);
+        assertEquals(Arrays.asList("a", "b"), expired);
+        wheel.elapse(Duration.ofMillis(27L));
+        assertEquals(Arrays.asList("a", "b", "c"), expired);
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        ScheduledFuture<?> low = wheel.schedule(runs::incrementAndGet, Duration.ofMillis(10L));
+        ScheduledFuture<?> high = wheel.schedule(runs::incrementAndGet, Duration.ofSeconds(10L));
+        ScheduledFuture<?> kept = wheel.schedule(runs::incrementAndGet, Duration.ofMillis(20L));
+        assertEquals(3, wheel.size());
+
+        assertTrue(low.cancel(false));
+        assertTrue(high.cancel(false));
+        assertFalse(low.cancel(false), "Cancelled twice");
+        assertEquals(1, wheel.size());
+        assertTrue(low.isCancelled());
+        assertTrue(low.isDone());
+        assertThrows(CancellationException.class, () -> low.get());
+
+        wheel.elapse(Duration.ofSeconds(11L));
+        assertEquals(1, runs.get());
+        assertTrue(kept.isDone());
+        assertFalse(kept.isCancelled());
+        assertNull(kept.get());
+        assertFalse(kept.cancel(false), "Cancelled after run");
+    }
+
+    @Test
+    public void testCancelAfterCascading() {
+        AtomicInteger runs = new AtomicInteger();
+        ScheduledFuture<?> future = wheel.schedule(runs::incrementAndGet, Duration.ofMillis(100L));
+        // moved down to the lowest wheel by now
+        wheel.elapse(Duration.ofMillis(70L));
+        assertEquals(1, wheel.size());
+
+        assertTrue(future.cancel(false));
+        assertEquals(0, wheel.size());
+        wheel.elapse(Duration.ofMillis(100L));
+        assertEquals(0, runs.get());
+    }
+
+    @Test
+    public void testFixedRate() throws Exception {
+        List<Long> runs = new ArrayList<>();
+        ScheduledFuture<?> future = wheel.scheduleAtFixedRate(
+                () -> runs.add(wheel.getElapsed().toMillis()), Duration.ofMillis(10L), Duration.ofMillis(100L));
+        for (int index = 0; index < 350; index++) {
+            wheel.elapse(TICK);
+        }
+        assertEquals(Arrays.asList(10L, 110L, 210L, 310L), runs);
+        assertEquals(1, wheel.size(), "Not re-scheduled");
+        assertFalse(future.isDone());
+
+        assertTrue(future.cancel(false));
+        wheel.elapse(Duration.ofSeconds(1L));
+        assertEquals(4, runs.size());
+        assertEquals(0, wheel.size());
+        assertThrows(CancellationException.class, () -> future.get(1L, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testFixedRateStopsOnFailure() {
+        AtomicInteger runs = new AtomicInteger();
+        ScheduledFuture<?> future = wheel.scheduleAtFixedRate(() -> {
+            if (runs.incrementAndGet() == 2) {
+                throw new IllegalStateException("second run");
+            }
+        }, Duration.ZERO, Duration.ofMillis(10L));
+
+        for (int index = 0; index < 100; index++) {
+            wheel.elapse(TICK);
+        }
+        assertEquals(2, runs.get());
+        assertTrue(future.isDone());
+        assertEquals(0, wheel.size());
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get());
+        assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+
+    @Test
+    public void testStopCancelsPending() {
+        AtomicInteger runs = new AtomicInteger();
+        ScheduledFuture<?> once = wheel.schedule(runs::incrementAndGet, Duration.ofMillis(10L));
+        ScheduledFuture<?> periodic = wheel.scheduleAtFixedRate(runs::incrementAndGet, TICK, TICK);
+        for (int index = 0; index < 5; index++) {
+            wheel.elapse(TICK);
+        }
+        assertEquals(5, runs.get());
+
+        wheel.stop();
+        assertFalse(wheel.isStarted());
+        assertEquals(0, wheel.size());
+        assertTrue(once.isCancelled());
+        assertTrue(periodic.isCancelled());
+        wheel.elapse(Duration.ofMillis(100L));
+        assertEquals(5, runs.get());
+    }
+
+    @Test
+    public void testDriverAdvancesWheel() throws Exception {
+        ScheduledExecutorService executor = ThreadUtils.newSingleThreadScheduledExecutor(getClass().getSimpleName());
+        TimingWheel realWheel = new TimingWheel(executor, Duration.ofMillis(5L));
+        try {
+            realWheel.start();
+            long start = System.nanoTime();
+            ScheduledFuture<?> future = realWheel.schedule(() -> {
+            }, Duration.ofMillis(50L));
+            future.get(5L, TimeUnit.SECONDS);
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50L), "Ran before its deadline");
+        } finally {
+            realWheel.stop();
+            executor.shutdownNow();
+        }
+    }
+}
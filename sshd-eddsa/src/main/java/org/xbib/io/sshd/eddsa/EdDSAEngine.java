@@ -425,6 +425,50 @@ public final class EdDSAEngine extends Signature {
         return verify(signature, sigoff, siglen);
     }
 
+    /**
+     * Verifies many signatures at once - e.g. when auditing certificate chains
+     * or signed known hosts data.
+     * <p>
+     * Each signature is checked in one-shot mode with the same (cofactorless)
+     * equation as {@link #verify(byte[])}, re-using this engine, its digest and
+     * the thread's point workspace. The engine is re-initialized only when the
+     * key changes, and the decoded keys come from the
+     * {@link org.xbib.io.sshd.eddsa.spec.EdDSAPublicKeyCache}. A randomized
+     * single-equation check is deliberately not used, since it is not equivalent
+     * to the cofactorless one and could accept signatures that verify() rejects.
+     * </p><p>
+     * When done, the engine is initialized for verification with the last key.
+     * </p>
+     *
+     * @param keys       the public key of each signature
+     * @param data       the signed messages
+     * @param signatures the signatures
+     * @return whether each of the signatures is valid - malformed ones are reported as invalid
+     * @throws InvalidKeyException if one of the keys cannot be used by this engine
+     */
+    public boolean[] verifyBatch(PublicKey[] keys, byte[][] data, byte[][] signatures) throws InvalidKeyException {
+        int count = data.length;
+        if (keys.length != count || signatures.length != count)
+            throw new IllegalArgumentException("keys, data and signatures counts differ");
+
+        boolean[] valid = new boolean[count];
+        PublicKey current = null;
+        for (int i = 0; i < count; i++) {
+            if (keys[i] != current) {
+                initVerify(keys[i]);
+                current = keys[i];
+            }
+
+            try {
+                valid[i] = verifyOneShot(data[i], signatures[i]);
+            } catch (SignatureException e) {
+                // wrong signature length - the engine has been reset
+                valid[i] = false;
+            }
+        }
+        return valid;
+    }
+
     /**
      * @throws InvalidAlgorithmParameterException if spec is ONE_SHOT_MODE and update() already called
      * @see #ONE_SHOT_MODE
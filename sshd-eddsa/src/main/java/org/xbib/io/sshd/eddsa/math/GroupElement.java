@@ -247,7 +247,17 @@ public class GroupElement /*implements Serializable*/ {
      * @return 64 bytes, each between -8 and 7
      */
     static byte[] toRadix16(final byte[] a) {
-        final byte[] e = new byte[64];
+        return toRadix16(a, new byte[64]);
+    }
+
+    /**
+     * Convert a to radix 16 into the given array.
+     *
+     * @param a $= a[0]+256*a[1]+...+256^{31} a[31]$
+     * @param e 64 bytes to fill
+     * @return e, each byte between -8 and 7
+     */
+    static byte[] toRadix16(final byte[] a, final byte[] e) {
         int i;
         // Radix 16 notation
         for (i = 0; i < 32; i++) {
@@ -281,7 +291,17 @@ public class GroupElement /*implements Serializable*/ {
      * @return The byte array $r$ in the above described form.
      */
     static byte[] slide(final byte[] a) {
-        byte[] r = new byte[256];
+        return slide(a, new byte[256]);
+    }
+
+    /**
+     * Calculates the sliding-windows base 2 representation of $a$ into the given array.
+     *
+     * @param a $= a[0]+256*a[1]+\dots+256^{31} a[31]$.
+     * @param r 256 bytes to fill
+     * @return r, in the form described in {@link #slide(byte[])}
+     */
+    static byte[] slide(final byte[] a, final byte[] r) {
 
         // Put each bit of 'a' into a separate byte, 0 or 1
         for (int i = 0; i < 256; ++i) {
@@ -867,8 +887,9 @@ public class GroupElement /*implements Serializable*/ {
 
     /**
      * $h = a * B$ where $a = a[0]+256*a[1]+\dots+256^{31} a[31]$ and
-     * $B$ is this point. If its lookup table has not been precomputed, it
-     * will be at the start of the method (and cached for later calls).
+     * $B$ is this point. Its lookup table must have been precomputed - it is
+     * only read, so concurrent multiplications do not lock the point.
+     * Ed25519 points are multiplied in place in a per-thread workspace.
      * Constant time.
      * <p>
      * Preconditions: (TODO: Check this applies here)
@@ -878,28 +899,30 @@ public class GroupElement /*implements Serializable*/ {
      * @return the GroupElement
      */
     public GroupElement scalarMultiply(final byte[] a) {
+        if (GroupWorkspace.isSupported(this)) {
+            return GroupWorkspace.get().scalarMultiply(this, a);
+        }
+
         GroupElement t;
         int i;
 
         final byte[] e = toRadix16(a);
 
         GroupElement h = this.curve.getZero(Representation.P3);
-        synchronized (this) {
-            // TODO: Get opinion from a crypto professional.
-            // This should in practice never be necessary, the only point that
-            // this should get called on is EdDSA's B.
-            //precompute();
-            for (i = 1; i < 64; i += 2) {
-                t = select(i / 2, e[i]);
-                h = h.madd(t).toP3();
-            }
+        // TODO: Get opinion from a crypto professional.
+        // This should in practice never be necessary, the only point that
+        // this should get called on is EdDSA's B.
+        //precompute();
+        for (i = 1; i < 64; i += 2) {
+            t = select(i / 2, e[i]);
+            h = h.madd(t).toP3();
+        }
 
-            h = h.dbl().toP2().dbl().toP2().dbl().toP2().dbl().toP3();
+        h = h.dbl().toP2().dbl().toP2().dbl().toP2().dbl().toP3();
 
-            for (i = 0; i < 64; i += 2) {
-                t = select(i / 2, e[i]);
-                h = h.madd(t).toP3();
-            }
+        for (i = 0; i < 64; i += 2) {
+            t = select(i / 2, e[i]);
+            h = h.madd(t).toP3();
         }
 
         return h;
@@ -909,7 +932,8 @@ public class GroupElement /*implements Serializable*/ {
      * $r = a * A + b * B$ where $a = a[0]+256*a[1]+\dots+256^{31} a[31]$,
      * $b = b[0]+256*b[1]+\dots+256^{31} b[31]$ and $B$ is this point.
      * <p>
-     * $A$ must have been previously precomputed.
+     * $A$ must have been previously precomputed. Ed25519 points are
+     * multiplied in place in a per-thread workspace.
      *
      * @param A in P3 representation.
      * @param a $= a[0]+256*a[1]+\dots+256^{31} a[31]$
@@ -918,6 +942,10 @@ public class GroupElement /*implements Serializable*/ {
      */
     public GroupElement doubleScalarMultiplyVariableTime(final GroupElement A, final byte[] a, final byte[] b) {
         // TODO-CR BR: A check that this is the base point is needed.
+        if (GroupWorkspace.isSupported(this)) {
+            return GroupWorkspace.get().doubleScalarMultiplyVariableTime(this, A, a, b);
+        }
+
         final byte[] aslide = slide(a);
         final byte[] bslide = slide(b);
 
@@ -928,29 +956,27 @@ public class GroupElement /*implements Serializable*/ {
             if (aslide[i] != 0 || bslide[i] != 0) break;
         }
 
-        synchronized (this) {
-            // TODO-CR BR strange comment below.
-            // TODO: Get opinion from a crypto professional.
-            // This should in practice never be necessary, the only point that
-            // this should get called on is EdDSA's B.
-            //precompute();
-            for (; i >= 0; --i) {
-                GroupElement t = r.dbl();
-
-                if (aslide[i] > 0) {
-                    t = t.toP3().madd(A.dblPrecmp[aslide[i] / 2]);
-                } else if (aslide[i] < 0) {
-                    t = t.toP3().msub(A.dblPrecmp[(-aslide[i]) / 2]);
-                }
-
-                if (bslide[i] > 0) {
-                    t = t.toP3().madd(this.dblPrecmp[bslide[i] / 2]);
-                } else if (bslide[i] < 0) {
-                    t = t.toP3().msub(this.dblPrecmp[(-bslide[i]) / 2]);
-                }
+        // TODO-CR BR strange comment below.
+        // TODO: Get opinion from a crypto professional.
+        // This should in practice never be necessary, the only point that
+        // this should get called on is EdDSA's B.
+        //precompute();
+        for (; i >= 0; --i) {
+            GroupElement t = r.dbl();
+
+            if (aslide[i] > 0) {
+                t = t.toP3().madd(A.dblPrecmp[aslide[i] / 2]);
+            } else if (aslide[i] < 0) {
+                t = t.toP3().msub(A.dblPrecmp[(-aslide[i]) / 2]);
+            }
 
-                r = t.toP2();
+            if (bslide[i] > 0) {
+                t = t.toP3().madd(this.dblPrecmp[bslide[i] / 2]);
+            } else if (bslide[i] < 0) {
+                t = t.toP3().msub(this.dblPrecmp[(-bslide[i]) / 2]);
             }
+
+            r = t.toP2();
         }
 
         return r;
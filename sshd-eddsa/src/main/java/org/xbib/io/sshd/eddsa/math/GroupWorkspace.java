@@ -0,0 +1,246 @@
+package org.xbib.io.sshd.eddsa.math;
+
+import org.xbib.io.sshd.eddsa.Utils;
+import org.xbib.io.sshd.eddsa.math.ed25519.Ed25519FieldElement;
+import org.xbib.io.sshd.eddsa.math.ed25519.Ed25519FieldOps;
+
+/**
+ * Per-thread scratch space for the scalar multiplications of {@link GroupElement} points whose coordinates are
+ * {@link Ed25519FieldElement}s. The intermediate points are kept in re-usable limbs and updated in place with
+ * {@link Ed25519FieldOps}, so that a scalar multiplication allocates only its result instead of several new
+ * elements per doubling and addition. The formulas (and the constant-time table lookup) are the same as the
+ * ones of {@link GroupElement#dbl()}, {@link GroupElement#madd} and {@link GroupElement#select(int, int)}.
+ */
+final class GroupWorkspace {
+    private static final ThreadLocal<GroupWorkspace> WORKSPACE = ThreadLocal.withInitial(GroupWorkspace::new);
+
+    // the accumulated point - P2 or P3 representation
+    private final int[] x = Ed25519FieldOps.newLimbs();
+    private final int[] y = Ed25519FieldOps.newLimbs();
+    private final int[] z = Ed25519FieldOps.newLimbs();
+    private final int[] t = Ed25519FieldOps.newLimbs();
+    // the result of a doubling or an addition - P1P1 representation
+    private final int[] px = Ed25519FieldOps.newLimbs();
+    private final int[] py = Ed25519FieldOps.newLimbs();
+    private final int[] pz = Ed25519FieldOps.newLimbs();
+    private final int[] pt = Ed25519FieldOps.newLimbs();
+    // the selected pre-computed point - PRECOMP representation
+    private final int[] sx = Ed25519FieldOps.newLimbs();
+    private final int[] sy = Ed25519FieldOps.newLimbs();
+    private final int[] sz = Ed25519FieldOps.newLimbs();
+    private final int[] a = Ed25519FieldOps.newLimbs();
+    private final int[] b = Ed25519FieldOps.newLimbs();
+    private final int[] c = Ed25519FieldOps.newLimbs();
+    private final int[] d = Ed25519FieldOps.newLimbs();
+    private final byte[] e = new byte[64];
+    private final byte[] aslide = new byte[256];
+    private final byte[] bslide = new byte[256];
+
+    private GroupWorkspace() {
+        super();
+    }
+
+    /**
+     * @param p The point to check
+     * @return {@code true} if the point arithmetic can run in place on the point's coordinates
+     */
+    static boolean isSupported(GroupElement p) {
+        return p.X instanceof Ed25519FieldElement;
+    }
+
+    /**
+     * @return The workspace of the current thread
+     */
+    static GroupWorkspace get() {
+        return WORKSPACE.get();
+    }
+
+    /**
+     * In-place version of {@link GroupElement#scalarMultiply(byte[])}.
+     *
+     * @param base The point - its {@code precmp} table must have been pre-computed
+     * @param s    $= s[0]+256*s[1]+\dots+256^{31} s[31]$
+     * @return $s * base$ in P3 representation
+     */
+    GroupElement scalarMultiply(GroupElement base, byte[] s) {
+        GroupElement.toRadix16(s, e);
+
+        // neutral element
+        Ed25519FieldOps.zero(x);
+        Ed25519FieldOps.one(y);
+        Ed25519FieldOps.one(z);
+        Ed25519FieldOps.zero(t);
+
+        for (int i = 1; i < 64; i += 2) {
+            select(base.precmp[i / 2], e[i]);
+            madd(sx, sy, sz);
+            p1p1ToP3();
+        }
+
+        dbl();
+        p1p1ToP2();
+        dbl();
+        p1p1ToP2();
+        dbl();
+        p1p1ToP2();
+        dbl();
+        p1p1ToP3();
+
+        for (int i = 0; i < 64; i += 2) {
+            select(base.precmp[i / 2], e[i]);
+            madd(sx, sy, sz);
+            p1p1ToP3();
+        }
+
+        Field field = base.curve.getField();
+        return GroupElement.p3(base.curve, toElement(field, x), toElement(field, y), toElement(field, z),
+                toElement(field, t));
+    }
+
+    /**
+     * In-place version of {@link GroupElement#doubleScalarMultiplyVariableTime(GroupElement, byte[], byte[])}.
+     *
+     * @param base The point $B$ - its {@code dblPrecmp} table must have been pre-computed
+     * @param A    The point $A$ - its {@code dblPrecmp} table must have been pre-computed
+     * @param sa   $= a[0]+256*a[1]+\dots+256^{31} a[31]$
+     * @param sb   $= b[0]+256*b[1]+\dots+256^{31} b[31]$
+     * @return $a * A + b * B$ in P2 representation
+     */
+    GroupElement doubleScalarMultiplyVariableTime(GroupElement base, GroupElement A, byte[] sa, byte[] sb) {
+        GroupElement.slide(sa, aslide);
+        GroupElement.slide(sb, bslide);
+
+        // neutral element
+        Ed25519FieldOps.zero(x);
+        Ed25519FieldOps.one(y);
+        Ed25519FieldOps.one(z);
+
+        int i;
+        for (i = 255; i >= 0; --i) {
+            if (aslide[i] != 0 || bslide[i] != 0) break;
+        }
+
+        for (; i >= 0; --i) {
+            dbl();
+
+            if (aslide[i] > 0) {
+                p1p1ToP3();
+                madd(A.dblPrecmp[aslide[i] / 2]);
+            } else if (aslide[i] < 0) {
+                p1p1ToP3();
+                msub(A.dblPrecmp[(-aslide[i]) / 2]);
+            }
+
+            if (bslide[i] > 0) {
+                p1p1ToP3();
+                madd(base.dblPrecmp[bslide[i] / 2]);
+            } else if (bslide[i] < 0) {
+                p1p1ToP3();
+                msub(base.dblPrecmp[(-bslide[i]) / 2]);
+            }
+
+            p1p1ToP2();
+        }
+
+        Field field = base.curve.getField();
+        return GroupElement.p2(base.curve, toElement(field, x), toElement(field, y), toElement(field, z));
+    }
+
+    /**
+     * Constant-time look up of $16^i r_i B$ into the selected point - see {@link GroupElement#select(int, int)}
+     *
+     * @param table The pre-computed multiples for position $i$
+     * @param r     $= r_i$
+     */
+    private void select(GroupElement[] table, int r) {
+        // Is r_i negative?
+        int rnegative = Utils.negative(r);
+        // |r_i|
+        int rabs = r - (((-rnegative) & r) << 1);
+
+        // 16^i |r_i| B
+        Ed25519FieldOps.one(sx);
+        Ed25519FieldOps.one(sy);
+        Ed25519FieldOps.zero(sz);
+        for (int j = 0; j < 8; j++) {
+            GroupElement q = table[j];
+            int match = Utils.equal(rabs, j + 1);
+            Ed25519FieldOps.cmov(sx, Ed25519FieldOps.limbs(q.X), match);
+            Ed25519FieldOps.cmov(sy, Ed25519FieldOps.limbs(q.Y), match);
+            Ed25519FieldOps.cmov(sz, Ed25519FieldOps.limbs(q.Z), match);
+        }
+
+        // -16^i |r_i| B = (y-x, y+x, -2dxy)
+        Ed25519FieldOps.copy(a, sx);
+        Ed25519FieldOps.cmov(sx, sy, rnegative);
+        Ed25519FieldOps.cmov(sy, a, rnegative);
+        Ed25519FieldOps.negate(a, sz);
+        Ed25519FieldOps.cmov(sz, a, rnegative);
+    }
+
+    /**
+     * P2 or P3 to P1P1 doubling - see {@link GroupElement#dbl()}
+     */
+    private void dbl() {
+        Ed25519FieldOps.square(a, x);               // XX
+        Ed25519FieldOps.square(b, y);               // YY
+        Ed25519FieldOps.squareAndDouble(c, z);      // B
+        Ed25519FieldOps.add(d, x, y);               // A
+        Ed25519FieldOps.square(d, d);               // AA
+        Ed25519FieldOps.add(py, b, a);              // Yn
+        Ed25519FieldOps.subtract(pz, b, a);         // Zn
+        Ed25519FieldOps.subtract(px, d, py);
+        Ed25519FieldOps.subtract(pt, c, pz);
+    }
+
+    private void madd(GroupElement q) {
+        madd(Ed25519FieldOps.limbs(q.X), Ed25519FieldOps.limbs(q.Y), Ed25519FieldOps.limbs(q.Z));
+    }
+
+    /**
+     * P3 + PRECOMP to P1P1 addition - see {@link GroupElement#madd}
+     */
+    private void madd(int[] qx, int[] qy, int[] qz) {
+        Ed25519FieldOps.add(a, y, x);               // YpX
+        Ed25519FieldOps.subtract(b, y, x);          // YmX
+        Ed25519FieldOps.multiply(a, a, qx);         // A
+        Ed25519FieldOps.multiply(b, b, qy);         // B
+        Ed25519FieldOps.multiply(c, qz, t);         // C
+        Ed25519FieldOps.add(d, z, z);               // D
+        Ed25519FieldOps.subtract(px, a, b);
+        Ed25519FieldOps.add(py, a, b);
+        Ed25519FieldOps.add(pz, d, c);
+        Ed25519FieldOps.subtract(pt, d, c);
+    }
+
+    /**
+     * P3 - PRECOMP to P1P1 subtraction - see {@link GroupElement#msub}
+     */
+    private void msub(GroupElement q) {
+        Ed25519FieldOps.add(a, y, x);               // YpX
+        Ed25519FieldOps.subtract(b, y, x);          // YmX
+        Ed25519FieldOps.multiply(a, a, Ed25519FieldOps.limbs(q.Y));
+        Ed25519FieldOps.multiply(b, b, Ed25519FieldOps.limbs(q.X));
+        Ed25519FieldOps.multiply(c, Ed25519FieldOps.limbs(q.Z), t);
+        Ed25519FieldOps.add(d, z, z);
+        Ed25519FieldOps.subtract(px, a, b);
+        Ed25519FieldOps.add(py, a, b);
+        Ed25519FieldOps.subtract(pz, d, c);
+        Ed25519FieldOps.add(pt, d, c);
+    }
+
+    private void p1p1ToP2() {
+        Ed25519FieldOps.multiply(x, px, pt);
+        Ed25519FieldOps.multiply(y, py, pz);
+        Ed25519FieldOps.multiply(z, pz, pt);
+    }
+
+    private void p1p1ToP3() {
+        p1p1ToP2();
+        Ed25519FieldOps.multiply(t, px, py);
+    }
+
+    private static FieldElement toElement(Field field, int[] limbs) {
+        return new Ed25519FieldElement(field, limbs.clone());
+    }
+}
@@ -0,0 +1,147 @@
+package org.xbib.io.sshd.eddsa.spec;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, concurrent cache of decoded public key specifications keyed by their encoding.
+ * <p>
+ * Decoding a public key takes a square root, and the $-A$ point used for verification needs
+ * its own sliding-window table ({@link org.xbib.io.sshd.eddsa.math.GroupElement#precompute(boolean)}).
+ * Peers such as the hosts of repeated connections present the same keys over and over, so
+ * {@link EdDSAPublicKeySpec} looks the decoded and precomputed points up here first.
+ * </p><p>
+ * When the cache is full, the least recently used entry is evicted. The cached points
+ * are only read once precomputed, so they are shared freely between keys and threads.
+ * </p>
+ */
+public final class EdDSAPublicKeyCache {
+    /**
+     * Default maximum number of cached keys
+     */
+    public static final int DEFAULT_MAX_SIZE = 256;
+
+    private static final EdDSAPublicKeyCache DEFAULT = new EdDSAPublicKeyCache(DEFAULT_MAX_SIZE);
+
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong clock = new AtomicLong();
+    private volatile int maxSize;
+
+    public EdDSAPublicKeyCache(int maxSize) {
+        setMaxSize(maxSize);
+    }
+
+    /**
+     * @return The JVM-wide cache used by {@link EdDSAPublicKeySpec}
+     */
+    public static EdDSAPublicKeyCache getDefault() {
+        return DEFAULT;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @param maxSize Maximum number of cached keys - zero disables the cache
+     */
+    public void setMaxSize(int maxSize) {
+        if (maxSize < 0)
+            throw new IllegalArgumentException("negative cache size: " + maxSize);
+        this.maxSize = maxSize;
+        evict();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * @param pk   The encoded public key
+     * @param spec The parameter specification of the key
+     * @return The cached key specification - {@code null} if not cached
+     */
+    public EdDSAPublicKeySpec get(byte[] pk, EdDSAParameterSpec spec) {
+        if (maxSize <= 0)
+            return null;
+        Entry entry = entries.get(new Key(pk, spec));
+        if (entry == null)
+            return null;
+        entry.lastUsed = clock.incrementAndGet();
+        return entry.keySpec;
+    }
+
+    /**
+     * @param pk      The encoded public key
+     * @param keySpec The decoded key specification
+     */
+    public void put(byte[] pk, EdDSAPublicKeySpec keySpec) {
+        if (maxSize <= 0)
+            return;
+        Entry entry = new Entry(keySpec);
+        entry.lastUsed = clock.incrementAndGet();
+        entries.put(new Key(pk.clone(), keySpec.getParams()), entry);
+        evict();
+    }
+
+    private void evict() {
+        while (entries.size() > maxSize) {
+            Key eldest = null;
+            long eldestUse = Long.MAX_VALUE;
+            for (Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<Key, Entry> e = it.next();
+                if (e.getValue().lastUsed < eldestUse) {
+                    eldestUse = e.getValue().lastUsed;
+                    eldest = e.getKey();
+                }
+            }
+            if (eldest == null)
+                return;
+            entries.remove(eldest);
+        }
+    }
+
+    private static final class Key {
+        private final byte[] pk;
+        // the named curve specs are singletons - comparing them by value would encode the base point
+        private final EdDSAParameterSpec spec;
+        private final int hash;
+
+        Key(byte[] pk, EdDSAParameterSpec spec) {
+            this.pk = pk;
+            this.spec = spec;
+            this.hash = 31 * System.identityHashCode(spec) + Arrays.hashCode(pk);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this)
+                return true;
+            if (!(o instanceof Key))
+                return false;
+            Key k = (Key) o;
+            return spec == k.spec && Arrays.equals(pk, k.pk);
+        }
+    }
+
+    private static final class Entry {
+        private final EdDSAPublicKeySpec keySpec;
+        private volatile long lastUsed;
+
+        Entry(EdDSAPublicKeySpec keySpec) {
+            this.keySpec = keySpec;
+        }
+    }
+}
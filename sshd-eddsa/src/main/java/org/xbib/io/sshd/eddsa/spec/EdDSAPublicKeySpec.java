@@ -13,6 +13,9 @@ public class EdDSAPublicKeySpec implements KeySpec {
     private final EdDSAParameterSpec spec;
 
     /**
+     * The decoded points are looked up in (and added to) the
+     * {@link EdDSAPublicKeyCache#getDefault() default cache}.
+     *
      * @param pk   the public key
      * @param spec the parameter specification for this key
      * @throws IllegalArgumentException if key length is wrong
@@ -21,17 +24,39 @@ public class EdDSAPublicKeySpec implements KeySpec {
         if (pk.length != spec.getCurve().getField().getb() / 8)
             throw new IllegalArgumentException("public-key length is wrong");
 
-        this.A = new GroupElement(spec.getCurve(), pk);
-        // Precompute -A for use in verification.
-        this.Aneg = A.negate();
-        Aneg.precompute(false);
+        EdDSAPublicKeyCache cache = EdDSAPublicKeyCache.getDefault();
+        EdDSAPublicKeySpec cached = cache.get(pk, spec);
         this.spec = spec;
+        if (cached != null) {
+            this.A = cached.getA();
+            this.Aneg = cached.getNegativeA();
+        } else {
+            this.A = new GroupElement(spec.getCurve(), pk);
+            // Precompute -A for use in verification.
+            this.Aneg = A.negate();
+            Aneg.precompute(false);
+            // all the fields are set - the concurrent map publishes them safely
+            cache.put(pk, this);
+        }
     }
 
+    /**
+     * The precomputed $-A$ point is re-used from the
+     * {@link EdDSAPublicKeyCache#getDefault() default cache} if the key is there.
+     *
+     * @param A    the public key point
+     * @param spec the parameter specification for this key
+     */
     public EdDSAPublicKeySpec(GroupElement A, EdDSAParameterSpec spec) {
+        EdDSAPublicKeyCache cache = EdDSAPublicKeyCache.getDefault();
+        EdDSAPublicKeySpec cached = (cache.getMaxSize() > 0) ? cache.get(A.toByteArray(), spec) : null;
         this.A = A;
-        this.Aneg = A.negate();
-        Aneg.precompute(false);
+        if (cached != null) {
+            this.Aneg = cached.getNegativeA();
+        } else {
+            this.Aneg = A.negate();
+            Aneg.precompute(false);
+        }
         this.spec = spec;
     }
 
@@ -201,4 +201,36 @@ public class EdDSAEngineTest {
 
         assertThat("verifyOneShot() failed", sgr.verifyOneShot(TEST_MSG, TEST_MSG_SIG), is(true));
     }
+
+    @Test
+    public void testVerifyBatch() throws Exception {
+        EdDSAParameterSpec spec = EdDSANamedCurveTable.getByName("Ed25519");
+        EdDSAEngine sgr = new EdDSAEngine(MessageDigest.getInstance(spec.getHashAlgorithm()));
+        int count = 16;
+        PublicKey[] keys = new PublicKey[count];
+        byte[][] messages = new byte[count][];
+        byte[][] signatures = new byte[count][];
+        int index = 0;
+        for (Ed25519TestVectors.TestTuple testCase : Ed25519TestVectors.testCases) {
+            if (index >= count)
+                break;
+            keys[index] = new EdDSAPublicKey(new EdDSAPublicKeySpec(testCase.pk, spec));
+            messages[index] = testCase.message;
+            signatures[index] = testCase.sig.clone();
+            index++;
+        }
+        // the same key twice in a row
+        keys[5] = keys[4];
+        messages[5] = messages[4];
+        signatures[5] = signatures[4].clone();
+        // a corrupted signature, a wrong-length one and a wrong message
+        signatures[2][7] ^= 1;
+        signatures[9] = new byte[10];
+        messages[12] = TEST_MSG;
+
+        boolean[] valid = sgr.verifyBatch(keys, messages, signatures);
+        for (int i = 0; i < count; i++) {
+            assertThat("Signature " + i + " failed", valid[i], is((i != 2) && (i != 9) && (i != 12)));
+        }
+    }
 }
@@ -0,0 +1,83 @@
+package org.xbib.io.sshd.eddsa.math.ed25519;
+
+import org.xbib.io.sshd.eddsa.math.FieldElement;
+import org.xbib.io.sshd.eddsa.math.MathUtils;
+import org.hamcrest.core.IsEqual;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigInteger;
+
+/**
+ * Tests rely on the BigInteger class.
+ */
+public class Ed25519FieldOpsTest {
+
+    private static BigInteger toBigInteger(int[] limbs) {
+        return MathUtils.toBigInteger(new Ed25519FieldElement(MathUtils.getField(), limbs.clone()))
+                .mod(MathUtils.getQ());
+    }
+
+    private static int[] limbs(FieldElement f) {
+        return Ed25519FieldOps.limbs(f).clone();
+    }
+
+    @Test
+    public void multiplyReturnsCorrectResultWhenOverlappingOperands() {
+        for (int i = 0; i < 1000; i++) {
+            final FieldElement f1 = MathUtils.getRandomFieldElement();
+            final FieldElement f2 = MathUtils.getRandomFieldElement();
+            final int[] h = limbs(f1);
+
+            Ed25519FieldOps.multiply(h, h, Ed25519FieldOps.limbs(f2));
+
+            final BigInteger expected = MathUtils.toBigInteger(f1).multiply(MathUtils.toBigInteger(f2)).mod(MathUtils.getQ());
+            Assert.assertThat(toBigInteger(h), IsEqual.equalTo(expected));
+        }
+    }
+
+    @Test
+    public void squareAndDoubleReturnsCorrectResultInPlace() {
+        for (int i = 0; i < 1000; i++) {
+            final FieldElement f = MathUtils.getRandomFieldElement();
+            final int[] h1 = limbs(f);
+            final int[] h2 = limbs(f);
+
+            Ed25519FieldOps.square(h1, h1);
+            Ed25519FieldOps.squareAndDouble(h2, h2);
+
+            final BigInteger square = MathUtils.toBigInteger(f).pow(2).mod(MathUtils.getQ());
+            Assert.assertThat(toBigInteger(h1), IsEqual.equalTo(square));
+            Assert.assertThat(toBigInteger(h2), IsEqual.equalTo(square.shiftLeft(1).mod(MathUtils.getQ())));
+        }
+    }
+
+    @Test
+    public void invertAndPow22523MatchFieldElement() {
+        final int[][] scratch = new int[4][Ed25519FieldOps.LIMBS];
+        for (int i = 0; i < 100; i++) {
+            final FieldElement f = MathUtils.getRandomFieldElement();
+            final int[] h = limbs(f);
+
+            Ed25519FieldOps.invert(h, h, scratch);
+            Assert.assertThat(toBigInteger(h).multiply(MathUtils.toBigInteger(f)).mod(MathUtils.getQ()),
+                    IsEqual.equalTo(BigInteger.ONE));
+
+            Ed25519FieldOps.pow22523(h, Ed25519FieldOps.limbs(f), scratch);
+            Assert.assertThat(toBigInteger(h), IsEqual.equalTo(MathUtils.toBigInteger(f.pow22523())));
+        }
+    }
+
+    @Test
+    public void cmovReturnsCorrectResult() {
+        final FieldElement f1 = MathUtils.getRandomFieldElement();
+        final FieldElement f2 = MathUtils.getRandomFieldElement();
+        final int[] h = limbs(f1);
+
+        Ed25519FieldOps.cmov(h, Ed25519FieldOps.limbs(f2), 0);
+        Assert.assertArrayEquals(Ed25519FieldOps.limbs(f1), h);
+
+        Ed25519FieldOps.cmov(h, Ed25519FieldOps.limbs(f2), 1);
+        Assert.assertArrayEquals(Ed25519FieldOps.limbs(f2), h);
+    }
+}
@@ -0,0 +1,54 @@
+package org.xbib.io.sshd.eddsa.spec;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ *
+ */
+public class EdDSAPublicKeyCacheTest {
+    static final EdDSANamedCurveSpec ed25519 = EdDSANamedCurveTable.getByName("Ed25519");
+
+    private static byte[] publicKey(int seed) {
+        byte[] s = new byte[32];
+        s[0] = (byte) seed;
+        return new EdDSAPrivateKeySpec(s, ed25519).getA().toByteArray();
+    }
+
+    @Test
+    public void decodedKeysShareThePrecomputedPoints() {
+        byte[] pk = publicKey(1);
+        EdDSAPublicKeySpec first = new EdDSAPublicKeySpec(pk, ed25519);
+        EdDSAPublicKeySpec second = new EdDSAPublicKeySpec(pk.clone(), ed25519);
+        assertThat(second.getNegativeA(), is(sameInstance(first.getNegativeA())));
+        assertThat(second.getA().toByteArray(), is(equalTo(pk)));
+    }
+
+    @Test
+    public void leastRecentlyUsedKeyIsEvicted() {
+        EdDSAPublicKeyCache cache = new EdDSAPublicKeyCache(2);
+        byte[] pk1 = publicKey(2);
+        byte[] pk2 = publicKey(3);
+        byte[] pk3 = publicKey(4);
+        cache.put(pk1, new EdDSAPublicKeySpec(pk1, ed25519));
+        cache.put(pk2, new EdDSAPublicKeySpec(pk2, ed25519));
+        assertThat(cache.get(pk1, ed25519), is(notNullValue()));
+
+        cache.put(pk3, new EdDSAPublicKeySpec(pk3, ed25519));
+        assertThat(cache.size(), is(2));
+        assertThat(cache.get(pk1, ed25519), is(notNullValue()));
+        assertThat(cache.get(pk2, ed25519), is(nullValue()));
+        assertThat(cache.get(pk3, ed25519), is(notNullValue()));
+    }
+
+    @Test
+    public void disabledCacheKeepsNothing() {
+        EdDSAPublicKeyCache cache = new EdDSAPublicKeyCache(0);
+        byte[] pk = publicKey(5);
+        cache.put(pk, new EdDSAPublicKeySpec(pk, ed25519));
+        assertThat(cache.size(), is(0));
+        assertThat(cache.get(pk, ed25519), is(nullValue()));
+    }
+}
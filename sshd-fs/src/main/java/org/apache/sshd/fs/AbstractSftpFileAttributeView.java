@@ -82,6 +82,8 @@ public abstract class AbstractSftpFileAttributeView extends AbstractLoggingBean
                     throw new NoSuchFileException(p.toString());
                 }
                 throw e;
+            } finally {
+                provider.invalidateCachedAttributes(p, false);
             }
         }
     }
@@ -0,0 +1,232 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.fs;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.sshd.client.SftpClient.Attributes;
+import org.apache.sshd.common.util.ValidateUtils;
+
+/**
+ * Remembers the attributes - or the absence - of remote files queried through a {@link SftpFileSystem}, so that
+ * repeated {@code stat}/{@code lstat} queries of the same path are answered locally. The cache holds at most a given
+ * number of entries (evicting the least recently used ones), each entry expires after a fixed time, and the provider
+ * drops the affected entries whenever it modifies a file. Modifications that do not go through the provider (e.g.,
+ * made by other clients) are only seen once the entries expire.
+ * <P>
+ * The stat and lstat results of a path are kept separately, keyed by the absolute path string.
+ * </P>
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class SftpAttributesCache {
+    private final int maxSize;
+    private final long ttl;
+    private final long negativeTtl;
+    private final Map<String, CachedAttributes> entries;
+
+    // bumped on every invalidation so that a query that was in flight meanwhile does not cache a stale result
+    private long generation;
+
+    private long hits;
+    private long negativeHits;
+    private long misses;
+    private long expirations;
+    private long evictions;
+    private long invalidations;
+
+    /**
+     * @param maxSize     Max. number of cached entries
+     * @param ttl         How long the attributes of a file are cached
+     * @param negativeTtl How long the absence of a file is cached - zero or negative to not cache it at all
+     */
+    public SftpAttributesCache(int maxSize, Duration ttl, Duration negativeTtl) {
+        ValidateUtils.checkTrue(maxSize > 0, "Invalid max. size: %d", maxSize);
+        ValidateUtils.checkTrue((ttl != null) && (!ttl.isNegative()) && (!ttl.isZero()), "Invalid TTL: %s", ttl);
+        this.maxSize = maxSize;
+        this.ttl = ttl.toNanos();
+        this.negativeTtl = ((negativeTtl == null) || negativeTtl.isNegative()) ? 0L : negativeTtl.toNanos();
+        this.entries = new LinkedHashMap<String, CachedAttributes>(Math.min(maxSize, 1024), 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedAttributes> eldest) {
+                if (size() <= SftpAttributesCache.this.maxSize) {
+                    return false;
+                }
+                evicted();
+                return true;
+            }
+        };
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public Duration getTtl() {
+        return Duration.ofNanos(ttl);
+    }
+
+    public Duration getNegativeTtl() {
+        return Duration.ofNanos(negativeTtl);
+    }
+
+    /**
+     * @param  path        The absolute remote path
+     * @param  followLinks {@code true} for the {@code stat}, {@code false} for the {@code lstat} result
+     * @return             The cached entry - {@code null} if none or if expired
+     */
+    public synchronized CachedAttributes lookup(String path, boolean followLinks) {
+        String key = toKey(path, followLinks);
+        CachedAttributes entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+
+        if ((nanoTime() - entry.expiresAt) >= 0L) {
+            entries.remove(key);
+            expirations++;
+            misses++;
+            return null;
+        }
+
+        if (entry.isNegative()) {
+            negativeHits++;
+        } else {
+            hits++;
+        }
+        return entry;
+    }
+
+    /**
+     * @return A value to pass to {@link #put(String, boolean, Attributes, long)} - must be obtained <U>before</U>
+     *         querying the server
+     */
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @param path        The absolute remote path
+     * @param followLinks {@code true} for a {@code stat}, {@code false} for an {@code lstat} result
+     * @param attributes  The queried attributes - {@code null} if the file does not exist
+     * @param generation  The {@link #getGeneration() generation} obtained before the query - the result is ignored if
+     *                    the cache was invalidated since then
+     */
+    public synchronized void put(String path, boolean followLinks, Attributes attributes, long generation) {
+        if (generation != this.generation) {
+            return;
+        }
+
+        long timeout = (attributes == null) ? negativeTtl : ttl;
+        if (timeout <= 0L) {
+            return;
+        }
+
+        entries.put(toKey(path, followLinks), new CachedAttributes(attributes, nanoTime() + timeout));
+    }
+
+    /**
+     * Drops the entries of a modified path
+     *
+     * @param path    The absolute remote path
+     * @param subtree {@code true} to drop the entries of all the paths below it as well - e.g., if a directory was
+     *                moved
+     */
+    public synchronized void invalidate(String path, boolean subtree) {
+        generation++;
+        invalidations++;
+
+        entries.remove(toKey(path, true));
+        entries.remove(toKey(path, false));
+        if (!subtree) {
+            return;
+        }
+
+        String prefix = path.endsWith("/") ? path : path + "/";
+        for (Iterator<String> keys = entries.keySet().iterator(); keys.hasNext();) {
+            String key = keys.next();
+            if (key.startsWith(prefix, 1)) {
+                keys.remove();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        generation++;
+        entries.clear();
+    }
+
+    public synchronized SftpAttributesCacheStats getStats() {
+        return new SftpAttributesCacheStats(
+                entries.size(), maxSize, hits, negativeHits, misses, expirations, evictions, invalidations);
+    }
+
+    /**
+     * @return The current time (nanos.) the entries expire by
+     * @see    System#nanoTime()
+     */
+    protected long nanoTime() {
+        return System.nanoTime();
+    }
+
+    protected void evicted() {
+        evictions++;
+    }
+
+    protected static String toKey(String path, boolean followLinks) {
+        return (followLinks ? 'S' : 'L') + path;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + getStats();
+    }
+
+    /**
+     * A cached query result
+     *
+     * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+     */
+    public static final class CachedAttributes {
+        private final Attributes attributes;
+        private final long expiresAt;
+
+        private CachedAttributes(Attributes attributes, long expiresAt) {
+            this.attributes = attributes;
+            this.expiresAt = expiresAt;
+        }
+
+        /**
+         * @return The cached attributes - {@code null} if the file does not exist
+         */
+        public Attributes getAttributes() {
+            return attributes;
+        }
+
+        public boolean isNegative() {
+            return attributes == null;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.fs;
+
+/**
+ * A snapshot of the counters of a {@link SftpAttributesCache}
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class SftpAttributesCacheStats {
+    private final int size;
+    private final int maxSize;
+    private final long hits;
+    private final long negativeHits;
+    private final long misses;
+    private final long expirations;
+    private final long evictions;
+    private final long invalidations;
+
+    public SftpAttributesCacheStats(int size, int maxSize, long hits, long negativeHits, long misses,
+                                    long expirations, long evictions, long invalidations) {
+        this.size = size;
+        this.maxSize = maxSize;
+        this.hits = hits;
+        this.negativeHits = negativeHits;
+        this.misses = misses;
+        this.expirations = expirations;
+        this.evictions = evictions;
+        this.invalidations = invalidations;
+    }
+
+    /**
+     * @return The number of entries currently cached
+     */
+    public int getSize() {
+        return size;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return The number of lookups answered with cached attributes
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return The number of lookups answered with a cached &quot;no such file&quot;
+     */
+    public long getNegativeHits() {
+        return negativeHits;
+    }
+
+    /**
+     * @return The number of lookups that had to query the server - including those that found an expired entry
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getExpirations() {
+        return expirations;
+    }
+
+    /**
+     * @return The number of entries dropped to make room for newer ones
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return The number of modifications that caused entries to be dropped
+     */
+    public long getInvalidations() {
+        return invalidations;
+    }
+
+    /**
+     * @return Fraction of the lookups that did not have to query the server
+     */
+    public double getHitRatio() {
+        long lookups = hits + negativeHits + misses;
+        return (lookups <= 0L) ? 0.0d : (double) (hits + negativeHits) / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName()
+               + "[size=" + size + "/" + maxSize
+               + ", hits=" + hits
+               + ", negativeHits=" + negativeHits
+               + ", misses=" + misses
+               + ", expirations=" + expirations
+               + ", evictions=" + evictions
+               + ", invalidations=" + invalidations
+               + ", hitRatio=" + String.format("%.3f", getHitRatio())
+               + "]";
+    }
+}
@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.file.FileStore;
 import java.nio.file.FileSystemException;
@@ -38,8 +39,10 @@ import java.util.Objects;
 import java.util.Queue;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.sshd.client.channel.ClientChannel;
 import org.apache.sshd.client.session.ClientSession;
@@ -75,6 +78,9 @@ public class SftpFileSystem
     private int readBufferSize;
     private int writeBufferSize;
     private final List<FileStore> stores;
+    private final SftpAttributesCache attributesCache;
+    // the System.nanoTime() of the latest modification made through this file system
+    private volatile long lastModification = System.nanoTime();
 
     public SftpFileSystem(SftpFileSystemProvider provider, String id, ClientSession session,
                           SftpClientFactory factory, SftpVersionSelector selector) throws IOException {
@@ -85,6 +91,12 @@ public class SftpFileSystem
         this.selector = selector;
         this.stores = Collections.unmodifiableList(Collections.<FileStore> singletonList(new SftpFileStore(id, this)));
         this.pool = new LinkedBlockingQueue<>(SftpModuleProperties.POOL_SIZE.getRequired(session));
+        int cacheSize = SftpModuleProperties.METADATA_CACHE_SIZE.getRequired(session);
+        this.attributesCache = (cacheSize > 0)
+                ? new SftpAttributesCache(
+                        cacheSize, SftpModuleProperties.METADATA_CACHE_TTL.getRequired(session),
+                        SftpModuleProperties.METADATA_CACHE_NEGATIVE_TTL.getRequired(session))
+                : null;
         try (SftpClient client = getClient()) {
             version = client.getVersion();
             defaultDir = getPath(client.canonicalPath("."));
@@ -148,6 +160,37 @@ public class SftpFileSystem
         writeBufferSize = size;
     }
 
+    /**
+     * @return The cache of the queried file attributes - {@code null} if disabled
+     * @see    SftpModuleProperties#METADATA_CACHE_SIZE
+     */
+    public SftpAttributesCache getAttributesCache() {
+        return attributesCache;
+    }
+
+    /**
+     * @return The counters of the {@link #getAttributesCache() attributes cache} - {@code null} if disabled
+     */
+    public SftpAttributesCacheStats getAttributesCacheStats() {
+        return (attributesCache == null) ? null : attributesCache.getStats();
+    }
+
+    /**
+     * @return The {@link System#nanoTime()} of the latest modification made through this file system - or of its
+     *         creation if none yet. The attributes that paths carried since before then may be stale.
+     * @see    SftpPath#getAttributesTime()
+     */
+    public long getLastModification() {
+        return lastModification;
+    }
+
+    /**
+     * Records that a file was modified through this file system
+     */
+    public void markModified() {
+        lastModification = System.nanoTime();
+    }
+
     @Override
     protected SftpPath create(String root, List<String> names) {
         return new SftpPath(this, root, names);
@@ -333,6 +376,27 @@ public class SftpFileSystem
             return delegate.read(handle, fileOffset, dst, dstOffset, len);
         }
 
+        @Override
+        public int read(Handle handle, long fileOffset, byte[] dst, int dstOffset, int len,
+                        AtomicReference<Boolean> eofSignalled)
+                throws IOException {
+            if (!isOpen()) {
+                throw new IOException(
+                        "read(" + handle + "/" + fileOffset + ")[" + dstOffset + "/" + len + "] client is closed");
+            }
+            return delegate.read(handle, fileOffset, dst, dstOffset, len, eofSignalled);
+        }
+
+        @Override
+        public int read(Handle handle, long fileOffset, ByteBuffer dst, AtomicReference<Boolean> eofSignalled)
+                throws IOException {
+            if (!isOpen()) {
+                throw new IOException(
+                        "read(" + handle + "/" + fileOffset + ")[" + dst.remaining() + "] client is closed");
+            }
+            return delegate.read(handle, fileOffset, dst, eofSignalled);
+        }
+
         @Override
         public void write(Handle handle, long fileOffset, byte[] src, int srcOffset, int len) throws IOException {
             if (!isOpen()) {
@@ -585,6 +649,22 @@ public class SftpFileSystem
                                                    + RawSftpClient.class.getSimpleName());
             }
         }
+
+        @Override
+        public CompletableFuture<Buffer> receiveAsync(int id) {
+            CompletableFuture<Buffer> future;
+            if (!isOpen()) {
+                future = new CompletableFuture<>();
+                future.completeExceptionally(new IOException("receiveAsync(id=" + id + ") client is closed"));
+            } else if (delegate instanceof RawSftpClient) {
+                future = ((RawSftpClient) delegate).receiveAsync(id);
+            } else {
+                future = new CompletableFuture<>();
+                future.completeExceptionally(new StreamCorruptedException(
+                        "receiveAsync(id=" + id + ") delegate is not a " + RawSftpClient.class.getSimpleName()));
+            }
+            return future;
+        }
     }
 
     public static class DefaultUserPrincipalLookupService extends UserPrincipalLookupService {
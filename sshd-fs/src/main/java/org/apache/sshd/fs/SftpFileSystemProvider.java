@@ -19,6 +19,7 @@
 
 package org.apache.sshd.fs;
 
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -513,7 +514,25 @@ public class SftpFileSystemProvider extends FileSystemProvider {
         }
         // TODO: process file attributes
         SftpPath p = toSftpPath(path);
-        return new SftpRemotePathChannel(p.toString(), p.getFileSystem().getClient(), true, modes);
+        SftpFileSystem fs = p.getFileSystem();
+        if ((fs.getAttributesCache() == null) || (!isModifying(modes))) {
+            return new SftpRemotePathChannel(p.toString(), fs.getClient(), true, modes);
+        }
+
+        try {
+            return new SftpRemotePathChannel(p.toString(), fs.getClient(), true, modes) {
+                @Override
+                protected void implCloseChannel() throws IOException {
+                    try {
+                        super.implCloseChannel();
+                    } finally {
+                        invalidateCachedAttributes(p, false);
+                    }
+                }
+            };
+        } finally {
+            invalidateCachedAttributes(p, false);
+        }
     }
 
     @Override
@@ -538,7 +557,34 @@ public class SftpFileSystemProvider extends FileSystemProvider {
             modes.add(OpenMode.Write);
         }
         SftpPath p = toSftpPath(path);
-        return p.getFileSystem().getClient().write(p.toString(), modes);
+        SftpFileSystem fs = p.getFileSystem();
+        if (fs.getAttributesCache() == null) {
+            return fs.getClient().write(p.toString(), modes);
+        }
+
+        OutputStream out;
+        try {
+            out = fs.getClient().write(p.toString(), modes);
+        } finally {
+            invalidateCachedAttributes(p, false);
+        }
+
+        // the size and times keep changing until the file is closed
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    invalidateCachedAttributes(p, false);
+                }
+            }
+        };
     }
 
     @Override
@@ -573,6 +619,8 @@ public class SftpFileSystemProvider extends FileSystemProvider {
                     throw new FileAlreadyExistsException(p.toString());
                 }
                 throw e;
+            } finally {
+                invalidateCachedAttributes(p, false);
             }
             for (FileAttribute<?> attr : attrs) {
                 setAttribute(p, attr.name(), attr.value());
@@ -592,10 +640,14 @@ public class SftpFileSystemProvider extends FileSystemProvider {
 
         try (SftpClient sftp = fs.getClient()) {
             BasicFileAttributes attributes = readAttributes(path, BasicFileAttributes.class);
-            if (attributes.isDirectory()) {
-                sftp.rmdir(path.toString());
-            } else {
-                sftp.remove(path.toString());
+            try {
+                if (attributes.isDirectory()) {
+                    sftp.rmdir(path.toString());
+                } else {
+                    sftp.remove(path.toString());
+                }
+            } finally {
+                invalidateCachedAttributes(p, attributes.isDirectory());
             }
         }
     }
@@ -649,7 +701,11 @@ public class SftpFileSystemProvider extends FileSystemProvider {
         } else {
             CopyFileExtension copyFile = src.getFileSystem().getClient().getExtension(CopyFileExtension.class);
             if (copyFile.isSupported()) {
-                copyFile.copyFile(source.toString(), target.toString(), false);
+                try {
+                    copyFile.copyFile(source.toString(), target.toString(), false);
+                } finally {
+                    invalidateCachedAttributes(dst, false);
+                }
             } else {
                 try (InputStream in = newInputStream(source);
                      OutputStream os = newOutputStream(target)) {
@@ -720,6 +776,9 @@ public class SftpFileSystemProvider extends FileSystemProvider {
 
         try (SftpClient sftp = fsSrc.getClient()) {
             sftp.rename(src.toString(), dst.toString());
+        } finally {
+            invalidateCachedAttributes(src, true);
+            invalidateCachedAttributes(dst, true);
         }
 
         // copy basic attributes to target
@@ -789,6 +848,8 @@ public class SftpFileSystemProvider extends FileSystemProvider {
 
         try (SftpClient client = fsLink.getClient()) {
             client.symLink(l.toString(), t.toString());
+        } finally {
+            invalidateCachedAttributes(l, false);
         }
     }
 
@@ -966,10 +1027,37 @@ public class SftpFileSystemProvider extends FileSystemProvider {
 
     public Attributes readRemoteAttributes(SftpPath path, LinkOption... options) throws IOException {
         SftpFileSystem fs = path.getFileSystem();
+        Attributes cached = getCachedAttributes(path, options);
+        if (cached != null) {
+            if (log.isTraceEnabled()) {
+                log.trace("readRemoteAttributes({})[{}] cached: {}", fs, path, cached);
+            }
+            return cached;
+        }
+
+        boolean followLinks = IoUtils.followLinks(options);
+        SftpAttributesCache cache = fs.getAttributesCache();
+        String key = null;
+        long generation = 0L;
+        if (cache != null) {
+            key = path.toAbsolutePath().toString();
+            SftpAttributesCache.CachedAttributes entry = cache.lookup(key, followLinks);
+            if (entry != null) {
+                if (log.isTraceEnabled()) {
+                    log.trace("readRemoteAttributes({})[{}] cache hit: {}", fs, path, entry.getAttributes());
+                }
+                if (entry.isNegative()) {
+                    throw new NoSuchFileException(path.toString());
+                }
+                return entry.getAttributes();
+            }
+            generation = cache.getGeneration();
+        }
+
         try (SftpClient client = fs.getClient()) {
             try {
                 Attributes attrs;
-                if (IoUtils.followLinks(options)) {
+                if (followLinks) {
                     attrs = client.stat(path.toString());
                 } else {
                     attrs = client.lstat(path.toString());
@@ -977,9 +1065,15 @@ public class SftpFileSystemProvider extends FileSystemProvider {
                 if (log.isTraceEnabled()) {
                     log.trace("readRemoteAttributes({})[{}]: {}", fs, path, attrs);
                 }
+                if (cache != null) {
+                    cache.put(key, followLinks, attrs, generation);
+                }
                 return attrs;
             } catch (SftpException e) {
                 if (e.getStatus() == SftpConstants.SSH_FX_NO_SUCH_FILE) {
+                    if (cache != null) {
+                        cache.put(key, followLinks, null, generation);
+                    }
                     throw new NoSuchFileException(path.toString());
                 }
                 throw e;
@@ -987,6 +1081,65 @@ public class SftpFileSystemProvider extends FileSystemProvider {
         }
     }
 
+    /**
+     * Drops the cached attributes of a modified path - along with those of its parent, whose modification time (and
+     * link count) change when entries are added or removed. Invoked <U>after</U> the modification, so that a query
+     * racing with it cannot cache the old state.
+     *
+     * @param path    The modified path
+     * @param subtree {@code true} if the paths below it are affected as well - e.g., for a moved directory
+     * @see           SftpModuleProperties#METADATA_CACHE_SIZE
+     */
+    protected void invalidateCachedAttributes(SftpPath path, boolean subtree) {
+        SftpFileSystem fs = path.getFileSystem();
+        // the attributes carried by the listed paths are not tracked by the cache - they are all suspect now
+        fs.markModified();
+
+        SftpAttributesCache cache = fs.getAttributesCache();
+        if (cache == null) {
+            return;
+        }
+
+        SftpPath absolute = path.toAbsolutePath();
+        cache.invalidate(absolute.toString(), subtree);
+        SftpPath parent = absolute.getParent();
+        if (parent != null) {
+            cache.invalidate(parent.toString(), false);
+        }
+    }
+
+    protected static boolean isModifying(Collection<OpenMode> modes) {
+        return modes.contains(OpenMode.Write) || modes.contains(OpenMode.Append)
+                || modes.contains(OpenMode.Create) || modes.contains(OpenMode.Truncate);
+    }
+
+    /**
+     * @param  path    The path
+     * @param  options The link options of the query
+     * @return         The attributes carried by the path if they are fresh enough and answer the query - {@code null}
+     *                 otherwise
+     * @see            SftpModuleProperties#DIR_ENTRY_ATTRIBUTES_TTL
+     */
+    protected Attributes getCachedAttributes(SftpPath path, LinkOption... options) {
+        ClientSession session = path.getFileSystem().getClientSession();
+        if (session == null) {
+            return null;
+        }
+
+        Attributes attrs = path.getCachedAttributes(SftpModuleProperties.DIR_ENTRY_ATTRIBUTES_TTL.getRequired(session));
+        if ((attrs != null) && ((path.getFileSystem().getLastModification() - path.getAttributesTime()) >= 0L)) {
+            // something was modified through the file system since the path was listed - maybe the file itself
+            return null;
+        }
+        if ((attrs == null) || (!IoUtils.followLinks(options))) {
+            return attrs;
+        }
+
+        // the listed attributes are those of the entry itself - they answer a link following query only if the type
+        // is known not to be a link
+        return (attrs.isRegularFile() || attrs.isDirectory()) ? attrs : null;
+    }
+
     protected NavigableMap<String, Object> readPosixViewAttributes(
             SftpPath path, String view, String attrs, LinkOption... options)
             throws IOException {
@@ -1123,6 +1276,8 @@ public class SftpFileSystemProvider extends FileSystemProvider {
 
         try (SftpClient client = fs.getClient()) {
             client.setStat(p.toString(), attributes);
+        } finally {
+            invalidateCachedAttributes(p, false);
         }
     }
 
@@ -22,13 +22,64 @@ import java.io.IOException;
 import java.nio.file.FileSystem;
 import java.nio.file.LinkOption;
 import java.nio.file.spi.FileSystemProvider;
+import java.time.Duration;
 import java.util.List;
 
+import org.apache.sshd.client.SftpClient.Attributes;
 import org.apache.sshd.common.file.util.BasePath;
 
 public class SftpPath extends BasePath<SftpPath, SftpFileSystem> {
+    // the attributes listed along with the path by its directory - if any
+    private final Attributes attributes;
+    private final long attributesTime;
+
     public SftpPath(SftpFileSystem fileSystem, String root, List<String> names) {
+        this(fileSystem, root, names, null);
+    }
+
+    /**
+     * @param fileSystem The file system
+     * @param root       The root - {@code null} for a relative path
+     * @param names      The path names
+     * @param attributes The (not link following) attributes of the file as known when the path was created - may be
+     *                   {@code null}
+     */
+    public SftpPath(SftpFileSystem fileSystem, String root, List<String> names, Attributes attributes) {
         super(fileSystem, root, names);
+        this.attributes = attributes;
+        this.attributesTime = (attributes == null) ? 0L : System.nanoTime();
+    }
+
+    /**
+     * @param  attributes The attributes of the file - e.g., as listed by {@code SSH_FXP_READDIR}
+     * @return            A path equal to this one that carries the attributes
+     */
+    public SftpPath withAttributes(Attributes attributes) {
+        return new SftpPath(getFileSystem(), root, names, attributes);
+    }
+
+    /**
+     * @param  maxAge How old the attributes may be
+     * @return        The attributes carried by this path - {@code null} if none or if older than the specified age.
+     *                <B>Note:</B> these are the attributes of the file itself, i.e., of the link if it is a symbolic
+     *                link
+     */
+    public Attributes getCachedAttributes(Duration maxAge) {
+        if ((attributes == null) || (maxAge == null) || maxAge.isNegative() || maxAge.isZero()) {
+            return null;
+        }
+        if ((System.nanoTime() - attributesTime) > maxAge.toNanos()) {
+            return null;
+        }
+        return attributes;
+    }
+
+    /**
+     * @return The {@link System#nanoTime()} when the path was created with its attributes - meaningless if it carries
+     *         none
+     */
+    public long getAttributesTime() {
+        return attributesTime;
     }
 
     @Override
@@ -24,11 +24,14 @@ import java.nio.file.DirectoryIteratorException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.DirectoryStream.Filter;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 
 import org.apache.sshd.client.SftpClient;
+import org.apache.sshd.client.session.ClientSession;
+import org.apache.sshd.common.SftpModuleProperties;
 
 /**
  * Implements and {@link Iterator} of {@link SftpPath}-s returned by a {@link DirectoryStream#iterator()} method.
@@ -42,6 +45,7 @@ public class SftpPathIterator implements Iterator<Path> {
     protected SftpPath curEntry;
 
     private final SftpPath path;
+    private final boolean keepAttributes;
     private Filter<? super Path> filter;
 
     public SftpPathIterator(SftpPath path, Iterable<? extends SftpClient.DirEntry> iter) {
@@ -62,6 +66,10 @@ public class SftpPathIterator implements Iterator<Path> {
         this.path = Objects.requireNonNull(path, "No root path provided");
         this.filter = filter;
 
+        ClientSession session = path.getFileSystem().getClientSession();
+        Duration ttl = (session == null) ? null : SftpModuleProperties.DIR_ENTRY_ATTRIBUTES_TTL.getRequired(session);
+        this.keepAttributes = (ttl != null) && (!ttl.isNegative()) && (!ttl.isZero());
+
         it = iter;
         curEntry = nextEntry(path, filter);
     }
@@ -106,6 +114,10 @@ public class SftpPathIterator implements Iterator<Path> {
                 dotdotIgnored = true;
             } else {
                 SftpPath candidate = root.resolve(entry.getFilename());
+                if (keepAttributes && (entry.getAttributes() != null)) {
+                    // spares a round trip for each entry that is examined afterwards
+                    candidate = candidate.withAttributes(entry.getAttributes());
+                }
                 try {
                     if ((selector == null) || selector.accept(candidate)) {
                         return candidate;
@@ -0,0 +1,369 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.fs;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.FileSystemLoopException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.sshd.common.util.ValidateUtils;
+import org.apache.sshd.common.util.logging.AbstractLoggingBean;
+import org.apache.sshd.common.util.threads.CloseableExecutorService;
+import org.apache.sshd.common.util.threads.ThreadUtils;
+
+/**
+ * Copies a file or a whole directory tree between two {@link Path}s - typically from or to a {@link SftpFileSystem} -
+ * transferring several files at once. Copying a tree of small files one by one is bound by the latency of the open,
+ * stat and close round trips; with several files in flight these round trips overlap and the transfer becomes
+ * bandwidth bound instead. Each worker thread uses its own pooled {@link org.apache.sshd.client.SftpClient} of the
+ * file system, so the concurrency should not exceed the {@link org.apache.sshd.common.SftpModuleProperties#POOL_SIZE
+ * pool size}.
+ * <P>
+ * Only regular files are copied. Symbolic links are followed if {@link #setFollowLinks(boolean) so configured} -
+ * otherwise they are skipped, as are all other kinds of entries. Skipped entries are reported to the
+ * {@link SftpTransferListener#fileSkipped(Path, Path, String) listener} and in the {@link SftpTransferReport}.
+ * </P>
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class SftpTransferEngine extends AbstractLoggingBean {
+    public static final int DEFAULT_CONCURRENCY = 8;
+    public static final int DEFAULT_BUFFER_SIZE = 32 * 1024;
+
+    private int concurrency = DEFAULT_CONCURRENCY;
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+    private boolean replaceExisting = true;
+    private boolean copyAttributes;
+    private boolean followLinks;
+    private SftpTransferListener listener = SftpTransferListener.EMPTY;
+
+    public SftpTransferEngine() {
+        super();
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public SftpTransferEngine setConcurrency(int concurrency) {
+        ValidateUtils.checkTrue(concurrency > 0, "Invalid concurrency: %d", concurrency);
+        this.concurrency = concurrency;
+        return this;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public SftpTransferEngine setBufferSize(int bufferSize) {
+        ValidateUtils.checkTrue(bufferSize > 0, "Invalid buffer size: %d", bufferSize);
+        this.bufferSize = bufferSize;
+        return this;
+    }
+
+    public boolean isReplaceExisting() {
+        return replaceExisting;
+    }
+
+    public SftpTransferEngine setReplaceExisting(boolean replaceExisting) {
+        this.replaceExisting = replaceExisting;
+        return this;
+    }
+
+    public boolean isCopyAttributes() {
+        return copyAttributes;
+    }
+
+    /**
+     * @param  copyAttributes If {@code true} the last modified time of each source file is copied to its target
+     * @return                This engine
+     */
+    public SftpTransferEngine setCopyAttributes(boolean copyAttributes) {
+        this.copyAttributes = copyAttributes;
+        return this;
+    }
+
+    public boolean isFollowLinks() {
+        return followLinks;
+    }
+
+    /**
+     * @param  followLinks If {@code true} symbolic links are followed - links to files are copied as regular files and
+     *                     links to directories are copied as directories. Otherwise (default) they are skipped
+     * @return             This engine
+     */
+    public SftpTransferEngine setFollowLinks(boolean followLinks) {
+        this.followLinks = followLinks;
+        return this;
+    }
+
+    public SftpTransferListener getListener() {
+        return listener;
+    }
+
+    public SftpTransferEngine setListener(SftpTransferListener listener) {
+        this.listener = (listener == null) ? SftpTransferListener.EMPTY : listener;
+        return this;
+    }
+
+    /**
+     * Copies the source to the target. If the source is a directory, the target directory tree is created first and
+     * then all regular files are copied concurrently. Failures of individual files do not abort the transfer - they
+     * are reported in the returned {@link SftpTransferReport}, along with the skipped entries.
+     *
+     * @param  source      The source file or directory
+     * @param  target      The target file or directory - may belong to another file system than the source
+     * @return             The transfer report
+     * @throws IOException If the source tree could not be scanned or the target directories could not be created
+     */
+    public SftpTransferReport transfer(Path source, Path target) throws IOException {
+        Objects.requireNonNull(source, "No source");
+        Objects.requireNonNull(target, "No target");
+        long start = System.nanoTime();
+        Map<Path, String> skipped = Collections.synchronizedMap(new LinkedHashMap<>());
+        List<Entry> entries = scan(source, target, skipped);
+        long totalBytes = 0L;
+        for (Entry e : entries) {
+            totalBytes += e.size;
+        }
+        long totalFiles = entries.size();
+        if (log.isDebugEnabled()) {
+            log.debug("transfer({} => {}) files={}, bytes={}, skipped={}, concurrency={}",
+                    source, target, totalFiles, totalBytes, skipped.size(), concurrency);
+        }
+
+        SftpTransferListener l = getListener();
+        l.transferStarted(totalFiles, totalBytes);
+        for (Map.Entry<Path, String> e : skipped.entrySet()) {
+            Path path = e.getKey();
+            l.fileSkipped(path, path.equals(source) ? target : resolve(target, source.relativize(path)), e.getValue());
+        }
+
+        Progress progress = new Progress(totalFiles, totalBytes);
+        Map<Path, Throwable> failures = new ConcurrentHashMap<>();
+        int threads = (int) Math.max(1L, Math.min(concurrency, totalFiles));
+        CloseableExecutorService executor = ThreadUtils.newFixedThreadPool("sftp-transfer", threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>(entries.size());
+            for (Entry e : entries) {
+                futures.add(executor.submit(() -> transferFile(e, progress, failures, l)));
+            }
+            for (Future<?> f : futures) {
+                try {
+                    f.get();
+                } catch (ExecutionException e) {
+                    // not expected since transferFile catches everything - but just in case
+                    log.warn("transfer({} => {}) unexpected {}: {}",
+                            source, target, e.getCause().getClass().getSimpleName(), e.getCause().getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            throw (IOException) new InterruptedIOException("Interrupted while transferring " + source).initCause(e);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        SftpTransferReport report = new SftpTransferReport(
+                totalFiles, progress.completedFiles.get() - failures.size(), progress.transferredBytes.get(),
+                threads, Duration.ofNanos(System.nanoTime() - start), failures, skipped);
+        if (log.isDebugEnabled()) {
+            log.debug("transfer({} => {}) {}", source, target, report);
+        }
+        l.transferCompleted(report);
+        return report;
+    }
+
+    /**
+     * @param  source      The source file or directory
+     * @param  target      The target file or directory
+     * @param  skipped     Receives the entries that are not copied and the reason
+     * @return             The regular files to copy - the target directories have been created
+     * @throws IOException If the source tree could not be scanned or the target directories could not be created
+     */
+    protected List<Entry> scan(Path source, Path target, Map<Path, String> skipped) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        BasicFileAttributes attrs = followLinks
+                ? Files.readAttributes(source, BasicFileAttributes.class)
+                : Files.readAttributes(source, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        if (!attrs.isDirectory()) {
+            if (attrs.isRegularFile()) {
+                entries.add(new Entry(source, target, attrs.size(), attrs.lastModifiedTime()));
+            } else {
+                skip(source, getSkipReason(attrs), skipped);
+            }
+            return entries;
+        }
+
+        Set<FileVisitOption> options = followLinks ? EnumSet.of(FileVisitOption.FOLLOW_LINKS)
+                : EnumSet.noneOf(FileVisitOption.class);
+        Files.walkFileTree(source, options, Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes a) throws IOException {
+                Path dst = resolve(target, source.relativize(dir));
+                if (!Files.isDirectory(dst)) {
+                    Files.createDirectories(dst);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes a) {
+                if (a.isRegularFile()) {
+                    Path dst = resolve(target, source.relativize(file));
+                    entries.add(new Entry(file, dst, a.size(), a.lastModifiedTime()));
+                } else {
+                    skip(file, getSkipReason(a), skipped);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
+                if (exc instanceof FileSystemLoopException) {
+                    skip(file, "file system loop", skipped);
+                    return FileVisitResult.CONTINUE;
+                }
+                throw exc;
+            }
+        });
+        return entries;
+    }
+
+    protected void skip(Path path, String reason, Map<Path, String> skipped) {
+        if (log.isDebugEnabled()) {
+            log.debug("skip({}) {}", path, reason);
+        }
+        skipped.put(path, reason);
+    }
+
+    protected String getSkipReason(BasicFileAttributes attrs) {
+        if (attrs.isSymbolicLink()) {
+            // also reported when following a broken link
+            return followLinks ? "unresolved symbolic link" : "symbolic link";
+        }
+        return "not a regular file";
+    }
+
+    protected void transferFile(Entry entry, Progress progress, Map<Path, Throwable> failures, SftpTransferListener l) {
+        long transferred = 0L;
+        l.fileStarted(entry.source, entry.target, entry.size);
+        try {
+            OpenOption[] options = replaceExisting
+                    ? new OpenOption[] {
+                            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE }
+                    : new OpenOption[] { StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE };
+            byte[] buffer = new byte[bufferSize];
+            try (InputStream in = Files.newInputStream(entry.source);
+                 OutputStream out = Files.newOutputStream(entry.target, options)) {
+                for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new InterruptedIOException("Interrupted while transferring " + entry.source);
+                    }
+                    out.write(buffer, 0, n);
+                    transferred += n;
+                    progress.transferredBytes.addAndGet(n);
+                    l.fileProgress(entry.source, transferred, entry.size);
+                }
+            }
+            if (copyAttributes) {
+                Files.setLastModifiedTime(entry.target, entry.lastModified);
+            }
+            l.fileCompleted(entry.source, entry.target, transferred);
+        } catch (IOException | RuntimeException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("transferFile({} => {}) failed ({}) after {} bytes: {}",
+                        entry.source, entry.target, e.getClass().getSimpleName(), transferred, e.getMessage());
+            }
+            failures.put(entry.source, e);
+            l.fileFailed(entry.source, entry.target, e);
+        }
+        l.totalProgress(progress.completedFiles.incrementAndGet(), progress.totalFiles,
+                progress.transferredBytes.get(), progress.totalBytes);
+    }
+
+    /**
+     * Resolves the relative path name by name, so that it works even if the target belongs to another provider than
+     * the one of the relative path.
+     *
+     * @param  target   The target root
+     * @param  relative The relative path
+     * @return          The resolved path
+     */
+    protected static Path resolve(Path target, Path relative) {
+        Path result = target;
+        for (Path name : relative) {
+            String s = name.toString();
+            if (!s.isEmpty()) {
+                result = result.resolve(s);
+            }
+        }
+        return result;
+    }
+
+    protected static class Entry {
+        protected final Path source;
+        protected final Path target;
+        protected final long size;
+        protected final FileTime lastModified;
+
+        protected Entry(Path source, Path target, long size, FileTime lastModified) {
+            this.source = source;
+            this.target = target;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+
+    protected static class Progress {
+        protected final long totalFiles;
+        protected final long totalBytes;
+        protected final AtomicLong completedFiles = new AtomicLong();
+        protected final AtomicLong transferredBytes = new AtomicLong();
+
+        protected Progress(long totalFiles, long totalBytes) {
+            this.totalFiles = totalFiles;
+            this.totalBytes = totalBytes;
+        }
+    }
+}
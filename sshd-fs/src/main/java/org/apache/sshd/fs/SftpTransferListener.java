@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.fs;
+
+import java.nio.file.Path;
+
+/**
+ * Receives progress notifications from a {@link SftpTransferEngine}. The file related callbacks are invoked from the
+ * transfer threads, so implementations must be thread-safe.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public interface SftpTransferListener {
+    SftpTransferListener EMPTY = new SftpTransferListener() {
+        @Override
+        public String toString() {
+            return "EMPTY";
+        }
+    };
+
+    /**
+     * @param totalFiles Number of files to be transferred
+     * @param totalBytes Number of bytes to be transferred
+     */
+    default void transferStarted(long totalFiles, long totalBytes) {
+        // ignored
+    }
+
+    /**
+     * Called once the source tree has been scanned for every entry that is not copied - e.g., a symbolic link when
+     * links are not followed, or a special file
+     *
+     * @param source The skipped entry
+     * @param target Where it would have been copied to
+     * @param reason Why it is skipped
+     */
+    default void fileSkipped(Path source, Path target, String reason) {
+        // ignored
+    }
+
+    default void fileStarted(Path source, Path target, long size) {
+        // ignored
+    }
+
+    /**
+     * @param source      The source file
+     * @param transferred Number of bytes of the file transferred so far
+     * @param size        The size of the file when the transfer started
+     */
+    default void fileProgress(Path source, long transferred, long size) {
+        // ignored
+    }
+
+    default void fileCompleted(Path source, Path target, long transferred) {
+        // ignored
+    }
+
+    default void fileFailed(Path source, Path target, Throwable reason) {
+        // ignored
+    }
+
+    /**
+     * @param completedFiles   Number of files completed so far - successfully or not
+     * @param totalFiles       Number of files to be transferred
+     * @param transferredBytes Number of bytes transferred so far
+     * @param totalBytes       Number of bytes to be transferred
+     */
+    default void totalProgress(long completedFiles, long totalFiles, long transferredBytes, long totalBytes) {
+        // ignored
+    }
+
+    default void transferCompleted(SftpTransferReport report) {
+        // ignored
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.fs;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The outcome of a {@link SftpTransferEngine#transfer(Path, Path)} call.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class SftpTransferReport {
+    private final long totalFiles;
+    private final long transferredFiles;
+    private final long transferredBytes;
+    private final int concurrency;
+    private final Duration elapsed;
+    private final Map<Path, Throwable> failures;
+    private final Map<Path, String> skipped;
+
+    public SftpTransferReport(long totalFiles, long transferredFiles, long transferredBytes,
+                              int concurrency, Duration elapsed, Map<Path, Throwable> failures,
+                              Map<Path, String> skipped) {
+        this.totalFiles = totalFiles;
+        this.transferredFiles = transferredFiles;
+        this.transferredBytes = transferredBytes;
+        this.concurrency = concurrency;
+        this.elapsed = Objects.requireNonNull(elapsed, "No elapsed time");
+        this.failures = Collections.unmodifiableMap(Objects.requireNonNull(failures, "No failures"));
+        this.skipped = Collections.unmodifiableMap(Objects.requireNonNull(skipped, "No skipped entries"));
+    }
+
+    public long getTotalFiles() {
+        return totalFiles;
+    }
+
+    public long getTransferredFiles() {
+        return transferredFiles;
+    }
+
+    public long getTransferredBytes() {
+        return transferredBytes;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * @return The source files that could not be transferred and the reason
+     */
+    public Map<Path, Throwable> getFailures() {
+        return failures;
+    }
+
+    /**
+     * @return The source entries that were not copied because they are not regular files, and the reason - see
+     *         {@link SftpTransferEngine#setFollowLinks(boolean)}
+     */
+    public Map<Path, String> getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * @return {@code true} if all the regular files were copied - there may still be {@link #getSkipped() skipped}
+     *         entries
+     */
+    public boolean isSuccessful() {
+        return failures.isEmpty();
+    }
+
+    /**
+     * @return Average number of bytes per second over the whole transfer
+     */
+    public double getBytesPerSecond() {
+        long nanos = elapsed.toNanos();
+        return nanos <= 0L ? 0.0d : transferredBytes * 1.0e9d / nanos;
+    }
+
+    /**
+     * @return Average number of files per second over the whole transfer
+     */
+    public double getFilesPerSecond() {
+        long nanos = elapsed.toNanos();
+        return nanos <= 0L ? 0.0d : transferredFiles * 1.0e9d / nanos;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName()
+               + "[files=" + transferredFiles + "/" + totalFiles
+               + ", bytes=" + transferredBytes
+               + ", failures=" + failures.size()
+               + ", skipped=" + skipped.size()
+               + ", concurrency=" + concurrency
+               + ", elapsed=" + elapsed
+               + ", bytes/s=" + String.format("%.1f", getBytesPerSecond())
+               + ", files/s=" + String.format("%.1f", getFilesPerSecond())
+               + "]";
+    }
+}
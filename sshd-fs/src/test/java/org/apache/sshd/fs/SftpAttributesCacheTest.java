@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.fs;
+
+import java.time.Duration;
+
+import org.apache.sshd.client.SftpClient.Attributes;
+import org.apache.sshd.fs.SftpAttributesCache.CachedAttributes;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class SftpAttributesCacheTest {
+    private static final Duration TTL = Duration.ofSeconds(10L);
+    private static final Duration NEGATIVE_TTL = Duration.ofSeconds(2L);
+
+    private final TestCache cache = new TestCache(100, TTL, NEGATIVE_TTL);
+
+    @Test
+    public void testTtlExpiry() {
+        Attributes attrs = new Attributes().size(42L);
+        cache.put("/file", true, attrs, cache.getGeneration());
+
+        cache.elapse(TTL.minusNanos(1L));
+        CachedAttributes entry = cache.lookup("/file", true);
+        assertNotNull(entry, "Expired early");
+        assertSame(attrs, entry.getAttributes());
+        assertNull(cache.lookup("/file", false), "lstat answered by the stat result");
+
+        cache.elapse(Duration.ofNanos(1L));
+        assertNull(cache.lookup("/file", true), "Not expired");
+
+        SftpAttributesCacheStats stats = cache.getStats();
+        assertEquals(1L, stats.getHits());
+        assertEquals(2L, stats.getMisses());
+        assertEquals(1L, stats.getExpirations());
+        assertEquals(0, stats.getSize());
+    }
+
+    @Test
+    public void testNegativeTtlExpiry() {
+        cache.put("/missing", true, null, cache.getGeneration());
+        // the absence of a file is kept for a shorter time
+        cache.elapse(NEGATIVE_TTL.minusNanos(1L));
+        CachedAttributes entry = cache.lookup("/missing", true);
+        assertNotNull(entry);
+        assertTrue(entry.isNegative());
+        assertNull(entry.getAttributes());
+
+        cache.elapse(Duration.ofNanos(1L));
+        assertNull(cache.lookup("/missing", true));
+
+        SftpAttributesCacheStats stats = cache.getStats();
+        assertEquals(1L, stats.getNegativeHits());
+        assertEquals(0L, stats.getHits());
+        assertEquals(1L, stats.getExpirations());
+    }
+
+    @Test
+    public void testNegativeResultsNotCached() {
+        SftpAttributesCache positiveOnly = new SftpAttributesCache(100, TTL, Duration.ZERO);
+        positiveOnly.put("/missing", true, null, positiveOnly.getGeneration());
+        assertNull(positiveOnly.lookup("/missing", true));
+        assertEquals(0, positiveOnly.getStats().getSize());
+    }
+
+    @Test
+    public void testLruEviction() {
+        TestCache small = new TestCache(3, TTL, NEGATIVE_TTL);
+        long generation = small.getGeneration();
+        small.put("/a", true, new Attributes(), generation);
+        small.put("/b", true, new Attributes(), generation);
+        small.put("/c", true, new Attributes(), generation);
+        // makes "/b" the least recently used entry
+        assertNotNull(small.lookup("/a", true));
+
+        small.put("/d", true, new Attributes(), generation);
+        assertEquals(3, small.getStats().getSize());
+        assertEquals(1L, small.getStats().getEvictions());
+        assertNull(small.lookup("/b", true), "Least recently used entry kept");
+        assertNotNull(small.lookup("/a", true));
+        assertNotNull(small.lookup("/c", true));
+        assertNotNull(small.lookup("/d", true));
+    }
+
+    @Test
+    public void testInvalidatePath() {
+        long generation = cache.getGeneration();
+        cache.put("/dir", true, new Attributes(), generation);
+        cache.put("/dir", false, new Attributes(), generation);
+        cache.put("/dir/file", true, new Attributes(), generation);
+
+        cache.invalidate("/dir", false);
+        assertNull(cache.lookup("/dir", true));
+        assertNull(cache.lookup("/dir", false));
+        assertNotNull(cache.lookup("/dir/file", true), "Child dropped without subtree");
+        assertEquals(1L, cache.getStats().getInvalidations());
+    }
+
+    @Test
+    public void testInvalidateSubtree() {
+        String[] dropped = { "/dir", "/dir/file", "/dir/sub/deeper" };
+        String[] kept = { "/dir2", "/dir2/file", "/di", "/other/dir/file" };
+        long generation = cache.getGeneration();
+        for (String path : dropped) {
+            cache.put(path, true, new Attributes(), generation);
+            cache.put(path, false, new Attributes(), generation);
+        }
+        for (String path : kept) {
+            cache.put(path, true, new Attributes(), generation);
+            cache.put(path, false, new Attributes(), generation);
+        }
+
+        cache.invalidate("/dir", true);
+        for (String path : dropped) {
+            assertNull(cache.lookup(path, true), path);
+            assertNull(cache.lookup(path, false), path);
+        }
+        for (String path : kept) {
+            assertNotNull(cache.lookup(path, true), path);
+            assertNotNull(cache.lookup(path, false), path);
+        }
+
+        // a trailing separator makes no difference, and the root covers everything
+        cache.put("/dir/file", true, new Attributes(), cache.getGeneration());
+        cache.invalidate("/dir/", true);
+        assertNull(cache.lookup("/dir/file", true));
+        cache.invalidate("/", true);
+        assertEquals(0, cache.getStats().getSize());
+    }
+
+    @Test
+    public void testPutRacingInvalidationIgnored() {
+        // a query in flight while any path is modified may return the state from before the modification
+        long generation = cache.getGeneration();
+        cache.invalidate("/other", false);
+        cache.put("/file", true, new Attributes(), generation);
+        assertNull(cache.lookup("/file", true), "Stale result cached");
+
+        generation = cache.getGeneration();
+        cache.clear();
+        cache.put("/file", true, new Attributes(), generation);
+        assertNull(cache.lookup("/file", true), "Stale result cached after clear");
+
+        cache.put("/file", true, new Attributes(), cache.getGeneration());
+        assertNotNull(cache.lookup("/file", true));
+    }
+
+    private static class TestCache extends SftpAttributesCache {
+        private long now;
+
+        TestCache(int maxSize, Duration ttl, Duration negativeTtl) {
+            super(maxSize, ttl, negativeTtl);
+        }
+
+        void elapse(Duration duration) {
+            now += duration.toNanos();
+        }
+
+        @Override
+        protected long nanoTime() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.fs;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs the engine between directories of the default file system - the engine only uses the {@link Path} API
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class SftpTransferEngineTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testCopyTree() throws Exception {
+        Path source = Files.createDirectories(tempDir.resolve("source"));
+        write(source.resolve("a.txt"), 10);
+        write(Files.createDirectories(source.resolve("sub")).resolve("b.txt"), 100000);
+        write(Files.createDirectories(source.resolve("sub/deeper")).resolve("c.txt"), 0);
+        Files.createDirectories(source.resolve("empty"));
+
+        RecordingListener listener = new RecordingListener();
+        Path target = tempDir.resolve("target");
+        SftpTransferReport report = new SftpTransferEngine()
+                .setConcurrency(2)
+                .setBufferSize(4096)
+                .setListener(listener)
+                .transfer(source, target);
+
+        assertTrue(report.isSuccessful());
+        assertEquals(3L, report.getTotalFiles());
+        assertEquals(3L, report.getTransferredFiles());
+        assertEquals(100010L, report.getTransferredBytes());
+        assertTrue(report.getSkipped().isEmpty());
+        assertSameContents(source.resolve("a.txt"), target.resolve("a.txt"));
+        assertSameContents(source.resolve("sub/b.txt"), target.resolve("sub/b.txt"));
+        assertSameContents(source.resolve("sub/deeper/c.txt"), target.resolve("sub/deeper/c.txt"));
+        assertTrue(Files.isDirectory(target.resolve("empty")));
+
+        assertEquals(3L, listener.started.get());
+        assertEquals(3L, listener.completed.get());
+        assertEquals(3L, listener.totalProgress.get());
+        assertEquals(100010L, listener.lastTransferred.get());
+        assertTrue(listener.skipped.isEmpty());
+    }
+
+    @Test
+    public void testExistingTargetFailure() throws Exception {
+        Path source = Files.createDirectories(tempDir.resolve("source"));
+        write(source.resolve("a.txt"), 10);
+        write(source.resolve("b.txt"), 20);
+        Path target = Files.createDirectories(tempDir.resolve("target"));
+        write(target.resolve("a.txt"), 5);
+
+        SftpTransferReport report = new SftpTransferEngine()
+                .setReplaceExisting(false)
+                .transfer(source, target);
+        assertFalse(report.isSuccessful());
+        assertEquals(1L, report.getTransferredFiles());
+        assertTrue(report.getFailures().get(source.resolve("a.txt")) instanceof FileAlreadyExistsException);
+        assertEquals(5L, Files.size(target.resolve("a.txt")));
+        assertSameContents(source.resolve("b.txt"), target.resolve("b.txt"));
+    }
+
+    @Test
+    public void testSymbolicLinksSkipped() throws Exception {
+        Path source = Files.createDirectories(tempDir.resolve("source"));
+        Path file = write(source.resolve("a.txt"), 10);
+        Path dir = Files.createDirectories(tempDir.resolve("outside"));
+        write(dir.resolve("b.txt"), 20);
+        Path fileLink = createLink(source.resolve("file-link"), file);
+        Path dirLink = createLink(source.resolve("dir-link"), dir);
+
+        RecordingListener listener = new RecordingListener();
+        Path target = tempDir.resolve("target");
+        SftpTransferReport report = new SftpTransferEngine()
+                .setListener(listener)
+                .transfer(source, target);
+
+        assertTrue(report.isSuccessful());
+        assertEquals(1L, report.getTransferredFiles());
+        assertEquals(2, report.getSkipped().size());
+        assertEquals("symbolic link", report.getSkipped().get(fileLink));
+        assertEquals("symbolic link", report.getSkipped().get(dirLink));
+        assertEquals(target.resolve("file-link"), listener.skipped.get(fileLink));
+        assertEquals(target.resolve("dir-link"), listener.skipped.get(dirLink));
+        assertFalse(Files.exists(target.resolve("file-link"), LinkOption.NOFOLLOW_LINKS));
+        assertFalse(Files.exists(target.resolve("dir-link"), LinkOption.NOFOLLOW_LINKS));
+    }
+
+    @Test
+    public void testSymbolicLinkSourceSkipped() throws Exception {
+        Path file = write(tempDir.resolve("a.txt"), 10);
+        Path link = createLink(tempDir.resolve("link"), file);
+
+        SftpTransferReport report = new SftpTransferEngine().transfer(link, tempDir.resolve("copy"));
+        assertEquals(0L, report.getTotalFiles());
+        assertEquals("symbolic link", report.getSkipped().get(link));
+        assertFalse(Files.exists(tempDir.resolve("copy")));
+    }
+
+    @Test
+    public void testFollowLinks() throws Exception {
+        Path source = Files.createDirectories(tempDir.resolve("source"));
+        Path file = write(tempDir.resolve("a.txt"), 10);
+        Path dir = Files.createDirectories(tempDir.resolve("outside"));
+        write(dir.resolve("b.txt"), 20);
+        createLink(source.resolve("file-link"), file);
+        createLink(source.resolve("dir-link"), dir);
+        Path broken = createLink(source.resolve("broken-link"), tempDir.resolve("missing"));
+
+        Path target = tempDir.resolve("target");
+        SftpTransferReport report = new SftpTransferEngine()
+                .setFollowLinks(true)
+                .transfer(source, target);
+
+        assertTrue(report.isSuccessful());
+        assertEquals(2L, report.getTransferredFiles());
+        assertEquals("unresolved symbolic link", report.getSkipped().get(broken));
+        assertFalse(Files.isSymbolicLink(target.resolve("file-link")));
+        assertSameContents(file, target.resolve("file-link"));
+        assertFalse(Files.isSymbolicLink(target.resolve("dir-link")));
+        assertSameContents(dir.resolve("b.txt"), target.resolve("dir-link/b.txt"));
+    }
+
+    @Test
+    public void testFollowLinksLoop() throws Exception {
+        Path source = Files.createDirectories(tempDir.resolve("source"));
+        write(source.resolve("a.txt"), 10);
+        Path loop = createLink(source.resolve("loop"), source);
+
+        SftpTransferReport report = new SftpTransferEngine()
+                .setFollowLinks(true)
+                .transfer(source, tempDir.resolve("target"));
+        assertTrue(report.isSuccessful());
+        assertEquals(1L, report.getTransferredFiles());
+        assertEquals("file system loop", report.getSkipped().get(loop));
+    }
+
+    private static Path createLink(Path link, Path target) throws IOException {
+        try {
+            return Files.createSymbolicLink(link, target);
+        } catch (UnsupportedOperationException | IOException e) {
+            assumeTrue(false, "Symbolic links not supported: " + e);
+            return link;
+        }
+    }
+
+    private static Path write(Path file, int size) throws IOException {
+        byte[] data = new byte[size];
+        for (int index = 0; index < size; index++) {
+            data[index] = (byte) (index * 31 + file.getFileName().hashCode());
+        }
+        return Files.write(file, data);
+    }
+
+    private static void assertSameContents(Path expected, Path actual) throws IOException {
+        assertArrayEquals(Files.readAllBytes(expected), Files.readAllBytes(actual), actual.toString());
+    }
+
+    private static class RecordingListener implements SftpTransferListener {
+        private final AtomicLong started = new AtomicLong();
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong totalProgress = new AtomicLong();
+        private final AtomicLong lastTransferred = new AtomicLong();
+        private final Map<Path, Path> skipped = new ConcurrentHashMap<>();
+
+        @Override
+        public void fileSkipped(Path source, Path target, String reason) {
+            skipped.put(source, target);
+        }
+
+        @Override
+        public void fileStarted(Path source, Path target, long size) {
+            started.incrementAndGet();
+        }
+
+        @Override
+        public void fileCompleted(Path source, Path target, long transferred) {
+            completed.incrementAndGet();
+        }
+
+        @Override
+        public void totalProgress(long completedFiles, long totalFiles, long transferredBytes, long totalBytes) {
+            totalProgress.accumulateAndGet(completedFiles, Math::max);
+            lastTransferred.accumulateAndGet(transferredBytes, Math::max);
+        }
+    }
+}